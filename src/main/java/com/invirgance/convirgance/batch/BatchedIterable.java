@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Groups a stream of records into {@link RecordBatch} instances of up to the
+ * configured size.
+ *
+ * @author jbanes
+ */
+public class BatchedIterable implements Iterable<RecordBatch>
+{
+    private final Iterable<JSONObject> records;
+    private final int size;
+
+    public BatchedIterable(Iterable<JSONObject> records)
+    {
+        this(records, 4096);
+    }
+
+    public BatchedIterable(Iterable<JSONObject> records, int size)
+    {
+        this.records = records;
+        this.size = size;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public Iterator<RecordBatch> iterator()
+    {
+        final Iterator<JSONObject> iterator = records.iterator();
+
+        return new Iterator<RecordBatch>() {
+
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public RecordBatch next()
+            {
+                RecordBatch batch = new RecordBatch(size);
+
+                if(!iterator.hasNext()) throw new NoSuchElementException();
+
+                while(!batch.isFull() && iterator.hasNext())
+                {
+                    batch.add(iterator.next());
+                }
+
+                return batch;
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+/**
+ * Column of Boolean values stored as a bitset.
+ *
+ * @author jbanes
+ */
+public class BooleanColumn extends Column
+{
+    private final long[] values;
+
+    public BooleanColumn(String key, int capacity)
+    {
+        super(key, capacity);
+
+        this.values = new long[(capacity + 63) >>> 6];
+    }
+
+    public boolean getBoolean(int row)
+    {
+        return isSet(values, row);
+    }
+
+    @Override
+    public boolean accepts(Object value)
+    {
+        return (value instanceof Boolean);
+    }
+
+    @Override
+    protected Object getValue(int row)
+    {
+        return isSet(values, row);
+    }
+
+    @Override
+    protected void set(int row, Object value)
+    {
+        if((Boolean)value) set(values, row);
+    }
+
+    @Override
+    public int select(Object value, int[] rows, int count, int[] out)
+    {
+        int selected = 0;
+        boolean match;
+        int row;
+
+        if(value == null) return selectNulls(rows, count, out);
+        if(!accepts(value)) return 0;
+
+        match = (Boolean)value;
+
+        for(int i=0; i<count; i++)
+        {
+            row = rows[i];
+
+            if(isSet(values, row) == match && !isSet(nulls, row)) out[selected++] = row;
+        }
+
+        return selected;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * A single column of values in a {@link RecordBatch}. Values are stored in
+ * typed primitive arrays by the concrete implementations. Nulls are tracked
+ * in a bitmap so that the primitive slots for null rows can be ignored.
+ * Rows where the key was not present in the source record are additionally
+ * marked as absent so that records can be reconstructed exactly.
+ *
+ * @author jbanes
+ */
+public abstract class Column
+{
+    private final String key;
+
+    protected final int capacity;
+    protected final long[] nulls;
+    protected long[] absent;
+    protected int size;
+
+    protected Column(String key, int capacity)
+    {
+        this.key = key;
+        this.capacity = capacity;
+        this.nulls = new long[(capacity + 63) >>> 6];
+    }
+
+    static boolean isSet(long[] bits, int row)
+    {
+        return (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    static void set(long[] bits, int row)
+    {
+        bits[row >>> 6] |= (1L << row);
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isNull(int row)
+    {
+        return isSet(nulls, row);
+    }
+
+    public boolean isAbsent(int row)
+    {
+        return (absent != null && isSet(absent, row));
+    }
+
+    /**
+     * Counts the rows that have a non-null value
+     *
+     * @return number of non-null values in this column
+     */
+    public int getValueCount()
+    {
+        int count = size;
+
+        for(long bits : nulls) count -= Long.bitCount(bits);
+
+        return count;
+    }
+
+    public void add(Object value)
+    {
+        if(size >= capacity) throw new IllegalStateException("Column " + key + " is full at " + capacity + " rows");
+
+        if(value == null) set(nulls, size);
+        else set(size, value);
+
+        size++;
+    }
+
+    public void addAbsent()
+    {
+        if(absent == null) absent = new long[nulls.length];
+
+        set(absent, size);
+        add(null);
+    }
+
+    public Object get(int row)
+    {
+        if(isNull(row)) return null;
+
+        return getValue(row);
+    }
+
+    /**
+     * Selects the rows from the list provided whose value equals the given
+     * value. Implementations are expected to override this with a loop over
+     * their primitive storage.
+     *
+     * @param value the value to compare against
+     * @param rows the candidate rows
+     * @param count the number of candidate rows in the array
+     * @param out receives the matching rows. May be the same array as rows.
+     * @return the number of rows written to out
+     */
+    public int select(Object value, int[] rows, int count, int[] out)
+    {
+        int selected = 0;
+        int row;
+
+        for(int i=0; i<count; i++)
+        {
+            row = rows[i];
+
+            if(value == null ? isNull(row) : Objects.equals(value, get(row))) out[selected++] = row;
+        }
+
+        return selected;
+    }
+
+    int selectNulls(int[] rows, int count, int[] out)
+    {
+        int selected = 0;
+        int row;
+
+        for(int i=0; i<count; i++)
+        {
+            row = rows[i];
+
+            if(isSet(nulls, row)) out[selected++] = row;
+        }
+
+        return selected;
+    }
+
+    /**
+     * Tests whether a non-null value can be stored in this column without
+     * losing type information.
+     *
+     * @param value non-null value to test
+     * @return true if the value can be stored
+     */
+    public abstract boolean accepts(Object value);
+
+    protected abstract Object getValue(int row);
+    protected abstract void set(int row, Object value);
+
+    /**
+     * Creates the most compact column type able to hold the provided value.
+     *
+     * @param key name of the column
+     * @param capacity maximum number of rows
+     * @param value sample value used to pick the column type
+     * @return a new, empty column
+     */
+    public static Column create(String key, int capacity, Object value)
+    {
+        if(value instanceof String) return new StringColumn(key, capacity);
+        if(value instanceof Integer) return new LongColumn(key, capacity, true);
+        if(value instanceof Long) return new LongColumn(key, capacity, false);
+        if(value instanceof Double) return new DoubleColumn(key, capacity);
+        if(value instanceof Boolean) return new BooleanColumn(key, capacity);
+        if(value != null && value.getClass() == Date.class) return new DateColumn(key, capacity);
+
+        return new ObjectColumn(key, capacity);
+    }
+
+    // Object columns created before any value was seen
+    private static boolean isUntyped(Column column)
+    {
+        return (column instanceof ObjectColumn && ((ObjectColumn)column).isEmpty());
+    }
+
+    /**
+     * Appends a value to the column. If the column cannot hold the value, a
+     * new column of a more general type is created, populated with the
+     * existing values, and returned in its place. Columns without values 
+     * take the type of the first value, and Integer columns are widened to 
+     * hold Longs (and vice versa) rather than falling back to Objects.
+     *
+     * @param column the column to append to
+     * @param value the value to append
+     * @return the column that now holds the value
+     */
+    public static Column append(Column column, Object value)
+    {
+        Column promoted;
+
+        if(value == null || (column.accepts(value) && !isUntyped(column)))
+        {
+            column.add(value);
+
+            return column;
+        }
+
+        if(column.getValueCount() < 1) promoted = create(column.getKey(), column.capacity, value);
+        else if(column instanceof LongColumn && (value instanceof Integer || value instanceof Long)) promoted = new LongColumn(column.getKey(), column.capacity);
+        else promoted = new ObjectColumn(column.getKey(), column.capacity);
+
+        for(int i=0; i<column.size; i++)
+        {
+            if(column.isAbsent(i)) promoted.addAbsent();
+            else promoted.add(column.get(i));
+        }
+
+        promoted.add(value);
+
+        return promoted;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+import java.util.Date;
+
+/**
+ * Column of Date values stored as epoch milliseconds in a long[]. Only plain
+ * java.util.Date values are accepted so that subclasses like 
+ * java.sql.Timestamp keep their type.
+ *
+ * @author jbanes
+ */
+public class DateColumn extends Column
+{
+    private final long[] values;
+
+    public DateColumn(String key, int capacity)
+    {
+        super(key, capacity);
+
+        this.values = new long[capacity];
+    }
+
+    public long getTime(int row)
+    {
+        return values[row];
+    }
+
+    public void addTime(long time)
+    {
+        if(size >= capacity) throw new IllegalStateException("Column " + getKey() + " is full at " + capacity + " rows");
+
+        values[size++] = time;
+    }
+
+    @Override
+    public boolean accepts(Object value)
+    {
+        return (value != null && value.getClass() == Date.class);
+    }
+
+    @Override
+    protected Object getValue(int row)
+    {
+        return new Date(values[row]);
+    }
+
+    @Override
+    protected void set(int row, Object value)
+    {
+        values[row] = ((Date)value).getTime();
+    }
+
+    @Override
+    public int select(Object value, int[] rows, int count, int[] out)
+    {
+        int selected = 0;
+        long match;
+        int row;
+
+        if(value == null) return selectNulls(rows, count, out);
+        if(!accepts(value)) return 0;
+
+        match = ((Date)value).getTime();
+
+        for(int i=0; i<count; i++)
+        {
+            row = rows[i];
+
+            if(values[row] == match && !isSet(nulls, row)) out[selected++] = row;
+        }
+
+        return selected;
+    }
+}
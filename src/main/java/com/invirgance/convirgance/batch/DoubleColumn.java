@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+/**
+ * Column of Double values stored as a double[].
+ *
+ * @author jbanes
+ */
+public class DoubleColumn extends Column
+{
+    private final double[] values;
+
+    public DoubleColumn(String key, int capacity)
+    {
+        super(key, capacity);
+
+        this.values = new double[capacity];
+    }
+
+    public double getDouble(int row)
+    {
+        return values[row];
+    }
+
+    public void addDouble(double value)
+    {
+        if(size >= capacity) throw new IllegalStateException("Column " + getKey() + " is full at " + capacity + " rows");
+
+        values[size++] = value;
+    }
+
+    @Override
+    public boolean accepts(Object value)
+    {
+        return (value instanceof Double);
+    }
+
+    @Override
+    protected Object getValue(int row)
+    {
+        return values[row];
+    }
+
+    @Override
+    protected void set(int row, Object value)
+    {
+        values[row] = (Double)value;
+    }
+
+    @Override
+    public int select(Object value, int[] rows, int count, int[] out)
+    {
+        int selected = 0;
+        double match;
+        int row;
+
+        if(value == null) return selectNulls(rows, count, out);
+        if(!accepts(value)) return 0;
+
+        match = (Double)value;
+
+        // Compare bits to match Double.equals() semantics for NaN and -0.0
+        for(int i=0; i<count; i++)
+        {
+            row = rows[i];
+
+            if(Double.doubleToLongBits(values[row]) == Double.doubleToLongBits(match) && !isSet(nulls, row)) out[selected++] = row;
+        }
+
+        return selected;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+/**
+ * Column of integer values stored as a long[]. A column normally holds either
+ * Integer or Long values. Columns that see both are widened to hold Longs, 
+ * with a bitmap of the Integer rows so that the original boxed type is 
+ * restored when records are reconstructed.
+ *
+ * @author jbanes
+ */
+public class LongColumn extends Column
+{
+    private final long[] values;
+    private final boolean integer;
+    private final long[] integers;
+
+    public LongColumn(String key, int capacity, boolean integer)
+    {
+        super(key, capacity);
+
+        this.values = new long[capacity];
+        this.integer = integer;
+        this.integers = null;
+    }
+
+    /**
+     * Creates a widened column that accepts both Integer and Long values
+     * 
+     * @param key name of the column
+     * @param capacity maximum number of rows
+     */
+    public LongColumn(String key, int capacity)
+    {
+        super(key, capacity);
+
+        this.values = new long[capacity];
+        this.integer = false;
+        this.integers = new long[nulls.length];
+    }
+
+    /**
+     * True if the column holds both Integer and Long values
+     * 
+     * @return true for widened columns
+     */
+    public boolean isWidened()
+    {
+        return (integers != null);
+    }
+
+    public boolean isInteger()
+    {
+        return integer;
+    }
+
+    public long getLong(int row)
+    {
+        return values[row];
+    }
+
+    public void addLong(long value)
+    {
+        if(size >= capacity) throw new IllegalStateException("Column " + getKey() + " is full at " + capacity + " rows");
+
+        values[size++] = value;
+    }
+
+    @Override
+    public boolean accepts(Object value)
+    {
+        if(integers != null) return (value instanceof Integer || value instanceof Long);
+        
+        return integer ? (value instanceof Integer) : (value instanceof Long);
+    }
+
+    @Override
+    protected Object getValue(int row)
+    {
+        if(integer || (integers != null && isSet(integers, row))) return (int)values[row];
+
+        return values[row];
+    }
+
+    @Override
+    protected void set(int row, Object value)
+    {
+        values[row] = ((Number)value).longValue();
+        
+        if(integers != null && value instanceof Integer) set(integers, row);
+    }
+
+    @Override
+    public int select(Object value, int[] rows, int count, int[] out)
+    {
+        int selected = 0;
+        long match;
+        int row;
+
+        if(value == null) return selectNulls(rows, count, out);
+        if(!accepts(value)) return 0;
+
+        match = ((Number)value).longValue();
+
+        for(int i=0; i<count; i++)
+        {
+            row = rows[i];
+
+            if(values[row] != match || isSet(nulls, row)) continue;
+            if(integers != null && isSet(integers, row) != (value instanceof Integer)) continue;
+            
+            out[selected++] = row;
+        }
+
+        return selected;
+    }
+}
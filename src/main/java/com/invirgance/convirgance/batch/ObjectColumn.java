@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+/**
+ * Fallback column for nested objects, arrays, and columns with mixed
+ * value types.
+ *
+ * @author jbanes
+ */
+public class ObjectColumn extends Column
+{
+    private final Object[] values;
+    private boolean empty = true;
+
+    public ObjectColumn(String key, int capacity)
+    {
+        super(key, capacity);
+
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * True until the first non-null value is stored
+     * 
+     * @return true if every row is null or absent
+     */
+    public boolean isEmpty()
+    {
+        return empty;
+    }
+
+    @Override
+    public boolean accepts(Object value)
+    {
+        return true;
+    }
+
+    @Override
+    protected Object getValue(int row)
+    {
+        return values[row];
+    }
+
+    @Override
+    protected void set(int row, Object value)
+    {
+        values[row] = value;
+        empty = false;
+    }
+}
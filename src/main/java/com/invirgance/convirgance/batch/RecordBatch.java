@@ -0,0 +1,268 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Columnar (struct-of-arrays) container for a fixed number of records. Each
+ * key becomes a {@link Column} backed by a primitive array where possible,
+ * allowing filters and transformers to run tight loops over whole columns
+ * rather than performing per-record map lookups.
+ *
+ * A batch keeps a selection vector of the rows that are still active. Filters
+ * narrow the selection instead of copying data. Iterating the batch
+ * reconstructs a {@link JSONObject} for each selected row.
+ *
+ * @author jbanes
+ */
+public class RecordBatch implements Iterable<JSONObject>
+{
+    private final int capacity;
+    private final ArrayList<Column> columns;
+    private final HashMap<String,Integer> index;
+
+    private int rows;
+    private int[] selection;
+    private int selected;
+
+    public RecordBatch(int capacity)
+    {
+        this.capacity = capacity;
+        this.columns = new ArrayList<>();
+        this.index = new HashMap<>();
+    }
+
+    /**
+     * Creates a batch from columns that have already been populated. All
+     * columns must contain the same number of rows.
+     * 
+     * @param capacity maximum number of rows
+     * @param rows number of rows in each column
+     * @param columns the populated columns
+     */
+    public RecordBatch(int capacity, int rows, Column[] columns)
+    {
+        this(capacity);
+        
+        this.rows = rows;
+        
+        for(Column column : columns) setColumn(column);
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public boolean isFull()
+    {
+        return (rows >= capacity);
+    }
+
+    /**
+     * The number of physical rows stored in the batch, including rows that
+     * have been filtered out of the selection.
+     *
+     * @return number of stored rows
+     */
+    public int getRowCount()
+    {
+        return rows;
+    }
+
+    /**
+     * The number of selected rows
+     *
+     * @return number of records that will be produced by the iterator
+     */
+    public int size()
+    {
+        return (selection == null) ? rows : selected;
+    }
+
+    public String[] getKeys()
+    {
+        String[] keys = new String[columns.size()];
+
+        for(int i=0; i<keys.length; i++) keys[i] = columns.get(i).getKey();
+
+        return keys;
+    }
+
+    public Column[] getColumns()
+    {
+        return columns.toArray(Column[]::new);
+    }
+
+    public Column getColumn(String key)
+    {
+        Integer id = index.get(key);
+
+        if(id == null) return null;
+
+        return columns.get(id);
+    }
+
+    /**
+     * Replaces or adds a column. The column must contain a value for every
+     * physical row in the batch.
+     *
+     * @param column the column to store
+     */
+    public void setColumn(Column column)
+    {
+        Integer id = index.get(column.getKey());
+
+        if(column.size() != rows) throw new ConvirganceException("Column " + column.getKey() + " has " + column.size() + " rows but batch has " + rows);
+
+        if(id != null)
+        {
+            columns.set(id, column);
+            return;
+        }
+
+        index.put(column.getKey(), columns.size());
+        columns.add(column);
+    }
+
+    public void add(JSONObject record)
+    {
+        Column column;
+        Integer id;
+
+        if(isFull()) throw new ConvirganceException("Batch is full at " + capacity + " records");
+        if(selection != null) throw new ConvirganceException("Records cannot be added to a filtered batch");
+
+        for(Map.Entry<String,Object> entry : record.entrySet())
+        {
+            id = index.get(entry.getKey());
+
+            if(id == null)
+            {
+                id = columns.size();
+                column = Column.create(entry.getKey(), capacity, entry.getValue());
+
+                // Key is new in this batch, so it was absent from prior rows
+                for(int i=0; i<rows; i++) column.addAbsent();
+
+                index.put(entry.getKey(), id);
+                columns.add(column);
+            }
+
+            column = columns.get(id);
+
+            columns.set(id, Column.append(column, entry.getValue()));
+        }
+
+        rows++;
+
+        // Fill in columns that this record did not have
+        for(Column missing : columns)
+        {
+            if(missing.size() < rows) missing.addAbsent();
+        }
+    }
+
+    public JSONObject getRecord(int row)
+    {
+        JSONObject record = new JSONObject(true);
+
+        for(Column column : columns)
+        {
+            if(column.isAbsent(row)) continue;
+
+            record.put(column.getKey(), column.get(row));
+        }
+
+        return record;
+    }
+
+    /**
+     * Returns a copy of the selected physical row numbers in ascending order
+     *
+     * @return array of selected rows. Array length matches size().
+     */
+    public int[] getSelection()
+    {
+        int[] copy = new int[size()];
+
+        if(selection != null)
+        {
+            System.arraycopy(selection, 0, copy, 0, selected);
+            return copy;
+        }
+
+        for(int i=0; i<rows; i++) copy[i] = i;
+
+        return copy;
+    }
+
+    /**
+     * Narrows the batch to the rows provided. Rows must be in ascending order.
+     *
+     * @param rows array of physical row numbers
+     * @param count number of entries in the array to use
+     */
+    public void setSelection(int[] rows, int count)
+    {
+        this.selection = rows;
+        this.selected = count;
+    }
+
+    public void clearSelection()
+    {
+        this.selection = null;
+        this.selected = 0;
+    }
+
+    @Override
+    public Iterator<JSONObject> iterator()
+    {
+        final int[] rows = getSelection();
+
+        return new Iterator<JSONObject>() {
+
+            private int position = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return (position < rows.length);
+            }
+
+            @Override
+            public JSONObject next()
+            {
+                if(position >= rows.length) throw new NoSuchElementException();
+
+                return getRecord(rows[position++]);
+            }
+        };
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Dictionary encoded column of String values. Each distinct value is stored
+ * once and rows hold an int code into the dictionary. Comparisons against a
+ * constant only need to look up the code once and then compare ints.
+ *
+ * @author jbanes
+ */
+public class StringColumn extends Column
+{
+    private final int[] codes;
+    private final HashMap<String,Integer> lookup;
+    private String[] dictionary;
+    private int entries;
+
+    public StringColumn(String key, int capacity)
+    {
+        super(key, capacity);
+
+        this.codes = new int[capacity];
+        this.lookup = new HashMap<>();
+        this.dictionary = new String[16];
+    }
+
+    /**
+     * Creates a column with a pre-populated dictionary. Rows can then be added
+     * by dictionary code using addCode().
+     * 
+     * @param key name of the column
+     * @param capacity maximum number of rows
+     * @param dictionary distinct values referenced by code
+     */
+    public StringColumn(String key, int capacity, String[] dictionary)
+    {
+        this(key, capacity);
+        
+        this.dictionary = Arrays.copyOf(dictionary, Math.max(16, dictionary.length));
+        this.entries = dictionary.length;
+        
+        for(int i=0; i<dictionary.length; i++) lookup.put(dictionary[i], i);
+    }
+
+    public void addCode(int code)
+    {
+        if(size >= capacity) throw new IllegalStateException("Column " + getKey() + " is full at " + capacity + " rows");
+        if(code >= entries) throw new IllegalArgumentException("Dictionary code " + code + " does not exist. " + entries + " entries are available.");
+
+        codes[size++] = code;
+    }
+
+    public int getCode(int row)
+    {
+        return codes[row];
+    }
+
+    public String getEntry(int code)
+    {
+        return dictionary[code];
+    }
+
+    public int getEntryCount()
+    {
+        return entries;
+    }
+
+    @Override
+    public boolean accepts(Object value)
+    {
+        return (value instanceof String);
+    }
+
+    @Override
+    protected Object getValue(int row)
+    {
+        return dictionary[codes[row]];
+    }
+
+    @Override
+    protected void set(int row, Object value)
+    {
+        Integer code = lookup.get((String)value);
+
+        if(code == null)
+        {
+            if(entries >= dictionary.length) dictionary = Arrays.copyOf(dictionary, dictionary.length * 2);
+
+            code = entries++;
+            dictionary[code] = (String)value;
+
+            lookup.put((String)value, code);
+        }
+
+        codes[row] = code;
+    }
+
+    @Override
+    public int select(Object value, int[] rows, int count, int[] out)
+    {
+        int selected = 0;
+        Integer match;
+        int code;
+        int row;
+
+        if(value == null) return selectNulls(rows, count, out);
+        if(!accepts(value)) return 0;
+
+        match = lookup.get((String)value);
+
+        if(match == null) return 0;
+
+        code = match;
+
+        for(int i=0; i<count; i++)
+        {
+            row = rows[i];
+
+            if(codes[row] == code && !isSet(nulls, row)) out[selected++] = row;
+        }
+
+        return selected;
+    }
+}
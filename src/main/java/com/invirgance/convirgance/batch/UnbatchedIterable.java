@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Flattens a stream of {@link RecordBatch} instances back into records. Only
+ * the selected rows of each batch are produced.
+ *
+ * @author jbanes
+ */
+public class UnbatchedIterable implements Iterable<JSONObject>
+{
+    private final Iterable<RecordBatch> batches;
+
+    public UnbatchedIterable(Iterable<RecordBatch> batches)
+    {
+        this.batches = batches;
+    }
+
+    @Override
+    public Iterator<JSONObject> iterator()
+    {
+        final Iterator<RecordBatch> iterator = batches.iterator();
+
+        return new Iterator<JSONObject>() {
+
+            private Iterator<JSONObject> current;
+
+            @Override
+            public boolean hasNext()
+            {
+                while((current == null || !current.hasNext()) && iterator.hasNext())
+                {
+                    current = iterator.next().iterator();
+                }
+
+                return (current != null && current.hasNext());
+            }
+
+            @Override
+            public JSONObject next()
+            {
+                if(!hasNext()) throw new NoSuchElementException();
+
+                return current.next();
+            }
+        };
+    }
+}
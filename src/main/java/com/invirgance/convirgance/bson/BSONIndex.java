@@ -0,0 +1,200 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.bson;
+
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Sparse index of record positions in a Convirgance BSON file. Each 
+ * checkpoint maps a record number to the byte offset where the encoder was 
+ * reset, so a reader can seek to the nearest checkpoint at or before the
+ * record it wants and decode forward from a clean state.
+ * 
+ * The index is stored as a trailer after the end of stream marker: 16 bytes 
+ * per checkpoint (record number and offset), followed by a 24 byte footer 
+ * holding the total record count, the offset of the first checkpoint, the 
+ * number of checkpoints, and the "BIDX" magic number.
+ *
+ * @author jbanes
+ */
+public class BSONIndex
+{
+    private static final byte[] MAGIC = new byte[] { 'B', 'I', 'D', 'X' };
+    private static final int FOOTER_SIZE = 24;
+    
+    private long[] records;
+    private long[] offsets;
+    private int count;
+    private long recordCount;
+
+    public BSONIndex()
+    {
+        this(16);
+    }
+    
+    private BSONIndex(int capacity)
+    {
+        this.records = new long[Math.max(capacity, 1)];
+        this.offsets = new long[Math.max(capacity, 1)];
+    }
+    
+    /**
+     * Adds a checkpoint. Checkpoints must be added in ascending record order.
+     * 
+     * @param record the number of the first record after the checkpoint
+     * @param offset the byte offset of the checkpoint in the file
+     */
+    public void add(long record, long offset)
+    {
+        if(count > 0 && record <= records[count-1]) throw new IllegalArgumentException("Checkpoint for record " + record + " is out of order");
+        
+        if(count >= records.length)
+        {
+            records = Arrays.copyOf(records, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        
+        records[count] = record;
+        offsets[count] = offset;
+        
+        count++;
+    }
+
+    public int getCheckpointCount()
+    {
+        return count;
+    }
+    
+    public long getRecord(int checkpoint)
+    {
+        return records[checkpoint];
+    }
+    
+    public long getOffset(int checkpoint)
+    {
+        return offsets[checkpoint];
+    }
+
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    public void setRecordCount(long recordCount)
+    {
+        this.recordCount = recordCount;
+    }
+    
+    /**
+     * Finds the last checkpoint at or before the record
+     * 
+     * @param record the record number to find
+     * @return the checkpoint number or -1 if no checkpoint precedes the record
+     */
+    public int find(long record)
+    {
+        int index = Arrays.binarySearch(records, 0, count, record);
+        
+        return (index >= 0) ? index : -(index + 1) - 1;
+    }
+    
+    /**
+     * Writes the index trailer
+     * 
+     * @param out the stream to write to
+     * @param position the byte offset in the file where the trailer begins
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(DataOutput out, long position) throws IOException
+    {
+        for(int i=0; i<count; i++)
+        {
+            out.writeLong(records[i]);
+            out.writeLong(offsets[i]);
+        }
+        
+        out.writeLong(recordCount);
+        out.writeLong(position);
+        out.writeInt(count);
+        out.write(MAGIC);
+    }
+    
+    private static ByteBuffer read(SeekableByteChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        
+        channel.position(position);
+        
+        while(buffer.hasRemaining())
+        {
+            if(channel.read(buffer) < 0) throw new EOFException("Index extends past the end of the file");
+        }
+        
+        return buffer.flip();
+    }
+    
+    /**
+     * Loads the index from the trailer of a file. The position of the channel
+     * is changed.
+     * 
+     * @param channel the file to read
+     * @return the index or null if the file does not end in an index
+     * @throws IOException if the channel cannot be read
+     */
+    public static BSONIndex read(SeekableByteChannel channel) throws IOException
+    {
+        long size = channel.size();
+        ByteBuffer buffer;
+        BSONIndex index;
+        long recordCount;
+        long position;
+        int count;
+        
+        if(size < FOOTER_SIZE) return null;
+        
+        buffer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+        recordCount = buffer.getLong();
+        position = buffer.getLong();
+        count = buffer.getInt();
+        
+        for(int i=0; i<MAGIC.length; i++)
+        {
+            if(buffer.get() != MAGIC[i]) return null;
+        }
+        
+        if(count < 0 || position < 0 || position + count * 16L + FOOTER_SIZE != size) throw new IOException("Index trailer is corrupt");
+        
+        buffer = read(channel, position, count * 16);
+        index = new BSONIndex(count);
+        
+        for(int i=0; i<count; i++) index.add(buffer.getLong(), buffer.getLong());
+        
+        index.setRecordCount(recordCount);
+        
+        return index;
+    }
+}
@@ -28,11 +28,16 @@ import static com.invirgance.convirgance.bson.StringEncoder.*;
 
 import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.DecodeEvent;
+import com.invirgance.convirgance.transform.filter.FieldPredicate;
 import java.io.DataInput;
 import java.io.IOException;
 import java.util.Date;
+import java.util.Set;
 
 /**
+ * Decodes values written by {@link BinaryEncoder}. The decoder must be created
+ * with the same format version that the encoder used.
  *
  * @author jbanes
  */
@@ -40,6 +45,8 @@ public class BinaryDecoder
 {
     private KeyEncoder keys;
     private StringEncoder strings;
+    private int version;
+    private long date;
 
     public BinaryDecoder()
     {
@@ -48,8 +55,21 @@ public class BinaryDecoder
     
     public BinaryDecoder(KeyEncoder keys)
     {
+        this(keys, VERSION_1);
+    }
+    
+    public BinaryDecoder(KeyEncoder keys, int version)
+    {
+        if(version != VERSION_1 && version != VERSION_2) throw new IllegalArgumentException("Unsupported format version " + version);
+        
         this.keys = keys;
-        this.strings = new StringEncoder();
+        this.strings = (version == VERSION_2) ? new StringEncoder(StringEncoder.DEFAULT_SIZE) : new StringEncoder();
+        this.version = version;
+    }
+
+    public int getVersion()
+    {
+        return version;
     }
     
     public String getKey(int id)
@@ -72,33 +92,150 @@ public class BinaryDecoder
         return strings;
     }
     
+    /**
+     * Clears the key table, string dictionaries, and date baseline. Use when
+     * starting to read from a position where the encoder was reset.
+     */
+    public void reset()
+    {
+        keys.reset(null);
+        strings.reset();
+        
+        date = 0;
+    }
+    
+    private int readSize(DataInput in) throws IOException
+    {
+        return (version == VERSION_2) ? VarInt.readInt(in) : in.readUnsignedShort();
+    }
+    
+    private int readKey(DataInput in) throws IOException
+    {
+        return (version == VERSION_2) ? VarInt.readInt(in) : in.readUnsignedShort();
+    }
+    
+    // Keys are resolved up front since nested values may reset the key table
+    private String[] readKeys(DataInput in) throws IOException
+    {
+        String[] keys = new String[readSize(in)];
+        
+        for(int i=0; i<keys.length; i++)
+        {
+            keys[i] = getKey(readKey(in));
+        }
+        
+        return keys;
+    }
+    
     private JSONObject readObject(DataInput in) throws IOException
     {
         JSONObject record = new JSONObject(true);
-        int size = in.readUnsignedShort();
-        int[] ids = new int[size];
+        String[] keys = readKeys(in);
+        
+        for(int i=0; i<keys.length; i++)
+        {
+            record.put(keys[i], read(in, keys[i]));
+        }
+        
+        return record;
+    }
+    
+    private JSONObject readObject(DataInput in, Set<String> projection) throws IOException
+    {
+        JSONObject record = new JSONObject(true);
+        String[] keys = readKeys(in);
+        
+        for(int i=0; i<keys.length; i++)
+        {
+            if(projection.contains(keys[i])) record.put(keys[i], read(in, keys[i]));
+            else skip(in, keys[i]);
+        }
+        
+        return record;
+    }
+    
+    private int indexOf(String[] keys, String key)
+    {
+        for(int i=0; i<keys.length; i++)
+        {
+            if(keys[i].equals(key)) return i;
+        }
+        
+        return -1;
+    }
+    
+    private JSONObject readObject(DataInput in, Set<String> projection, String[] keys, FieldPredicate predicate) throws IOException
+    {
+        JSONObject record;
+        String[] names = readKeys(in);
+        int size = names.length;
+        boolean[] decoded = new boolean[size];
+        Object[] fields = new Object[size];
+        Object[] values = new Object[keys.length];
+        int remaining = keys.length;
+        boolean tested = false;
+        boolean wanted;
+        Object value;
+        String key;
+        int index;
         
         for(int i=0; i<size; i++)
         {
-            ids[i] = in.readUnsignedShort();
+            key = names[i];
+            index = indexOf(keys, key);
+            wanted = (projection == null || projection.contains(key));
+            
+            if(index < 0 && !wanted)
+            {
+                skip(in, key);
+                continue;
+            }
+            
+            value = read(in, key);
+            
+            if(wanted)
+            {
+                decoded[i] = true;
+                fields[i] = value;
+            }
+            
+            if(index < 0) continue;
+            
+            values[index] = value;
+            
+            if(--remaining > 0) continue;
+            
+            // Every tested key has been seen, so reject without decoding the rest
+            if(!predicate.test(values))
+            {
+                for(int j=i+1; j<size; j++) skip(in, names[j]);
+                
+                return null;
+            }
+            
+            tested = true;
         }
         
+        if(!tested && !predicate.test(values)) return null;
+        
+        record = new JSONObject(true);
+        
         for(int i=0; i<size; i++)
         {
-            record.put(getKey(ids[i]), read(in));
+            if(decoded[i]) record.put(names[i], fields[i]);
         }
         
         return record;
     }
     
-    private JSONArray readArray(DataInput in) throws IOException
+    private JSONArray readArray(DataInput in, String key) throws IOException
     {
         JSONArray array = new JSONArray();
-        int size = in.readInt();
+        int size = (version == VERSION_2) ? VarInt.readInt(in) : in.readInt();
         
         for(int i=0; i<size; i++)
         {
-            array.add(read(in));
+            array.add(read(in, key));
         }
         
         return array;
@@ -113,23 +250,275 @@ public class BinaryDecoder
         return new String(buffer, "UTF-8");
     }
     
-    public Object read(DataInput in) throws IOException
+    private void skipFully(DataInput in, int length) throws IOException
+    {
+        int skipped;
+        
+        while(length > 0)
+        {
+            skipped = in.skipBytes(length);
+            
+            // Force an EOFException if the stream is exhausted
+            if(skipped < 1)
+            {
+                in.readByte();
+                skipped = 1;
+            }
+            
+            length -= skipped;
+        }
+    }
+    
+    /**
+     * Advances past the next value in the stream without decoding it. Key and
+     * string registrations encountered along the way are still applied so that
+     * later values decode correctly.
+     * 
+     * @param in the stream to read from
+     * @return false if the end of the stream was reached instead of a value
+     * @throws IOException if the stream cannot be read
+     */
+    public boolean skip(DataInput in) throws IOException
+    {
+        int type = readType(in);
+        
+        if(type == TYPE_EOF) return false;
+        
+        skip(type, in, null);
+        
+        return true;
+    }
+    
+    private void skip(DataInput in, String key) throws IOException
+    {
+        skip(in.readByte() & 0xFF, in, key);
+    }
+    
+    private void skip(int type, DataInput in, String key) throws IOException
+    {
+        String[] names;
+        int size;
+        
+        switch(type)
+        {
+            case TYPE_NULL:
+            case TYPE_BOOLEAN_TRUE:
+            case TYPE_BOOLEAN_FALSE:
+            case TYPE_EOF:
+                return;
+                
+            case TYPE_STRING:
+                if(version == VERSION_2) VarInt.read(in);
+                else skipFully(in, 1);
+                return;
+                
+            case TYPE_INTEGER_U8:
+            case TYPE_BYTE:
+                skipFully(in, 1);
+                return;
+                
+            case TYPE_INTEGER_U16:
+            case TYPE_SHORT:
+                skipFully(in, 2);
+                return;
+                
+            case TYPE_INTEGER:
+            case TYPE_FLOAT:
+                skipFully(in, 4);
+                return;
+                
+            case TYPE_LONG:
+            case TYPE_DOUBLE:
+            case TYPE_DATE:
+                skipFully(in, 8);
+                return;
+                
+            case TYPE_VARINT:
+            case TYPE_VARLONG:
+                VarInt.read(in);
+                return;
+                
+            case TYPE_DATE_DELTA:
+                // Deltas depend on the previous date even when skipped
+                date += VarInt.readSigned(in);
+                return;
+                
+            case TYPE_CLOB:
+                skipFully(in, in.readInt());
+                return;
+                
+            case TYPE_OBJECT:
+                size = readSize(in);
+                
+                if(version == VERSION_1)
+                {
+                    skipFully(in, size * 2);
+                    
+                    for(int i=0; i<size; i++) skip(in, null);
+                    
+                    return;
+                }
+                
+                names = new String[size];
+                
+                for(int i=0; i<size; i++) names[i] = getKey(readKey(in));
+                
+                // Values may register strings in the dictionary of their key
+                for(int i=0; i<size; i++) skip(in, names[i]);
+                
+                return;
+                
+            case TYPE_ARRAY:
+                size = (version == VERSION_2) ? VarInt.readInt(in) : in.readInt();
+                
+                for(int i=0; i<size; i++) skip(in, key);
+                
+                return;
+                
+            case KEY_REGISTER_OPERATION:
+                keys.read(in);
+                skip(in, key);
+                return;
+                
+            case KEY_RESET_OPERATION:
+                keys.reset(null);
+                skip(in, key);
+                return;
+                
+            case STRING_REGISTER_OPERATION:
+                strings.read(key, in);
+                skip(in, key);
+                return;
+                
+            case RESET_OPERATION:
+                reset();
+                skip(in, key);
+                return;
+        }
+        
+        throw new IllegalStateException("Unknown value type 0x" + Integer.toHexString(type).toUpperCase());
+    }
+    
+    /**
+     * Reads the next value, limiting the top level object to the keys in the
+     * projection. Values for all other keys are skipped rather than decoded.
+     * 
+     * @param in the stream to read from
+     * @param projection keys to decode or null for all keys
+     * @return the decoded value or null at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    public Object read(DataInput in, Set<String> projection) throws IOException
+    {
+        long start;
+        Object value;
+        int type;
+        
+        if(projection == null) return read(in);
+        
+        start = DecodeEvent.SAMPLER.start();
+        type = readType(in);
+        value = (type == TYPE_OBJECT) ? readObject(in, projection) : read(type, in);
+        
+        DecodeEvent.SAMPLER.stop(start);
+        
+        return value;
+    }
+    
+    /**
+     * Reads the next top level object that passes the predicate. Only the
+     * fields named in keys are decoded before the predicate is tested. Objects
+     * that are rejected have their remaining values skipped and are never 
+     * built into a record.
+     * 
+     * @param in the stream to read from
+     * @param projection keys to decode or null for all keys
+     * @param keys the keys the predicate was compiled against
+     * @param predicate the compiled predicate
+     * @return the next matching value or null at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    public Object read(DataInput in, Set<String> projection, String[] keys, FieldPredicate predicate) throws IOException
+    {
+        Object record;
+        long start;
+        int type;
+        
+        if(predicate == null) return read(in, projection);
+        
+        start = DecodeEvent.SAMPLER.start();
+        
+        while(true)
+        {
+            type = readType(in);
+            
+            if(type != TYPE_OBJECT) record = read(type, in);
+            else record = readObject(in, projection, keys, predicate);
+            
+            if(record != null || type != TYPE_OBJECT) break;
+        }
+        
+        DecodeEvent.SAMPLER.stop(start);
+        
+        return record;
+    }
+    
+    // Applies any register operations ahead of the next value
+    private int readType(DataInput in) throws IOException
     {
         int type = in.readByte() & 0xFF;
         
+        while(type == KEY_REGISTER_OPERATION || type == KEY_RESET_OPERATION || type == STRING_REGISTER_OPERATION || type == RESET_OPERATION)
+        {
+            if(type == KEY_REGISTER_OPERATION) keys.read(in);
+            else if(type == KEY_RESET_OPERATION) keys.reset(null);
+            else if(type == RESET_OPERATION) reset();
+            else strings.read(null, in);
+            
+            type = in.readByte() & 0xFF;
+        }
+        
+        return type;
+    }
+    
+    public Object read(DataInput in) throws IOException
+    {
+        long start = DecodeEvent.SAMPLER.start();
+        Object value = read(in.readByte() & 0xFF, in, null);
+        
+        DecodeEvent.SAMPLER.stop(start);
+        
+        return value;
+    }
+    
+    private Object read(DataInput in, String key) throws IOException
+    {
+        return read(in.readByte() & 0xFF, in, key);
+    }
+    
+    private Object read(int type, DataInput in) throws IOException
+    {
+        return read(type, in, null);
+    }
+    
+    // Strings are looked up in the dictionary of the key they belong to
+    private Object read(int type, DataInput in, String key) throws IOException
+    {
         switch(type)
         {
             case TYPE_NULL:
                 return null;
                 
             case TYPE_STRING:
+                if(version == VERSION_2) return strings.get(key, VarInt.readInt(in));
+                
                 return strings.get(in.readByte() & 0xFF);
                 
             case TYPE_OBJECT:
                 return readObject(in);
                 
             case TYPE_ARRAY:
-                return readArray(in);
+                return readArray(in, key);
                 
             case TYPE_LONG:
                 return in.readLong();
@@ -143,6 +532,12 @@ public class BinaryDecoder
             case TYPE_INTEGER:
                 return in.readInt();
                 
+            case TYPE_VARINT:
+                return (int)VarInt.readSigned(in);
+                
+            case TYPE_VARLONG:
+                return VarInt.readSigned(in);
+                
             case TYPE_DOUBLE:
                 return in.readDouble();
                 
@@ -167,17 +562,25 @@ public class BinaryDecoder
             case TYPE_DATE:
                 return new Date(in.readLong());
                 
+            case TYPE_DATE_DELTA:
+                date += VarInt.readSigned(in);
+                return new Date(date);
+                
             case KEY_REGISTER_OPERATION:
                 keys.read(in);
-                return read(in);
+                return read(in, key);
                 
             case KEY_RESET_OPERATION:
                 keys.reset(null);
-                return read(in);
+                return read(in, key);
                 
             case STRING_REGISTER_OPERATION:
-                strings.read(in);
-                return read(in);
+                strings.read(key, in);
+                return read(in, key);
+                
+            case RESET_OPERATION:
+                reset();
+                return read(in, key);
             
             // EOF
             case TYPE_EOF:
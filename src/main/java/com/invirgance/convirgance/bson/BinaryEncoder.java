@@ -23,11 +23,16 @@ package com.invirgance.convirgance.bson;
 
 import com.invirgance.convirgance.json.JSONArray;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.EncodeEvent;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Date;
 
 /**
+ * Encodes values into the Convirgance binary format. Version 1 of the format
+ * uses fixed width integers, dates, and key ids. Version 2 stores integers,
+ * longs, key ids, and sizes as variable length integers (zigzag encoded when
+ * signed) and stores each date as the difference from the previous date.
  *
  * @author jbanes
  */
@@ -50,11 +55,21 @@ public class BinaryEncoder
     
     public static final int TYPE_INTEGER_U8 = 0x20;
     public static final int TYPE_INTEGER_U16 = 0x21;
+    public static final int TYPE_VARINT = 0x22;
+    public static final int TYPE_VARLONG = 0x23;
+    public static final int TYPE_DATE_DELTA = 0x24;
+    
+    public static final int VERSION_1 = 0x01;
+    public static final int VERSION_2 = 0x02;
     
     public static final int TYPE_EOF = 0xFF;
     
+    public static final int RESET_OPERATION = 0xF4;
+    
     private KeyEncoder keys;
     private StringEncoder strings;
+    private int version;
+    private long date;
     
 
     public BinaryEncoder()
@@ -64,8 +79,35 @@ public class BinaryEncoder
 
     public BinaryEncoder(KeyEncoder keys)
     {
+        this(keys, VERSION_1);
+    }
+
+    public BinaryEncoder(KeyEncoder keys, int version)
+    {
+        this(keys, (version == VERSION_2) ? new StringEncoder(StringEncoder.DEFAULT_SIZE) : new StringEncoder(), version);
+    }
+
+    /**
+     * Creates an encoder with a specific string dictionary. Version 2 requires
+     * an adaptive StringEncoder, created with a dictionary size.
+     * 
+     * @param keys the key encoder
+     * @param strings the string dictionary
+     * @param version the format version to write
+     */
+    public BinaryEncoder(KeyEncoder keys, StringEncoder strings, int version)
+    {
+        if(version != VERSION_1 && version != VERSION_2) throw new IllegalArgumentException("Unsupported format version " + version);
+        if(strings.isAdaptive() != (version == VERSION_2)) throw new IllegalArgumentException("String dictionary does not match format version " + version);
+        
         this.keys = keys;
-        this.strings = new StringEncoder();
+        this.strings = strings;
+        this.version = version;
+    }
+
+    public int getVersion()
+    {
+        return version;
     }
     
     public Integer getKey(String key)
@@ -93,13 +135,29 @@ public class BinaryEncoder
         return strings;
     }
     
-    private void writeString(String value, DataOutput out) throws IOException
+    /**
+     * Clears the key table, string dictionaries, and date baseline, and writes
+     * a RESET_OPERATION so that decoders do the same. Values written after a 
+     * reset do not depend on anything written before it, allowing a decoder 
+     * to start reading at that position.
+     * 
+     * @param out the stream to write the reset to
+     * @throws IOException if the stream cannot be written
+     */
+    public void reset(DataOutput out) throws IOException
     {
-        writeString(value, out, null);
+        out.writeByte(RESET_OPERATION);
+        
+        keys.reset(null);
+        strings.reset();
+        
+        date = 0;
     }
     
-    private void writeString(String value, DataOutput out, Integer index) throws IOException
+    private void writeString(String value, DataOutput out, String key) throws IOException
     {
+        int index;
+        
         if(value.length() > Short.MAX_VALUE)
         {
             out.writeByte(TYPE_CLOB);
@@ -109,19 +167,20 @@ public class BinaryEncoder
             return;
         }
         
-        if(index == null) index = strings.write(value, out);
+        index = strings.write(key, value, out);
         
         out.writeByte(TYPE_STRING);
-        out.writeByte(index);
-//        out.writeUTF(value);
         
+        if(version == VERSION_2) VarInt.write(index, out);
+        else out.writeByte(index);
+
     }
     
     private void writeObject(JSONObject value, DataOutput out) throws IOException
     {
         int[] ids = new int[value.size()];
+        int generation = keys.getGeneration();
         int index = 0;
-        Object pair;
         
         // Ensure all the keys and strings are registered
         for(String key : value.keySet()) 
@@ -129,56 +188,129 @@ public class BinaryEncoder
             ids[index++] = keys.write(key, out);
         }
         
+        // The key table wrapped part way through, so register again in the new table
+        if(keys.getGeneration() != generation)
+        {
+            index = 0;
+            
+            generation = keys.getGeneration();
+            
+            for(String key : value.keySet()) ids[index++] = keys.write(key, out);
+            
+            if(keys.getGeneration() != generation) throw new IllegalStateException("Object with " + value.size() + " keys does not fit in the key table");
+        }
+        
         out.writeByte(TYPE_OBJECT);
-        out.writeShort(value.size());
         
-        // Write types
-        for(int i=0; i<ids.length; i++)
+        if(version == VERSION_2)
         {
-            out.writeShort(ids[i]);
+            VarInt.write(value.size(), out);
+            
+            for(int i=0; i<ids.length; i++) VarInt.write(ids[i], out);
+        }
+        else
+        {
+            out.writeShort(value.size());
+
+            // Write types
+            for(int i=0; i<ids.length; i++)
+            {
+                out.writeShort(ids[i]);
+            }
         }
         
         // Write values
         for(String key : value.keySet())
         {
-            write(value.get(key), out);
+            write(value.get(key), out, key);
         }
     }
     
-    private void writeArray(JSONArray value, DataOutput out) throws IOException
+    private void writeArray(JSONArray value, DataOutput out, String key) throws IOException
     {
         out.writeByte(TYPE_ARRAY);
-        out.writeInt(value.size());
+        
+        if(version == VERSION_2) VarInt.write(value.size(), out);
+        else out.writeInt(value.size());
         
         for(Object item : value)
         {
-            write(item, out);
+            write(item, out, key);
+        }
+    }
+    
+    private void writeInteger(int value, DataOutput out) throws IOException
+    {
+        if(version == VERSION_2)
+        {
+            out.writeByte(TYPE_VARINT);
+            VarInt.writeSigned(value, out);
+        }
+        else if(value >= 0 && value < 256)
+        {
+            out.writeByte(TYPE_INTEGER_U8);
+            out.writeByte(value);
+        }
+        else if(value > 0 && value < 65536)
+        {
+            out.writeByte(TYPE_INTEGER_U16);
+            out.writeShort(value);
+        }
+        else
+        {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt(value);
+        }
+    }
+    
+    private void writeLong(long value, DataOutput out) throws IOException
+    {
+        if(version == VERSION_2)
+        {
+            out.writeByte(TYPE_VARLONG);
+            VarInt.writeSigned(value, out);
+        }
+        else
+        {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(value);
         }
     }
     
     private void writeNumber(Number value, DataOutput out) throws IOException
     {
-        int integer = (value instanceof Integer ? value.intValue() : 0);
-        
-        if(value instanceof Long) out.writeByte(TYPE_LONG);
-        else if(value instanceof Integer && integer >= 0 && integer < 256) out.writeByte(TYPE_INTEGER_U8);
-        else if(value instanceof Integer && integer > 0 && integer < 65536) out.writeByte(TYPE_INTEGER_U16);
-        else if(value instanceof Integer) out.writeByte(TYPE_INTEGER);
-        else if(value instanceof Double) out.writeByte(TYPE_DOUBLE);
-        else if(value instanceof Float) out.writeByte(TYPE_FLOAT);
-        else if(value instanceof Short) out.writeByte(TYPE_SHORT);
-        else if(value instanceof Byte) out.writeByte(TYPE_BYTE);
-        else throw new IllegalArgumentException("Unknown number type " + value.getClass());
-        
-        if(value instanceof Long) out.writeLong(value.longValue());
-        else if(value instanceof Integer && integer >= 0 && integer < 256) out.writeByte(integer);
-        else if(value instanceof Integer && integer > 0 && integer < 65536) out.writeShort(integer);
-        else if(value instanceof Integer) out.writeInt(value.intValue());
-        else if(value instanceof Double) out.writeDouble(value.doubleValue());
-        else if(value instanceof Float) out.writeFloat(value.floatValue());
-        else if(value instanceof Short) out.writeShort(value.shortValue());
-        else if(value instanceof Byte) out.writeByte(value.byteValue());
-        else throw new IllegalArgumentException("Unknown number type " + value.getClass());
+        if(value instanceof Integer)
+        {
+            writeInteger(value.intValue(), out);
+        }
+        else if(value instanceof Long)
+        {
+            writeLong(value.longValue(), out);
+        }
+        else if(value instanceof Double)
+        {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(value.doubleValue());
+        }
+        else if(value instanceof Float)
+        {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat(value.floatValue());
+        }
+        else if(value instanceof Short)
+        {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort(value.shortValue());
+        }
+        else if(value instanceof Byte)
+        {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte(value.byteValue());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown number type " + value.getClass());
+        }
     }
     
     private void writeBoolean(boolean value, DataOutput out) throws IOException
@@ -188,16 +320,39 @@ public class BinaryEncoder
     
     private void writeDate(Date value, DataOutput out) throws IOException
     {
+        long time = value.getTime();
+        
+        if(version == VERSION_2)
+        {
+            // Dates in a stream tend to be close together, so store the change
+            out.writeByte(TYPE_DATE_DELTA);
+            VarInt.writeSigned(time - date, out);
+            
+            date = time;
+            
+            return;
+        }
+        
         out.writeByte(TYPE_DATE);
-        out.writeLong(value.getTime());
+        out.writeLong(time);
     }
     
     public void write(Object value, DataOutput out) throws IOException
+    {
+        long start = EncodeEvent.SAMPLER.start();
+        
+        write(value, out, null);
+        
+        EncodeEvent.SAMPLER.stop(start);
+    }
+    
+    // Strings are registered in the dictionary of the key they belong to
+    private void write(Object value, DataOutput out, String key) throws IOException
     {
         if(value == null) out.writeByte(TYPE_NULL);
-        else if(value instanceof String) writeString((String)value, out);
+        else if(value instanceof String) writeString((String)value, out, key);
         else if(value instanceof JSONObject) writeObject((JSONObject)value, out);
-        else if(value instanceof JSONArray) writeArray((JSONArray)value, out);
+        else if(value instanceof JSONArray) writeArray((JSONArray)value, out, key);
         else if(value instanceof Number) writeNumber((Number)value, out);
         else if(value instanceof Boolean) writeBoolean((Boolean)value, out);
         else if(value instanceof Date) writeDate((Date)value, out);
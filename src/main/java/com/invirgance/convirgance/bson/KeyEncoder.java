@@ -39,6 +39,17 @@ public interface KeyEncoder
     public String get(int id);
     public int size();
     
+    /**
+     * Incremented each time the key table is reset, invalidating the ids
+     * issued before it. Encoders that never reset can keep the default.
+     * 
+     * @return the current generation of the key table
+     */
+    public default int getGeneration()
+    {
+        return 0;
+    }
+    
     public default void read(DataInput in) throws IOException
     {
         // Default implementation is blank
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.bson;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from String keys to int ids. Avoids the entry objects
+ * and boxed Integers of a HashMap for the key lookups performed on every
+ * record.
+ *
+ * @author jbanes
+ */
+class KeyMap
+{
+    private String[] keys;
+    private int[] ids;
+    private int mask;
+    private int size;
+
+    public KeyMap()
+    {
+        this(16);
+    }
+    
+    public KeyMap(int capacity)
+    {
+        int length = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;
+        
+        this.keys = new String[length];
+        this.ids = new int[length];
+        this.mask = length - 1;
+    }
+    
+    private static int hash(String key)
+    {
+        int hash = key.hashCode();
+        
+        return hash ^ (hash >>> 16);
+    }
+    
+    /**
+     * Looks up the id for a key
+     * 
+     * @param key the key to find
+     * @return the id or -1 if the key is not present
+     */
+    public int get(String key)
+    {
+        int slot = hash(key) & mask;
+        String candidate;
+        
+        while((candidate = keys[slot]) != null)
+        {
+            if(candidate == key || candidate.equals(key)) return ids[slot];
+            
+            slot = (slot + 1) & mask;
+        }
+        
+        return -1;
+    }
+    
+    public void put(String key, int id)
+    {
+        int slot = hash(key) & mask;
+        String candidate;
+        
+        while((candidate = keys[slot]) != null)
+        {
+            if(candidate.equals(key))
+            {
+                ids[slot] = id;
+                return;
+            }
+            
+            slot = (slot + 1) & mask;
+        }
+        
+        keys[slot] = key;
+        ids[slot] = id;
+        
+        // Keep the table at most half full so probe sequences stay short
+        if(++size * 2 > keys.length) grow();
+    }
+    
+    private void grow()
+    {
+        String[] keys = this.keys;
+        int[] ids = this.ids;
+        
+        this.keys = new String[keys.length * 2];
+        this.ids = new int[keys.length * 2];
+        this.mask = this.keys.length - 1;
+        this.size = 0;
+        
+        for(int i=0; i<keys.length; i++)
+        {
+            if(keys[i] != null) put(keys[i], ids[i]);
+        }
+    }
+    
+    public int size()
+    {
+        return size;
+    }
+    
+    public void clear()
+    {
+        Arrays.fill(keys, null);
+        
+        size = 0;
+    }
+}
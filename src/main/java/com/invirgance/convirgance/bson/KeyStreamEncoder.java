@@ -22,33 +22,82 @@ SOFTWARE.
 package com.invirgance.convirgance.bson;
 
 import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.metrics.KeyResetEvent;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
+ * Registers keys inline in the stream as they are first encountered. The key
+ * table starts small and grows as keys are added. Once the limit is reached,
+ * the table is reset through a KEY_RESET_OPERATION in the stream and the
+ * generation is incremented, allowing unbounded streams of heterogeneous 
+ * records to be written.
  *
  * @author jbanes
  */
 public class KeyStreamEncoder implements KeyEncoder
 {
-    private HashMap<String,Integer> lookup;
+    // Key indexes are stored as a 16 bit value in version 1 of the format
+    public static final int DEFAULT_LIMIT = 0xFFFF;
+    
+    private final int limit;
+    
+    private KeyMap lookup;
     private String[] keys; 
     private int index;
+    private int generation;
     
     public KeyStreamEncoder()
     {
-        reset(null);
+        this(DEFAULT_LIMIT);
+    }
+    
+    /**
+     * Creates an encoder that resets its table after the given number of keys
+     * 
+     * @param limit maximum number of keys before the table is reset
+     */
+    public KeyStreamEncoder(int limit)
+    {
+        if(limit < 1 || limit > DEFAULT_LIMIT) throw new IllegalArgumentException("Key limit must be between 1 and " + DEFAULT_LIMIT);
+        
+        this.limit = limit;
+        this.lookup = new KeyMap();
+        this.keys = new String[16];
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    @Override
+    public int getGeneration()
+    {
+        return generation;
     }
 
     @Override
     public void reset(DataOutput out)
     {
-        // Key indexes are stored as a 16 bit value
-        this.lookup = new HashMap<>();
-        this.keys = new String[0xFFFF];
+        KeyResetEvent event = new KeyResetEvent();
+        
+        if(event.isEnabled())
+        {
+            event.keys = index;
+            event.limit = limit;
+            event.generation = generation + 1;
+            
+            event.commit();
+        }
+        
+        lookup.clear();
+        Arrays.fill(keys, 0, index, null);
+        
         this.index = 0;
+        this.generation++;
         
         try
         {
@@ -60,13 +109,14 @@ public class KeyStreamEncoder implements KeyEncoder
     @Override
     public Integer get(String key)
     {
-        return lookup.get(key);
+        int id = lookup.get(key);
+        
+        return (id < 0) ? null : id;
     }
 
     @Override
     public String get(int id)
     {
-        // TODO: We should probably allow this to wrap
         if(id >= index) throw new IllegalArgumentException("Key " + id + " does not exist. " + index + " keys are available.");
         
         return keys[id];
@@ -78,34 +128,38 @@ public class KeyStreamEncoder implements KeyEncoder
         return index;
     }
     
+    private int add(String key)
+    {
+        int id = index++;
+        
+        if(id >= keys.length) keys = Arrays.copyOf(keys, Math.min(keys.length * 2, limit));
+        
+        keys[id] = key;
+        
+        lookup.put(key, id);
+        
+        return id;
+    }
+    
     @Override
     public void read(DataInput in) throws IOException
     {
-        int id;
-        
-        // TODO: We should probably allow this to wrap
-        if(index >= keys.length) throw new IllegalStateException("Maximum number of keys (" + 0xFFFF + ") has been exceeded during read!");
+        if(index >= limit) throw new IllegalStateException("Maximum number of keys (" + limit + ") has been exceeded during read!");
 
-        id = index++;
-        keys[id] = in.readUTF();
-        
-        lookup.put(keys[id], id);
+        add(in.readUTF());
     }
     
     @Override
     public int write(String key, DataOutput out) throws IOException
     {
-        Integer id = lookup.get(key);
+        int id = lookup.get(key);
         
-        if(id != null) return id;
+        if(id >= 0) return id;
         
-        // TODO: We should probably allow this to wrap
-        if(index >= keys.length) throw new IllegalStateException("Maximum number of keys (" + 0xFFFF + ") has been exceeded by key [" + key + "]");
-
-        id = index++;
-        keys[id] = key;
+        // Wrap around by starting a new table
+        if(index >= limit) reset(out);
 
-        lookup.put(key, id);
+        id = add(key);
 
         out.write(KEY_REGISTER_OPERATION);
         out.writeUTF(key);
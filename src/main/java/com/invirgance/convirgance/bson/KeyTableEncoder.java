@@ -24,15 +24,20 @@ package com.invirgance.convirgance.bson;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
+ * Collects keys into a table that is written once, separately from the
+ * values. The table size is stored as a 16 bit value, limiting it to 65535
+ * keys. The table grows as keys are added.
  *
  * @author jbanes
  */
 public class KeyTableEncoder implements KeyEncoder
 {
-    private HashMap<String,Integer> lookup;
+    private static final int LIMIT = 0xFFFF;
+    
+    private KeyMap lookup;
     private String[] keys; 
     private int index;
 
@@ -44,25 +49,32 @@ public class KeyTableEncoder implements KeyEncoder
     @Override
     public void reset(DataOutput out)
     {
-        // Key indexes are stored as a 16 bit value
-        this.lookup = new HashMap<>();
-        this.keys = new String[0xFFFF];
+        this.lookup = new KeyMap();
+        this.keys = new String[16];
         this.index = 0;
     }
     
+    private void add(String key)
+    {
+        if(index >= keys.length) keys = Arrays.copyOf(keys, Math.min(keys.length * 2, LIMIT));
+        
+        keys[index] = key;
+        
+        lookup.put(key, index++);
+    }
+    
     @Override
     public Integer get(String key)
     {
-        Integer id = lookup.get(key);
+        int id = lookup.get(key);
         
-        if(id == null)
+        if(id < 0)
         {
-            if(index >= keys.length) throw new IllegalStateException("Maximum number of keys (" + 0xFFFF + ") has been exceeded by key [" + key + "]");
+            if(index >= LIMIT) throw new IllegalStateException("Maximum number of keys (" + LIMIT + ") has been exceeded by key [" + key + "]");
             
-            id = index++;
-            keys[id] = key;
+            id = index;
             
-            lookup.put(key, id);
+            add(key);
         }
         
         return id;
@@ -79,16 +91,17 @@ public class KeyTableEncoder implements KeyEncoder
     @Override
     public void read(DataInput in) throws IOException
     {
+        int count;
+        
         reset(null);
         
-        index = in.readUnsignedShort();
+        count = in.readUnsignedShort();
         
-        for(int i=0; i<index; i++)
+        for(int i=0; i<count; i++)
         {
-            keys[i] = in.readUTF();
+            add(in.readUTF());
         }
     }
-    
     public void write(DataOutput out) throws IOException
     {
         out.writeShort(index);
@@ -24,9 +24,20 @@ package com.invirgance.convirgance.bson;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
+ * Dictionary of recently used strings, allowing repeated values to be written
+ * as a short id rather than the full string.
+ * 
+ * The default encoder uses the version 1 format: a single table of 256 
+ * entries replaced in round-robin order. Creating the encoder with a size 
+ * enables the version 2 format, where each key gets its own dictionary of up 
+ * to that many entries, ids are written as variable length integers, and the
+ * least recently used entry is replaced when a dictionary is full. Because the
+ * encoder writes the id of the replaced entry into the stream, decoders do not
+ * need to track usage.
  *
  * @author jbanes
  */
@@ -34,59 +45,272 @@ public class StringEncoder
 {
     public static final int STRING_REGISTER_OPERATION = 0xF3;
     
-    private HashMap<String,Integer> lookup;
-    private String[] keys; 
-    private int index;
+    public static final int DEFAULT_SIZE = 4096;
+    
+    private final int size;
+    private final boolean adaptive;
+    private Dictionary shared;
+    private final HashMap<String,Dictionary> dictionaries;
 
     public StringEncoder()
     {
-        this.lookup = new HashMap<>();
-        this.keys = new String[256];
-        this.index = 0;
+        this.size = 256;
+        this.adaptive = false;
+        this.shared = new Dictionary(size, false);
+        this.dictionaries = null;
+    }
+    
+    /**
+     * Creates an encoder for the version 2 format
+     * 
+     * @param size maximum number of entries in each dictionary
+     */
+    public StringEncoder(int size)
+    {
+        if(size < 1) throw new IllegalArgumentException("Dictionary size must be at least 1");
+        
+        this.size = size;
+        this.adaptive = true;
+        this.shared = new Dictionary(size, true);
+        this.dictionaries = new HashMap<>();
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * True if this encoder uses the version 2 format with per-key 
+     * dictionaries and variable length ids.
+     * 
+     * @return true for the version 2 format
+     */
+    public boolean isAdaptive()
+    {
+        return adaptive;
+    }
+    
+    /**
+     * Forgets all registered strings
+     */
+    public void reset()
+    {
+        shared = new Dictionary(size, adaptive);
+        
+        if(dictionaries != null) dictionaries.clear();
+    }
+    
+    private Dictionary getDictionary(String key)
+    {
+        Dictionary dictionary;
+        
+        if(!adaptive || key == null) return shared;
+        
+        dictionary = dictionaries.get(key);
+        
+        if(dictionary == null)
+        {
+            dictionary = new Dictionary(size, true);
+            
+            dictionaries.put(key, dictionary);
+        }
+        
+        return dictionary;
     }
     
     public Integer get(String value)
     {
-        return lookup.get(value);
+        return shared.lookup.get(value);
     }
     
     public String get(Integer i)
     {
-        return keys[i];
+        return shared.values[i];
+    }
+    
+    public Integer get(String key, String value)
+    {
+        return getDictionary(key).lookup.get(value);
+    }
+    
+    public String get(String key, int id)
+    {
+        Dictionary dictionary = getDictionary(key);
+        
+        if(id >= dictionary.values.length) throw new IllegalArgumentException("String " + id + " does not exist");
+        
+        return dictionary.values[id];
     }
     
     public Integer write(String value, DataOutput out) throws IOException
     {
-        Integer id = get(value);
+        return write(null, value, out);
+    }
+    
+    /**
+     * Returns the id of the value in the dictionary for the key, registering
+     * the value in the stream if it is not present.
+     * 
+     * @param key the key the value belongs to or null for the shared dictionary
+     * @param value the string to encode
+     * @param out the stream to write registrations to
+     * @return the id of the value
+     * @throws IOException if the stream cannot be written
+     */
+    public int write(String key, String value, DataOutput out) throws IOException
+    {
+        Dictionary dictionary = getDictionary(key);
+        Integer id = dictionary.lookup.get(value);
         
-        if(id == null)
+        if(id != null)
         {
-            if(keys[index] != null) lookup.remove(keys[index]);
-            
-            keys[index] = value;
-            id = index;
-            
-            lookup.put(value, id);
-            
-            out.writeByte(STRING_REGISTER_OPERATION);
-            out.writeUTF(value);
+            dictionary.touch(id);
             
-            index = (index + 1) & 0xFF;
+            return id;
         }
         
+        id = dictionary.add(value);
+        
+        out.writeByte(STRING_REGISTER_OPERATION);
+        
+        if(adaptive) VarInt.write(id, out);
+        
+        out.writeUTF(value);
+        
         return id;
     }
     
     public void read(DataInput in) throws IOException
     {
-        String value = in.readUTF();
+        read(null, in);
+    }
+    
+    public void read(String key, DataInput in) throws IOException
+    {
+        Dictionary dictionary = getDictionary(key);
+        
+        if(!adaptive)
+        {
+            dictionary.add(in.readUTF());
+            return;
+        }
+        
+        dictionary.set(VarInt.readInt(in), in.readUTF());
+    }
+    
+    private static class Dictionary
+    {
+        private final int capacity;
+        private final boolean lru;
+        private final HashMap<String,Integer> lookup = new HashMap<>();
+        
+        private String[] values;
+        private int count;
+        
+        // Round-robin position for the version 1 format
+        private int index;
+        
+        // Usage order from most (head) to least (tail) recently used
+        private int[] previous;
+        private int[] next;
+        private int head = -1;
+        private int tail = -1;
+
+        public Dictionary(int capacity, boolean lru)
+        {
+            this.capacity = capacity;
+            this.lru = lru;
+            this.values = new String[lru ? Math.min(16, capacity) : capacity];
+            
+            if(lru)
+            {
+                this.previous = new int[values.length];
+                this.next = new int[values.length];
+            }
+        }
+        
+        private void grow(int length)
+        {
+            values = Arrays.copyOf(values, length);
+            
+            if(!lru) return;
+            
+            previous = Arrays.copyOf(previous, length);
+            next = Arrays.copyOf(next, length);
+        }
+        
+        private void unlink(int id)
+        {
+            if(previous[id] >= 0) next[previous[id]] = next[id];
+            else head = next[id];
+            
+            if(next[id] >= 0) previous[next[id]] = previous[id];
+            else tail = previous[id];
+        }
         
-        if(keys[index] != null) lookup.remove(keys[index]);
+        private void link(int id)
+        {
+            previous[id] = -1;
+            next[id] = head;
+            
+            if(head >= 0) previous[head] = id;
+            else tail = id;
             
-        keys[index] = value;
+            head = id;
+        }
         
-        lookup.put(value, index);
+        public void touch(int id)
+        {
+            if(!lru || head == id) return;
+            
+            unlink(id);
+            link(id);
+        }
+        
+        public int add(String value)
+        {
+            int id;
+            
+            if(!lru)
+            {
+                set(index, value);
+                
+                id = index;
+                index = (index + 1) % capacity;
+                
+                return id;
+            }
+            
+            if(count < capacity)
+            {
+                if(count >= values.length) grow(Math.min(values.length * 2, capacity));
+                
+                id = count++;
+            }
+            else
+            {
+                id = tail;
+                
+                unlink(id);
+                lookup.remove(values[id]);
+            }
+            
+            values[id] = value;
+            lookup.put(value, id);
+            link(id);
+            
+            return id;
+        }
         
-        index = (index + 1) & 0xFF;
+        public void set(int id, String value)
+        {
+            if(id >= values.length) grow(Math.max(values.length * 2, id + 1));
+            if(values[id] != null) lookup.remove(values[id]);
+            
+            values[id] = value;
+            
+            lookup.put(value, id);
+        }
     }
 }
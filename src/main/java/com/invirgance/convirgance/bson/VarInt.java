@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.bson;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable length integer encoding (LEB128). Seven bits of the value are
+ * stored in each byte with the high bit set when more bytes follow. Signed
+ * values should be zigzag encoded first so that small negative numbers also
+ * encode to a small number of bytes.
+ *
+ * @author jbanes
+ */
+public class VarInt
+{
+    public static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    public static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    public static int size(long value)
+    {
+        int size = 1;
+        
+        while((value & ~0x7FL) != 0)
+        {
+            value >>>= 7;
+            size++;
+        }
+        
+        return size;
+    }
+    
+    public static void write(long value, DataOutput out) throws IOException
+    {
+        while((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        
+        out.writeByte((int)value);
+    }
+    
+    public static void writeSigned(long value, DataOutput out) throws IOException
+    {
+        write(zigzag(value), out);
+    }
+    
+    public static long read(DataInput in) throws IOException
+    {
+        long value = 0;
+        int shift = 0;
+        int b;
+        
+        do
+        {
+            if(shift > 63) throw new IOException("Malformed variable length integer");
+            
+            b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        }
+        while((b & 0x80) != 0);
+        
+        return value;
+    }
+    
+    public static long readSigned(DataInput in) throws IOException
+    {
+        return unzigzag(read(in));
+    }
+    
+    public static int readInt(DataInput in) throws IOException
+    {
+        return (int)read(in);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression format that can be applied to any stream. Codecs are identified
+ * by a small numeric id so they can be recorded in file headers, and by name
+ * for configuration. Additional codecs can be made available through 
+ * {@link Codecs#register(Codec)} or by listing them in 
+ * META-INF/services/com.invirgance.convirgance.codec.Codec.
+ *
+ * @author jbanes
+ */
+public interface Codec
+{
+    /**
+     * Numeric id of the codec, between 1 and 15
+     * 
+     * @return the id stored in file headers
+     */
+    public int getId();
+    
+    public String getName();
+    
+    public OutputStream compress(OutputStream out) throws IOException;
+    
+    public InputStream decompress(InputStream in) throws IOException;
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.codec;
+
+import java.util.HashMap;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the available compression codecs. GZIP and LZ4 are always
+ * available. Other codecs are discovered through the ServiceLoader or added
+ * with register().
+ *
+ * @author jbanes
+ */
+public class Codecs
+{
+    public static final Codec GZIP = new GZIPCodec();
+    public static final Codec LZ4 = new LZ4Codec();
+    
+    private static final HashMap<Integer,Codec> ids = new HashMap<>();
+    private static final HashMap<String,Codec> names = new HashMap<>();
+    
+    static
+    {
+        register(GZIP);
+        register(LZ4);
+        
+        for(Codec codec : ServiceLoader.load(Codec.class)) register(codec);
+    }
+    
+    /**
+     * Makes a codec available by id and name. Ids must be between 1 and 15
+     * and cannot be reused by a different codec.
+     * 
+     * @param codec the codec to register
+     */
+    public static synchronized void register(Codec codec)
+    {
+        Codec existing = ids.get(codec.getId());
+        
+        if(codec.getId() < 1 || codec.getId() > 15) throw new IllegalArgumentException("Codec id " + codec.getId() + " must be between 1 and 15");
+        if(existing != null && existing.getClass() != codec.getClass()) throw new IllegalArgumentException("Codec id " + codec.getId() + " is already used by " + existing.getName());
+        
+        ids.put(codec.getId(), codec);
+        names.put(codec.getName().toLowerCase(), codec);
+    }
+    
+    public static synchronized Codec get(int id)
+    {
+        return ids.get(id);
+    }
+    
+    public static synchronized Codec get(String name)
+    {
+        return names.get(name.toLowerCase());
+    }
+}
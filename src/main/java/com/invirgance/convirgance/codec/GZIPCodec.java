@@ -0,0 +1,63 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Standard GZIP compression. Compresses well but is slow to compress and
+ * decompress compared to LZ4.
+ *
+ * @author jbanes
+ */
+public class GZIPCodec implements Codec
+{
+    public static final int ID = 1;
+    
+    @Override
+    public int getId()
+    {
+        return ID;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "gzip";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException
+    {
+        return new GZIPOutputStream(out, 4 * 1024 * 1024);
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException
+    {
+        return new GZIPInputStream(in, 64 * 1024);
+    }
+}
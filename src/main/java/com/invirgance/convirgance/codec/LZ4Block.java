@@ -0,0 +1,233 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.codec;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresses and decompresses single blocks in the LZ4 sequence format. Each
+ * sequence is a token holding the literal and match lengths, the literal 
+ * bytes, and a two byte little endian offset back to the start of the match.
+ * The block ends with a sequence of literals only.
+ *
+ * @author jbanes
+ */
+class LZ4Block
+{
+    static final int HASH_BITS = 14;
+    
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_LIMIT = 12;
+    private static final int MAX_OFFSET = 0xFFFF;
+    
+    private final int[] table = new int[1 << HASH_BITS];
+    
+    static int getMaxCompressedLength(int length)
+    {
+        return length + (length / 255) + 16;
+    }
+    
+    private static int readInt(byte[] data, int offset)
+    {
+        return (data[offset] & 0xFF) | (data[offset+1] & 0xFF) << 8 | (data[offset+2] & 0xFF) << 16 | (data[offset+3] & 0xFF) << 24;
+    }
+    
+    private static int hash(int value)
+    {
+        return (value * -1640531535) >>> (32 - HASH_BITS);
+    }
+    
+    private static int writeLength(int length, byte[] out, int position)
+    {
+        while(length >= 255)
+        {
+            out[position++] = (byte)255;
+            length -= 255;
+        }
+        
+        out[position++] = (byte)length;
+        
+        return position;
+    }
+    
+    private static int writeSequence(byte[] in, int anchor, int literals, int offset, int match, byte[] out, int position)
+    {
+        int token = position++;
+        int length = match - MIN_MATCH;
+        
+        out[token] = (byte)((Math.min(literals, 15) << 4) | (match > 0 ? Math.min(length, 15) : 0));
+        
+        if(literals >= 15) position = writeLength(literals - 15, out, position);
+        
+        System.arraycopy(in, anchor, out, position, literals);
+        
+        position += literals;
+        
+        // The final sequence has no match
+        if(match == 0) return position;
+        
+        out[position++] = (byte)offset;
+        out[position++] = (byte)(offset >>> 8);
+        
+        if(length >= 15) position = writeLength(length - 15, out, position);
+        
+        return position;
+    }
+    
+    /**
+     * Compresses a block. The output buffer must be at least 
+     * getMaxCompressedLength(length) bytes.
+     * 
+     * @param in the data to compress
+     * @param length number of bytes of data
+     * @param out the buffer to compress into
+     * @return the compressed length
+     */
+    public int compress(byte[] in, int length, byte[] out)
+    {
+        int limit = length - MATCH_LIMIT;
+        int end = length - LAST_LITERALS;
+        int anchor = 0;
+        int position = 0;
+        int index = 0;
+        int match;
+        int value;
+        int slot;
+        int reference;
+        
+        Arrays.fill(table, -1);
+        
+        while(index < limit)
+        {
+            value = readInt(in, index);
+            slot = hash(value);
+            reference = table[slot];
+            table[slot] = index;
+            
+            if(reference < 0 || index - reference > MAX_OFFSET || readInt(in, reference) != value)
+            {
+                // Step faster through data that is not compressing
+                index += 1 + ((index - anchor) >>> 6);
+                continue;
+            }
+            
+            match = MIN_MATCH;
+            
+            while(index + match < end && in[reference + match] == in[index + match]) match++;
+            
+            position = writeSequence(in, anchor, index - anchor, index - reference, match, out, position);
+            
+            index += match;
+            anchor = index;
+        }
+        
+        return writeSequence(in, anchor, length - anchor, 0, 0, out, position);
+    }
+    
+    private static void check(boolean valid) throws IOException
+    {
+        if(!valid) throw new IOException("Compressed block is corrupt");
+    }
+    
+    /**
+     * Decompresses a block
+     * 
+     * @param in the compressed data
+     * @param length number of bytes of compressed data
+     * @param out the buffer to decompress into
+     * @param expected the uncompressed length of the block
+     * @throws IOException if the block is corrupt
+     */
+    public static void decompress(byte[] in, int length, byte[] out, int expected) throws IOException
+    {
+        int index = 0;
+        int position = 0;
+        int literals;
+        int match;
+        int offset;
+        int token;
+        int b;
+        
+        while(index < length)
+        {
+            token = in[index++] & 0xFF;
+            literals = token >>> 4;
+            
+            if(literals == 15)
+            {
+                do
+                {
+                    check(index < length);
+                    
+                    b = in[index++] & 0xFF;
+                    literals += b;
+                }
+                while(b == 255);
+            }
+            
+            check(index + literals <= length && position + literals <= expected);
+            
+            System.arraycopy(in, index, out, position, literals);
+            
+            index += literals;
+            position += literals;
+            
+            if(index >= length) break;
+            
+            check(index + 2 <= length);
+            
+            offset = (in[index] & 0xFF) | (in[index+1] & 0xFF) << 8;
+            match = (token & 0x0F) + MIN_MATCH;
+            index += 2;
+            
+            if((token & 0x0F) == 15)
+            {
+                do
+                {
+                    check(index < length);
+                    
+                    b = in[index++] & 0xFF;
+                    match += b;
+                }
+                while(b == 255);
+            }
+            
+            check(offset > 0 && offset <= position && position + match <= expected);
+            
+            if(offset >= match)
+            {
+                System.arraycopy(out, position - offset, out, position, match);
+                
+                position += match;
+            }
+            else
+            {
+                // Overlapping matches repeat the bytes just written
+                for(int i=0; i<match; i++, position++) out[position] = out[position - offset];
+            }
+        }
+        
+        check(position == expected);
+    }
+}
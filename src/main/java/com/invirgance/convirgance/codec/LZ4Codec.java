@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Fast block compression using the LZ4 sequence format. Compresses less than
+ * GZIP, but decompression is several times faster, making it well suited to 
+ * data that is scanned repeatedly.
+ * 
+ * Streams begin with the "CLZ4" magic number followed by blocks of up to 
+ * 64KB. Each block starts with its compressed and uncompressed lengths as 
+ * 32 bit values. The high bit of the compressed length is set when the block 
+ * is stored uncompressed. A compressed length of zero ends the stream.
+ *
+ * @author jbanes
+ */
+public class LZ4Codec implements Codec
+{
+    public static final int ID = 2;
+    
+    @Override
+    public int getId()
+    {
+        return ID;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "lz4";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException
+    {
+        return new LZ4OutputStream(out);
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException
+    {
+        return new LZ4InputStream(in);
+    }
+}
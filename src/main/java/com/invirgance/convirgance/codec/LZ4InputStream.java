@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.codec;
+
+import static com.invirgance.convirgance.codec.LZ4OutputStream.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads streams written by {@link LZ4OutputStream}, decompressing one block
+ * at a time.
+ *
+ * @author jbanes
+ */
+class LZ4InputStream extends InputStream
+{
+    private final DataInputStream in;
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    
+    private final byte[] compressed = new byte[LZ4Block.getMaxCompressedLength(BLOCK_SIZE)];
+    private int position;
+    private int count;
+    private boolean ended;
+
+    public LZ4InputStream(InputStream in) throws IOException
+    {
+        this.in = new DataInputStream(in);
+        
+        for(int i=0; i<MAGIC.length; i++)
+        {
+            if(this.in.read() != MAGIC[i]) throw new IOException("Stream is not in LZ4 format");
+        }
+    }
+    
+    private boolean readBlock() throws IOException
+    {
+        int length;
+        int size;
+        
+        if(ended) return false;
+        
+        length = in.readInt();
+        
+        if(length == 0)
+        {
+            ended = true;
+            return false;
+        }
+        
+        size = in.readInt();
+        
+        if(size < 0 || size > BLOCK_SIZE) throw new IOException("Block size " + size + " is invalid");
+        
+        if((length & UNCOMPRESSED) != 0)
+        {
+            if((length & ~UNCOMPRESSED) != size) throw new IOException("Stored block length does not match its size");
+            
+            in.readFully(buffer, 0, size);
+        }
+        else
+        {
+            if(length > compressed.length) throw new IOException("Compressed block length " + length + " is invalid");
+            
+            in.readFully(compressed, 0, length);
+            LZ4Block.decompress(compressed, length, buffer, size);
+        }
+        
+        position = 0;
+        count = size;
+        
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if(position >= count && !readBlock()) return -1;
+        
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int length) throws IOException
+    {
+        int size;
+        
+        if(length == 0) return 0;
+        
+        while(position >= count)
+        {
+            if(!readBlock()) return -1;
+        }
+        
+        size = Math.min(length, count - position);
+        
+        System.arraycopy(buffer, position, data, offset, size);
+        
+        position += size;
+        
+        return size;
+    }
+
+    @Override
+    public int available()
+    {
+        return count - position;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffers written data into blocks and compresses each block with 
+ * {@link LZ4Block}. Blocks that do not compress are stored as-is.
+ *
+ * @author jbanes
+ */
+class LZ4OutputStream extends OutputStream
+{
+    static final byte[] MAGIC = new byte[] { 'C', 'L', 'Z', '4' };
+    static final int BLOCK_SIZE = 64 * 1024;
+    static final int UNCOMPRESSED = 0x80000000;
+    
+    private final OutputStream out;
+    private final LZ4Block block = new LZ4Block();
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[LZ4Block.getMaxCompressedLength(BLOCK_SIZE) + 8];
+    
+    private int count;
+    private boolean closed;
+
+    public LZ4OutputStream(OutputStream out) throws IOException
+    {
+        this.out = out;
+        
+        out.write(MAGIC);
+    }
+    
+    private static void writeInt(int value, byte[] buffer, int offset)
+    {
+        buffer[offset] = (byte)(value >>> 24);
+        buffer[offset+1] = (byte)(value >>> 16);
+        buffer[offset+2] = (byte)(value >>> 8);
+        buffer[offset+3] = (byte)value;
+    }
+    
+    private void writeBlock() throws IOException
+    {
+        int length;
+        
+        if(count == 0) return;
+        
+        length = block.compress(buffer, count, compressed);
+        
+        if(length < count)
+        {
+            writeInt(length, compressed, compressed.length - 8);
+            writeInt(count, compressed, compressed.length - 4);
+            
+            out.write(compressed, compressed.length - 8, 8);
+            out.write(compressed, 0, length);
+        }
+        else
+        {
+            writeInt(count | UNCOMPRESSED, compressed, compressed.length - 8);
+            writeInt(count, compressed, compressed.length - 4);
+            
+            out.write(compressed, compressed.length - 8, 8);
+            out.write(buffer, 0, count);
+        }
+        
+        count = 0;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        if(count >= buffer.length) writeBlock();
+        
+        buffer[count++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException
+    {
+        int size;
+        
+        while(length > 0)
+        {
+            if(count >= buffer.length) writeBlock();
+            
+            size = Math.min(length, buffer.length - count);
+            
+            System.arraycopy(data, offset, buffer, count, size);
+            
+            count += size;
+            offset += size;
+            length -= size;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if(closed) return;
+        
+        writeBlock();
+        
+        // End of stream marker
+        out.write(new byte[4]);
+        out.close();
+        
+        closed = true;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.columnar;
+
+import static com.invirgance.convirgance.columnar.ColumnarEncoder.*;
+
+import com.invirgance.convirgance.bson.VarInt;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Describes a single column chunk within a row group: the key, the value
+ * type, how the values are encoded, min/max statistics, and the number of
+ * bytes of encoded data. Metadata for every column in a group is written 
+ * ahead of the column data so that readers can prune groups and skip 
+ * unneeded columns without decoding them.
+ *
+ * @author jbanes
+ */
+public class ColumnMetadata
+{
+    private String key;
+    private int type;
+    private int encoding;
+    private int flags;
+    private Object min;
+    private Object max;
+    private int length;
+
+    ColumnMetadata(String key, int type, int encoding, int flags, Object min, Object max, int length)
+    {
+        this.key = key;
+        this.type = type;
+        this.encoding = encoding;
+        this.flags = flags;
+        this.min = min;
+        this.max = max;
+        this.length = length;
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public int getType()
+    {
+        return type;
+    }
+
+    public int getEncoding()
+    {
+        return encoding;
+    }
+
+    public int getFlags()
+    {
+        return flags;
+    }
+
+    public boolean hasNulls()
+    {
+        return (flags & FLAG_NULLS) != 0;
+    }
+
+    public boolean hasAbsent()
+    {
+        return (flags & FLAG_ABSENT) != 0;
+    }
+
+    public boolean hasStatistics()
+    {
+        return (flags & FLAG_STATISTICS) != 0;
+    }
+
+    public Object getMin()
+    {
+        return min;
+    }
+
+    public Object getMax()
+    {
+        return max;
+    }
+
+    /**
+     * The number of bytes of encoded data for this column in the row group
+     * 
+     * @return length of the column data in bytes
+     */
+    public int getLength()
+    {
+        return length;
+    }
+    
+    private boolean isStatisticsType()
+    {
+        return (type == TYPE_INTEGER || type == TYPE_LONG || type == TYPE_DOUBLE || type == TYPE_STRING || type == TYPE_DATE);
+    }
+    
+    private boolean isTypeOf(Object value)
+    {
+        switch(type)
+        {
+            case TYPE_INTEGER: return (value instanceof Integer);
+            case TYPE_LONG: return (value instanceof Long);
+            case TYPE_DOUBLE: return (value instanceof Double);
+            case TYPE_BOOLEAN: return (value instanceof Boolean);
+            case TYPE_STRING: return (value instanceof String);
+            case TYPE_DATE: return (value.getClass() == Date.class);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Uses the statistics of the chunk to determine if any row could possibly
+     * be equal to the value. A false result guarantees that no row matches.
+     * 
+     * @param value the value to test
+     * @return false if no row in the chunk can be equal to value
+     */
+    public boolean mayContain(Object value)
+    {
+        if(value == null) return hasNulls();
+        if(!isTypeOf(value)) return false;
+        if(!isStatisticsType()) return true;
+        
+        // Typed column without statistics only contains nulls
+        if(!hasStatistics()) return false;
+        
+        return (compare(min, value) <= 0 && compare(max, value) >= 0);
+    }
+    
+    // isTypeOf() guarantees the statistic and the value share a comparable type
+    @SuppressWarnings("unchecked")
+    private static int compare(Object statistic, Object value)
+    {
+        return ((Comparable<Object>)statistic).compareTo(value);
+    }
+    
+    /**
+     * Uses the statistics of the chunk to determine if every row is equal to
+     * the value. A true result guarantees that every row matches.
+     * 
+     * @param value the value to test
+     * @return true if every row in the chunk is equal to value
+     */
+    public boolean isConstant(Object value)
+    {
+        if(value == null || hasNulls() || !hasStatistics()) return false;
+        
+        return (value.equals(min) && value.equals(max));
+    }
+    
+    private static void writeStatistic(int type, Object value, DataOutput out) throws IOException
+    {
+        byte[] data;
+        
+        switch(type)
+        {
+            case TYPE_INTEGER:
+            case TYPE_LONG:
+                out.writeLong(((Number)value).longValue());
+                break;
+            
+            case TYPE_DATE:
+                out.writeLong(((Date)value).getTime());
+                break;
+                
+            case TYPE_DOUBLE:
+                out.writeDouble((Double)value);
+                break;
+                
+            case TYPE_STRING:
+                data = ((String)value).getBytes("UTF-8");
+                
+                VarInt.write(data.length, out);
+                out.write(data);
+                break;
+        }
+    }
+    
+    private static Object readStatistic(int type, DataInput in) throws IOException
+    {
+        byte[] data;
+        
+        switch(type)
+        {
+            case TYPE_INTEGER:
+                return (int)in.readLong();
+            
+            case TYPE_LONG:
+                return in.readLong();
+            
+            case TYPE_DATE:
+                return new Date(in.readLong());
+                
+            case TYPE_DOUBLE:
+                return in.readDouble();
+                
+            case TYPE_STRING:
+                data = new byte[VarInt.readInt(in)];
+                
+                in.readFully(data);
+                
+                return new String(data, "UTF-8");
+        }
+        
+        throw new IOException("Statistics are not supported for type 0x" + Integer.toHexString(type));
+    }
+    
+    void write(DataOutput out) throws IOException
+    {
+        out.writeUTF(key);
+        out.writeByte(type);
+        out.writeByte(encoding);
+        out.writeByte(flags);
+        
+        if(hasStatistics())
+        {
+            writeStatistic(type, min, out);
+            writeStatistic(type, max, out);
+        }
+        
+        VarInt.write(length, out);
+    }
+    
+    static ColumnMetadata read(DataInput in) throws IOException
+    {
+        String key = in.readUTF();
+        int type = in.readUnsignedByte();
+        int encoding = in.readUnsignedByte();
+        int flags = in.readUnsignedByte();
+        Object min = null;
+        Object max = null;
+        
+        if((flags & FLAG_STATISTICS) != 0)
+        {
+            min = readStatistic(type, in);
+            max = readStatistic(type, in);
+        }
+        
+        return new ColumnMetadata(key, type, encoding, flags, min, max, VarInt.readInt(in));
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.columnar;
+
+import static com.invirgance.convirgance.columnar.ColumnarEncoder.*;
+
+import com.invirgance.convirgance.batch.BooleanColumn;
+import com.invirgance.convirgance.batch.Column;
+import com.invirgance.convirgance.batch.DateColumn;
+import com.invirgance.convirgance.batch.DoubleColumn;
+import com.invirgance.convirgance.batch.LongColumn;
+import com.invirgance.convirgance.batch.ObjectColumn;
+import com.invirgance.convirgance.batch.RecordBatch;
+import com.invirgance.convirgance.batch.StringColumn;
+import com.invirgance.convirgance.bson.BinaryDecoder;
+import com.invirgance.convirgance.bson.VarInt;
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * Reads row groups written by {@link ColumnarEncoder}. Call next() to read
+ * the metadata of the following group, inspect it with getMetadata(), and 
+ * then either read() the columns needed or skip() the group entirely.
+ *
+ * @author jbanes
+ */
+public class ColumnarDecoder
+{
+    private ColumnMetadata[] metadata;
+    private int rows;
+
+    public ColumnMetadata[] getMetadata()
+    {
+        return metadata;
+    }
+    
+    public ColumnMetadata getMetadata(String key)
+    {
+        for(ColumnMetadata column : metadata)
+        {
+            if(column.getKey().equals(key)) return column;
+        }
+        
+        return null;
+    }
+
+    public int getRowCount()
+    {
+        return rows;
+    }
+    
+    /**
+     * Reads the header of the next row group
+     * 
+     * @param in the stream to read from
+     * @return false if the end of the file has been reached
+     * @throws IOException if the data cannot be read
+     */
+    public boolean next(DataInput in) throws IOException
+    {
+        int marker = in.readUnsignedByte();
+        
+        if(marker == TYPE_EOF) 
+        {
+            metadata = null;
+            rows = 0;
+            
+            return false;
+        }
+        
+        if(marker != GROUP_MARKER) throw new IOException("Expected row group but found 0x" + Integer.toHexString(marker));
+        
+        rows = VarInt.readInt(in);
+        metadata = new ColumnMetadata[VarInt.readInt(in)];
+        
+        for(int i=0; i<metadata.length; i++)
+        {
+            metadata[i] = ColumnMetadata.read(in);
+        }
+        
+        return true;
+    }
+    
+    private static void skip(DataInput in, int length) throws IOException
+    {
+        int skipped;
+        
+        while(length > 0)
+        {
+            skipped = in.skipBytes(length);
+            
+            if(skipped <= 0) throw new IOException("Unexpected end of stream");
+            
+            length -= skipped;
+        }
+    }
+    
+    /**
+     * Skips the column data of the current row group
+     * 
+     * @param in the stream to read from
+     * @throws IOException if the data cannot be read
+     */
+    public void skip(DataInput in) throws IOException
+    {
+        for(ColumnMetadata column : metadata) skip(in, column.getLength());
+    }
+    
+    private static long[] readBits(int rows, DataInput in) throws IOException
+    {
+        long[] bits = new long[(rows + 63) >>> 6];
+        
+        for(int i=0; i<bits.length; i++) bits[i] = in.readLong();
+        
+        return bits;
+    }
+    
+    private static boolean isSet(long[] bits, int row)
+    {
+        return (bits != null && (bits[row >>> 6] & (1L << row)) != 0);
+    }
+    
+    private Column decode(ColumnMetadata meta, DataInput in) throws IOException
+    {
+        String key = meta.getKey();
+        long[] nulls = meta.hasNulls() ? readBits(rows, in) : null;
+        long[] absent = meta.hasAbsent() ? readBits(rows, in) : null;
+        boolean delta = (meta.getEncoding() == ENCODING_DELTA);
+        long previous = 0;
+        
+        long[] bits;
+        String[] dictionary;
+        byte[] data;
+        int code = 0;
+        int run = 0;
+        
+        LongColumn longs;
+        DateColumn dates;
+        DoubleColumn doubles;
+        BooleanColumn booleans;
+        StringColumn strings;
+        ObjectColumn objects;
+        BinaryDecoder decoder;
+        
+        switch(meta.getType())
+        {
+            case TYPE_INTEGER:
+            case TYPE_LONG:
+                longs = new LongColumn(key, rows, meta.getType() == TYPE_INTEGER);
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(isSet(absent, i)) longs.addAbsent();
+                    else if(isSet(nulls, i)) longs.add(null);
+                    else if(delta) longs.addLong(previous += VarInt.readSigned(in));
+                    else longs.addLong(in.readLong());
+                }
+                
+                return longs;
+                
+            case TYPE_DATE:
+                dates = new DateColumn(key, rows);
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(isSet(absent, i)) dates.addAbsent();
+                    else if(isSet(nulls, i)) dates.add(null);
+                    else if(delta) dates.addTime(previous += VarInt.readSigned(in));
+                    else dates.addTime(in.readLong());
+                }
+                
+                return dates;
+                
+            case TYPE_DOUBLE:
+                doubles = new DoubleColumn(key, rows);
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(isSet(absent, i)) doubles.addAbsent();
+                    else if(isSet(nulls, i)) doubles.add(null);
+                    else doubles.addDouble(in.readDouble());
+                }
+                
+                return doubles;
+                
+            case TYPE_BOOLEAN:
+                booleans = new BooleanColumn(key, rows);
+                bits = readBits(rows, in);
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(isSet(absent, i)) booleans.addAbsent();
+                    else if(isSet(nulls, i)) booleans.add(null);
+                    else booleans.add(isSet(bits, i));
+                }
+                
+                return booleans;
+                
+            case TYPE_STRING:
+                dictionary = new String[VarInt.readInt(in)];
+                
+                for(int i=0; i<dictionary.length; i++)
+                {
+                    data = new byte[VarInt.readInt(in)];
+                    
+                    in.readFully(data);
+                    
+                    dictionary[i] = new String(data, "UTF-8");
+                }
+                
+                strings = new StringColumn(key, rows, dictionary);
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(isSet(absent, i)) strings.addAbsent();
+                    else if(isSet(nulls, i)) strings.add(null);
+                    else if(meta.getEncoding() == ENCODING_DICTIONARY) strings.addCode(VarInt.readInt(in));
+                    else 
+                    {
+                        if(run < 1)
+                        {
+                            code = VarInt.readInt(in);
+                            run = VarInt.readInt(in);
+                        }
+                        
+                        strings.addCode(code);
+                        run--;
+                    }
+                }
+                
+                return strings;
+                
+            case TYPE_OBJECT:
+                objects = new ObjectColumn(key, rows);
+                decoder = new BinaryDecoder();
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(isSet(absent, i)) objects.addAbsent();
+                    else if(isSet(nulls, i)) objects.add(null);
+                    else objects.add(decoder.read(in));
+                }
+                
+                return objects;
+        }
+        
+        throw new IOException("Unknown column type 0x" + Integer.toHexString(meta.getType()));
+    }
+    
+    /**
+     * Decodes the columns of the current row group into a batch. Columns not
+     * in the set of keys are skipped without being decoded.
+     * 
+     * @param in the stream to read from
+     * @param keys the columns to decode or null for all columns
+     * @return batch containing the decoded columns
+     * @throws IOException if the data cannot be read
+     */
+    public RecordBatch read(DataInput in, Set<String> keys) throws IOException
+    {
+        ArrayList<Column> columns = new ArrayList<>();
+        
+        for(ColumnMetadata column : metadata)
+        {
+            if(keys == null || keys.contains(column.getKey())) columns.add(decode(column, in));
+            else skip(in, column.getLength());
+        }
+        
+        return new RecordBatch(rows, rows, columns.toArray(Column[]::new));
+    }
+}
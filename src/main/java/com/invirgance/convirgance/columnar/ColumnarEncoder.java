@@ -0,0 +1,331 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.columnar;
+
+import com.invirgance.convirgance.batch.BooleanColumn;
+import com.invirgance.convirgance.batch.Column;
+import com.invirgance.convirgance.batch.DateColumn;
+import com.invirgance.convirgance.batch.DoubleColumn;
+import com.invirgance.convirgance.batch.LongColumn;
+import com.invirgance.convirgance.batch.RecordBatch;
+import com.invirgance.convirgance.batch.StringColumn;
+import com.invirgance.convirgance.bson.BinaryEncoder;
+import com.invirgance.convirgance.bson.VarInt;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Writes a {@link RecordBatch} as a column-chunked row group. The group 
+ * starts with the metadata for every column followed by the encoded data for 
+ * each column in the same order. Integer, long, and date columns are delta
+ * encoded when it is smaller than plain encoding. String columns are 
+ * dictionary encoded with run length encoding of the codes when there are 
+ * long runs of repeated values.
+ *
+ * @author jbanes
+ */
+public class ColumnarEncoder
+{
+    public static final int GROUP_MARKER = 0x01;
+    public static final int TYPE_EOF = 0xFF;
+    
+    public static final int TYPE_INTEGER = 0x01;
+    public static final int TYPE_LONG = 0x02;
+    public static final int TYPE_DOUBLE = 0x03;
+    public static final int TYPE_BOOLEAN = 0x04;
+    public static final int TYPE_STRING = 0x05;
+    public static final int TYPE_DATE = 0x06;
+    public static final int TYPE_OBJECT = 0x07;
+    
+    public static final int ENCODING_PLAIN = 0x00;
+    public static final int ENCODING_DELTA = 0x01;
+    public static final int ENCODING_DICTIONARY = 0x02;
+    public static final int ENCODING_DICTIONARY_RLE = 0x03;
+    
+    public static final int FLAG_NULLS = 0x01;
+    public static final int FLAG_ABSENT = 0x02;
+    public static final int FLAG_STATISTICS = 0x04;
+    
+    private static int getType(Column column)
+    {
+        // Mixed Integer and Long values are stored as objects to keep their types
+        if(column instanceof LongColumn && ((LongColumn)column).isWidened()) return TYPE_OBJECT;
+        if(column instanceof LongColumn) return ((LongColumn)column).isInteger() ? TYPE_INTEGER : TYPE_LONG;
+        if(column instanceof DoubleColumn) return TYPE_DOUBLE;
+        if(column instanceof BooleanColumn) return TYPE_BOOLEAN;
+        if(column instanceof StringColumn) return TYPE_STRING;
+        if(column instanceof DateColumn) return TYPE_DATE;
+        
+        return TYPE_OBJECT;
+    }
+    
+    private static void writeBits(long[] bits, DataOutput out) throws IOException
+    {
+        for(long word : bits) out.writeLong(word);
+    }
+    
+    private int writeLongs(long[] values, int count, DataOutput out) throws IOException
+    {
+        long size = 0;
+        long previous = 0;
+        
+        for(int i=0; i<count; i++)
+        {
+            size += VarInt.size(VarInt.zigzag(values[i] - previous));
+            previous = values[i];
+        }
+        
+        if(size >= count * 8L)
+        {
+            for(int i=0; i<count; i++) out.writeLong(values[i]);
+            
+            return ENCODING_PLAIN;
+        }
+        
+        previous = 0;
+        
+        for(int i=0; i<count; i++)
+        {
+            VarInt.writeSigned(values[i] - previous, out);
+            previous = values[i];
+        }
+        
+        return ENCODING_DELTA;
+    }
+    
+    private int writeCodes(int[] codes, int count, DataOutput out) throws IOException
+    {
+        int runs = 0;
+        int run;
+        
+        for(int i=0; i<count; i++)
+        {
+            if(i == 0 || codes[i] != codes[i-1]) runs++;
+        }
+        
+        if(runs * 2 >= count)
+        {
+            for(int i=0; i<count; i++) VarInt.write(codes[i], out);
+            
+            return ENCODING_DICTIONARY;
+        }
+        
+        for(int i=0; i<count; i+=run)
+        {
+            run = 1;
+            
+            while(i+run < count && codes[i+run] == codes[i]) run++;
+            
+            VarInt.write(codes[i], out);
+            VarInt.write(run, out);
+        }
+        
+        return ENCODING_DICTIONARY_RLE;
+    }
+    
+    private ColumnMetadata encode(Column column, int rows, DataOutputStream out) throws IOException
+    {
+        String key = column.getKey();
+        int type = getType(column);
+        int encoding = ENCODING_PLAIN;
+        int flags = 0;
+        
+        long[] nulls = new long[(rows + 63) >>> 6];
+        long[] absent = new long[(rows + 63) >>> 6];
+        int count = 0;
+        
+        Object min = null;
+        Object max = null;
+        long[] longs;
+        double[] doubles;
+        int[] codes;
+        
+        byte[] data;
+        BinaryEncoder encoder;
+        
+        for(int i=0; i<rows; i++)
+        {
+            if(column.isAbsent(i)) 
+            {
+                absent[i >>> 6] |= (1L << i);
+                flags |= FLAG_ABSENT;
+            }
+            
+            if(column.isNull(i)) 
+            {
+                nulls[i >>> 6] |= (1L << i);
+                flags |= FLAG_NULLS;
+            }
+            else count++;
+        }
+        
+        if((flags & FLAG_NULLS) != 0) writeBits(nulls, out);
+        if((flags & FLAG_ABSENT) != 0) writeBits(absent, out);
+        
+        switch(type)
+        {
+            case TYPE_INTEGER:
+            case TYPE_LONG:
+            case TYPE_DATE:
+                longs = new long[count];
+                count = 0;
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(column.isNull(i)) continue;
+                    
+                    if(type == TYPE_DATE) longs[count++] = ((DateColumn)column).getTime(i);
+                    else longs[count++] = ((LongColumn)column).getLong(i);
+                }
+                
+                if(count > 0)
+                {
+                    min = longs[0];
+                    max = longs[0];
+                    
+                    for(int i=1; i<count; i++)
+                    {
+                        if(longs[i] < (Long)min) min = longs[i];
+                        if(longs[i] > (Long)max) max = longs[i];
+                    }
+                    
+                    if(type == TYPE_INTEGER)
+                    {
+                        min = ((Long)min).intValue();
+                        max = ((Long)max).intValue();
+                    }
+                    else if(type == TYPE_DATE)
+                    {
+                        min = new Date((Long)min);
+                        max = new Date((Long)max);
+                    }
+                }
+                
+                encoding = writeLongs(longs, count, out);
+                break;
+                
+            case TYPE_DOUBLE:
+                doubles = new double[count];
+                count = 0;
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(!column.isNull(i)) doubles[count++] = ((DoubleColumn)column).getDouble(i);
+                }
+                
+                for(int i=0; i<count; i++)
+                {
+                    if(min == null || Double.compare(doubles[i], (Double)min) < 0) min = doubles[i];
+                    if(max == null || Double.compare(doubles[i], (Double)max) > 0) max = doubles[i];
+                    
+                    out.writeDouble(doubles[i]);
+                }
+                break;
+                
+            case TYPE_BOOLEAN:
+                longs = new long[(rows + 63) >>> 6];
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(!column.isNull(i) && ((BooleanColumn)column).getBoolean(i)) longs[i >>> 6] |= (1L << i);
+                }
+                
+                writeBits(longs, out);
+                break;
+                
+            case TYPE_STRING:
+                codes = new int[count];
+                count = 0;
+                
+                VarInt.write(((StringColumn)column).getEntryCount(), out);
+                
+                for(int i=0; i<((StringColumn)column).getEntryCount(); i++)
+                {
+                    String entry = ((StringColumn)column).getEntry(i);
+                    
+                    if(min == null || entry.compareTo((String)min) < 0) min = entry;
+                    if(max == null || entry.compareTo((String)max) > 0) max = entry;
+                    
+                    data = entry.getBytes("UTF-8");
+                    
+                    VarInt.write(data.length, out);
+                    out.write(data);
+                }
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(!column.isNull(i)) codes[count++] = ((StringColumn)column).getCode(i);
+                }
+                
+                encoding = writeCodes(codes, count, out);
+                break;
+                
+            default:
+                encoder = new BinaryEncoder();
+                
+                for(int i=0; i<rows; i++)
+                {
+                    if(!column.isNull(i)) encoder.write(column.get(i), out);
+                }
+        }
+        
+        if(min != null) flags |= FLAG_STATISTICS;
+        
+        return new ColumnMetadata(key, type, encoding, flags, min, max, out.size());
+    }
+    
+    /**
+     * Writes every physical row of the batch as a single row group. The
+     * selection of the batch is ignored.
+     * 
+     * @param batch the records to write
+     * @param out destination for the encoded row group
+     * @throws IOException if the data cannot be written
+     */
+    public void write(RecordBatch batch, DataOutput out) throws IOException
+    {
+        Column[] columns = batch.getColumns();
+        ColumnMetadata[] metadata = new ColumnMetadata[columns.length];
+        ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[columns.length];
+        int rows = batch.getRowCount();
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            buffers[i] = new ByteArrayOutputStream();
+            metadata[i] = encode(columns[i], rows, new DataOutputStream(buffers[i]));
+        }
+        
+        out.writeByte(GROUP_MARKER);
+        VarInt.write(rows, out);
+        VarInt.write(columns.length, out);
+        
+        for(ColumnMetadata column : metadata) column.write(out);
+        
+        for(ByteArrayOutputStream buffer : buffers)
+        {
+            out.write(buffer.toByteArray());
+        }
+    }
+}
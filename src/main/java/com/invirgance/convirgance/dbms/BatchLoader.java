@@ -0,0 +1,176 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.dbms;
+
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.BatchExecuteEvent;
+import com.invirgance.convirgance.metrics.Histogram;
+import com.invirgance.convirgance.metrics.Metrics;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Loads records one statement per record using JDBC batching. The batch is
+ * sent to the database each time it reaches the batch size.
+ *
+ * @author jbanes
+ */
+public class BatchLoader implements BulkLoader
+{
+    private int batchSize;
+
+    public BatchLoader()
+    {
+        this(10000);
+    }
+
+    public BatchLoader(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of records sent to the database in each batch 
+     * 
+     * @param batchSize number of records per batch
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Replaces the named parameters in the SQL with JDBC ? markers
+     * 
+     * @param sql the sql to rewrite
+     * @param offset position of the sql within the query
+     * @param parameters the parameters that fall within the sql
+     * @return sql suitable for a PreparedStatement
+     */
+    protected String getSQL(String sql, int offset, Query.Parameter[] parameters)
+    {
+        StringBuilder builder = new StringBuilder();
+        int start = 0;
+        
+        for(Query.Parameter parameter : parameters)
+        {
+            builder.append(sql.substring(start, parameter.getStart() - offset));
+            builder.append("?");
+            
+            start = parameter.getStart() - offset + parameter.getLength();
+        }
+        
+        builder.append(sql.substring(start, sql.length()));
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Binds the record values to the statement parameters
+     * 
+     * @param statement the statement to bind to
+     * @param index JDBC index of the first parameter
+     * @param parameters the parameters to bind
+     * @param record record containing the values
+     * @return the next unbound JDBC index
+     * @throws SQLException if the value cannot be bound
+     */
+    protected int bind(PreparedStatement statement, int index, Query.Parameter[] parameters, JSONObject record) throws SQLException
+    {
+        for(Query.Parameter parameter : parameters)
+        {
+            statement.setObject(index++, record.get(parameter.getName()));
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Executes the pending batch, recording metrics and events when enabled
+     * 
+     * @param statement statement with a pending batch
+     * @param sql sql of the statement
+     * @param records number of records in the batch
+     * @throws SQLException if the batch fails
+     */
+    protected void executeBatch(PreparedStatement statement, String sql, int records) throws SQLException
+    {
+        Histogram latency = Metrics.isEnabled() ? Metrics.histogram("dbms.executeBatch") : null;
+        BatchExecuteEvent event = new BatchExecuteEvent();
+        long start = 0;
+        
+        if(latency != null) start = System.nanoTime();
+        if(event.isEnabled()) event.begin();
+        
+        statement.executeBatch();
+        
+        if(latency != null) latency.record(System.nanoTime() - start);
+        
+        if(event.isEnabled())
+        {
+            event.end();
+            event.sql = sql;
+            event.records = records;
+            
+            event.commit();
+        }
+    }
+
+    @Override
+    public long load(Connection connection, Query query, Iterable<JSONObject> records) throws SQLException
+    {
+        Query.Parameter[] parameters = query.getParameters();
+        String sql = getSQL(query.getSQL(), 0, parameters);
+        long count = 0;
+        int pending = 0;
+        
+        try(PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            for(JSONObject record : records)
+            {
+                bind(statement, 1, parameters, record);
+                statement.addBatch();
+
+                count++;
+                pending++;
+
+                // Send the batch periodically to prevent overflow of the 
+                // transaction buffer
+                if(pending >= batchSize)
+                {
+                    executeBatch(statement, sql, pending);
+                    pending = 0;
+                }
+            }
+
+            if(pending > 0) executeBatch(statement, sql, pending);
+        }
+        
+        return count;
+    }
+}
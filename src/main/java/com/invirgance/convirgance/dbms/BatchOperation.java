@@ -22,11 +22,14 @@ SOFTWARE.
 package com.invirgance.convirgance.dbms;
 
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.Metrics;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 /**
+ * Executes the query once for each record. Records are written by a 
+ * {@link BulkLoader}, which defaults to JDBC batching. Use 
+ * {@link MultiRowInsertLoader} or a vendor specific loader for faster loads.
  *
  * @author jbanes
  */
@@ -35,6 +38,7 @@ public class BatchOperation implements AtomicOperation
     private Query query;
     private Iterable<JSONObject> records;
     private int commit = 10000;
+    private BulkLoader loader;
 
     public BatchOperation()
     {
@@ -71,66 +75,39 @@ public class BatchOperation implements AtomicOperation
         this.records = records;
     }
     
-    public int getAutoCommit()
+    public BulkLoader getLoader()
     {
-        return commit;
+        return loader;
     }
 
-    public void setAutoCommit(int commit)
+    /**
+     * Sets the strategy used to write the records. When not set, records are
+     * written with a {@link BatchLoader} using the auto commit size.
+     * 
+     * @param loader the bulk load strategy or null for the default
+     */
+    public void setLoader(BulkLoader loader)
     {
-        this.commit = commit;
+        this.loader = loader;
     }
     
-    private String getSQL()
+    public int getAutoCommit()
     {
-        StringBuilder builder = new StringBuilder();
-        String sql = query.getSQL();
-        int start = 0;
-        
-        for(Query.Parameter parameter : query.getParameters())
-        {
-            builder.append(sql.substring(start, parameter.getStart()));
-            builder.append("?");
-            
-            start = parameter.getStart() + parameter.getLength();
-        }
-        
-        builder.append(sql.substring(start, sql.length()));
-        
-        return builder.toString();
+        return commit;
     }
-    
-    private void populate(PreparedStatement statement, JSONObject record) throws SQLException
+
+    public void setAutoCommit(int commit)
     {
-        int index = 1;
-        
-        for(Query.Parameter parameter : query.getParameters())
-        {
-            statement.setObject(index++, record.get(parameter.getName()));
-        }
-        
-        statement.addBatch();
+        this.commit = commit;
     }
     
     @Override
     public void execute(Connection connection) throws SQLException
     {
-        PreparedStatement statement = connection.prepareStatement(getSQL());
-        int index = 0;
-        
-        for(JSONObject record : records)
-        {
-            populate(statement, record);
-            
-            index++;
-            
-            // Perform a commit every 10000 records to prevent overflow of
-            // transaction buffer
-            if(index%commit == 0) statement.executeBatch();
-        }
+        BulkLoader loader = (this.loader != null) ? this.loader : new BatchLoader(commit);
+        long count = loader.load(connection, query, records);
         
-        statement.executeBatch();
-        statement.close();
+        if(Metrics.isEnabled()) Metrics.counter("dbms.batch.records").add(count);
     }
     
 }
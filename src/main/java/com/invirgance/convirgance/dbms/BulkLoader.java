@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.dbms;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Strategy used by {@link BatchOperation} to write records to the database.
+ * The default {@link BatchLoader} uses JDBC batching. Implementations can 
+ * rewrite the statement (see {@link MultiRowInsertLoader}) or unwrap the 
+ * connection to stream records through a vendor specific bulk API.
+ *
+ * @author jbanes
+ */
+public interface BulkLoader
+{
+    /**
+     * Writes every record using the query as the template for each row
+     * 
+     * @param connection connection to load through
+     * @param query query with parameters named after record keys
+     * @param records the records to load
+     * @return number of records loaded
+     * @throws SQLException if the database rejects the load
+     */
+    public long load(Connection connection, Query query, Iterable<JSONObject> records) throws SQLException;
+}
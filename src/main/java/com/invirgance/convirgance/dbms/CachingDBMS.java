@@ -0,0 +1,434 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.dbms;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.bson.BinaryDecoder;
+import com.invirgance.convirgance.bson.BinaryEncoder;
+import com.invirgance.convirgance.bson.KeyStreamEncoder;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Caches query results in memory. Results are stored in the compact binary
+ * encoding used by BSON files rather than as live records, and each cache hit
+ * decodes a fresh set of records. Entries are keyed by the database SQL, the
+ * bindings, and the projection of the query.
+ * 
+ * Entries expire after a time to live and the least recently used entries are
+ * evicted when the cache exceeds its size budget. Queries can be tagged, 
+ * typically with the names of the tables they read, so that all entries for
+ * a table can be invalidated after it is updated.
+ * 
+ * Results are only cached once they have been read to the end. Results 
+ * containing values the binary encoding does not support (e.g. BigDecimal) 
+ * or larger than the size budget are passed through without caching. Dates 
+ * returned from the cache are java.util.Date regardless of the JDBC type.
+ *
+ * @author jbanes
+ */
+public class CachingDBMS extends DBMS
+{
+    private final DBMS dbms;
+    private final LinkedHashMap<CacheKey,CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private long timeToLive = 60 * 1000;
+    private long maxBytes = 64 * 1024 * 1024;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long generation;
+
+    public CachingDBMS(DBMS dbms)
+    {
+        super(dbms.getSource());
+        
+        this.dbms = dbms;
+    }
+
+    public DBMS getDBMS()
+    {
+        return dbms;
+    }
+
+    public long getTimeToLive()
+    {
+        return timeToLive;
+    }
+
+    /**
+     * Sets how long results stay in the cache
+     * 
+     * @param timeToLive time to live in milliseconds
+     */
+    public void setTimeToLive(long timeToLive)
+    {
+        this.timeToLive = timeToLive;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the size budget of the cache. Least recently used entries are 
+     * evicted to stay within the budget.
+     * 
+     * @param maxBytes maximum encoded size of all entries
+     */
+    public synchronized void setMaxBytes(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+        
+        evict();
+    }
+
+    /**
+     * The encoded size of all entries currently in the cache
+     * 
+     * @return size in bytes
+     */
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+    
+    public synchronized int size()
+    {
+        return cache.size();
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    @Override
+    public Iterable<JSONObject> query(Query query, String[] projection) throws ConvirganceException
+    {
+        return query(query, projection, null);
+    }
+    
+    /**
+     * Executes the query or replays it from the cache. The tags are used to
+     * invalidate the result later, typically the names of the tables read.
+     * 
+     * @param query the query to execute
+     * @param projection columns to return or null for all columns
+     * @param tags tags to associate with the cached result or null for none
+     * @return records containing the projected columns
+     * @throws ConvirganceException if the query fails
+     */
+    public Iterable<JSONObject> query(final Query query, final String[] projection, String[] tags) throws ConvirganceException
+    {
+        final CacheKey key = new CacheKey(query.getDatabaseSQL(), query.getDatabaseBindings(), projection);
+        final Set<String> tagged = (tags != null) ? new HashSet<>(Arrays.asList(tags)) : Set.of();
+        
+        return new Iterable<JSONObject>() {
+            @Override
+            public Iterator<JSONObject> iterator()
+            {
+                CacheEntry entry = get(key);
+                long generation;
+                
+                if(entry != null) return new CachedIterator(entry);
+                
+                // Captured before the query runs so later invalidations are detected
+                generation = getGeneration();
+                
+                return new CachingIterator(key, tagged, generation, dbms.query(query, projection).iterator());
+            }
+        };
+    }
+    
+    /**
+     * Removes every entry with the given tag
+     * 
+     * @param tag the tag to invalidate
+     */
+    public synchronized void invalidate(String tag)
+    {
+        Iterator<CacheEntry> iterator = cache.values().iterator();
+        CacheEntry entry;
+        
+        while(iterator.hasNext())
+        {
+            entry = iterator.next();
+            
+            if(!entry.tags.contains(tag)) continue;
+            
+            bytes -= entry.data.length;
+            iterator.remove();
+        }
+        
+        generation++;
+    }
+    
+    public synchronized void invalidateAll()
+    {
+        cache.clear();
+        
+        bytes = 0;
+        generation++;
+    }
+    
+    private synchronized long getGeneration()
+    {
+        return generation;
+    }
+    
+    private synchronized CacheEntry get(CacheKey key)
+    {
+        CacheEntry entry = cache.get(key);
+        
+        if(entry != null && System.nanoTime() - entry.created > timeToLive * 1000000)
+        {
+            cache.remove(key);
+            
+            bytes -= entry.data.length;
+            entry = null;
+        }
+        
+        if(entry != null) hits++;
+        else misses++;
+        
+        return entry;
+    }
+    
+    private synchronized void put(CacheKey key, CacheEntry entry, long generation)
+    {
+        CacheEntry previous;
+        
+        if(entry.data.length > maxBytes) return;
+        
+        // Results read while an invalidation happened may be stale
+        if(generation != this.generation) return;
+        
+        previous = cache.put(key, entry);
+        
+        if(previous != null) bytes -= previous.data.length;
+        
+        bytes += entry.data.length;
+        
+        evict();
+    }
+    
+    private void evict()
+    {
+        Iterator<CacheEntry> iterator = cache.values().iterator();
+        CacheEntry entry;
+        
+        // Iteration order is least recently used first
+        while(bytes > maxBytes && iterator.hasNext())
+        {
+            entry = iterator.next();
+            
+            bytes -= entry.data.length;
+            iterator.remove();
+        }
+    }
+    
+    private static class CacheKey
+    {
+        private final String sql;
+        private final Object[] bindings;
+        private final String[] projection;
+        private final int hash;
+
+        public CacheKey(String sql, Object[] bindings, String[] projection)
+        {
+            this.sql = sql;
+            this.bindings = bindings;
+            this.projection = (projection != null) ? projection.clone() : null;
+            this.hash = sql.hashCode() * 31 * 31 + Arrays.deepHashCode(bindings) * 31 + Arrays.hashCode(projection);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            CacheKey other;
+            
+            if(!(object instanceof CacheKey)) return false;
+            
+            other = (CacheKey)object;
+            
+            return (hash == other.hash && sql.equals(other.sql) && Arrays.deepEquals(bindings, other.bindings) && Arrays.equals(projection, other.projection));
+        }
+    }
+    
+    private static class CacheEntry
+    {
+        private final byte[] data;
+        private final int count;
+        private final Set<String> tags;
+        private final long created = System.nanoTime();
+
+        public CacheEntry(byte[] data, int count, Set<String> tags)
+        {
+            this.data = data;
+            this.count = count;
+            this.tags = tags;
+        }
+    }
+    
+    // Replays a cached result
+    private static class CachedIterator implements CloseableIterator<JSONObject>
+    {
+        private final DataInputStream in;
+        private final BinaryDecoder decoder = new BinaryDecoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2);
+        private final int count;
+        private int index;
+
+        public CachedIterator(CacheEntry entry)
+        {
+            this.in = new DataInputStream(new ByteArrayInputStream(entry.data));
+            this.count = entry.count;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return (index < count);
+        }
+
+        @Override
+        public JSONObject next()
+        {
+            if(!hasNext()) throw new NoSuchElementException();
+            
+            try
+            {
+                index++;
+                
+                return (JSONObject)decoder.read(in);
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            index = count;
+        }
+    }
+    
+    // Encodes records as they are read and stores them once the result is complete
+    private class CachingIterator implements CloseableIterator<JSONObject>
+    {
+        private final CacheKey key;
+        private final Set<String> tags;
+        private final long generation;
+        private final Iterator<JSONObject> iterator;
+        
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private DataOutputStream out = new DataOutputStream(buffer);
+        private BinaryEncoder encoder = new BinaryEncoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2);
+        private int count;
+
+        public CachingIterator(CacheKey key, Set<String> tags, long generation, Iterator<JSONObject> iterator)
+        {
+            this.key = key;
+            this.tags = tags;
+            this.generation = generation;
+            this.iterator = iterator;
+        }
+        
+        private void abandon()
+        {
+            buffer = null;
+            out = null;
+            encoder = null;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            boolean next = iterator.hasNext();
+            
+            if(!next && buffer != null)
+            {
+                put(key, new CacheEntry(buffer.toByteArray(), count, tags), generation);
+                abandon();
+            }
+            
+            return next;
+        }
+
+        @Override
+        public JSONObject next()
+        {
+            JSONObject record = iterator.next();
+            
+            if(buffer == null) return record;
+            
+            try
+            {
+                encoder.write(record, out);
+                count++;
+                
+                if(buffer.size() > maxBytes) abandon();
+            }
+            catch(IOException | RuntimeException e)
+            {
+                // Unsupported value types make the result uncacheable
+                abandon();
+            }
+            
+            return record;
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            abandon();
+            
+            if(iterator instanceof AutoCloseable) ((AutoCloseable)iterator).close();
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.dbms;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Minimal connection pool that wraps any DataSource. Closing a connection
+ * obtained from the pool returns it for reuse rather than disconnecting:
+ * <pre>
+ * DBMS dbms = new DBMS(new ConnectionPool(source));
+ * </pre>
+ * 
+ * Idle connections are kept in a lock-free stack so the most recently used
+ * connection is handed out first. Connections that have been idle longer
+ * than the validation interval are checked with isValid() before they are 
+ * borrowed. Connections older than the maximum lifetime are replaced.
+ * 
+ * When a leak threshold is set, connections held longer than the threshold
+ * are reported along with the stack trace of the code that borrowed them.
+ * Leaks are checked each time a connection is borrowed and are logged as
+ * warnings to the java.util.logging logger named after this class.
+ * 
+ * Connections are returned with auto-commit restored to its original setting.
+ * Uncommitted work is rolled back.
+ *
+ * @author jbanes
+ */
+public class ConnectionPool implements DataSource, AutoCloseable
+{
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+    
+    private final DataSource source;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final AtomicLong leaks = new AtomicLong();
+    
+    private long timeout = 30 * 1000;
+    private long validationInterval = 1000;
+    private int validationTimeout = 5;
+    private long maxLifetime = 30 * 60 * 1000;
+    private long leakThreshold;
+    
+    private volatile boolean closed;
+
+    public ConnectionPool(DataSource source)
+    {
+        this(source, 10);
+    }
+    
+    public ConnectionPool(DataSource source, int maxSize)
+    {
+        if(maxSize < 1) throw new IllegalArgumentException("Pool size must be at least 1");
+        
+        this.source = source;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize);
+    }
+
+    public DataSource getSource()
+    {
+        return source;
+    }
+
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public long getTimeout()
+    {
+        return timeout;
+    }
+
+    /**
+     * Sets how long getConnection() waits for a connection when all are in 
+     * use before failing
+     * 
+     * @param timeout time to wait in milliseconds
+     */
+    public void setTimeout(long timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    public long getValidationInterval()
+    {
+        return validationInterval;
+    }
+
+    /**
+     * Connections idle for longer than this interval are validated before 
+     * being borrowed. Set to 0 to validate on every borrow.
+     * 
+     * @param validationInterval idle time in milliseconds
+     */
+    public void setValidationInterval(long validationInterval)
+    {
+        this.validationInterval = validationInterval;
+    }
+
+    public int getValidationTimeout()
+    {
+        return validationTimeout;
+    }
+
+    /**
+     * Sets the timeout passed to Connection.isValid()
+     * 
+     * @param validationTimeout timeout in seconds
+     */
+    public void setValidationTimeout(int validationTimeout)
+    {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public long getMaxLifetime()
+    {
+        return maxLifetime;
+    }
+
+    /**
+     * Sets the age after which connections are closed instead of reused
+     * 
+     * @param maxLifetime lifetime in milliseconds or 0 for no limit
+     */
+    public void setMaxLifetime(long maxLifetime)
+    {
+        this.maxLifetime = maxLifetime;
+    }
+
+    public long getLeakThreshold()
+    {
+        return leakThreshold;
+    }
+
+    /**
+     * Reports connections borrowed for longer than the threshold
+     * 
+     * @param leakThreshold time in milliseconds or 0 to disable
+     */
+    public void setLeakThreshold(long leakThreshold)
+    {
+        this.leakThreshold = leakThreshold;
+    }
+
+    /**
+     * The number of leaked connections reported so far
+     * 
+     * @return number of leaks
+     */
+    public long getLeakCount()
+    {
+        return leaks.get();
+    }
+
+    public int getActiveCount()
+    {
+        return active.size();
+    }
+
+    public int getIdleCount()
+    {
+        return idle.size();
+    }
+    
+    private PooledConnection create() throws SQLException
+    {
+        return new PooledConnection(source.getConnection());
+    }
+    
+    private boolean isExpired(PooledConnection connection, long now)
+    {
+        return (maxLifetime > 0 && now - connection.created > maxLifetime);
+    }
+    
+    private boolean isUsable(PooledConnection connection)
+    {
+        long now = System.currentTimeMillis();
+        
+        if(isExpired(connection, now)) return false;
+        if(now - connection.returned < validationInterval) return true;
+        
+        try
+        {
+            return !connection.connection.isClosed() && connection.connection.isValid(validationTimeout);
+        }
+        catch(SQLException e)
+        {
+            return false;
+        }
+    }
+    
+    private void detectLeaks()
+    {
+        long now = System.currentTimeMillis();
+        
+        for(PooledConnection connection : active)
+        {
+            if(connection.reported || now - connection.borrowed < leakThreshold) continue;
+            
+            connection.reported = true;
+            leaks.incrementAndGet();
+            
+            LOG.log(Level.WARNING, "Connection leak detected. Connection was borrowed " + (now - connection.borrowed) + "ms ago by the following code.", connection.trace);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        PooledConnection connection;
+        
+        if(closed) throw new SQLException("Connection pool is closed");
+        if(leakThreshold > 0) detectLeaks();
+        
+        try
+        {
+            if(!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+            {
+                throw new SQLTimeoutException("Timed out after " + timeout + "ms waiting for one of " + maxSize + " connections");
+            }
+        }
+        catch(InterruptedException e)
+        {
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        
+        try
+        {
+            while((connection = idle.pollFirst()) != null)
+            {
+                if(isUsable(connection)) break;
+                
+                connection.destroy();
+            }
+            
+            if(connection == null) connection = create();
+        }
+        catch(SQLException | RuntimeException e)
+        {
+            permits.release();
+            throw e;
+        }
+        
+        connection.borrowed = System.currentTimeMillis();
+        connection.reported = false;
+        connection.trace = (leakThreshold > 0) ? new Exception("Connection borrowed here") : null;
+        
+        active.add(connection);
+        
+        return connection.open();
+    }
+    
+    private void release(PooledConnection connection)
+    {
+        boolean reusable = !closed && !isExpired(connection, System.currentTimeMillis());
+        
+        active.remove(connection);
+        
+        try
+        {
+            if(reusable) reusable = connection.reset();
+        }
+        finally
+        {
+            if(reusable)
+            {
+                connection.returned = System.currentTimeMillis();
+                idle.offerFirst(connection);
+            }
+            else
+            {
+                connection.destroy();
+            }
+            
+            permits.release();
+        }
+    }
+
+    /**
+     * Borrowing a connection with different credentials bypasses the pool
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return source.getConnection(username, password);
+    }
+
+    /**
+     * Closes all idle connections. Connections in use are closed when they
+     * are returned.
+     */
+    @Override
+    public void close()
+    {
+        PooledConnection connection;
+        
+        closed = true;
+        
+        while((connection = idle.pollFirst()) != null) connection.destroy();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return source.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        source.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        source.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return source.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        return source.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException
+    {
+        if(type.isInstance(this)) return type.cast(this);
+        
+        return source.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException
+    {
+        return type.isInstance(this) || source.isWrapperFor(type);
+    }
+    
+    private class PooledConnection
+    {
+        private final Connection connection;
+        private final boolean autoCommit;
+        private final long created = System.currentTimeMillis();
+        
+        private volatile long borrowed;
+        private volatile long returned = created;
+        private volatile boolean reported;
+        private volatile Exception trace;
+
+        public PooledConnection(Connection connection) throws SQLException
+        {
+            this.connection = connection;
+            this.autoCommit = connection.getAutoCommit();
+        }
+        
+        // Each borrow gets its own handle so a stale handle cannot close the connection twice
+        public Connection open()
+        {
+            return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{ Connection.class }, new InvocationHandler() {
+                
+                private boolean closed;
+                
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                {
+                    switch(method.getName())
+                    {
+                        case "close":
+                            if(!closed) release(PooledConnection.this);
+                            
+                            closed = true;
+                            return null;
+                            
+                        case "isClosed":
+                            return closed;
+                            
+                        case "equals":
+                            return (proxy == args[0]);
+                            
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                            
+                        case "toString":
+                            return "Pooled " + connection;
+                    }
+                    
+                    if(closed) throw new SQLException("Connection has been returned to the pool");
+                    
+                    try
+                    {
+                        return method.invoke(connection, args);
+                    }
+                    catch(InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                }
+            });
+        }
+        
+        // Restores the connection to the state it was created in
+        public boolean reset()
+        {
+            try
+            {
+                if(connection.isClosed()) return false;
+                
+                if(!connection.getAutoCommit()) connection.rollback();
+                if(connection.getAutoCommit() != autoCommit) connection.setAutoCommit(autoCommit);
+                
+                connection.clearWarnings();
+                
+                return true;
+            }
+            catch(SQLException e)
+            {
+                return false;
+            }
+        }
+        
+        public void destroy()
+        {
+            try
+            {
+                connection.close();
+            }
+            catch(SQLException e) { LOG.log(Level.FINE, "Failed to close pooled connection", e); }
+        }
+    }
+}
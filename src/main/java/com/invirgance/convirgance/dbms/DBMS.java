@@ -24,8 +24,14 @@ package com.invirgance.convirgance.dbms;
 import com.invirgance.convirgance.CloseableIterator;
 import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.Histogram;
+import com.invirgance.convirgance.metrics.Metrics;
+import com.invirgance.convirgance.metrics.QueryEvent;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 import javax.sql.DataSource;
 
 /**
@@ -48,18 +54,40 @@ public class DBMS
     
     public Iterable<JSONObject> query(Query query) throws ConvirganceException
     {
+        return query(query, null);
+    }
+    
+    /**
+     * Executes the query, only retrieving the listed columns from each row of
+     * the result set. Column names are matched against the column labels
+     * reported by the driver.
+     * 
+     * @param query the query to execute
+     * @param projection columns to return or null for all columns
+     * @return records containing the projected columns
+     * @throws ConvirganceException if the query fails
+     */
+    public Iterable<JSONObject> query(Query query, String[] projection) throws ConvirganceException
+    {
+        final Set<String> keys = (projection != null) ? new HashSet<>(Arrays.asList(projection)) : null;
+        
         return new Iterable<JSONObject>() {
 
             @Override
             public Iterator<JSONObject> iterator()
             {
-                Connection connection;
+                Connection connection = null;
                 PreparedStatement statement;
                 ResultSet set;
                 int index = 1;
+                long start = System.nanoTime();
+                QueryEvent event = new QueryEvent();
 
                 try
                 {
+                    if(event.isEnabled()) event.begin();
+                    else event = null;
+                    
                     connection = source.getConnection();
                     statement = connection.prepareStatement(query.getDatabaseSQL());
                     
@@ -69,11 +97,25 @@ public class DBMS
                     }
                     
                     set = statement.executeQuery();
+                    
+                    if(Metrics.isEnabled()) Metrics.histogram("dbms.execute").record(System.nanoTime() - start);
+                    
+                    if(event != null)
+                    {
+                        event.sql = query.getDatabaseSQL();
+                        event.executeTime = System.nanoTime() - start;
+                    }
 
-                    return new SQLCursorIterator(connection, statement, set);
+                    return new SQLCursorIterator(connection, statement, set, keys, event, start);
                 }
                 catch(SQLException e)
                 {
+                    try
+                    {
+                        if(connection != null) connection.close();
+                    }
+                    catch(SQLException ex) { e.addSuppressed(ex); }
+                    
                     throw new ConvirganceException(e);
                 }
             }
@@ -125,16 +167,55 @@ public class DBMS
         private final Connection connection;
         private final Statement statement;
         private final ResultSet set;
+        private final Set<String> projection;
+        private final Histogram fetch;
+        private final QueryEvent event;
         
         private boolean next;
+        private boolean closed;
         private String[] columns;
+        private int[] indexes;
 
-        public SQLCursorIterator(Connection connection, Statement statement, ResultSet set) throws SQLException
+        public SQLCursorIterator(Connection connection, Statement statement, ResultSet set, Set<String> projection, QueryEvent event, long start) throws SQLException
         {
             this.connection = connection;
             this.statement = statement;
             this.set = set;
-            this.next = set.next();
+            this.projection = projection;
+            this.fetch = Metrics.isEnabled() ? Metrics.histogram("dbms.fetch") : null;
+            this.event = event;
+            
+            try
+            {
+                this.next = fetch();
+            }
+            catch(SQLException e)
+            {
+                try { set.close(); } catch(SQLException ex) { e.addSuppressed(ex); }
+                try { statement.close(); } catch(SQLException ex) { e.addSuppressed(ex); }
+                
+                throw e;
+            }
+            
+            if(event != null) event.firstRowTime = System.nanoTime() - start;
+            
+            // Release the connection immediately if there are no results
+            if(!next) close();
+        }
+        
+        private boolean fetch() throws SQLException
+        {
+            long start;
+            boolean next;
+            
+            if(fetch == null) return set.next();
+            
+            start = System.nanoTime();
+            next = set.next();
+            
+            fetch.record(System.nanoTime() - start);
+            
+            return next;
         }
 
         @Override
@@ -145,11 +226,27 @@ public class DBMS
         
         private void loadColumns(ResultSetMetaData meta) throws SQLException
         {
-            columns = new String[meta.getColumnCount()];
+            String[] labels = new String[meta.getColumnCount()];
+            int count = 0;
 
-            for(int i=0; i<columns.length; i++)
+            for(int i=0; i<labels.length; i++)
             {
-                columns[i] = meta.getColumnLabel(i+1);
+                labels[i] = meta.getColumnLabel(i+1);
+                
+                if(projection == null || projection.contains(labels[i])) count++;
+            }
+            
+            columns = new String[count];
+            indexes = new int[count];
+            count = 0;
+            
+            for(int i=0; i<labels.length; i++)
+            {
+                if(projection != null && !projection.contains(labels[i])) continue;
+                
+                columns[count] = labels[i];
+                indexes[count] = i+1;
+                count++;
             }
         }
 
@@ -164,10 +261,12 @@ public class DBMS
 
                 for(int i=0; i<columns.length; i++)
                 {
-                    result.put(columns[i], set.getObject(i+1));
+                    result.put(columns[i], set.getObject(indexes[i]));
                 }
                 
-                this.next = set.next();
+                if(event != null) event.rows++;
+                
+                this.next = fetch();
                 
                 if(!next) close();
                 
@@ -182,6 +281,16 @@ public class DBMS
         @Override
         public void close() throws SQLException
         {
+            if(closed) return;
+            
+            closed = true;
+            
+            if(event != null)
+            {
+                event.end();
+                event.commit();
+            }
+            
             try { set.close(); } catch(SQLException e) { e.printStackTrace(); }
             try { statement.close(); } catch(SQLException e) { e.printStackTrace(); }
             
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.dbms;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites an INSERT ... VALUES (...) query into a multi-row insert so that
+ * each statement writes several records:
+ * <pre>
+ * insert into PRODUCT (ID, NAME) values (?, ?), (?, ?), (?, ?)
+ * </pre>
+ * 
+ * Full statements are sent using JDBC batching. Any records left over are
+ * written with a shorter statement at the end. All parameters of the query 
+ * must be inside the VALUES list. Note that databases limit the number of
+ * parameters in a statement, so the rows per statement multiplied by the 
+ * number of parameters must remain below that limit.
+ *
+ * @author jbanes
+ */
+public class MultiRowInsertLoader extends BatchLoader
+{
+    private static final Pattern VALUES = Pattern.compile("\\bvalues\\s*\\(", Pattern.CASE_INSENSITIVE);
+    
+    private int rows;
+
+    public MultiRowInsertLoader()
+    {
+        this(100);
+    }
+
+    public MultiRowInsertLoader(int rows)
+    {
+        this.rows = rows;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * Sets the number of records written by each INSERT statement
+     * 
+     * @param rows number of rows per statement
+     */
+    public void setRows(int rows)
+    {
+        this.rows = rows;
+    }
+    
+    private int skipText(Query query, int position)
+    {
+        for(Query.Markup markup : query.getMarkup())
+        {
+            if(!(markup instanceof Query.Text)) continue;
+            
+            if(position >= markup.getStart() && position < markup.getStart() + markup.getLength())
+            {
+                return markup.getStart() + markup.getLength();
+            }
+        }
+        
+        return position;
+    }
+    
+    // Returns the start and end of the VALUES row in the query
+    private int[] findRow(Query query)
+    {
+        String sql = query.getSQL();
+        Matcher matcher = VALUES.matcher(sql);
+        int depth = 0;
+        int start = -1;
+        int position;
+        
+        while(matcher.find())
+        {
+            if(skipText(query, matcher.start()) == matcher.start())
+            {
+                start = matcher.end() - 1;
+                break;
+            }
+        }
+        
+        if(start < 0) throw new ConvirganceException("Query is not an INSERT ... VALUES (...) statement: [" + sql + "]");
+        
+        position = start;
+        
+        while(position < sql.length())
+        {
+            if(skipText(query, position) != position)
+            {
+                position = skipText(query, position);
+                continue;
+            }
+            
+            if(sql.charAt(position) == '(') depth++;
+            if(sql.charAt(position) == ')') depth--;
+            
+            position++;
+            
+            if(depth == 0) return new int[]{ start, position };
+        }
+        
+        throw new ConvirganceException("Unterminated VALUES list in sql: [" + sql + "]");
+    }
+    
+    private String getSQL(String prefix, String row, String suffix, int count)
+    {
+        StringBuilder builder = new StringBuilder(prefix.length() + (row.length() + 2) * count + suffix.length());
+        
+        builder.append(prefix);
+        
+        for(int i=0; i<count; i++)
+        {
+            if(i > 0) builder.append(", ");
+            
+            builder.append(row);
+        }
+        
+        builder.append(suffix);
+        
+        return builder.toString();
+    }
+    
+    private void bind(PreparedStatement statement, Query.Parameter[] parameters, ArrayList<JSONObject> records) throws SQLException
+    {
+        int index = 1;
+        
+        for(JSONObject record : records)
+        {
+            index = bind(statement, index, parameters, record);
+        }
+    }
+
+    @Override
+    public long load(Connection connection, Query query, Iterable<JSONObject> records) throws SQLException
+    {
+        Query.Parameter[] parameters = query.getParameters();
+        ArrayList<JSONObject> buffer;
+        int[] bounds;
+        String prefix;
+        String row;
+        String suffix;
+        String sql;
+        int statements;
+        long count = 0;
+        int pending = 0;
+        
+        if(rows < 1) throw new ConvirganceException("Rows per statement must be at least 1");
+        
+        buffer = new ArrayList<>(rows);
+        bounds = findRow(query);
+        prefix = query.getSQL().substring(0, bounds[0]);
+        row = query.getSQL().substring(bounds[0], bounds[1]);
+        suffix = query.getSQL().substring(bounds[1]);
+        statements = Math.max(1, getBatchSize() / rows);
+        
+        for(Query.Parameter parameter : parameters)
+        {
+            if(parameter.getStart() < bounds[0] || parameter.getStart() >= bounds[1])
+            {
+                throw new ConvirganceException("Parameter :" + parameter.getName() + " is outside of the VALUES list in sql: [" + query.getSQL() + "]");
+            }
+        }
+        
+        row = getSQL(row, bounds[0], parameters);
+        sql = getSQL(prefix, row, suffix, rows);
+        
+        try(PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            for(JSONObject record : records)
+            {
+                buffer.add(record);
+                count++;
+                
+                if(buffer.size() < rows) continue;
+                
+                bind(statement, parameters, buffer);
+                statement.addBatch();
+                buffer.clear();
+                
+                // Send the batch periodically to prevent overflow of the 
+                // transaction buffer
+                if(++pending >= statements)
+                {
+                    executeBatch(statement, sql, pending * rows);
+                    pending = 0;
+                }
+            }
+            
+            if(pending > 0) executeBatch(statement, sql, pending * rows);
+        }
+        
+        if(buffer.isEmpty()) return count;
+        
+        sql = getSQL(prefix, row, suffix, buffer.size());
+        
+        try(PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            bind(statement, parameters, buffer);
+            statement.addBatch();
+            
+            executeBatch(statement, sql, buffer.size());
+        }
+        
+        return count;
+    }
+}
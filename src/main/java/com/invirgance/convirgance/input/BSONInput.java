@@ -23,13 +23,29 @@ package com.invirgance.convirgance.input;
 
 import com.invirgance.convirgance.CloseableIterator;
 import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.bson.BSONIndex;
 import com.invirgance.convirgance.bson.BinaryDecoder;
+import com.invirgance.convirgance.bson.BinaryEncoder;
+import com.invirgance.convirgance.bson.KeyStreamEncoder;
+import com.invirgance.convirgance.codec.Codec;
+import com.invirgance.convirgance.codec.Codecs;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.DecodeEvent;
+import com.invirgance.convirgance.source.SeekableSource;
 import com.invirgance.convirgance.source.Source;
+import com.invirgance.convirgance.transform.filter.FieldPredicate;
+import com.invirgance.convirgance.transform.filter.Filter;
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  *
@@ -37,10 +53,88 @@ import java.util.zip.GZIPInputStream;
  */
 public class BSONInput implements Input<JSONObject>
 {
+    private String[] projection;
+    private Filter filter;
+    private long start;
+    private long limit = -1;
+
+    public String[] getProjection()
+    {
+        return projection;
+    }
+
+    /**
+     * Limits the records to the listed keys. Values for other keys are 
+     * skipped in the stream without being decoded. Set to null (the default)
+     * to return every key.
+     * 
+     * @param projection keys to return
+     */
+    public void setProjection(String[] projection)
+    {
+        this.projection = projection;
+    }
+    
+    public Filter getFilter()
+    {
+        return filter;
+    }
+
+    /**
+     * Only returns records that match the filter. Filters that can be compiled
+     * into a {@link FieldPredicate} are tested as soon as the fields they need
+     * are decoded, and the rest of a rejected record is skipped.
+     * 
+     * @param filter the filter to apply or null for all records
+     */
+    public void setFilter(Filter filter)
+    {
+        this.filter = filter;
+    }
+    
+    public long getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Sets the number of the first record to read, counting from zero. 
+     * Records before it are not returned or tested against the filter. If the
+     * file was written with an index and the source is a {@link SeekableSource},
+     * the reader seeks to the nearest checkpoint instead of decoding the file
+     * from the beginning.
+     * 
+     * @param start the first record to read
+     */
+    public void setStart(long start)
+    {
+        if(start < 0) throw new IllegalArgumentException("Start cannot be negative");
+        
+        this.start = start;
+    }
+
+    public long getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * Sets the maximum number of records to return. Set to -1 (the default)
+     * for no limit.
+     * 
+     * @param limit the maximum number of records or -1
+     */
+    public void setLimit(long limit)
+    {
+        this.limit = limit;
+    }
+    
     @Override
     public InputCursor<JSONObject> read(Source source)
     {
-        return new BSONInputCursor(source);
+        Set<String> keys = (projection != null) ? new HashSet<>(Arrays.asList(projection)) : null;
+        
+        return new BSONInputCursor(source, keys, filter, start, limit);
     }
 
     private class BSONInputCursor implements InputCursor<JSONObject>
@@ -50,24 +144,70 @@ public class BSONInput implements Input<JSONObject>
         };
         
         private Source source;
+        private Set<String> projection;
+        private Filter filter;
+        private long start;
+        private long limit;
 
-        public BSONInputCursor(Source source)
+        public BSONInputCursor(Source source, Set<String> projection, Filter filter, long start, long limit)
         {
             this.source = source;
+            this.projection = projection;
+            this.filter = filter;
+            this.start = start;
+            this.limit = limit;
+        }
+        
+        private Codec getCodec(int flags)
+        {
+            Codec codec;
+            
+            if((flags & 0x01) > 0) return Codecs.GZIP;
+            if((flags >>> 4) == 0) return null;
+            
+            codec = Codecs.get(flags >>> 4);
+            
+            if(codec == null) throw new ConvirganceException("Compression codec " + (flags >>> 4) + " is not available");
+            
+            return codec;
+        }
+        
+        private InputStream seek(SeekableByteChannel channel, long position) throws IOException
+        {
+            channel.position(position);
+            
+            return new BufferedInputStream(Channels.newInputStream(channel), 16 * 1024);
         }
         
         @Override
         public CloseableIterator<JSONObject> iterator()
         {
-            final BufferedInputStream buffer = new BufferedInputStream(source.getInputStream(), 16 * 1024);
+            final SeekableByteChannel channel = (start > 0 && source instanceof SeekableSource) ? ((SeekableSource)source).getChannel() : null;
             final DataInputStream in;
-            final BinaryDecoder decoder = new BinaryDecoder();
+            final BinaryDecoder decoder;
+            final boolean ended;
+            
+            InputStream buffer = null;
+            BSONIndex index;
+            Codec codec;
+            long skip = start;
+            int checkpoint;
+            
+            final List<String> list = new ArrayList<>();
+            final FieldPredicate predicate = (filter != null) ? filter.compile(list) : null;
+            final String[] keys = list.toArray(String[]::new);
+            
+            // Uncompiled filters may need any key, so decode everything
+            final Set<String> projection = (filter != null && predicate == null) ? null : this.projection;
             
             int version;
             int flags;
             
             try
             {
+                if(channel != null) buffer = seek(channel, 0);
+                else buffer = new BufferedInputStream(source.getInputStream(), 16 * 1024);
+                
                 for(int i=0; i<header.length; i++)
                 {
                     if(buffer.read() != (header[i] & 0xFF))
@@ -79,18 +219,97 @@ public class BSONInput implements Input<JSONObject>
                 version = buffer.read();
                 flags = buffer.read();
                 
-                if(version > 0x01) throw new ConvirganceException("Version " + version + " of the Convirgance BSON format is not supported");
+                if(version < BinaryEncoder.VERSION_1 || version > BinaryEncoder.VERSION_2) throw new ConvirganceException("Version " + version + " of the Convirgance BSON format is not supported");
+
+                decoder = new BinaryDecoder(new KeyStreamEncoder(), version);
+                codec = getCodec(flags);
+                
+                // Jump to the nearest checkpoint in uncompressed, indexed files
+                if(channel != null && codec == null && (flags & 0x02) != 0)
+                {
+                    index = BSONIndex.read(channel);
+                    checkpoint = (index != null) ? index.find(start) : -1;
+                    
+                    if(checkpoint >= 0)
+                    {
+                        buffer = seek(channel, index.getOffset(checkpoint));
+                        skip = start - index.getRecord(checkpoint);
+                    }
+                    else
+                    {
+                        buffer = seek(channel, header.length + 2);
+                    }
+                }
 
-                if((flags & 0x01) > 0) in = new DataInputStream(new GZIPInputStream(buffer));
+                if(codec != null) in = new DataInputStream(new BufferedInputStream(codec.decompress(buffer), 64 * 1024));
                 else in = new DataInputStream(buffer);
+                
+                while(skip > 0 && decoder.skip(in)) skip--;
+                
+                ended = (skip > 0);
+            }
+            catch(IOException | RuntimeException e)
+            {
+                // Release the file if the header or index cannot be read
+                try
+                {
+                    if(buffer != null) buffer.close();
+                    if(channel != null) channel.close();
+                }
+                catch(IOException ex) { e.addSuppressed(ex); }
+                
+                if(e instanceof RuntimeException) throw (RuntimeException)e;
+                
+                throw new ConvirganceException(e);
             }
-            catch(IOException e) { throw new ConvirganceException(e); }
             
             
             return new CloseableIterator<JSONObject>() {
                 
                 private JSONObject record;
                 private boolean closed;
+                private long count;
+                
+                private JSONObject read() throws IOException
+                {
+                    JSONObject record;
+                    
+                    if(ended || count == limit) return null;
+                    
+                    record = decode();
+                    
+                    if(record != null) count++;
+                    
+                    return record;
+                }
+                
+                private JSONObject decode() throws IOException
+                {
+                    JSONObject record = (JSONObject)decoder.read(in, projection, keys, predicate);
+                    
+                    if(filter == null || predicate != null) return record;
+                    
+                    while(record != null && !filter.filter(record))
+                    {
+                        record = (JSONObject)decoder.read(in);
+                    }
+                    
+                    if(record == null || BSONInputCursor.this.projection == null) return record;
+                    
+                    return project(record);
+                }
+                
+                private JSONObject project(JSONObject record)
+                {
+                    JSONObject projected = new JSONObject(true);
+                    
+                    for(String key : record.keySet())
+                    {
+                        if(BSONInputCursor.this.projection.contains(key)) projected.put(key, record.get(key));
+                    }
+                    
+                    return projected;
+                }
                 
                 @Override
                 public boolean hasNext()
@@ -100,7 +319,7 @@ public class BSONInput implements Input<JSONObject>
                     
                     try
                     {
-                        record = (JSONObject)decoder.read(in);
+                        record = read();
                     
                         if(this.record == null) close();
                     }
@@ -118,7 +337,7 @@ public class BSONInput implements Input<JSONObject>
                     {
                         try
                         {
-                            record = (JSONObject)decoder.read(in);
+                            record = read();
                     
                             if(record == null) close();
                         }
@@ -133,6 +352,7 @@ public class BSONInput implements Input<JSONObject>
                 @Override
                 public void close() throws Exception
                 {
+                    DecodeEvent.SAMPLER.flush();
                     in.close();
                     
                     closed = true;
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.input;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.batch.Column;
+import com.invirgance.convirgance.batch.RecordBatch;
+import com.invirgance.convirgance.columnar.ColumnMetadata;
+import com.invirgance.convirgance.columnar.ColumnarDecoder;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.Source;
+import com.invirgance.convirgance.transform.filter.AndFilter;
+import com.invirgance.convirgance.transform.filter.EqualsFilter;
+import com.invirgance.convirgance.transform.filter.Filter;
+import com.invirgance.convirgance.transform.filter.NotFilter;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Reads files written by {@link com.invirgance.convirgance.output.ColumnarOutput}.
+ * 
+ * An optional list of columns limits the keys in the returned records. Only
+ * those columns are decoded; the rest are skipped on disk. An optional filter
+ * is applied to each row group. Row groups whose statistics prove that no 
+ * record can match an {@link EqualsFilter} (or a {@link NotFilter} wrapping 
+ * one, or an {@link AndFilter} containing one) are skipped without decoding 
+ * any values.
+ *
+ * @author jbanes
+ */
+public class ColumnarInput implements Input<JSONObject>
+{
+    private String[] columns;
+    private Filter filter;
+
+    public ColumnarInput()
+    {
+        this(null, null);
+    }
+
+    public ColumnarInput(String[] columns)
+    {
+        this(columns, null);
+    }
+
+    public ColumnarInput(String[] columns, Filter filter)
+    {
+        this.columns = columns;
+        this.filter = filter;
+    }
+
+    public String[] getColumns()
+    {
+        return columns;
+    }
+
+    public void setColumns(String[] columns)
+    {
+        this.columns = columns;
+    }
+
+    public Filter getFilter()
+    {
+        return filter;
+    }
+
+    public void setFilter(Filter filter)
+    {
+        this.filter = filter;
+    }
+    
+    private static boolean mayMatch(Filter filter, ColumnarDecoder decoder)
+    {
+        EqualsFilter equals;
+        ColumnMetadata column;
+        
+        if(filter instanceof AndFilter)
+        {
+            for(Filter child : ((AndFilter)filter).getFilters())
+            {
+                if(!mayMatch(child, decoder)) return false;
+            }
+            
+            return true;
+        }
+        
+        if(filter instanceof EqualsFilter)
+        {
+            equals = (EqualsFilter)filter;
+            column = decoder.getMetadata(equals.getKey());
+            
+            // Missing columns are null for every record
+            if(column == null) return (equals.getValue() == null);
+            
+            return column.mayContain(equals.getValue());
+        }
+        
+        if(filter instanceof NotFilter && ((NotFilter)filter).getFilter() instanceof EqualsFilter)
+        {
+            equals = (EqualsFilter)((NotFilter)filter).getFilter();
+            column = decoder.getMetadata(equals.getKey());
+            
+            if(column == null) return (equals.getValue() != null);
+            
+            return !column.isConstant(equals.getValue());
+        }
+        
+        return true;
+    }
+
+    @Override
+    public InputCursor<JSONObject> read(Source source)
+    {
+        List<String> tested = new ArrayList<>();
+        Set<String> keys = null;
+        
+        if(columns != null)
+        {
+            keys = new HashSet<>(Arrays.asList(columns));
+            
+            // Filters we can't compile may need any column
+            if(filter != null && filter.compile(tested) == null) keys = null;
+            else keys.addAll(tested);
+        }
+        
+        return new ColumnarInputCursor(source, columns, keys, filter);
+    }
+
+    private class ColumnarInputCursor implements InputCursor<JSONObject>
+    {
+        private static final byte[] header = new byte[] {
+            (byte)0xFF, (byte)0xFF, 'C', 'O', 'L', 'S'
+        };
+        
+        private final Source source;
+        private final String[] columns;
+        private final Set<String> keys;
+        private final Filter filter;
+
+        public ColumnarInputCursor(Source source, String[] columns, Set<String> keys, Filter filter)
+        {
+            this.source = source;
+            this.columns = columns;
+            this.keys = keys;
+            this.filter = filter;
+        }
+        
+        @Override
+        public CloseableIterator<JSONObject> iterator()
+        {
+            final BufferedInputStream buffer = new BufferedInputStream(source.getInputStream(), 64 * 1024);
+            final DataInputStream in = new DataInputStream(buffer);
+            final ColumnarDecoder decoder = new ColumnarDecoder();
+            
+            int version;
+            
+            try
+            {
+                for(int i=0; i<header.length; i++)
+                {
+                    if(buffer.read() != (header[i] & 0xFF))
+                    {
+                        throw new ConvirganceException("File is not in Convirgance columnar format");
+                    }
+                }
+            
+                version = buffer.read();
+                buffer.read(); // Flags are reserved
+                
+                if(version > 0x01) throw new ConvirganceException("Version " + version + " of the Convirgance columnar format is not supported");
+            }
+            catch(IOException e) { throw new ConvirganceException(e); }
+            
+            return new CloseableIterator<JSONObject>() {
+                
+                private RecordBatch batch;
+                private int[] rows = new int[0];
+                private int position;
+                private boolean closed;
+                
+                private boolean load()
+                {
+                    if(closed) return false;
+                    
+                    try
+                    {
+                        while(position >= rows.length)
+                        {
+                            if(!decoder.next(in))
+                            {
+                                close();
+                                return false;
+                            }
+                            
+                            if(filter != null && !mayMatch(filter, decoder))
+                            {
+                                decoder.skip(in);
+                                continue;
+                            }
+                            
+                            batch = decoder.read(in, keys);
+                            
+                            if(filter != null) filter.filter(batch);
+                            
+                            rows = batch.getSelection();
+                            position = 0;
+                        }
+                    }
+                    catch(IOException e) { throw new ConvirganceException(e); }
+                    
+                    return true;
+                }
+                
+                @Override
+                public boolean hasNext()
+                {
+                    return (position < rows.length || load());
+                }
+
+                @Override
+                public JSONObject next()
+                {
+                    JSONObject record;
+                    Column column;
+                    int row;
+                    
+                    if(!hasNext()) throw new NoSuchElementException();
+                    
+                    row = rows[position++];
+                    
+                    if(columns == null) return batch.getRecord(row);
+                    
+                    record = new JSONObject(true);
+                    
+                    for(String key : columns)
+                    {
+                        column = batch.getColumn(key);
+                        
+                        if(column == null || column.isAbsent(row)) continue;
+                        
+                        record.put(key, column.get(row));
+                    }
+                    
+                    return record;
+                }
+
+                @Override
+                public void close()
+                {
+                    if(closed) return;
+                    
+                    try
+                    {
+                        in.close();
+                    }
+                    catch(IOException e) { throw new ConvirganceException(e); }
+                    
+                    closed = true;
+                }
+            };
+        }
+    }
+}
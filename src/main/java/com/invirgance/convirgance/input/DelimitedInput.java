@@ -25,10 +25,26 @@ import com.invirgance.convirgance.CloseableIterator;
 import com.invirgance.convirgance.source.Source;
 import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.transform.filter.FieldPredicate;
+import com.invirgance.convirgance.transform.filter.Filter;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TimeZone;
 
 /**
+ * Reads delimited text files such as CSV or pipe delimited files. The first
+ * line is used as the column names unless the columns are set explicitly.
+ * Quoted fields follow RFC 4180, so they may contain delimiters, line breaks,
+ * and doubled quotes.
+ * 
+ * Values are returned as Strings unless column types are declared with
+ * setTypes(). Declared columns are parsed directly from the file bytes, 
+ * avoiding a separate coercion pass.
  * 
  * @author jbanes
  */
@@ -37,6 +53,11 @@ public class DelimitedInput implements Input<JSONObject>
     private String[] columns;
     private String encoding; 
     private char delimiter;
+    private String[] projection;
+    private Filter filter;
+    private Class<?>[] types;
+    private boolean quoted = true;
+    private TimeZone timeZone = TimeZone.getTimeZone("UTC");
 
     public DelimitedInput()
     {
@@ -85,6 +106,93 @@ public class DelimitedInput implements Input<JSONObject>
         this.delimiter = delimiter;
     }
 
+    public String[] getProjection()
+    {
+        return projection;
+    }
+
+    /**
+     * Limits the records to the listed columns. Fields for other columns are
+     * never converted into values. Set to
+     * null (the default) to return every column.
+     * 
+     * @param projection names of the columns to return
+     */
+    public void setProjection(String[] projection)
+    {
+        this.projection = projection;
+    }
+
+    public Filter getFilter()
+    {
+        return filter;
+    }
+
+    /**
+     * Only returns records that match the filter. Filters that can be compiled
+     * into a {@link FieldPredicate} are tested against the parsed fields of 
+     * each line so that rejected lines are never turned into records.
+     * 
+     * @param filter the filter to apply or null for all records
+     */
+    public void setFilter(Filter filter)
+    {
+        this.filter = filter;
+    }
+
+    public Class<?>[] getTypes()
+    {
+        return types;
+    }
+
+    /**
+     * Declares the type of each column, by position. Supported types are 
+     * String, Integer, Long, Double, Boolean, and java.util.Date. Null entries
+     * and columns past the end of the array are read as Strings. Empty fields
+     * in typed columns are returned as null.
+     * 
+     * Dates are parsed in ISO 8601 form (yyyy-MM-dd, optionally followed by
+     * HH:mm[:ss[.SSS]] and a 'Z' or +HH:mm offset).
+     * 
+     * @param types the type of each column
+     */
+    public void setTypes(Class<?>[] types)
+    {
+        this.types = types;
+    }
+
+    public boolean isQuoted()
+    {
+        return quoted;
+    }
+
+    /**
+     * Enables or disables RFC 4180 quote handling. When disabled, quotes are 
+     * treated as ordinary characters. Enabled by default.
+     * 
+     * @param quoted true to treat fields starting with a quote as quoted
+     */
+    public void setQuoted(boolean quoted)
+    {
+        this.quoted = quoted;
+    }
+
+    public TimeZone getTimeZone()
+    {
+        return timeZone;
+    }
+
+    /**
+     * Sets the time zone for Date columns that do not include an offset.
+     * Defaults to UTC.
+     * 
+     * @param timeZone the time zone to use
+     */
+    public void setTimeZone(TimeZone timeZone)
+    {
+        this.timeZone = timeZone;
+    }
+
     public String getEncoding()
     {
         return encoding;
@@ -95,94 +203,166 @@ public class DelimitedInput implements Input<JSONObject>
         this.encoding = encoding;
     }
     
-    static String[] parseLine(String line, char delimiter)
+    static boolean[] getWanted(String[] columns, String[] projection)
     {
-        ArrayList<String> list = new ArrayList<>();
-        int start = 0;
-        int end;
-        
-        if(line.length() < 1) return new String[0];
-        
-        while(start < line.length())
-        {
-            end = line.indexOf(delimiter, start);
-            
-            if(end < 0) break;
-            
-            if(start == end) list.add("");
-            else list.add(line.substring(start, end));
-            
-            start = end+1;
-        }
+        HashSet<String> keys = new HashSet<>(Arrays.asList(projection));
+        boolean[] wanted = new boolean[columns.length];
         
-        // Snag the last item
-        list.add(line.substring(start, line.length()));
+        for(int i=0; i<columns.length; i++) wanted[i] = keys.contains(columns[i]);
         
-        return list.toArray(String[]::new);
+        return wanted;
     }
 
     @Override
     public InputCursor<JSONObject> read(Source source)
     {
-        return new DelimitedInputCursor(source, columns);
+        return new DelimitedInputCursor(source, columns, projection, filter);
     }
     
     private class DelimitedInputCursor implements InputCursor<JSONObject>
     {
         private final Source source;
         private final String[] columns;
+        private final String[] projection;
+        private final Filter filter;
 
-        public DelimitedInputCursor(Source source, String[] columns)
+        public DelimitedInputCursor(Source source, String[] columns, String[] projection, Filter filter)
         {
             this.source = source;
             this.columns = columns;
+            this.projection = projection;
+            this.filter = filter;
         }
         
         @Override
         public CloseableIterator<JSONObject> iterator()
         {
             final String[] columns;
-            final BufferedReader reader;
-            final InputStream in;
+            final boolean[] wanted;
+            final DelimitedParser parser;
+            final Class<?>[] types;
+            
+            final List<String> keys = new ArrayList<>();
+            final FieldPredicate predicate = (filter != null) ? filter.compile(keys) : null;
+            final int[] positions = new int[keys.size()];
 
             try
             {
-                reader = new BufferedReader(new InputStreamReader(source.getInputStream(), encoding), 16 * 1024);
+                parser = new DelimitedParser(source.getInputStream(), Charset.forName(encoding), delimiter, quoted, timeZone.toZoneId());
 
-                if(this.columns != null) columns = this.columns;
-                else columns = parseLine(reader.readLine(), delimiter);
+                if(this.columns != null)
+                {
+                    columns = this.columns;
+                }
+                else
+                {
+                    columns = new String[parser.next() ? parser.getFieldCount() : 0];
+                    
+                    for(int i=0; i<columns.length; i++) columns[i] = parser.getString(i);
+                }
+                
+                wanted = (projection != null) ? getWanted(columns, projection) : null;
+                types = new Class<?>[columns.length];
+                
+                if(DelimitedInput.this.types != null)
+                {
+                    System.arraycopy(DelimitedInput.this.types, 0, types, 0, Math.min(types.length, DelimitedInput.this.types.length));
+                }
+                
+                for(int i=0; i<positions.length; i++) positions[i] = Arrays.asList(columns).indexOf(keys.get(i));
 
                 return new CloseableIterator<JSONObject>() {
 
-                    private String line = reader.readLine();
+                    private Object[] values = new Object[positions.length];
+                    private JSONObject record;
                     private boolean closed = false;
-
-                    @Override
-                    public boolean hasNext()
+                    
+                    private boolean accept(int count)
                     {
-                        if(line == null) close();
-
-                        return (line != null);
+                        int position;
+                        
+                        for(int i=0; i<positions.length; i++)
+                        {
+                            position = positions[i];
+                            values[i] = (position >= 0 && position < count) ? parser.getValue(position, types[position]) : null;
+                        }
+                        
+                        return predicate.test(values);
                     }
-
-                    @Override
-                    public JSONObject next()
+                    
+                    private JSONObject parse(int count, boolean[] wanted)
                     {
                         JSONObject record = new JSONObject(true);
-                        String[] data = parseLine(line, delimiter);
 
+                        for(int i=0; i<columns.length && i<count; i++)
+                        {
+                            if(wanted == null || wanted[i]) record.put(columns[i], parser.getValue(i, types[i]));
+                        }
+                        
+                        return record;
+                    }
+                    
+                    private JSONObject project(JSONObject record)
+                    {
+                        JSONObject projected = new JSONObject(true);
+                        
                         for(int i=0; i<columns.length; i++)
                         {
-                            if(i < data.length) record.put(columns[i], data[i]);
+                            if(wanted[i] && record.containsKey(columns[i])) projected.put(columns[i], record.get(columns[i]));
                         }
-
+                        
+                        return projected;
+                    }
+                    
+                    private JSONObject load()
+                    {
+                        JSONObject record;
+                        int count;
+                        
+                        if(closed) return null;
+                        
                         try
                         {
-                            line = reader.readLine();
-
-                            if(line == null) close();
+                            while(parser.next())
+                            {
+                                count = parser.getFieldCount();
+                                
+                                // Reject rows on the parsed fields before building a record
+                                if(predicate != null && !accept(count)) continue;
+                                if(filter == null || predicate != null) return parse(count, wanted);
+                                
+                                // Filter could not be compiled and may need any column
+                                record = parse(count, null);
+                                
+                                if(!filter.filter(record)) continue;
+                                
+                                return (wanted == null) ? record : project(record);
+                            }
                         }
                         catch(IOException e) { throw new ConvirganceException(e); }
+                        
+                        close();
+                        
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        if(record == null) record = load();
+
+                        return (record != null);
+                    }
+
+                    @Override
+                    public JSONObject next()
+                    {
+                        JSONObject record;
+                        
+                        if(!hasNext()) throw new NoSuchElementException();
+                        
+                        record = this.record;
+                        this.record = null;
 
                         return record;
                     }
@@ -194,7 +374,7 @@ public class DelimitedInput implements Input<JSONObject>
 
                         try
                         {
-                            reader.close();
+                            parser.close();
                         }
                         catch(IOException e) { throw new ConvirganceException(e); }
 
@@ -0,0 +1,597 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.input;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Byte level state machine for delimited files. Records are split on the
+ * delimiter and line endings (LF, CRLF, or CR), with RFC 4180 quoting: a field
+ * that starts with a double quote may contain delimiters and line breaks, and
+ * a doubled quote inside it is a literal quote.
+ * 
+ * The bytes of each field are kept for the current record only. Values are
+ * parsed straight from those bytes into the requested type, so numeric and
+ * date columns never create an intermediate String.
+ * 
+ * UTF-8 and single byte encodings that are ASCII compatible are parsed 
+ * directly. All other encodings are transcoded to UTF-8 before parsing. This
+ * includes UTF-16 and multi-byte encodings such as Shift_JIS, whose trailing
+ * bytes can collide with ASCII delimiters. The delimiter must be an ASCII 
+ * character.
+ *
+ * @author jbanes
+ */
+class DelimitedParser
+{
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE = 3;
+    
+    private static final double[] POWERS = new double[23];
+    
+    static
+    {
+        POWERS[0] = 1;
+        
+        for(int i=1; i<POWERS.length; i++) POWERS[i] = POWERS[i-1] * 10;
+    }
+    
+    private final InputStream in;
+    private final Charset charset;
+    private final byte delimiter;
+    private final boolean quoted;
+    private final ZoneId zone;
+    
+    private final byte[] buffer = new byte[64 * 1024];
+    private int position;
+    private int limit;
+    
+    private byte[] data = new byte[1024];
+    private int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fields;
+    private long records;
+
+    public DelimitedParser(InputStream in, Charset charset, char delimiter, boolean quoted, ZoneId zone)
+    {
+        if(delimiter > 0x7F) throw new ConvirganceException("Delimiter must be an ASCII character");
+        
+        if(!isByteCompatible(charset))
+        {
+            in = new TranscodingInputStream(new InputStreamReader(in, charset));
+            charset = StandardCharsets.UTF_8;
+        }
+        
+        this.in = in;
+        this.charset = charset;
+        this.delimiter = (byte)delimiter;
+        this.quoted = quoted;
+        this.zone = zone;
+    }
+    
+    // Every byte below 0x80 must be the ASCII character it represents
+    static boolean isByteCompatible(Charset charset)
+    {
+        String test = "\r\n\"|,;\t azAZ09";
+        
+        if(charset.equals(StandardCharsets.UTF_8)) return true;
+        if(!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1) return false;
+        
+        return Arrays.equals(test.getBytes(charset), test.getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    private boolean fill() throws IOException
+    {
+        int count = in.read(buffer);
+        
+        if(count < 1)
+        {
+            if(count == 0) count = in.read(buffer, 0, 1);
+            if(count < 1) return false;
+        }
+        
+        position = 0;
+        limit = count;
+        
+        return true;
+    }
+    
+    private void append(byte b)
+    {
+        if(length >= data.length) data = Arrays.copyOf(data, data.length * 2);
+        
+        data[length++] = b;
+    }
+    
+    private void endField()
+    {
+        if(fields >= starts.length)
+        {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+            ends = Arrays.copyOf(ends, ends.length * 2);
+        }
+        
+        starts[fields] = (fields > 0) ? ends[fields-1] : 0;
+        ends[fields] = length;
+        fields++;
+    }
+    
+    private void endRecord(int state)
+    {
+        // A blank line has no fields at all
+        if(state != FIELD_START || fields > 0) endField();
+        
+        records++;
+    }
+    
+    /**
+     * Advances to the next record
+     * 
+     * @return false if the end of the stream was reached
+     * @throws IOException if the stream cannot be read
+     */
+    public boolean next() throws IOException
+    {
+        int state = FIELD_START;
+        boolean started = false;
+        byte b;
+        
+        this.fields = 0;
+        this.length = 0;
+        
+        while(true)
+        {
+            if(position >= limit && !fill())
+            {
+                if(!started) return false;
+                
+                endRecord(state);
+                return true;
+            }
+            
+            b = buffer[position++];
+            started = true;
+            
+            if(state == QUOTED)
+            {
+                if(b == '"') state = QUOTE;
+                else append(b);
+                
+                continue;
+            }
+            
+            if(state == QUOTE)
+            {
+                if(b == '"')
+                {
+                    append(b);
+                    state = QUOTED;
+                    continue;
+                }
+                
+                // Closing quote, so the remainder is read as unquoted text
+                state = UNQUOTED;
+            }
+            
+            if(state == FIELD_START && quoted && b == '"')
+            {
+                state = QUOTED;
+                continue;
+            }
+            
+            if(b == delimiter)
+            {
+                endField();
+                state = FIELD_START;
+                continue;
+            }
+            
+            if(b == '\n')
+            {
+                endRecord(state);
+                return true;
+            }
+            
+            if(b == '\r')
+            {
+                if((position < limit || fill()) && buffer[position] == '\n') position++;
+                
+                endRecord(state);
+                return true;
+            }
+            
+            append(b);
+            state = UNQUOTED;
+        }
+    }
+    
+    public int getFieldCount()
+    {
+        return fields;
+    }
+    
+    /**
+     * The number of records read so far, including the current record
+     * 
+     * @return count of records
+     */
+    public long getRecordCount()
+    {
+        return records;
+    }
+    
+    public boolean isEmpty(int field)
+    {
+        return (starts[field] == ends[field]);
+    }
+    
+    public String getString(int field)
+    {
+        return new String(data, starts[field], ends[field] - starts[field], charset);
+    }
+    
+    /**
+     * Parses the field into the requested type. Empty fields are returned as 
+     * an empty String for String columns and null for all other types.
+     * 
+     * @param field index of the field in the current record
+     * @param type String, Integer, Long, Double, Boolean, or Date. Null is
+     *        treated as String.
+     * @return the parsed value
+     * @throws ConvirganceException if the field is not valid for the type
+     */
+    public Object getValue(int field, Class<?> type) throws ConvirganceException
+    {
+        long value;
+        
+        if(type == null || type == String.class) return getString(field);
+        if(isEmpty(field)) return null;
+        
+        if(type == Integer.class)
+        {
+            value = getLong(field);
+            
+            if(value != (int)value) throw invalid(field, type);
+            
+            return (int)value;
+        }
+        
+        if(type == Long.class) return getLong(field);
+        if(type == Double.class) return getDouble(field);
+        if(type == Boolean.class) return getBoolean(field);
+        if(type == Date.class) return getDate(field);
+        
+        throw new ConvirganceException("Unsupported column type " + type.getName());
+    }
+    
+    private ConvirganceException invalid(int field, Class<?> type)
+    {
+        return new ConvirganceException("Invalid " + type.getSimpleName() + " value '" + getString(field) + "' in field " + (field+1) + " of record " + records);
+    }
+    
+    private long getLong(int field)
+    {
+        int index = starts[field];
+        int end = ends[field];
+        boolean negative = (data[index] == '-');
+        long value = 0;
+        byte b;
+        
+        if(negative || data[index] == '+') index++;
+        if(index >= end) throw invalid(field, Long.class);
+        
+        // Longer values may overflow, so let the JDK check them
+        if(end - index > 18)
+        {
+            try { return Long.parseLong(getString(field)); }
+            catch(NumberFormatException e) { throw invalid(field, Long.class); }
+        }
+        
+        for(; index<end; index++)
+        {
+            b = data[index];
+            
+            if(b < '0' || b > '9') throw invalid(field, Long.class);
+            
+            value = value * 10 + (b - '0');
+        }
+        
+        return negative ? -value : value;
+    }
+    
+    private double getDouble(int field)
+    {
+        int index = starts[field];
+        int end = ends[field];
+        boolean negative = (data[index] == '-');
+        boolean found = false;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        double value;
+        byte b;
+        
+        if(negative || data[index] == '+') index++;
+        
+        // Fast path for plain decimals with up to 15 significant digits
+        for(; index<end; index++)
+        {
+            b = data[index];
+            
+            if(b == '.' && scale < 0)
+            {
+                scale = 0;
+                continue;
+            }
+            
+            if(b < '0' || b > '9') break;
+            
+            found = true;
+            
+            if(mantissa > 0 || b != '0')
+            {
+                if(digits >= 15) break;
+                
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+            }
+            
+            if(scale >= 0) scale++;
+        }
+        
+        // The mantissa and power of ten are both exact, so a single division
+        // produces a correctly rounded result
+        if(index == end && found && scale < POWERS.length)
+        {
+            value = (scale > 0) ? mantissa / POWERS[scale] : mantissa;
+            
+            return negative ? -value : value;
+        }
+        
+        try { return Double.parseDouble(getString(field)); }
+        catch(NumberFormatException e) { throw invalid(field, Double.class); }
+    }
+    
+    private boolean matches(int field, String text)
+    {
+        int start = starts[field];
+        
+        if(ends[field] - start != text.length()) return false;
+        
+        for(int i=0; i<text.length(); i++)
+        {
+            if(Character.toLowerCase((char)data[start+i]) != text.charAt(i)) return false;
+        }
+        
+        return true;
+    }
+    
+    private boolean getBoolean(int field)
+    {
+        if(matches(field, "true")) return true;
+        if(matches(field, "false")) return false;
+        
+        throw invalid(field, Boolean.class);
+    }
+    
+    private int digits(int field, int index, int count)
+    {
+        int value = 0;
+        byte b;
+        
+        if(index + count > ends[field]) throw invalid(field, Date.class);
+        
+        for(int i=index; i<index+count; i++)
+        {
+            b = data[i];
+            
+            if(b < '0' || b > '9') throw invalid(field, Date.class);
+            
+            value = value * 10 + (b - '0');
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Parses ISO 8601 style dates: yyyy-MM-dd, optionally followed by a space
+     * or 'T' and HH:mm[:ss[.SSS]], optionally followed by 'Z' or an offset of
+     * the form +HH:mm. Dates without an offset are in the parser's time zone.
+     */
+    private Date getDate(int field)
+    {
+        int index = starts[field];
+        int end = ends[field];
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int nanos = 0;
+        int scale = 100000000;
+        int year, month, day;
+        int offset;
+        byte b;
+        LocalDateTime time;
+        
+        year = digits(field, index, 4);
+        index += 4;
+        
+        if(index >= end || data[index++] != '-') throw invalid(field, Date.class);
+        
+        month = digits(field, index, 2);
+        index += 2;
+        
+        if(index >= end || data[index++] != '-') throw invalid(field, Date.class);
+        
+        day = digits(field, index, 2);
+        index += 2;
+        
+        if(index < end && (data[index] == 'T' || data[index] == ' '))
+        {
+            hour = digits(field, index+1, 2);
+            index += 3;
+            
+            if(index >= end || data[index++] != ':') throw invalid(field, Date.class);
+            
+            minute = digits(field, index, 2);
+            index += 2;
+            
+            if(index < end && data[index] == ':')
+            {
+                second = digits(field, index+1, 2);
+                index += 3;
+                
+                if(index < end && data[index] == '.')
+                {
+                    for(index++; index < end && data[index] >= '0' && data[index] <= '9'; index++)
+                    {
+                        nanos += (data[index] - '0') * scale;
+                        scale /= 10;
+                    }
+                }
+            }
+        }
+        
+        try
+        {
+            time = LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+        }
+        catch(RuntimeException e)
+        {
+            throw invalid(field, Date.class);
+        }
+        
+        if(index == end) return Date.from(time.atZone(zone).toInstant());
+        
+        b = data[index];
+        
+        if(b == 'Z' && index + 1 == end) return Date.from(time.toInstant(ZoneOffset.UTC));
+        if(b != '+' && b != '-') throw invalid(field, Date.class);
+        
+        offset = digits(field, index+1, 2) * 3600;
+        index += 3;
+        
+        if(index < end && data[index] == ':') index++;
+        if(index < end) offset += digits(field, index, 2) * 60;
+        if(index < end && index + 2 != end) throw invalid(field, Date.class);
+        
+        return Date.from(time.toInstant(ZoneOffset.ofTotalSeconds((b == '-') ? -offset : offset)));
+    }
+    
+    public void close() throws IOException
+    {
+        in.close();
+    }
+    
+    /**
+     * Re-encodes characters from a reader as UTF-8
+     */
+    private static class TranscodingInputStream extends InputStream
+    {
+        private final Reader reader;
+        private final char[] chars = new char[8192];
+        private byte[] bytes = new byte[0];
+        private int position;
+        private int pending;
+
+        public TranscodingInputStream(Reader reader)
+        {
+            this.reader = reader;
+        }
+        
+        private boolean fill() throws IOException
+        {
+            int count = reader.read(chars, pending, chars.length - pending);
+            int length;
+            
+            if(count < 0)
+            {
+                if(pending == 0) return false;
+                
+                count = 0;
+            }
+            
+            length = pending + count;
+            pending = 0;
+            
+            // Hold back a high surrogate until its pair arrives
+            if(length > 0 && count > 0 && Character.isHighSurrogate(chars[length-1]))
+            {
+                length--;
+                pending = 1;
+            }
+            
+            bytes = new String(chars, 0, length).getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            
+            if(pending > 0) chars[0] = chars[length];
+            
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            while(position >= bytes.length)
+            {
+                if(!fill()) return -1;
+            }
+            
+            return bytes[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            while(position >= bytes.length)
+            {
+                if(!fill()) return -1;
+            }
+            
+            length = Math.min(length, bytes.length - position);
+            
+            System.arraycopy(bytes, position, buffer, offset, length);
+            position += length;
+            
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            reader.close();
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.invirgance.convirgance.CloseableIterator;
 import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONObject;
 import com.invirgance.convirgance.json.JSONParser;
+import com.invirgance.convirgance.metrics.ParseEvent;
 import com.invirgance.convirgance.source.Source;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -136,6 +137,8 @@ public class JSONInput implements Input<JSONObject>
                     public void close()
                     {
                         if(closed) return;
+                        
+                        ParseEvent.SAMPLER.flush();
 
                         try
                         {
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.input;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.json.JSONParser;
+import com.invirgance.convirgance.metrics.EventSampler;
+import com.invirgance.convirgance.metrics.ParseEvent;
+import com.invirgance.convirgance.source.FileSource;
+import com.invirgance.convirgance.source.Source;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads newline delimited JSON (also known as JSON Lines or NDJSON). Each
+ * non-blank line of the source must contain exactly one JSON object.
+ *
+ * Because every record ends at a newline, files can be split into
+ * newline-aligned chunks and parsed on multiple cores. Set the number of
+ * threads above 1 to enable parallel parsing. Parallel parsing requires a
+ * {@link FileSource}; other sources are always read sequentially. Records are
+ * returned in file order regardless of the number of threads.
+ *
+ * @author jbanes
+ */
+public class JSONLinesInput implements Input<JSONObject>
+{
+    private int threads;
+    private int chunkSize;
+
+    public JSONLinesInput()
+    {
+        this(1);
+    }
+
+    public JSONLinesInput(int threads)
+    {
+        this(threads, 4 * 1024 * 1024);
+    }
+
+    public JSONLinesInput(int threads, int chunkSize)
+    {
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    static JSONObject parseLine(String line)
+    {
+        try
+        {
+            return new JSONParser(line).parseObject();
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException("Unable to parse line: " + line, e);
+        }
+    }
+
+    static boolean isBlank(String line)
+    {
+        for(int i=0; i<line.length(); i++)
+        {
+            if(!Character.isWhitespace(line.charAt(i))) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public InputCursor<JSONObject> read(Source source)
+    {
+        if(threads > 1 && source instanceof FileSource)
+        {
+            return new ParallelJSONLinesInputCursor(((FileSource)source).getFile(), threads, chunkSize);
+        }
+
+        return new JSONLinesInputCursor(source);
+    }
+
+    private class JSONLinesInputCursor implements InputCursor<JSONObject>
+    {
+        private Source source;
+
+        public JSONLinesInputCursor(Source source)
+        {
+            this.source = source;
+        }
+
+        private static String readLine(BufferedReader reader) throws IOException
+        {
+            String line = reader.readLine();
+
+            while(line != null && isBlank(line)) line = reader.readLine();
+
+            return line;
+        }
+
+        @Override
+        public CloseableIterator<JSONObject> iterator()
+        {
+            final BufferedReader reader;
+
+            try
+            {
+                reader = new BufferedReader(new InputStreamReader(source.getInputStream(), "UTF-8"), 16 * 1024);
+
+                return new CloseableIterator<JSONObject>() {
+
+                    private boolean closed = false;
+                    private String line = readLine(reader);
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        if(line == null) close();
+
+                        return (line != null);
+                    }
+
+                    @Override
+                    public JSONObject next()
+                    {
+                        JSONObject record;
+                        
+                        if(!hasNext()) throw new NoSuchElementException();
+                        
+                        record = parseLine(line);
+
+                        try
+                        {
+                            line = readLine(reader);
+
+                            if(line == null) close();
+                        }
+                        catch(IOException e) { throw new ConvirganceException(e); }
+
+                        return record;
+                    }
+
+                    @Override
+                    public void close()
+                    {
+                        if(closed) return;
+                        
+                        ParseEvent.SAMPLER.flush();
+
+                        try
+                        {
+                            reader.close();
+                        }
+                        catch(IOException e) { throw new ConvirganceException(e); }
+
+                        closed = true;
+                    }
+                };
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+    }
+
+    private class ParallelJSONLinesInputCursor implements InputCursor<JSONObject>
+    {
+        private final File file;
+        private final int threads;
+        private final int chunkSize;
+
+        public ParallelJSONLinesInputCursor(File file, int threads, int chunkSize)
+        {
+            this.file = file;
+            this.threads = threads;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Splits the file into chunks of approximately chunkSize bytes. Each
+         * boundary is moved forward to just past the next newline so that no
+         * record is split across two chunks.
+         */
+        private long[] split() throws IOException
+        {
+            ArrayList<Long> offsets = new ArrayList<>();
+            long length = file.length();
+            long position = 0;
+            int c;
+
+            offsets.add(0L);
+
+            try(RandomAccessFile in = new RandomAccessFile(file, "r"))
+            {
+                while(position + chunkSize < length)
+                {
+                    in.seek(position + chunkSize);
+
+                    while((c = in.read()) >= 0 && c != '\n');
+
+                    position = in.getFilePointer();
+
+                    if(position >= length) break;
+
+                    offsets.add(position);
+                }
+            }
+
+            offsets.add(length);
+
+            return offsets.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        private List<JSONObject> parseChunk(long start, long end) throws IOException
+        {
+            ArrayList<JSONObject> records = new ArrayList<>();
+            byte[] buffer = new byte[(int)(end - start)];
+            String chunk;
+            String line;
+            int index = 0;
+            int next;
+
+            try(RandomAccessFile in = new RandomAccessFile(file, "r"))
+            {
+                in.seek(start);
+                in.readFully(buffer);
+            }
+
+            // Chunks always begin after a newline, so UTF-8 sequences are never split
+            chunk = new String(buffer, "UTF-8");
+
+            try
+            {
+                while(index < chunk.length())
+                {
+                    next = chunk.indexOf('\n', index);
+
+                    if(next < 0) next = chunk.length();
+
+                    line = chunk.substring(index, next);
+                    index = next + 1;
+
+                    if(!isBlank(line)) records.add(parseLine(line));
+                }
+            }
+            finally
+            {
+                // Pool threads never close the cursor, so commit their events here
+                EventSampler.flushAll();
+            }
+
+            return records;
+        }
+
+        @Override
+        public CloseableIterator<JSONObject> iterator()
+        {
+            final long[] offsets;
+            final ExecutorService executor;
+
+            try
+            {
+                offsets = split();
+            }
+            catch(IOException e) { throw new ConvirganceException(e); }
+
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "JSONLinesInput-" + file.getName());
+
+                thread.setDaemon(true);
+
+                return thread;
+            });
+
+            return new CloseableIterator<JSONObject>() {
+
+                private final ArrayDeque<Future<List<JSONObject>>> pending = new ArrayDeque<>();
+                private Iterator<JSONObject> current;
+                private int chunk = 0;
+                private boolean closed = false;
+
+                // Keep twice as many chunks in flight as threads to hide
+                // the latency of the slowest chunk
+                private void submit()
+                {
+                    while(chunk < offsets.length-1 && pending.size() < threads * 2)
+                    {
+                        final long start = offsets[chunk];
+                        final long end = offsets[chunk+1];
+
+                        pending.add(executor.submit(() -> parseChunk(start, end)));
+
+                        chunk++;
+                    }
+                }
+
+                private boolean load()
+                {
+                    if(closed) return false;
+
+                    while(current == null || !current.hasNext())
+                    {
+                        submit();
+
+                        if(pending.isEmpty())
+                        {
+                            close();
+                            return false;
+                        }
+
+                        try
+                        {
+                            current = pending.poll().get().iterator();
+                        }
+                        catch(InterruptedException e)
+                        {
+                            close();
+                            throw new ConvirganceException(e);
+                        }
+                        catch(ExecutionException e)
+                        {
+                            close();
+
+                            if(e.getCause() instanceof ConvirganceException) throw (ConvirganceException)e.getCause();
+
+                            throw new ConvirganceException(e.getCause());
+                        }
+                    }
+
+                    return true;
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return load();
+                }
+
+                @Override
+                public JSONObject next()
+                {
+                    if(!hasNext()) throw new NoSuchElementException();
+
+                    return current.next();
+                }
+
+                @Override
+                public void close()
+                {
+                    if(closed) return;
+
+                    for(Future<?> future : pending) future.cancel(true);
+
+                    pending.clear();
+                    executor.shutdownNow();
+
+                    closed = true;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.input;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.metrics.EventSampler;
+import com.invirgance.convirgance.source.MultiFileSource;
+import com.invirgance.convirgance.source.Source;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads every file of a {@link MultiFileSource} with a separate cursor of 
+ * the wrapped Input, so per-file headers (e.g. the column line of a delimited
+ * file) are handled correctly. Any other Source is passed directly to the 
+ * wrapped Input.
+ * 
+ * With a parallelism of 1 (the default) the files are read one after another
+ * in path order. Higher values read up to that many files at once on worker
+ * threads and merge the records into a single stream. Records from the same
+ * file keep their relative order, but files are interleaved.
+ *
+ * @author jbanes
+ */
+public class MultiFileInput<T> implements Input<T>
+{
+    private final Input<T> input;
+    private int parallelism = 1;
+    private int batchSize = 256;
+
+    public MultiFileInput(Input<T> input)
+    {
+        this.input = input;
+    }
+    
+    public MultiFileInput(Input<T> input, int parallelism)
+    {
+        this.input = input;
+        
+        setParallelism(parallelism);
+    }
+
+    public Input<T> getInput()
+    {
+        return input;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Sets the maximum number of files read at the same time
+     * 
+     * @param parallelism number of worker threads, or 1 to read sequentially
+     */
+    public void setParallelism(int parallelism)
+    {
+        if(parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1");
+        
+        this.parallelism = parallelism;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of records workers hand to the reader at a time when
+     * reading in parallel. Larger batches reduce contention between threads.
+     * 
+     * @param batchSize records per batch
+     */
+    public void setBatchSize(int batchSize)
+    {
+        if(batchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1");
+        
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public InputCursor<T> read(Source source)
+    {
+        if(!(source instanceof MultiFileSource)) return input.read(source);
+        
+        return new MultiFileInputCursor((MultiFileSource)source);
+    }
+    
+    private class MultiFileInputCursor implements InputCursor<T>
+    {
+        private final MultiFileSource source;
+
+        public MultiFileInputCursor(MultiFileSource source)
+        {
+            this.source = source;
+        }
+
+        @Override
+        public CloseableIterator<T> iterator()
+        {
+            Source[] sources = source.getSources();
+            
+            if(parallelism < 2 || sources.length < 2) return new SequentialIterator(sources);
+            
+            return new ParallelIterator(sources, Math.min(parallelism, sources.length));
+        }
+    }
+    
+    private class SequentialIterator implements CloseableIterator<T>
+    {
+        private final Source[] sources;
+        private CloseableIterator<T> iterator;
+        private int index;
+
+        public SequentialIterator(Source[] sources)
+        {
+            this.sources = sources;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while(iterator == null || !iterator.hasNext())
+            {
+                close(iterator);
+                
+                iterator = null;
+                
+                if(index >= sources.length) return false;
+                
+                iterator = input.read(sources[index++]).iterator();
+            }
+            
+            return true;
+        }
+
+        @Override
+        public T next()
+        {
+            if(!hasNext()) throw new NoSuchElementException();
+            
+            return iterator.next();
+        }
+
+        @Override
+        public void close()
+        {
+            index = sources.length;
+            
+            close(iterator);
+            
+            iterator = null;
+        }
+        
+        private void close(CloseableIterator<T> iterator)
+        {
+            if(iterator == null) return;
+            
+            try
+            {
+                iterator.close();
+            }
+            catch(RuntimeException e) { throw e; }
+            catch(Exception e) { throw new ConvirganceException(e); }
+        }
+    }
+    
+    private class ParallelIterator implements CloseableIterator<T>
+    {
+        // Marks that all workers have finished
+        private final List<T> END = new ArrayList<>(0);
+        
+        private final Source[] sources;
+        private final Thread[] workers;
+        private final ArrayBlockingQueue<List<T>> queue;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger active;
+        
+        private volatile RuntimeException error;
+        private volatile boolean closed;
+        private Iterator<T> batch;
+        private boolean done;
+
+        public ParallelIterator(Source[] sources, int threads)
+        {
+            this.sources = sources;
+            this.workers = new Thread[threads];
+            this.queue = new ArrayBlockingQueue<>(threads * 4);
+            this.active = new AtomicInteger(threads);
+            
+            for(int i=0; i<threads; i++)
+            {
+                workers[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        work();
+                    }
+                }, "Convirgance Reader " + (i+1));
+                
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+        }
+        
+        private void work()
+        {
+            ArrayList<T> records;
+            int index;
+            
+            try
+            {
+                while(!closed && error == null && (index = next.getAndIncrement()) < sources.length)
+                {
+                    try(CloseableIterator<T> iterator = input.read(sources[index]).iterator())
+                    {
+                        records = new ArrayList<>(batchSize);
+                        
+                        while(!closed && iterator.hasNext())
+                        {
+                            records.add(iterator.next());
+                            
+                            if(records.size() < batchSize) continue;
+                            
+                            queue.put(records);
+                            
+                            records = new ArrayList<>(batchSize);
+                        }
+                        
+                        if(!records.isEmpty()) queue.put(records);
+                    }
+                }
+            }
+            catch(InterruptedException e)
+            {
+                // Iterator was closed
+            }
+            catch(RuntimeException e)
+            {
+                if(error == null) error = e;
+            }
+            catch(Exception e)
+            {
+                if(error == null) error = new ConvirganceException(e);
+            }
+            finally
+            {
+                EventSampler.flushAll();
+                finish();
+            }
+        }
+        
+        private void finish()
+        {
+            boolean last = (active.decrementAndGet() == 0);
+            
+            // Errors end the stream early so the reader does not wait on other files.
+            // The reader checks for errors before each take, so a full queue is fine.
+            if(error != null)
+            {
+                queue.offer(END);
+                return;
+            }
+            
+            try
+            {
+                if(last) queue.put(END);
+            }
+            catch(InterruptedException e)
+            {
+                // Iterator was closed
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            List<T> records;
+            
+            while(!done && (batch == null || !batch.hasNext()))
+            {
+                if(error != null) break;
+                
+                try
+                {
+                    records = queue.take();
+                }
+                catch(InterruptedException e)
+                {
+                    throw new ConvirganceException(e);
+                }
+                
+                if(records == END) done = true;
+                else batch = records.iterator();
+            }
+            
+            if(error != null)
+            {
+                close();
+                
+                throw error;
+            }
+            
+            return (!done || (batch != null && batch.hasNext()));
+        }
+
+        @Override
+        public T next()
+        {
+            if(!hasNext()) throw new NoSuchElementException();
+            
+            return batch.next();
+        }
+
+        @Override
+        public void close()
+        {
+            if(closed) return;
+            
+            closed = true;
+            done = true;
+            batch = null;
+            
+            for(Thread worker : workers) worker.interrupt();
+            
+            queue.clear();
+        }
+    }
+}
@@ -21,6 +21,7 @@ SOFTWARE.
  */
 package com.invirgance.convirgance.json;
 
+import com.invirgance.convirgance.metrics.ParseEvent;
 import java.io.*;
 
 /**
@@ -294,6 +295,17 @@ public class JSONParser implements AutoCloseable
     }
     
     public JSONObject parseObject() throws IOException
+    {
+        long start = ParseEvent.SAMPLER.start();
+        JSONObject object = readObject();
+        
+        ParseEvent.SAMPLER.stop(start);
+        
+        return object;
+    }
+    
+    // Nested objects are read here so only top level objects are sampled
+    private JSONObject readObject() throws IOException
     {
         JSONObject object = new JSONObject(true);
         String key;
@@ -378,7 +390,7 @@ public class JSONParser implements AutoCloseable
     {
         char c = peekPrintable();
         
-        if(c == '{') return parseObject();
+        if(c == '{') return readObject();
         if(c == '[') return parseArray();
         if(c == '"') return parseString();
         if(c == 'n') return parseNull();
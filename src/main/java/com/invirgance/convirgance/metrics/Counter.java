@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counter backed by a striped {@link LongAdder}, so that many threads 
+ * can update it without contending on a single value.
+ *
+ * @author jbanes
+ */
+public class Counter
+{
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    public Counter(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+    
+    public void increment()
+    {
+        value.increment();
+    }
+    
+    public void add(long amount)
+    {
+        value.add(amount);
+    }
+    
+    public long get()
+    {
+        return value.sum();
+    }
+    
+    public void reset()
+    {
+        value.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + "=" + get();
+    }
+}
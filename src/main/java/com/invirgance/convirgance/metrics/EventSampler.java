@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Accumulates timed operations into a {@link SampledEvent} per thread and
+ * commits the event once it holds a full batch. Hot paths surround each 
+ * operation with start() and stop(). When the event is not enabled in a
+ * running recording, start() costs a single flag check and stop() returns
+ * immediately.
+ * 
+ * Partially filled batches are committed by flush(), which should be called
+ * when a stream is closed. Batches belong to the thread that recorded them,
+ * so worker threads must call flushAll() before they finish a task.
+ *
+ * @author jbanes
+ * @param <T> the type of event produced
+ */
+public abstract class EventSampler<T extends SampledEvent>
+{
+    private static final long DISABLED = Long.MIN_VALUE;
+    private static final List<EventSampler<?>> samplers = new CopyOnWriteArrayList<>();
+    
+    private final ThreadLocal<T> pending = new ThreadLocal<>();
+    private final T probe;
+    private final int size;
+
+    public EventSampler(int size)
+    {
+        this.size = size;
+        this.probe = create();
+        
+        samplers.add(this);
+    }
+    
+    /**
+     * Commits the partial batches of the current thread for every sampler
+     */
+    public static void flushAll()
+    {
+        for(EventSampler<?> sampler : samplers) sampler.flush();
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+    
+    protected abstract T create();
+    
+    /**
+     * Marks the start of an operation
+     * 
+     * @return a token to pass to stop()
+     */
+    public long start()
+    {
+        return probe.isEnabled() ? System.nanoTime() : DISABLED;
+    }
+    
+    /**
+     * Adds an operation to the batch of the current thread
+     * 
+     * @param start the token returned by start()
+     */
+    public void stop(long start)
+    {
+        T event;
+        
+        if(start == DISABLED) return;
+        
+        event = pending.get();
+        
+        if(event == null)
+        {
+            event = create();
+            event.begin();
+            
+            pending.set(event);
+        }
+        
+        event.count++;
+        event.time += System.nanoTime() - start;
+        
+        if(event.count >= size) flush();
+    }
+    
+    /**
+     * Commits the partial batch of the current thread, if any
+     */
+    public void flush()
+    {
+        T event = pending.get();
+        
+        if(event == null) return;
+        
+        pending.remove();
+        
+        event.end();
+        event.commit();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values such as latencies in 
+ * nanoseconds. Values are counted in power-of-two buckets, so percentiles 
+ * are accurate to within a factor of two while recording costs only a few
+ * instructions.
+ *
+ * @author jbanes
+ */
+public class Histogram
+{
+    private final String name;
+    private final LongAdder[] buckets = new LongAdder[64];
+    private final LongAdder sum = new LongAdder();
+
+    public Histogram(String name)
+    {
+        this.name = name;
+        
+        for(int i=0; i<buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+    
+    public void record(long value)
+    {
+        if(value < 0) value = 0;
+        
+        // Bucket n holds values from 2^(n-1) up to 2^n - 1
+        buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+        sum.add(value);
+    }
+    
+    public long getCount()
+    {
+        long count = 0;
+        
+        for(LongAdder bucket : buckets) count += bucket.sum();
+        
+        return count;
+    }
+    
+    public long getSum()
+    {
+        return sum.sum();
+    }
+    
+    public long getMean()
+    {
+        long count = getCount();
+        
+        return (count > 0) ? getSum() / count : 0;
+    }
+    
+    /**
+     * Returns an upper bound for the given percentile of recorded values
+     * 
+     * @param percentile a value between 0 and 100
+     * @return the largest value of the bucket containing the percentile
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        long target;
+        
+        for(int i=0; i<buckets.length; i++) total += (counts[i] = buckets[i].sum());
+        
+        if(total == 0) return 0;
+        
+        target = (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100.0);
+        
+        for(int i=0; i<counts.length; i++)
+        {
+            target -= counts[i];
+            
+            if(target <= 0) return (i == 0) ? 0 : (i == 63) ? Long.MAX_VALUE : (1L << i) - 1;
+        }
+        
+        return Long.MAX_VALUE;
+    }
+    
+    public void reset()
+    {
+        for(LongAdder bucket : buckets) bucket.reset();
+        
+        sum.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + "[count=" + getCount() + ", mean=" + getMean() + ", p99=" + getPercentile(99) + "]";
+    }
+}
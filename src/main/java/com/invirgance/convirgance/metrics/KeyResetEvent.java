@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a key encoder clears its table, either because the table
+ * reached its limit or because the stream was reset. Frequent resets mean
+ * the data has more distinct keys than the limit allows.
+ *
+ * @author jbanes
+ */
+@Name("com.invirgance.convirgance.KeyReset")
+@Label("Key Reset")
+@Category("Convirgance")
+@Description("Key encoder table was cleared")
+public class KeyResetEvent extends jdk.jfr.Event
+{
+    @Label("Keys")
+    @Description("Number of keys in the table before the reset")
+    public int keys;
+    
+    @Label("Limit")
+    public int limit;
+    
+    @Label("Generation")
+    @Description("Generation of the table after the reset")
+    public int generation;
+}
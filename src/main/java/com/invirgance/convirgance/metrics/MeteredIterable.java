@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.Iterator;
+
+/**
+ * Counts the records that pass through a stage of a pipeline. Records are 
+ * counted in <code>name.records</code> and the time spent waiting on the
+ * upstream stage is counted in <code>name.time</code> in nanoseconds. 
+ * Combined with {@link com.invirgance.convirgance.source.MeteredSource} this
+ * shows how much of a stage's time is I/O and how much is parsing.
+ *
+ * @author jbanes
+ */
+public class MeteredIterable implements Iterable<JSONObject>
+{
+    private final Iterable<JSONObject> iterable;
+    private final String name;
+
+    public MeteredIterable(Iterable<JSONObject> iterable, String name)
+    {
+        this.iterable = iterable;
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public Iterator<JSONObject> iterator()
+    {
+        final Iterator<JSONObject> iterator = iterable.iterator();
+        final Counter records;
+        final Counter time;
+        
+        if(!Metrics.isEnabled()) return iterator;
+        
+        records = Metrics.counter(name + ".records");
+        time = Metrics.counter(name + ".time");
+        
+        return new CloseableIterator<JSONObject>() {
+            
+            @Override
+            public boolean hasNext()
+            {
+                long start = System.nanoTime();
+                
+                try
+                {
+                    return iterator.hasNext();
+                }
+                finally
+                {
+                    time.add(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public JSONObject next()
+            {
+                long start = System.nanoTime();
+                
+                try
+                {
+                    return iterator.next();
+                }
+                finally
+                {
+                    records.increment();
+                    time.add(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public void close() throws Exception
+            {
+                if(iterator instanceof AutoCloseable) ((AutoCloseable)iterator).close();
+            }
+        };
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import java.util.Collection;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic Flight Recorder event carrying the current value of a counter or
+ * histogram. Enabled with {@link Metrics#registerEvents()}.
+ *
+ * @author jbanes
+ */
+@Name("com.invirgance.convirgance.Metric")
+@Label("Metric")
+@Category("Convirgance")
+@Description("Current value of a Convirgance counter or histogram")
+@Period("1 s")
+@StackTrace(false)
+public class MetricEvent extends jdk.jfr.Event
+{
+    @Label("Name")
+    public String name;
+    
+    @Label("Value")
+    @Description("Counter value or histogram count")
+    public long value;
+    
+    @Label("Mean")
+    @Description("Mean of the histogram values. Zero for counters.")
+    public long mean;
+    
+    @Label("99th Percentile")
+    @Description("99th percentile of the histogram values. Zero for counters.")
+    public long p99;
+    
+    static void emit(Collection<Counter> counters, Collection<Histogram> histograms)
+    {
+        MetricEvent event;
+        
+        for(Counter counter : counters)
+        {
+            event = new MetricEvent();
+            event.name = counter.getName();
+            event.value = counter.get();
+            event.commit();
+        }
+        
+        for(Histogram histogram : histograms)
+        {
+            event = new MetricEvent();
+            event.name = histogram.getName();
+            event.value = histogram.getCount();
+            event.mean = histogram.getMean();
+            event.p99 = histogram.getPercentile(99);
+            event.commit();
+        }
+    }
+}
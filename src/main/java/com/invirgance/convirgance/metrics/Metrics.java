@@ -0,0 +1,199 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Registry of the counters and histograms reported by the library. Metrics 
+ * are disabled by default and can be enabled with setEnabled() or the
+ * <code>convirgance.metrics</code> system property. 
+ * 
+ * Instrumented components check isEnabled() when a stream or iterator is 
+ * opened rather than on every record, so metrics cost nearly nothing when
+ * disabled. Enabling metrics affects streams opened afterward.
+ * 
+ * Metrics can be exported through JMX with registerMBean() and through Java
+ * Flight Recorder with registerEvents().
+ *
+ * @author jbanes
+ */
+public final class Metrics
+{
+    private static final ConcurrentHashMap<String,Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String,Histogram> histograms = new ConcurrentHashMap<>();
+    
+    private static volatile boolean enabled = Boolean.getBoolean("convirgance.metrics");
+    private static boolean events;
+    
+    private Metrics()
+    {
+    }
+    
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+    
+    public static void setEnabled(boolean enabled)
+    {
+        Metrics.enabled = enabled;
+    }
+    
+    /**
+     * Returns the counter with the given name, creating it if needed
+     * 
+     * @param name name of the counter
+     * @return the shared counter
+     */
+    public static Counter counter(String name)
+    {
+        Counter counter = counters.get(name);
+        
+        if(counter != null) return counter;
+        
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+    
+    /**
+     * Returns the histogram with the given name, creating it if needed
+     * 
+     * @param name name of the histogram
+     * @return the shared histogram
+     */
+    public static Histogram histogram(String name)
+    {
+        Histogram histogram = histograms.get(name);
+        
+        if(histogram != null) return histogram;
+        
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+    
+    /**
+     * Returns a snapshot of all counters
+     * 
+     * @return counter values sorted by name
+     */
+    public static Map<String,Long> getCounters()
+    {
+        TreeMap<String,Long> values = new TreeMap<>();
+        
+        for(Counter counter : counters.values()) values.put(counter.getName(), counter.get());
+        
+        return values;
+    }
+    
+    /**
+     * Returns all histograms
+     * 
+     * @return histograms sorted by name
+     */
+    public static Map<String,Histogram> getHistograms()
+    {
+        return new TreeMap<>(histograms);
+    }
+    
+    /**
+     * Sets every counter and histogram back to zero
+     */
+    public static void reset()
+    {
+        for(Counter counter : counters.values()) counter.reset();
+        for(Histogram histogram : histograms.values()) histogram.reset();
+    }
+    
+    /**
+     * Registers the metrics with the platform MBean server under the name
+     * <code>com.invirgance.convirgance:type=Metrics</code>. Does nothing if
+     * already registered.
+     */
+    public static synchronized void registerMBean()
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        try
+        {
+            if(server.isRegistered(MetricsMBean.NAME)) return;
+            
+            server.registerMBean(new MetricsMBean(), MetricsMBean.NAME);
+        }
+        catch(JMException e)
+        {
+            throw new ConvirganceException(e);
+        }
+    }
+    
+    public static synchronized void unregisterMBean()
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        try
+        {
+            if(server.isRegistered(MetricsMBean.NAME)) server.unregisterMBean(MetricsMBean.NAME);
+        }
+        catch(JMException e)
+        {
+            throw new ConvirganceException(e);
+        }
+    }
+    
+    /**
+     * Emits a periodic {@link MetricEvent} for every counter and histogram 
+     * while a Flight Recorder recording is running. Does nothing if already
+     * registered.
+     */
+    public static synchronized void registerEvents()
+    {
+        if(events) return;
+        
+        FlightRecorder.addPeriodicEvent(MetricEvent.class, new Runnable() {
+            @Override
+            public void run()
+            {
+                MetricEvent.emit(counters.values(), histograms.values());
+            }
+        });
+        
+        events = true;
+    }
+    
+    static ObjectName createName(String name)
+    {
+        try
+        {
+            return new ObjectName(name);
+        }
+        catch(JMException e)
+        {
+            throw new ConvirganceException(e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import java.util.ArrayList;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+
+/**
+ * Exposes every counter as a read-only JMX attribute. Histograms are exposed
+ * as <code>name.count</code>, <code>name.mean</code>, <code>name.p50</code>, 
+ * and <code>name.p99</code> attributes. The attribute list is rebuilt on 
+ * each request, so metrics created later appear automatically.
+ *
+ * @author jbanes
+ */
+class MetricsMBean implements DynamicMBean
+{
+    static final ObjectName NAME = Metrics.createName("com.invirgance.convirgance:type=Metrics");
+    
+    private Long getHistogramValue(String attribute)
+    {
+        int index = attribute.lastIndexOf('.');
+        Histogram histogram;
+        
+        if(index < 0) return null;
+        
+        histogram = Metrics.getHistograms().get(attribute.substring(0, index));
+        
+        if(histogram == null) return null;
+        
+        switch(attribute.substring(index + 1))
+        {
+            case "count": return histogram.getCount();
+            case "mean": return histogram.getMean();
+            case "p50": return histogram.getPercentile(50);
+            case "p99": return histogram.getPercentile(99);
+            default: return null;
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException
+    {
+        Long value = Metrics.getCounters().get(attribute);
+        
+        if(value == null) value = getHistogramValue(attribute);
+        if(value == null) throw new AttributeNotFoundException(attribute);
+        
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+    {
+        throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes)
+    {
+        AttributeList list = new AttributeList();
+        
+        for(String attribute : attributes)
+        {
+            try
+            {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            }
+            catch(AttributeNotFoundException e) { /* Skip missing attributes */ }
+        }
+        
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes)
+    {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String action, Object[] params, String[] signature)
+    {
+        if(!"reset".equals(action)) throw new UnsupportedOperationException(action);
+        
+        Metrics.reset();
+        
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        ArrayList<MBeanAttributeInfo> attributes = new ArrayList<>();
+        
+        for(String name : Metrics.getCounters().keySet())
+        {
+            attributes.add(new MBeanAttributeInfo(name, "long", "Counter " + name, true, false, false));
+        }
+        
+        for(Map.Entry<String,Histogram> entry : Metrics.getHistograms().entrySet())
+        {
+            for(String suffix : new String[]{ "count", "mean", "p50", "p99" })
+            {
+                attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + suffix, "long", "Histogram " + entry.getKey(), true, false, false));
+            }
+        }
+        
+        return new MBeanInfo(
+            getClass().getName(), 
+            "Convirgance pipeline metrics", 
+            attributes.toArray(MBeanAttributeInfo[]::new), 
+            null, 
+            new MBeanOperationInfo[]{ new MBeanOperationInfo("reset", "Resets all metrics", null, "void", MBeanOperationInfo.ACTION) }, 
+            null
+        );
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Spans a DBMS query from the time the statement is prepared until the 
+ * result set is closed.
+ *
+ * @author jbanes
+ */
+@Name("com.invirgance.convirgance.Query")
+@Label("Query")
+@Category("Convirgance")
+@Description("DBMS query from execution until the result set is closed")
+public class QueryEvent extends jdk.jfr.Event
+{
+    @Label("SQL")
+    public String sql;
+    
+    @Label("Execute Time")
+    @Description("Time to prepare and execute the statement")
+    @Timespan(Timespan.NANOSECONDS)
+    public long executeTime;
+    
+    @Label("First Row Time")
+    @Description("Time from the start of the query until the first row was fetched")
+    @Timespan(Timespan.NANOSECONDS)
+    public long firstRowTime;
+    
+    @Label("Rows")
+    public long rows;
+}
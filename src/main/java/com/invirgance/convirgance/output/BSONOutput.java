@@ -22,13 +22,17 @@ SOFTWARE.
 package com.invirgance.convirgance.output;
 
 import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.bson.BSONIndex;
 import com.invirgance.convirgance.bson.BinaryEncoder;
 import com.invirgance.convirgance.bson.KeyEncoder;
 import com.invirgance.convirgance.bson.KeyStreamEncoder;
+import com.invirgance.convirgance.bson.StringEncoder;
+import com.invirgance.convirgance.codec.Codec;
+import com.invirgance.convirgance.codec.Codecs;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.EncodeEvent;
 import com.invirgance.convirgance.target.Target;
 import java.io.*;
-import java.util.zip.GZIPOutputStream;
 
 /**
  *
@@ -36,7 +40,10 @@ import java.util.zip.GZIPOutputStream;
  */
 public class BSONOutput implements Output
 {
-    private boolean compressed;
+    private Codec codec;
+    private int version = BinaryEncoder.VERSION_1;
+    private int dictionarySize = StringEncoder.DEFAULT_SIZE;
+    private int indexInterval;
 
     public BSONOutput()
     {
@@ -45,37 +52,132 @@ public class BSONOutput implements Output
 
     public BSONOutput(boolean compressed)
     {
-        this.compressed = compressed;
+        setCompressed(compressed);
     }
 
     public boolean isCompressed()
     {
-        return compressed;
+        return (codec != null);
     }
 
+    /**
+     * Enables GZIP compression. Use setCodec() for other compression formats.
+     * 
+     * @param compressed true to compress with GZIP
+     */
     public void setCompressed(boolean compressed)
     {
-        this.compressed = compressed;
+        this.codec = compressed ? Codecs.GZIP : null;
+    }
+
+    public Codec getCodec()
+    {
+        return codec;
+    }
+
+    /**
+     * Sets the compression codec for the records. The codec id is recorded in
+     * the file header so that BSONInput can select the same codec when 
+     * reading. {@link Codecs#LZ4} decompresses much faster than GZIP at the 
+     * cost of larger files. Codecs other than GZIP require version 2 of the
+     * format, which is used automatically.
+     * 
+     * @param codec the codec to use or null for no compression
+     */
+    public void setCodec(Codec codec)
+    {
+        this.codec = codec;
+    }
+
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Sets the version of the format to write. Version 2 stores integers,
+     * key ids, and dates as variable length values, producing smaller files.
+     * Version 1 (the default) can be read by older releases. Indexed files 
+     * and files compressed with codecs other than GZIP are always written as
+     * version 2 because older releases cannot read them.
+     * 
+     * @param version BinaryEncoder.VERSION_1 or BinaryEncoder.VERSION_2
+     */
+    public void setVersion(int version)
+    {
+        if(version != BinaryEncoder.VERSION_1 && version != BinaryEncoder.VERSION_2) throw new IllegalArgumentException("Unsupported format version " + version);
+        
+        this.version = version;
+    }
+
+    public int getDictionarySize()
+    {
+        return dictionarySize;
+    }
+
+    /**
+     * Sets the maximum number of strings remembered for each key when writing
+     * version 2 of the format. Larger dictionaries suit columns with many
+     * distinct repeating values at the cost of memory. Defaults to 4096.
+     * 
+     * @param dictionarySize maximum number of strings per key
+     */
+    public void setDictionarySize(int dictionarySize)
+    {
+        if(dictionarySize < 1) throw new IllegalArgumentException("Dictionary size must be at least 1");
+        
+        this.dictionarySize = dictionarySize;
+    }
+
+    public int getIndexInterval()
+    {
+        return indexInterval;
+    }
+
+    /**
+     * Writes a sparse index of record positions to the end of the file,
+     * allowing BSONInput to seek directly to a record rather than decoding
+     * from the start. A checkpoint is written every indexInterval records.
+     * Each checkpoint resets the key and string tables, so smaller intervals
+     * make seeks faster but files slightly larger. Set to 0 (the default) to
+     * write no index. Indexes cannot be written to compressed files. Indexed
+     * files are written in version 2 of the format.
+     * 
+     * @param indexInterval number of records between checkpoints or 0
+     */
+    public void setIndexInterval(int indexInterval)
+    {
+        if(indexInterval < 0) throw new IllegalArgumentException("Index interval cannot be negative");
+        
+        this.indexInterval = indexInterval;
     }
 
     @Override
     public OutputCursor write(Target target)
     {
-        return new BSONOutputCursor(target, compressed);
+        if(codec != null && indexInterval > 0) throw new ConvirganceException("Indexes cannot be written to compressed files");
+        
+        return new BSONOutputCursor(target, codec);
     }
     
     private class BSONOutputCursor implements OutputCursor
     {
         private final DataOutputStream out;
+        private final CountingOutputStream counter;
         private final KeyEncoder keys;
         private final BinaryEncoder json;
+        private final BSONIndex index;
+        private final int interval = indexInterval;
+        private final int version;
         
-        private int count;
+        private long count;
         
-        public BSONOutputCursor(Target target, boolean compressed)
+        public BSONOutputCursor(Target target, Codec codec)
         {
             OutputStream out;
             
+            this.version = getVersion(codec, interval);
+            
             try
             {
                 out = target.getOutputStream();
@@ -86,12 +188,16 @@ public class BSONOutput implements Output
                 out.write('S');
                 out.write('O');
                 out.write('N');
-                out.write(0x01); // Version 1
-                out.write(getFlags(compressed)); // Flags
+                out.write(version);
+                out.write(getFlags(codec)); // Flags
+                
+                if(codec != null) out = codec.compress(out);
                 
-                this.out = new DataOutputStream(compressed ? new GZIPOutputStream(out, 4 * 1024 * 1024) : new BufferedOutputStream(out, 4 * 1024 * 1024));
+                this.counter = new CountingOutputStream(new BufferedOutputStream(out, 4 * 1024 * 1024), 8);
+                this.out = new DataOutputStream(counter);
+                this.index = (interval > 0) ? new BSONIndex() : null;
                 this.keys = new KeyStreamEncoder();
-                this.json = new BinaryEncoder(keys);
+                this.json = new BinaryEncoder(keys, (version == BinaryEncoder.VERSION_2) ? new StringEncoder(dictionarySize) : new StringEncoder(), version);
             }
             catch(IOException e)
             {
@@ -99,11 +205,24 @@ public class BSONOutput implements Output
             }
         }
         
-        private int getFlags(boolean compressed)
+        // Features that older readers would misread require version 2
+        private int getVersion(Codec codec, int interval)
+        {
+            if(interval > 0) return BinaryEncoder.VERSION_2;
+            if(codec != null && codec.getId() != Codecs.GZIP.getId()) return BinaryEncoder.VERSION_2;
+            
+            return BSONOutput.this.version;
+        }
+        
+        private int getFlags(Codec codec)
         {
             int flags = 0;
             
-            if(compressed) flags |= 0x01;
+            // GZIP keeps its original flag for compatibility. Other codecs use the high bits.
+            if(codec != null && codec.getId() == Codecs.GZIP.getId()) flags |= 0x01;
+            else if(codec != null) flags |= codec.getId() << 4;
+
+            if(indexInterval > 0) flags |= 0x02;
             
             return flags;
         }
@@ -113,6 +232,14 @@ public class BSONOutput implements Output
         {
             try
             {
+                if(index != null && count % interval == 0)
+                {
+                    index.add(count, counter.getCount());
+                    
+                    // The first record already starts from a clean state
+                    if(count > 0) json.reset(out);
+                }
+                
                 this.json.write(record, out);
 
                 count++;
@@ -126,9 +253,50 @@ public class BSONOutput implements Output
         @Override
         public void close() throws Exception
         {
+            EncodeEvent.SAMPLER.flush();
+            
             this.out.write(BinaryEncoder.TYPE_EOF);
+            
+            if(index != null)
+            {
+                index.setRecordCount(count);
+                index.write(out, counter.getCount());
+            }
+            
             this.out.close();
         }
     }
     
+    // Tracks the file offset of the bytes written so far
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        private long count;
+
+        public CountingOutputStream(OutputStream out, long count)
+        {
+            super(out);
+            
+            this.count = count;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException
+        {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+    
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.output;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.batch.RecordBatch;
+import com.invirgance.convirgance.columnar.ColumnarEncoder;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.target.Target;
+import java.io.*;
+
+/**
+ * Writes records in a column-chunked format. Records are gathered into row 
+ * groups, and each column of a group is encoded separately along with min/max
+ * statistics. Use {@link com.invirgance.convirgance.input.ColumnarInput} to
+ * read the data back with column projection and predicate pushdown.
+ *
+ * @author jbanes
+ */
+public class ColumnarOutput implements Output
+{
+    private int rowGroupSize;
+
+    public ColumnarOutput()
+    {
+        this(16 * 1024);
+    }
+
+    public ColumnarOutput(int rowGroupSize)
+    {
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    public int getRowGroupSize()
+    {
+        return rowGroupSize;
+    }
+
+    public void setRowGroupSize(int rowGroupSize)
+    {
+        this.rowGroupSize = rowGroupSize;
+    }
+    
+    @Override
+    public OutputCursor write(Target target)
+    {
+        return new ColumnarOutputCursor(target, rowGroupSize);
+    }
+    
+    private class ColumnarOutputCursor implements OutputCursor
+    {
+        private final DataOutputStream out;
+        private final ColumnarEncoder encoder;
+        private final int rowGroupSize;
+        
+        private RecordBatch batch;
+        
+        public ColumnarOutputCursor(Target target, int rowGroupSize)
+        {
+            OutputStream out;
+            
+            try
+            {
+                out = target.getOutputStream();
+                
+                out.write(0xFF);
+                out.write(0xFF);
+                out.write('C');
+                out.write('O');
+                out.write('L');
+                out.write('S');
+                out.write(0x01); // Version 1
+                out.write(0x00); // Flags
+                
+                this.out = new DataOutputStream(new BufferedOutputStream(out, 4 * 1024 * 1024));
+                this.encoder = new ColumnarEncoder();
+                this.rowGroupSize = rowGroupSize;
+                this.batch = new RecordBatch(rowGroupSize);
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+        
+        private void flush() throws IOException
+        {
+            if(batch.getRowCount() < 1) return;
+            
+            encoder.write(batch, out);
+            
+            batch = new RecordBatch(rowGroupSize);
+        }
+
+        @Override
+        public void write(JSONObject record)
+        {
+            try
+            {
+                batch.add(record);
+                
+                if(batch.isFull()) flush();
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            flush();
+            
+            this.out.write(ColumnarEncoder.TYPE_EOF);
+            this.out.close();
+        }
+    }
+}
@@ -21,21 +21,45 @@ SOFTWARE.
  */
 package com.invirgance.convirgance.output;
 
+import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONObject;
 import com.invirgance.convirgance.target.Target;
-import java.io.PrintWriter;
+import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.Set;
+import java.util.TimeZone;
 
 /**
+ * Writes records as delimited text such as CSV or pipe delimited files. The
+ * first line contains the column names. Values containing the delimiter, 
+ * quotes, or line breaks are quoted following RFC 4180 so they can be read 
+ * back by {@link com.invirgance.convirgance.input.DelimitedInput}.
+ * 
+ * Records are encoded directly into a reusable byte buffer that is written to
+ * the target in large blocks. 
+ * 
+ * java.util.Date values are written as ISO 8601 timestamps in the configured
+ * time zone (e.g. 2024-03-05T10:15:30.250Z). Earlier releases wrote them with
+ * Date.toString(). JDBC values (java.sql.Date, Time, and Timestamp) are 
+ * still written with toString() so that DATE columns keep their calendar 
+ * day regardless of the time zone.
  *
  * @author jbanes
  */
 public class DelimitedOutput implements Output
 {
+    private static final int FLUSH_SIZE = 64 * 1024;
+    
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    
     private String[] columns;
     private char delimiter;
     private String encoding = "UTF-8";
+    private TimeZone timeZone = TimeZone.getTimeZone("UTC");
     
     public DelimitedOutput()
     {
@@ -58,6 +82,52 @@ public class DelimitedOutput implements Output
         this.delimiter = delimiter;
     }
 
+    public String[] getColumns()
+    {
+        return columns;
+    }
+
+    public void setColumns(String[] columns)
+    {
+        this.columns = columns;
+    }
+
+    public char getDelimiter()
+    {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter)
+    {
+        this.delimiter = delimiter;
+    }
+
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding)
+    {
+        this.encoding = encoding;
+    }
+
+    public TimeZone getTimeZone()
+    {
+        return timeZone;
+    }
+
+    /**
+     * Sets the time zone used when writing java.util.Date values. JDBC date
+     * and time values are not affected. Defaults to UTC.
+     * 
+     * @param timeZone the time zone to use
+     */
+    public void setTimeZone(TimeZone timeZone)
+    {
+        this.timeZone = timeZone;
+    }
+
     @Override
     public OutputCursor write(Target target)
     {
@@ -66,9 +136,16 @@ public class DelimitedOutput implements Output
     
     private class DelimitedOutputWriter implements OutputCursor
     {
-        private Target target;
-        private PrintWriter out;
+        private final Target target;
+        private final TimeZone timeZone = DelimitedOutput.this.timeZone;
+        private final char[] separator = System.lineSeparator().toCharArray();
+        private final byte[] digits = new byte[20];
+        
         private String[] columns;
+        private OutputStream out;
+        private Writer writer;
+        private byte[] buffer = new byte[FLUSH_SIZE + 1024];
+        private int count;
 
         public DelimitedOutputWriter(Target target, String[] columns)
         {
@@ -82,36 +159,260 @@ public class DelimitedOutput implements Output
 
             return keys.toArray(String[]::new);
         }
-    
-        private String stringify(String[] columns)
+        
+        private void open()
         {
-            StringBuffer buffer = new StringBuffer();
-
-            for(int i=0; i<columns.length; i++)
+            Charset charset = Charset.forName(encoding);
+            
+            out = target.getOutputStream();
+            
+            // Records are always encoded as UTF-8 and transcoded if needed
+            if(!charset.equals(StandardCharsets.UTF_8)) writer = new OutputStreamWriter(out, charset);
+        }
+        
+        private void ensure(int length)
+        {
+            byte[] expanded;
+            
+            if(count + length <= buffer.length) return;
+            
+            expanded = new byte[Math.max(buffer.length * 2, count + length)];
+            
+            System.arraycopy(buffer, 0, expanded, 0, count);
+            
+            buffer = expanded;
+        }
+        
+        private void flush() throws IOException
+        {
+            if(count == 0) return;
+            
+            if(writer != null) writer.write(new String(buffer, 0, count, StandardCharsets.UTF_8));
+            else out.write(buffer, 0, count);
+            
+            count = 0;
+        }
+        
+        private boolean isQuoteNeeded(String value)
+        {
+            char c;
+            
+            for(int i=0; i<value.length(); i++)
             {
-                if(i > 0) buffer.append(delimiter);
-
-                buffer.append(columns[i]);
+                c = value.charAt(i);
+                
+                if(c == delimiter || c == '"' || c == '\n' || c == '\r') return true;
             }
-
-            return buffer.toString();
+            
+            return false;
         }
-    
-        private String stringify(JSONObject record)
+        
+        private void append(char c)
         {
-            StringBuffer buffer = new StringBuffer();
-            Object value;
-
-            for(int i=0; i<columns.length; i++)
+            if(c < 0x80)
             {
-                if(i > 0) buffer.append(delimiter);
-
-                value = record.get(columns[i]);
-
-                if(value != null) buffer.append(value.toString());
+                buffer[count++] = (byte)c;
+            }
+            else if(c < 0x800)
+            {
+                buffer[count++] = (byte)(0xC0 | (c >> 6));
+                buffer[count++] = (byte)(0x80 | (c & 0x3F));
+            }
+            else
+            {
+                buffer[count++] = (byte)(0xE0 | (c >> 12));
+                buffer[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte)(0x80 | (c & 0x3F));
             }
-
-            return buffer.toString();
+        }
+        
+        private void append(String value)
+        {
+            boolean quoted = isQuoteNeeded(value);
+            int codepoint;
+            char c;
+            
+            // Worst case is three bytes per char plus the enclosing quotes
+            ensure(value.length() * 3 + 2);
+            
+            if(quoted) buffer[count++] = '"';
+            
+            for(int i=0; i<value.length(); i++)
+            {
+                c = value.charAt(i);
+                
+                if(c < 0x80)
+                {
+                    if(c == '"' && quoted) buffer[count++] = '"';
+                    
+                    buffer[count++] = (byte)c;
+                }
+                else if(Character.isHighSurrogate(c) && i+1 < value.length() && Character.isLowSurrogate(value.charAt(i+1)))
+                {
+                    codepoint = Character.toCodePoint(c, value.charAt(++i));
+                    
+                    buffer[count++] = (byte)(0xF0 | (codepoint >> 18));
+                    buffer[count++] = (byte)(0x80 | ((codepoint >> 12) & 0x3F));
+                    buffer[count++] = (byte)(0x80 | ((codepoint >> 6) & 0x3F));
+                    buffer[count++] = (byte)(0x80 | (codepoint & 0x3F));
+                }
+                else if(Character.isSurrogate(c))
+                {
+                    // Unpaired surrogates cannot be encoded
+                    buffer[count++] = '?';
+                }
+                else
+                {
+                    append(c);
+                }
+            }
+            
+            if(quoted) buffer[count++] = '"';
+        }
+        
+        private void append(byte[] bytes)
+        {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, count, bytes.length);
+            
+            count += bytes.length;
+        }
+        
+        private void append(long value)
+        {
+            int position = digits.length;
+            
+            if(value == Long.MIN_VALUE)
+            {
+                append(MIN_LONG);
+                return;
+            }
+            
+            ensure(digits.length);
+            
+            if(value < 0)
+            {
+                buffer[count++] = '-';
+                value = -value;
+            }
+            
+            do
+            {
+                digits[--position] = (byte)('0' + (value % 10));
+                value /= 10;
+            }
+            while(value > 0);
+            
+            System.arraycopy(digits, position, buffer, count, digits.length - position);
+            
+            count += digits.length - position;
+        }
+        
+        private void append(long value, int width)
+        {
+            for(long limit = 10; width > 1; width--, limit *= 10)
+            {
+                if(value < limit) buffer[count++] = '0';
+            }
+            
+            append(value);
+        }
+        
+        private void append(double value)
+        {
+            // Matches Double.toString() for whole numbers in this range
+            if(value == (long)value && Math.abs(value) < 1e7 && !(value == 0 && 1/value < 0))
+            {
+                append((long)value);
+                ensure(2);
+                
+                buffer[count++] = '.';
+                buffer[count++] = '0';
+                
+                return;
+            }
+            
+            append(Double.toString(value));
+        }
+        
+        private void append(Date date)
+        {
+            long time = date.getTime();
+            int offset = timeZone.getOffset(time);
+            long days = Math.floorDiv(time + offset, 86400000L);
+            long millis = Math.floorMod(time + offset, 86400000L);
+            
+            // Convert days since epoch to a civil date
+            long z = days + 719468;
+            long era = Math.floorDiv(z, 146097);
+            long doe = z - era * 146097;
+            long yoe = (doe - doe/1460 + doe/36524 - doe/146096) / 365;
+            long doy = doe - (365*yoe + yoe/4 - yoe/100);
+            long mp = (5*doy + 2) / 153;
+            long day = doy - (153*mp + 2)/5 + 1;
+            long month = (mp < 10) ? mp + 3 : mp - 9;
+            long year = yoe + era * 400 + ((month <= 2) ? 1 : 0);
+            
+            ensure(40);
+            
+            if(year < 0) 
+            {
+                buffer[count++] = '-';
+                year = -year;
+            }
+            
+            append(year, 4);
+            buffer[count++] = '-';
+            append(month, 2);
+            buffer[count++] = '-';
+            append(day, 2);
+            buffer[count++] = 'T';
+            append(millis / 3600000, 2);
+            buffer[count++] = ':';
+            append((millis / 60000) % 60, 2);
+            buffer[count++] = ':';
+            append((millis / 1000) % 60, 2);
+            buffer[count++] = '.';
+            append(millis % 1000, 3);
+            
+            if(offset == 0)
+            {
+                buffer[count++] = 'Z';
+                return;
+            }
+            
+            buffer[count++] = (byte)((offset < 0) ? '-' : '+');
+            offset = Math.abs(offset) / 60000;
+            
+            append(offset / 60, 2);
+            buffer[count++] = ':';
+            append(offset % 60, 2);
+        }
+        
+        private void append(Object value)
+        {
+            if(value == null) return;
+            
+            if(value instanceof String) append((String)value);
+            else if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) append(((Number)value).longValue());
+            else if(value instanceof Double) append(((Double)value).doubleValue());
+            else if(value instanceof Boolean) append(((Boolean)value) ? TRUE : FALSE);
+            else if(value instanceof java.sql.Date || value instanceof java.sql.Time || value instanceof java.sql.Timestamp) append(value.toString());
+            else if(value instanceof Date) append((Date)value);
+            else append(value.toString());
+        }
+        
+        private void appendDelimiter()
+        {
+            ensure(3);
+            append(delimiter);
+        }
+        
+        private void appendSeparator()
+        {
+            ensure(separator.length * 3);
+            
+            for(char c : separator) append(c);
         }
         
         @Override
@@ -119,21 +420,55 @@ public class DelimitedOutput implements Output
         {   
             if(columns == null) columns = detectColumns(record);
 
-            if(out == null) 
+            try
             {
-                out = new PrintWriter(target.getOutputStream(), false, Charset.forName(encoding));
+                if(out == null) 
+                {
+                    open();
 
-                out.println(stringify(columns));
-                out.flush();
-            }
+                    for(int i=0; i<columns.length; i++)
+                    {
+                        if(i > 0) appendDelimiter();
+
+                        append(columns[i]);
+                    }
+
+                    appendSeparator();
+                }
+
+                for(int i=0; i<columns.length; i++)
+                {
+                    if(i > 0) appendDelimiter();
 
-            out.println(stringify(record));
+                    append(record.get(columns[i]));
+                }
+
+                appendSeparator();
+
+                if(count >= FLUSH_SIZE) flush();
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
         }
         
         @Override
         public void close()
         {
-            if(out != null) out.close();
+            if(out == null) return;
+            
+            try
+            {
+                flush();
+                
+                if(writer != null) writer.close();
+                else out.close();
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
         }
     }
 }
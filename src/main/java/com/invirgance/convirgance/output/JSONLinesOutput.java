@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.output;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.json.JSONWriter;
+import com.invirgance.convirgance.target.Target;
+import java.io.*;
+
+/**
+ * Writes newline delimited JSON (also known as JSON Lines or NDJSON). Each
+ * record is written as a single line with no enclosing array.
+ *
+ * @author jbanes
+ */
+public class JSONLinesOutput implements Output
+{
+
+    @Override
+    public OutputCursor write(Target target)
+    {
+        return new JSONLinesOutputCursor(target);
+    }
+
+    private class JSONLinesOutputCursor implements OutputCursor
+    {
+        private final Writer writer;
+        private final JSONWriter json;
+
+        public JSONLinesOutputCursor(Target target)
+        {
+            try
+            {
+                this.writer = new BufferedWriter(new OutputStreamWriter(target.getOutputStream(), "UTF-8"), 16 * 1024);
+                this.json = new JSONWriter(this.writer);
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+
+        @Override
+        public void write(JSONObject record)
+        {
+            try
+            {
+                this.json.write(record);
+                this.writer.write('\n');
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            this.json.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.output;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.EventSampler;
+import com.invirgance.convirgance.target.MultiFileTarget;
+import com.invirgance.convirgance.target.Target;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Splits the records written to a {@link MultiFileTarget} across numbered
+ * part files, each written with a separate cursor of the wrapped Output. Any
+ * other Target is passed directly to the wrapped Output.
+ * 
+ * Output rolls to a new file once the current file reaches the maximum record
+ * count or the maximum size. Sizes are measured as data reaches the file, so 
+ * files may exceed the limit by the buffer size of the Output.
+ * 
+ * When a partition key is set, records are routed by the hash of that key to
+ * one of several partitions, each written by its own thread. All records with
+ * the same key value land in the same partition. Partition p writes parts
+ * p, p + partitions, p + 2 * partitions, and so on as it rolls. Records must 
+ * not be modified after they are written, since they are handed to the 
+ * partition threads as-is.
+ *
+ * @author jbanes
+ */
+public class MultiFileOutput implements Output
+{
+    private final Output output;
+    private long maxRecords;
+    private long maxBytes;
+    private String partitionKey;
+    private int partitions = 1;
+    private int batchSize = 256;
+
+    public MultiFileOutput(Output output)
+    {
+        this.output = output;
+    }
+
+    public Output getOutput()
+    {
+        return output;
+    }
+
+    public long getMaxRecords()
+    {
+        return maxRecords;
+    }
+
+    /**
+     * Sets the number of records written to each file before rolling to the
+     * next one.
+     * 
+     * @param maxRecords records per file or 0 for no limit
+     */
+    public void setMaxRecords(long maxRecords)
+    {
+        this.maxRecords = maxRecords;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the approximate size of each file before rolling to the next one.
+     * 
+     * @param maxBytes bytes per file or 0 for no limit
+     */
+    public void setMaxBytes(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    public String getPartitionKey()
+    {
+        return partitionKey;
+    }
+
+    public int getPartitions()
+    {
+        return partitions;
+    }
+
+    /**
+     * Partitions records by the value of a key
+     * 
+     * @param partitionKey the key to hash or null to disable partitioning
+     * @param partitions number of partitions, each written on its own thread
+     */
+    public void setPartitions(String partitionKey, int partitions)
+    {
+        if(partitions < 1) throw new IllegalArgumentException("There must be at least 1 partition");
+        
+        this.partitionKey = partitionKey;
+        this.partitions = partitions;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of records handed to a partition thread at a time.
+     * Larger batches reduce contention between threads.
+     * 
+     * @param batchSize records per batch
+     */
+    public void setBatchSize(int batchSize)
+    {
+        if(batchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1");
+        
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public OutputCursor write(Target target)
+    {
+        MultiFileTarget files;
+        
+        if(!(target instanceof MultiFileTarget)) return output.write(target);
+        
+        files = (MultiFileTarget)target;
+        
+        files.getDirectory().mkdirs();
+        
+        if(partitionKey == null || partitions < 2) return new RollingCursor(files, 0, 1);
+        
+        return new PartitionedCursor(files);
+    }
+    
+    private static void close(OutputCursor cursor)
+    {
+        try
+        {
+            cursor.close();
+        }
+        catch(RuntimeException e) { throw e; }
+        catch(Exception e) { throw new ConvirganceException(e); }
+    }
+    
+    private class RollingCursor implements OutputCursor
+    {
+        private final MultiFileTarget target;
+        private final int step;
+        private int index;
+        
+        private OutputCursor cursor;
+        private long records;
+        private long bytes;
+
+        public RollingCursor(MultiFileTarget target, int first, int step)
+        {
+            this.target = target;
+            this.index = first;
+            this.step = step;
+            
+            // Always create the first file, even if no records are written
+            open();
+        }
+        
+        private void open()
+        {
+            final Target file = target.getTarget(index);
+            
+            index += step;
+            records = 0;
+            bytes = 0;
+            
+            cursor = output.write(new Target() {
+                @Override
+                public OutputStream getOutputStream()
+                {
+                    return new FilterOutputStream(file.getOutputStream()) {
+                        @Override
+                        public void write(int b) throws IOException
+                        {
+                            out.write(b);
+                            bytes++;
+                        }
+
+                        @Override
+                        public void write(byte[] data, int offset, int length) throws IOException
+                        {
+                            out.write(data, offset, length);
+                            bytes += length;
+                        }
+                    };
+                }
+            });
+        }
+
+        @Override
+        public void write(JSONObject record)
+        {
+            if(cursor == null) open();
+            
+            cursor.write(record);
+            records++;
+            
+            if((maxRecords > 0 && records >= maxRecords) || (maxBytes > 0 && bytes >= maxBytes))
+            {
+                close();
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            if(cursor == null) return;
+            
+            try
+            {
+                MultiFileOutput.close(cursor);
+            }
+            finally
+            {
+                cursor = null;
+            }
+        }
+    }
+    
+    private class PartitionedCursor implements OutputCursor
+    {
+        // Marks the end of the records in a partition queue
+        private final List<JSONObject> END = new ArrayList<>(0);
+        
+        private final String key = partitionKey;
+        private final Thread[] workers;
+        private final List<ArrayBlockingQueue<List<JSONObject>>> queues;
+        private final List<List<JSONObject>> pending;
+        
+        private volatile RuntimeException error;
+        private boolean closed;
+
+        public PartitionedCursor(final MultiFileTarget target)
+        {
+            this.workers = new Thread[partitions];
+            this.queues = new ArrayList<>(partitions);
+            this.pending = new ArrayList<>(partitions);
+            
+            for(int i=0; i<partitions; i++)
+            {
+                final int partition = i;
+                
+                queues.add(new ArrayBlockingQueue<>(4));
+                pending.add(new ArrayList<>(batchSize));
+                
+                workers[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        work(target, partition);
+                    }
+                }, "Convirgance Partition " + i);
+                
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+        }
+        
+        private void work(MultiFileTarget target, int partition)
+        {
+            RollingCursor cursor = null;
+            List<JSONObject> records;
+            
+            try
+            {
+                while((records = queues.get(partition).take()) != END)
+                {
+                    // Keep draining after an error so the writer never blocks
+                    if(error != null) continue;
+                    
+                    try
+                    {
+                        if(cursor == null) cursor = new RollingCursor(target, partition, partitions);
+
+                        for(JSONObject record : records) cursor.write(record);
+                    }
+                    catch(RuntimeException e)
+                    {
+                        if(error == null) error = e;
+                    }
+                }
+                
+                if(cursor == null && error == null) cursor = new RollingCursor(target, partition, partitions);
+            }
+            catch(InterruptedException e)
+            {
+                if(error == null) error = new ConvirganceException(e);
+            }
+            catch(RuntimeException e)
+            {
+                if(error == null) error = e;
+            }
+            finally
+            {
+                try
+                {
+                    if(cursor != null) cursor.close();
+                }
+                catch(RuntimeException e)
+                {
+                    if(error == null) error = e;
+                }
+                
+                EventSampler.flushAll();
+            }
+        }
+        
+        private void send(int partition)
+        {
+            try
+            {
+                queues.get(partition).put(pending.get(partition));
+            }
+            catch(InterruptedException e)
+            {
+                throw new ConvirganceException(e);
+            }
+            
+            pending.set(partition, new ArrayList<>(batchSize));
+        }
+        
+        private int getPartition(Object value)
+        {
+            int hash = Objects.hashCode(value);
+            
+            // Spread the high bits so that small key ranges distribute well
+            return Math.floorMod(hash ^ (hash >>> 16), workers.length);
+        }
+
+        @Override
+        public void write(JSONObject record)
+        {
+            int partition = getPartition(record.get(key));
+            
+            if(closed) throw new ConvirganceException("Cursor is closed");
+            if(error != null) throw error;
+            
+            pending.get(partition).add(record);
+            
+            if(pending.get(partition).size() >= batchSize) send(partition);
+        }
+
+        @Override
+        public void close()
+        {
+            if(closed) return;
+            
+            closed = true;
+            
+            try
+            {
+                for(int i=0; i<workers.length; i++)
+                {
+                    if(!pending.get(i).isEmpty()) send(i);
+
+                    queues.get(i).put(END);
+                }
+
+                for(Thread worker : workers) worker.join();
+            }
+            catch(InterruptedException e)
+            {
+                throw new ConvirganceException(e);
+            }
+            
+            if(error != null) throw error;
+        }
+    }
+}
@@ -23,12 +23,16 @@ package com.invirgance.convirgance.source;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
 
 /**
  *
  * @author jbanes
  */
-public class ByteArraySource implements Source
+public class ByteArraySource implements SeekableSource
 {
     private byte[] buffer;
 
@@ -42,4 +46,90 @@ public class ByteArraySource implements Source
     {
         return new ByteArrayInputStream(buffer);
     }
+
+    @Override
+    public SeekableByteChannel getChannel()
+    {
+        return new ByteArrayChannel(buffer);
+    }
+    
+    private static class ByteArrayChannel implements SeekableByteChannel
+    {
+        private final byte[] buffer;
+        private int position;
+        private boolean open = true;
+
+        public ByteArrayChannel(byte[] buffer)
+        {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read(ByteBuffer destination) throws ClosedChannelException
+        {
+            int length;
+            
+            if(!open) throw new ClosedChannelException();
+            if(position >= buffer.length) return -1;
+            
+            length = Math.min(destination.remaining(), buffer.length - position);
+            
+            destination.put(buffer, position, length);
+            
+            position += length;
+            
+            return length;
+        }
+
+        @Override
+        public int write(ByteBuffer source)
+        {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws ClosedChannelException
+        {
+            if(!open) throw new ClosedChannelException();
+            
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long position) throws ClosedChannelException
+        {
+            if(!open) throw new ClosedChannelException();
+            if(position < 0) throw new IllegalArgumentException("Position cannot be negative: " + position);
+            
+            this.position = (int)Math.min(position, buffer.length);
+            
+            return this;
+        }
+
+        @Override
+        public long size() throws ClosedChannelException
+        {
+            if(!open) throw new ClosedChannelException();
+            
+            return buffer.length;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size)
+        {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return open;
+        }
+
+        @Override
+        public void close()
+        {
+            open = false;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.source;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.codec.Codec;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decompresses the data of another Source using a {@link Codec}. Allows any
+ * Input to read compressed files.
+ *
+ * @author jbanes
+ */
+public class CompressedSource implements Source
+{
+    private final Source source;
+    private final Codec codec;
+
+    public CompressedSource(Source source, Codec codec)
+    {
+        this.source = source;
+        this.codec = codec;
+    }
+
+    public Source getSource()
+    {
+        return source;
+    }
+
+    public Codec getCodec()
+    {
+        return codec;
+    }
+
+    @Override
+    public InputStream getInputStream()
+    {
+        try
+        {
+            return codec.decompress(source.getInputStream());
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException(e);
+        }
+    }
+
+    @Override
+    public boolean isReusable()
+    {
+        return source.isReusable();
+    }
+
+    @Override
+    public boolean isUsed()
+    {
+        return source.isUsed();
+    }
+}
@@ -26,12 +26,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  *
  * @author jbanes
  */
-public class FileSource implements Source
+public class FileSource implements SeekableSource
 {
     private final File file;
 
@@ -57,5 +60,18 @@ public class FileSource implements Source
             throw new ConvirganceException(e);
         }
     }
+
+    @Override
+    public SeekableByteChannel getChannel()
+    {
+        try
+        {
+            return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException(e);
+        }
+    }
     
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.source;
+
+import com.invirgance.convirgance.metrics.Counter;
+import com.invirgance.convirgance.metrics.Metrics;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from another Source in the <code>name.bytes</code>
+ * counter and the time spent blocked in reads in <code>name.time</code> 
+ * in nanoseconds. Passes the stream through untouched when 
+ * {@link Metrics} are disabled.
+ *
+ * @author jbanes
+ */
+public class MeteredSource implements Source
+{
+    private final Source source;
+    private final String name;
+
+    public MeteredSource(Source source, String name)
+    {
+        this.source = source;
+        this.name = name;
+    }
+
+    public Source getSource()
+    {
+        return source;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public InputStream getInputStream()
+    {
+        final Counter bytes;
+        final Counter time;
+        
+        if(!Metrics.isEnabled()) return source.getInputStream();
+        
+        bytes = Metrics.counter(name + ".bytes");
+        time = Metrics.counter(name + ".time");
+        
+        return new FilterInputStream(source.getInputStream()) {
+            @Override
+            public int read() throws IOException
+            {
+                long start = System.nanoTime();
+                int c = in.read();
+                
+                time.add(System.nanoTime() - start);
+                
+                if(c >= 0) bytes.increment();
+                
+                return c;
+            }
+
+            @Override
+            public int read(byte[] data, int offset, int length) throws IOException
+            {
+                long start = System.nanoTime();
+                int count = in.read(data, offset, length);
+                
+                time.add(System.nanoTime() - start);
+                
+                if(count > 0) bytes.add(count);
+                
+                return count;
+            }
+
+            @Override
+            public long skip(long count) throws IOException
+            {
+                count = in.skip(count);
+                
+                bytes.add(count);
+                
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public boolean isReusable()
+    {
+        return source.isReusable();
+    }
+
+    @Override
+    public boolean isUsed()
+    {
+        return source.isUsed();
+    }
+}
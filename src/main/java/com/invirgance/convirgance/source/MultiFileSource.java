@@ -0,0 +1,249 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.source;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.io.File;
+import java.io.IOException;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Represents a set of files in a directory, such as the part files of a 
+ * partitioned export. Files are selected with an optional glob pattern that
+ * is matched against the path relative to the directory (e.g. 
+ * <code>part-*.csv</code> or <code>**&#47;*.json</code>) and are returned in
+ * path order. A pattern starting with <code>**&#47;</code> also matches files
+ * at the top of the directory.
+ * 
+ * Reading this source directly concatenates the raw bytes of every file, which
+ * is only suitable for formats without headers such as JSON Lines. A newline
+ * is inserted after any file that does not end with one so that the last
+ * record of a file is never joined to the first record of the next. Use 
+ * {@link com.invirgance.convirgance.input.MultiFileInput} to open a separate
+ * cursor for each file.
+ *
+ * @author jbanes
+ */
+public class MultiFileSource implements Source
+{
+    private final File directory;
+    private final String glob;
+
+    public MultiFileSource(File directory)
+    {
+        this(directory, null);
+    }
+    
+    public MultiFileSource(File directory, String glob)
+    {
+        this.directory = directory;
+        this.glob = glob;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    public String getGlob()
+    {
+        return glob;
+    }
+    
+    /**
+     * Lists the matching files at the time of the call
+     * 
+     * @return matching files sorted by path
+     */
+    public File[] getFiles()
+    {
+        ArrayList<File> files = new ArrayList<>();
+        Path root = directory.toPath();
+        PathMatcher matcher = (glob != null) ? FileSystems.getDefault().getPathMatcher("glob:" + glob) : null;
+        PathMatcher top = (glob != null && glob.startsWith("**/")) ? FileSystems.getDefault().getPathMatcher("glob:" + glob.substring(3)) : null;
+        Path relative;
+        Iterator<Path> iterator;
+        Path path;
+        
+        if(!directory.isDirectory()) throw new ConvirganceException(directory + " is not a directory");
+        
+        // Only search subdirectories when the pattern can match them
+        try(Stream<Path> paths = (glob != null && glob.contains("/")) ? Files.walk(root) : Files.list(root))
+        {
+            iterator = paths.iterator();
+            
+            while(iterator.hasNext())
+            {
+                path = iterator.next();
+                
+                if(!Files.isRegularFile(path)) continue;
+                
+                relative = root.relativize(path);
+                
+                // "**/" requires a directory in Java globs, so match top level files separately
+                if(matcher != null && !matcher.matches(relative) && (top == null || relative.getNameCount() > 1 || !top.matches(relative))) continue;
+                
+                files.add(path.toFile());
+            }
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException(e);
+        }
+        
+        Collections.sort(files);
+        
+        return files.toArray(File[]::new);
+    }
+    
+    /**
+     * Creates a source for each matching file
+     * 
+     * @return a FileSource for each file in path order
+     */
+    public Source[] getSources()
+    {
+        File[] files = getFiles();
+        Source[] sources = new Source[files.length];
+        
+        for(int i=0; i<files.length; i++) sources[i] = new FileSource(files[i]);
+        
+        return sources;
+    }
+
+    @Override
+    public InputStream getInputStream()
+    {
+        final Source[] sources = getSources();
+        
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            
+            private int index = 0;
+            
+            @Override
+            public boolean hasMoreElements()
+            {
+                return (index < sources.length);
+            }
+
+            @Override
+            public InputStream nextElement()
+            {
+                return new LineTerminatedInputStream(sources[index++].getInputStream());
+            }
+        });
+    }
+    
+    private static class LineTerminatedInputStream extends FilterInputStream
+    {
+        private int last = '\n';
+        private boolean terminated;
+
+        public LineTerminatedInputStream(InputStream in)
+        {
+            super(in);
+        }
+        
+        private int terminate()
+        {
+            if(terminated || last == '\n') return -1;
+            
+            terminated = true;
+            
+            return '\n';
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int value = terminated ? -1 : super.read();
+            
+            if(value < 0) return terminate();
+            
+            last = value;
+            
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            int count;
+            
+            if(length == 0) return 0;
+            
+            count = terminated ? -1 : super.read(buffer, offset, length);
+            
+            if(count < 0)
+            {
+                if(terminate() < 0) return -1;
+                
+                buffer[offset] = '\n';
+                
+                return 1;
+            }
+            
+            if(count > 0) last = buffer[offset + count - 1];
+            
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException
+        {
+            // Skip by reading so the last byte is always tracked
+            byte[] buffer = new byte[(int)Math.min(count, 8192)];
+            long skipped = 0;
+            int read;
+            
+            while(skipped < count && (read = read(buffer, 0, (int)Math.min(buffer.length, count - skipped))) > 0)
+            {
+                skipped += read;
+            }
+            
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return terminated ? 0 : super.available();
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+    }
+}
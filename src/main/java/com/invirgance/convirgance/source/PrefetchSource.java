@@ -0,0 +1,344 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads ahead from another Source on a background thread. Data is read into
+ * a ring of large buffers so that parsing can continue while the next blocks
+ * are being fetched from disk or the network. The prefetch depth controls 
+ * how many buffers may be filled ahead of the reader.
+ * 
+ * Stall metrics record how often, and for how long, the reader had to wait
+ * for data to arrive. A high stall time means the underlying storage is the
+ * bottleneck. A stall time near zero means parsing is.
+ *
+ * @author jbanes
+ */
+public class PrefetchSource implements Source
+{
+    private final Source source;
+    private int bufferSize;
+    private int depth;
+    
+    private final LongAdder stalls = new LongAdder();
+    private final LongAdder stallTime = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public PrefetchSource(Source source)
+    {
+        this(source, 256 * 1024, 4);
+    }
+    
+    public PrefetchSource(Source source, int bufferSize, int depth)
+    {
+        this.source = source;
+        
+        setBufferSize(bufferSize);
+        setDepth(depth);
+    }
+
+    public Source getSource()
+    {
+        return source;
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize)
+    {
+        if(bufferSize < 1) throw new IllegalArgumentException("Buffer size must be at least 1");
+        
+        this.bufferSize = bufferSize;
+    }
+
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Sets the number of buffers that may be read ahead of the consumer
+     * 
+     * @param depth number of buffers to prefetch
+     */
+    public void setDepth(int depth)
+    {
+        if(depth < 1) throw new IllegalArgumentException("Prefetch depth must be at least 1");
+        
+        this.depth = depth;
+    }
+
+    /**
+     * The number of times a reader had to wait for data from the background
+     * thread, across all streams opened from this source.
+     * 
+     * @return number of stalls
+     */
+    public long getStallCount()
+    {
+        return stalls.sum();
+    }
+
+    /**
+     * Total time spent waiting for data from the background thread, across all 
+     * streams opened from this source.
+     * 
+     * @return stall time in nanoseconds
+     */
+    public long getStallTime()
+    {
+        return stallTime.sum();
+    }
+
+    /**
+     * Total bytes read from the underlying source
+     * 
+     * @return number of bytes prefetched
+     */
+    public long getBytesRead()
+    {
+        return bytes.sum();
+    }
+
+    public void resetMetrics()
+    {
+        stalls.reset();
+        stallTime.reset();
+        bytes.reset();
+    }
+    
+    @Override
+    public InputStream getInputStream()
+    {
+        return new PrefetchInputStream(source.getInputStream());
+    }
+
+    @Override
+    public boolean isReusable()
+    {
+        return source.isReusable();
+    }
+
+    @Override
+    public boolean isUsed()
+    {
+        return source.isUsed();
+    }
+    
+    private static class Chunk
+    {
+        private final byte[] data;
+        private int length;
+
+        public Chunk(int size)
+        {
+            this.data = new byte[size];
+        }
+    }
+    
+    private class PrefetchInputStream extends InputStream
+    {
+        // Marks the end of the data in the queue of filled buffers
+        private final Chunk END = new Chunk(0);
+        
+        private final InputStream in;
+        private final ArrayBlockingQueue<Chunk> free;
+        private final ArrayBlockingQueue<Chunk> filled;
+        private final Thread reader;
+        
+        private volatile IOException error;
+        private volatile boolean closed;
+        private Chunk chunk;
+        private int position;
+
+        public PrefetchInputStream(InputStream in)
+        {
+            this.in = in;
+            
+            // One extra buffer is held by the consumer while the others fill
+            this.free = new ArrayBlockingQueue<>(depth + 1);
+            this.filled = new ArrayBlockingQueue<>(depth + 2);
+            
+            for(int i=0; i<=depth; i++) free.add(new Chunk(bufferSize));
+            
+            this.reader = new Thread(new Runnable() {
+                @Override
+                public void run()
+                {
+                    fill();
+                }
+            }, "Convirgance Prefetch");
+            
+            this.reader.setDaemon(true);
+            this.reader.start();
+        }
+        
+        private void fill()
+        {
+            Chunk chunk;
+            int count;
+            
+            try
+            {
+                while(!closed)
+                {
+                    chunk = free.take();
+                    chunk.length = 0;
+                    
+                    // Fill the whole buffer so the consumer sees large blocks
+                    while(chunk.length < chunk.data.length)
+                    {
+                        count = in.read(chunk.data, chunk.length, chunk.data.length - chunk.length);
+                        
+                        if(count < 0) break;
+                        
+                        chunk.length += count;
+                    }
+                    
+                    bytes.add(chunk.length);
+                    
+                    if(chunk.length > 0) filled.put(chunk);
+                    if(chunk.length < chunk.data.length) break;
+                }
+            }
+            catch(IOException e)
+            {
+                error = e;
+            }
+            catch(InterruptedException e)
+            {
+                // Stream was closed by the consumer
+            }
+            finally
+            {
+                try
+                {
+                    in.close();
+                }
+                catch(IOException e)
+                {
+                    if(error == null) error = e;
+                }
+                
+                filled.offer(END);
+            }
+        }
+        
+        private boolean next() throws IOException
+        {
+            long start;
+            
+            if(closed) throw new IOException("Stream is closed");
+            if(chunk == END) return false;
+            if(chunk != null) free.offer(chunk);
+            
+            chunk = filled.poll();
+            position = 0;
+            
+            try
+            {
+                if(chunk == null)
+                {
+                    start = System.nanoTime();
+                    chunk = filled.take();
+
+                    stalls.increment();
+                    stallTime.add(System.nanoTime() - start);
+                }
+            }
+            catch(InterruptedException e)
+            {
+                throw new InterruptedIOException("Interrupted while waiting for data");
+            }
+            
+            if(chunk == END && error != null) throw new IOException("Prefetch read failed", error);
+            
+            return (chunk != END);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            while(chunk == null || position >= chunk.length)
+            {
+                if(!next()) return -1;
+            }
+            
+            return chunk.data[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] data, int offset, int length) throws IOException
+        {
+            if(length == 0) return 0;
+            
+            while(chunk == null || position >= chunk.length)
+            {
+                if(!next()) return -1;
+            }
+            
+            length = Math.min(length, chunk.length - position);
+            
+            System.arraycopy(chunk.data, position, data, offset, length);
+            
+            position += length;
+            
+            return length;
+        }
+
+        /**
+         * Returns the bytes remaining in the current buffer. When the buffer
+         * is exhausted, waits for the next one so that a return of zero only
+         * happens at the end of the stream. Readers such as the JSON parser
+         * rely on ready() to detect the end of the data.
+         */
+        @Override
+        public int available() throws IOException
+        {
+            while(chunk == null || position >= chunk.length)
+            {
+                if(!next()) return 0;
+            }
+            
+            return chunk.length - position;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if(closed) return;
+            
+            closed = true;
+            
+            reader.interrupt();
+        }
+    }
+}
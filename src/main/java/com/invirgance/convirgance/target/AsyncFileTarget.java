@@ -0,0 +1,310 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.target;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Writes to a file on a dedicated background thread. Data is collected into
+ * a small pool of reusable direct buffers. Filled buffers are handed to the 
+ * writer thread while the producer keeps encoding into the next free buffer,
+ * allowing record encoding and disk I/O to overlap. The producer only waits
+ * when every buffer is queued for writing.
+ * 
+ * Errors on the writer thread are reported on the next write, flush, or 
+ * close of the stream.
+ *
+ * @author jbanes
+ */
+public class AsyncFileTarget implements Target
+{
+    /**
+     * Controls when written data is forced to the storage device
+     */
+    public enum SyncPolicy
+    {
+        /** Leave flushing to the operating system */
+        NONE,
+        /** Force all data to disk when the stream is closed */
+        CLOSE,
+        /** Force each buffer to disk as it is written */
+        BUFFER
+    }
+    
+    private final File file;
+    private int bufferSize;
+    private int bufferCount;
+    private SyncPolicy syncPolicy = SyncPolicy.NONE;
+
+    public AsyncFileTarget(File file)
+    {
+        this(file, 1024 * 1024, 4);
+    }
+    
+    public AsyncFileTarget(File file, int bufferSize, int bufferCount)
+    {
+        this.file = file;
+        
+        setBufferSize(bufferSize);
+        setBufferCount(bufferCount);
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize)
+    {
+        if(bufferSize < 1) throw new IllegalArgumentException("Buffer size must be at least 1");
+        
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferCount()
+    {
+        return bufferCount;
+    }
+
+    /**
+     * Sets the number of buffers in the pool. At least two are needed for
+     * encoding to overlap with writing.
+     * 
+     * @param bufferCount number of buffers
+     */
+    public void setBufferCount(int bufferCount)
+    {
+        if(bufferCount < 2) throw new IllegalArgumentException("At least 2 buffers are required");
+        
+        this.bufferCount = bufferCount;
+    }
+
+    public SyncPolicy getSyncPolicy()
+    {
+        return syncPolicy;
+    }
+
+    public void setSyncPolicy(SyncPolicy syncPolicy)
+    {
+        this.syncPolicy = syncPolicy;
+    }
+    
+    @Override
+    public OutputStream getOutputStream()
+    {
+        try
+        {
+            return new AsyncOutputStream(FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        }
+        catch(IOException e) { throw new ConvirganceException(e); }
+    }
+    
+    private class AsyncOutputStream extends OutputStream
+    {
+        // Marks the end of the stream in the queue of filled buffers
+        private final ByteBuffer END = ByteBuffer.allocate(0);
+        
+        private final FileChannel channel;
+        private final SyncPolicy syncPolicy = AsyncFileTarget.this.syncPolicy;
+        private final ArrayBlockingQueue<ByteBuffer> free;
+        private final ArrayBlockingQueue<ByteBuffer> filled;
+        private final Thread writer;
+        
+        private volatile IOException error;
+        private ByteBuffer buffer;
+        private boolean closed;
+
+        public AsyncOutputStream(FileChannel channel)
+        {
+            this.channel = channel;
+            this.free = new ArrayBlockingQueue<>(bufferCount);
+            this.filled = new ArrayBlockingQueue<>(bufferCount + 1);
+            
+            for(int i=0; i<bufferCount; i++) free.add(ByteBuffer.allocateDirect(bufferSize));
+            
+            this.writer = new Thread(new Runnable() {
+                @Override
+                public void run()
+                {
+                    drain();
+                }
+            }, "Convirgance Writer (" + file.getName() + ")");
+            
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+        
+        private void drain()
+        {
+            ByteBuffer buffer;
+            
+            try
+            {
+                while((buffer = filled.take()) != END)
+                {
+                    try
+                    {
+                        // Keep recycling buffers after an error so the producer never blocks
+                        if(error == null)
+                        {
+                            while(buffer.hasRemaining()) channel.write(buffer);
+                            
+                            if(syncPolicy == SyncPolicy.BUFFER) channel.force(false);
+                        }
+                    }
+                    catch(IOException e)
+                    {
+                        error = e;
+                    }
+                    
+                    buffer.clear();
+                    free.put(buffer);
+                }
+            }
+            catch(InterruptedException e)
+            {
+                error = new InterruptedIOException("Writer thread was interrupted");
+            }
+        }
+        
+        private void check() throws IOException
+        {
+            if(closed) throw new IOException("Stream is closed");
+            if(error != null) throw new IOException("Asynchronous write to " + file + " failed", error);
+        }
+        
+        private void acquire() throws IOException
+        {
+            try
+            {
+                if(buffer == null) buffer = free.take();
+            }
+            catch(InterruptedException e)
+            {
+                throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+            }
+        }
+        
+        private void handoff() throws IOException
+        {
+            if(buffer == null || buffer.position() == 0) return;
+            
+            buffer.flip();
+            
+            try
+            {
+                filled.put(buffer);
+            }
+            catch(InterruptedException e)
+            {
+                throw new InterruptedIOException("Interrupted while queuing a buffer");
+            }
+            
+            buffer = null;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            check();
+            acquire();
+            
+            buffer.put((byte)b);
+            
+            if(!buffer.hasRemaining()) handoff();
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException
+        {
+            int size;
+            
+            check();
+            
+            while(length > 0)
+            {
+                acquire();
+                
+                size = Math.min(length, buffer.remaining());
+                
+                buffer.put(data, offset, size);
+                
+                offset += size;
+                length -= size;
+                
+                if(!buffer.hasRemaining()) handoff();
+            }
+        }
+
+        /**
+         * Queues any buffered data for writing. Does not wait for the data to
+         * reach the file.
+         */
+        @Override
+        public void flush() throws IOException
+        {
+            check();
+            handoff();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if(closed) return;
+            
+            try
+            {
+                if(error == null) handoff();
+                
+                filled.put(END);
+                writer.join();
+                
+                if(error == null && syncPolicy != SyncPolicy.NONE) channel.force(true);
+            }
+            catch(InterruptedException e)
+            {
+                throw new InterruptedIOException("Interrupted while waiting for writes to complete");
+            }
+            finally
+            {
+                closed = true;
+                
+                channel.close();
+            }
+            
+            if(error != null) throw new IOException("Asynchronous write to " + file + " failed", error);
+        }
+    }
+}
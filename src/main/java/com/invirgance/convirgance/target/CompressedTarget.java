@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.target;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.codec.Codec;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses the data written to another Target using a {@link Codec}. Allows
+ * any Output to write compressed files.
+ *
+ * @author jbanes
+ */
+public class CompressedTarget implements Target
+{
+    private final Target target;
+    private final Codec codec;
+
+    public CompressedTarget(Target target, Codec codec)
+    {
+        this.target = target;
+        this.codec = codec;
+    }
+
+    public Target getTarget()
+    {
+        return target;
+    }
+
+    public Codec getCodec()
+    {
+        return codec;
+    }
+
+    @Override
+    public OutputStream getOutputStream()
+    {
+        try
+        {
+            return codec.compress(target.getOutputStream());
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException(e);
+        }
+    }
+
+    @Override
+    public boolean isReusable()
+    {
+        return target.isReusable();
+    }
+
+    @Override
+    public boolean isUsed()
+    {
+        return target.isUsed();
+    }
+}
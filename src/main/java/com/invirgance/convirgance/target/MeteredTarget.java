@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.target;
+
+import com.invirgance.convirgance.metrics.Counter;
+import com.invirgance.convirgance.metrics.Metrics;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes written to another Target in the <code>name.bytes</code>
+ * counter and the time spent blocked in writes in <code>name.time</code> 
+ * in nanoseconds. Passes the stream through untouched when 
+ * {@link Metrics} are disabled.
+ *
+ * @author jbanes
+ */
+public class MeteredTarget implements Target
+{
+    private final Target target;
+    private final String name;
+
+    public MeteredTarget(Target target, String name)
+    {
+        this.target = target;
+        this.name = name;
+    }
+
+    public Target getTarget()
+    {
+        return target;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public OutputStream getOutputStream()
+    {
+        final Counter bytes;
+        final Counter time;
+        
+        if(!Metrics.isEnabled()) return target.getOutputStream();
+        
+        bytes = Metrics.counter(name + ".bytes");
+        time = Metrics.counter(name + ".time");
+        
+        return new FilterOutputStream(target.getOutputStream()) {
+            @Override
+            public void write(int b) throws IOException
+            {
+                long start = System.nanoTime();
+                
+                out.write(b);
+                
+                time.add(System.nanoTime() - start);
+                bytes.increment();
+            }
+
+            @Override
+            public void write(byte[] data, int offset, int length) throws IOException
+            {
+                long start = System.nanoTime();
+                
+                out.write(data, offset, length);
+                
+                time.add(System.nanoTime() - start);
+                bytes.add(length);
+            }
+
+            @Override
+            public void flush() throws IOException
+            {
+                long start = System.nanoTime();
+                
+                out.flush();
+                
+                time.add(System.nanoTime() - start);
+            }
+        };
+    }
+
+    @Override
+    public boolean isReusable()
+    {
+        return target.isReusable();
+    }
+
+    @Override
+    public boolean isUsed()
+    {
+        return target.isUsed();
+    }
+}
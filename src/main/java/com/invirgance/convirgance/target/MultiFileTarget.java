@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.target;
+
+import java.io.File;
+import java.io.OutputStream;
+
+/**
+ * Represents a set of numbered part files in a directory. File names are 
+ * produced by formatting the part number with a pattern such as 
+ * <code>part-%05d.bson</code>. 
+ * 
+ * Writing this target directly produces a single part file. Use 
+ * {@link com.invirgance.convirgance.output.MultiFileOutput} to roll output 
+ * across files or to partition it into shards.
+ *
+ * @author jbanes
+ */
+public class MultiFileTarget implements Target
+{
+    private final File directory;
+    private final String pattern;
+
+    public MultiFileTarget(File directory)
+    {
+        this(directory, "part-%05d");
+    }
+    
+    public MultiFileTarget(File directory, String pattern)
+    {
+        this.directory = directory;
+        this.pattern = pattern;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    public String getPattern()
+    {
+        return pattern;
+    }
+    
+    public File getFile(int index)
+    {
+        return new File(directory, String.format(pattern, index));
+    }
+    
+    public Target getTarget(int index)
+    {
+        return new FileTarget(getFile(index));
+    }
+
+    @Override
+    public OutputStream getOutputStream()
+    {
+        directory.mkdirs();
+        
+        return getTarget(0).getOutputStream();
+    }
+}
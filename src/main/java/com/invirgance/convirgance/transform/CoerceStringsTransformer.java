@@ -22,6 +22,9 @@ SOFTWARE.
 package com.invirgance.convirgance.transform;
 
 import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.batch.Column;
+import com.invirgance.convirgance.batch.RecordBatch;
+import com.invirgance.convirgance.batch.StringColumn;
 import com.invirgance.convirgance.json.JSONObject;
 import java.util.*;
 
@@ -31,6 +34,16 @@ import java.util.*;
  * respectively. The types to be coerced and the columns can be customized as
  * needed.
  * 
+ * When a sample size is set, the first records of each stream are used to
+ * infer a single type for every key. Sampled values that cannot be coerced,
+ * such as "N/A", are ignored unless they are the majority for the key. The 
+ * remaining values are then parsed directly as the inferred type, without 
+ * trial parsing. Only values that do not fit the inferred type fall back to
+ * the per-value rules above. Keys where most sampled values cannot be 
+ * coerced are left as strings. Note that this 
+ * keeps types consistent within a key, so "5" in a key inferred as Double is
+ * coerced to 5.0 rather than the Integer 5.
+ * 
  * @author jbanes
  */
 public class CoerceStringsTransformer implements IdentityTransformer
@@ -41,6 +54,8 @@ public class CoerceStringsTransformer implements IdentityTransformer
     
     private Set<String> included;
     private Set<String> excluded;
+    
+    private int sampleSize;
 
     public CoerceStringsTransformer()
     {
@@ -58,7 +73,8 @@ public class CoerceStringsTransformer implements IdentityTransformer
         this.doubles = doubles;
         this.integers = integers;
         
-        
+        setIncluded(included);
+        setExcluded(excluded);
     }
     
     public boolean isBooleans()
@@ -93,11 +109,15 @@ public class CoerceStringsTransformer implements IdentityTransformer
 
     public String[] getIncluded()
     {
+        if(included == null) return null;
+        
         return included.toArray(String[]::new);
     }
 
     public String[] getExcluded()
     {
+        if(excluded == null) return null;
+        
         return excluded.toArray(String[]::new);
     }
 
@@ -113,6 +133,30 @@ public class CoerceStringsTransformer implements IdentityTransformer
         else this.excluded = new HashSet<>(Arrays.asList(excluded));
     }
     
+    public int getSampleSize()
+    {
+        return sampleSize;
+    }
+
+    /**
+     * Sets the number of records used to infer the type of each key. Zero
+     * (the default) disables inference and coerces each value on its own.
+     * 
+     * @param sampleSize number of records to sample
+     */
+    public void setSampleSize(int sampleSize)
+    {
+        this.sampleSize = sampleSize;
+    }
+    
+    private boolean isCoerced(String key)
+    {
+        if(included != null && !included.contains(key)) return false;
+        if(excluded != null && excluded.contains(key)) return false;
+        
+        return true;
+    }
+    
     public Object coerce(String value)
     {
         char c;
@@ -163,12 +207,288 @@ public class CoerceStringsTransformer implements IdentityTransformer
         {
             if(entry.getValue() == null) continue;
             if(!(entry.getValue() instanceof String)) continue;
-            if(included != null && !included.contains(entry.getKey())) continue;
-            if(excluded != null && excluded.contains(entry.getKey())) continue;
+            if(!isCoerced(entry.getKey())) continue;
             
             entry.setValue(coerce((String)entry.getValue()));
         }
         
         return record;
     }
+    
+    // Types that can be inferred for a key, as bits so samples can be combined
+    private static final int TYPE_STRING = 0x00;
+    private static final int TYPE_BOOLEAN = 0x01;
+    private static final int TYPE_INTEGER = 0x02;
+    private static final int TYPE_LONG = 0x04;
+    private static final int TYPE_DOUBLE = 0x08;
+    
+    /**
+     * Strict check for an integer that is guaranteed to fit in a long
+     */
+    private static boolean isInteger(String value)
+    {
+        int start = (value.charAt(0) == '-') ? 1 : 0;
+        
+        if(value.length() <= start || value.length() - start > 18) return false;
+        
+        for(int i=start; i<value.length(); i++)
+        {
+            if(value.charAt(i) < '0' || value.charAt(i) > '9') return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Strict check for a decimal number in the form -123.456e-7
+     */
+    private static boolean isDecimal(String value)
+    {
+        boolean point = false;
+        boolean digits = false;
+        int index = (value.charAt(0) == '-') ? 1 : 0;
+        char c;
+        
+        for(; index<value.length(); index++)
+        {
+            c = value.charAt(index);
+            
+            if(c >= '0' && c <= '9') digits = true;
+            else if(c == '.' && !point) point = true;
+            else break;
+        }
+        
+        if(!point || !digits) return false;
+        if(index == value.length()) return true;
+        
+        c = value.charAt(index++);
+        
+        if(c != 'e' && c != 'E') return false;
+        if(index < value.length() && (value.charAt(index) == '-' || value.charAt(index) == '+')) index++;
+        if(index >= value.length()) return false;
+        
+        for(; index<value.length(); index++)
+        {
+            c = value.charAt(index);
+            
+            if(c < '0' || c > '9') return false;
+        }
+        
+        return true;
+    }
+    
+    private int classify(String value)
+    {
+        long number;
+        
+        if(booleans && (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false"))) return TYPE_BOOLEAN;
+        
+        if(isInteger(value))
+        {
+            if(!integers) return TYPE_STRING;
+            
+            number = Long.parseLong(value);
+            
+            if(number == (int)number) return TYPE_INTEGER | TYPE_LONG | (doubles ? TYPE_DOUBLE : 0);
+            
+            return TYPE_LONG | (doubles ? TYPE_DOUBLE : 0);
+        }
+        
+        if(doubles && isDecimal(value)) return TYPE_DOUBLE;
+        
+        return TYPE_STRING;
+    }
+    
+    private Map<String,Integer> infer(List<JSONObject> records)
+    {
+        Map<String,Integer> masks = new HashMap<>();
+        Map<String,Integer> typed = new HashMap<>();
+        Map<String,Integer> untyped = new HashMap<>();
+        Map<String,Integer> plan = new HashMap<>();
+        Object value;
+        int mask;
+        int type;
+        
+        for(JSONObject record : records)
+        {
+            for(Map.Entry<String,Object> entry : record.entrySet())
+            {
+                value = entry.getValue();
+                
+                if(!(value instanceof String) || ((String)value).length() < 1) continue;
+                if(!isCoerced(entry.getKey())) continue;
+                
+                type = classify((String)value);
+                
+                // Outliers like "N/A" should not prevent the rest from being typed
+                if(type == TYPE_STRING)
+                {
+                    untyped.merge(entry.getKey(), 1, Integer::sum);
+                    continue;
+                }
+                
+                mask = masks.getOrDefault(entry.getKey(), -1);
+                
+                masks.put(entry.getKey(), mask & type);
+                typed.merge(entry.getKey(), 1, Integer::sum);
+            }
+        }
+        
+        for(String key : untyped.keySet()) plan.put(key, TYPE_STRING);
+        
+        for(Map.Entry<String,Integer> entry : masks.entrySet())
+        {
+            mask = entry.getValue();
+            
+            if(typed.get(entry.getKey()) <= untyped.getOrDefault(entry.getKey(), 0)) plan.put(entry.getKey(), TYPE_STRING);
+            else if((mask & TYPE_BOOLEAN) != 0) plan.put(entry.getKey(), TYPE_BOOLEAN);
+            else if((mask & TYPE_INTEGER) != 0) plan.put(entry.getKey(), TYPE_INTEGER);
+            else if((mask & TYPE_LONG) != 0) plan.put(entry.getKey(), TYPE_LONG);
+            else if((mask & TYPE_DOUBLE) != 0) plan.put(entry.getKey(), TYPE_DOUBLE);
+            else plan.put(entry.getKey(), TYPE_STRING);
+        }
+        
+        return plan;
+    }
+    
+    private Object coerce(String value, int type)
+    {
+        long number;
+        
+        if(value.length() < 1) return value;
+        
+        switch(type)
+        {
+            case TYPE_BOOLEAN:
+                if(value.equalsIgnoreCase("true")) return true;
+                if(value.equalsIgnoreCase("false")) return false;
+                break;
+                
+            case TYPE_INTEGER:
+                if(!isInteger(value)) break;
+                
+                number = Long.parseLong(value);
+                
+                if(number == (int)number) return (int)number;
+                break;
+                
+            case TYPE_LONG:
+                if(isInteger(value)) return Long.parseLong(value);
+                break;
+                
+            case TYPE_DOUBLE:
+                if(isInteger(value) || isDecimal(value)) return Double.parseDouble(value);
+                break;
+        }
+        
+        // Value does not fit the inferred type
+        return coerce(value);
+    }
+    
+    private JSONObject transform(JSONObject record, Map<String,Integer> plan)
+    {
+        Integer type;
+        
+        for(Map.Entry<String,Object> entry : record.entrySet())
+        {
+            if(!(entry.getValue() instanceof String)) continue;
+            
+            type = plan.get(entry.getKey());
+            
+            if(type == null)
+            {
+                if(isCoerced(entry.getKey())) entry.setValue(coerce((String)entry.getValue()));
+            }
+            else if(type != TYPE_STRING)
+            {
+                entry.setValue(coerce((String)entry.getValue(), type));
+            }
+        }
+        
+        return record;
+    }
+
+    @Override
+    public Iterator<JSONObject> transform(Iterator<JSONObject> iterator) throws ConvirganceException
+    {
+        final int sampleSize = this.sampleSize;
+        
+        if(sampleSize < 1) return IdentityTransformer.super.transform(iterator);
+        
+        return new Iterator<JSONObject>() {
+            
+            private Iterator<JSONObject> sample;
+            private Map<String,Integer> plan;
+            
+            private void load()
+            {
+                List<JSONObject> records = new ArrayList<>();
+                
+                if(plan != null) return;
+                
+                while(records.size() < sampleSize && iterator.hasNext()) records.add(iterator.next());
+                
+                plan = infer(records);
+                sample = records.iterator();
+            }
+            
+            @Override
+            public boolean hasNext()
+            {
+                load();
+                
+                return (sample.hasNext() || iterator.hasNext());
+            }
+
+            @Override
+            public JSONObject next()
+            {
+                load();
+                
+                if(sample.hasNext()) return transform(sample.next(), plan);
+                
+                return transform(iterator.next(), plan);
+            }
+        };
+    }
+    
+    private Column coerce(StringColumn column)
+    {
+        Object[] values = new Object[column.getEntryCount()];
+        Column result;
+        
+        // Dictionary encoding means each distinct value only needs coercion once
+        for(int i=0; i<values.length; i++) values[i] = coerce(column.getEntry(i));
+        
+        result = Column.create(column.getKey(), column.getCapacity(), (values.length > 0) ? values[0] : null);
+        
+        for(int row=0; row<column.size(); row++)
+        {
+            if(column.isAbsent(row)) result.addAbsent();
+            else if(column.isNull(row)) result.add(null);
+            else result = Column.append(result, values[column.getCode(row)]);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Coerces each string column of the batch in a single pass over the
+     * column rather than record by record.
+     * 
+     * @param batch the batch to transform
+     * @return the same batch with string columns replaced by typed columns
+     */
+    public RecordBatch transform(RecordBatch batch) throws ConvirganceException
+    {
+        for(Column column : batch.getColumns())
+        {
+            if(!(column instanceof StringColumn)) continue;
+            if(!isCoerced(column.getKey())) continue;
+            
+            batch.setColumn(coerce((StringColumn)column));
+        }
+        
+        return batch;
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.transform.expression.ExpressionCompiler;
+import java.util.LinkedHashMap;
+
+/**
+ * Computes keys from expressions, using the language described in 
+ * {@link ExpressionCompiler}. Expressions are checked when they are added. 
+ * All of the expressions are then compiled together into one generated 
+ * transformer class when the first record is transformed.
+ * 
+ * All expressions see the record as it was before the transformer ran, so 
+ * the order of the expressions does not matter. By default the results are
+ * added to the record. In projection mode a new record is produced that only
+ * contains the computed keys, which allows keys to be renamed or dropped.
+ *
+ * @author jbanes
+ */
+public class ExpressionTransformer implements IdentityTransformer
+{
+    private final LinkedHashMap<String,String> expressions = new LinkedHashMap<>();
+    private volatile IdentityTransformer compiled;
+    
+    private boolean projection;
+
+    public ExpressionTransformer()
+    {
+        this(false);
+    }
+
+    public ExpressionTransformer(boolean projection)
+    {
+        this.projection = projection;
+    }
+
+    public boolean isProjection()
+    {
+        return projection;
+    }
+
+    public void setProjection(boolean projection)
+    {
+        this.projection = projection;
+        this.compiled = null;
+    }
+    
+    public String[] getKeys()
+    {
+        return expressions.keySet().toArray(String[]::new);
+    }
+    
+    public String getExpression(String key)
+    {
+        return expressions.get(key);
+    }
+    
+    /**
+     * Sets the expression used to compute the key, replacing any previous
+     * expression for the same key.
+     * 
+     * @param key the key to store the result under
+     * @param expression the expression to compile
+     * @throws ConvirganceException if the expression is invalid
+     */
+    public void put(String key, String expression) throws ConvirganceException
+    {
+        new ExpressionCompiler().validate(expression);
+        
+        expressions.put(key, expression);
+        
+        this.compiled = null;
+    }
+
+    @Override
+    public JSONObject transform(JSONObject record) throws ConvirganceException
+    {
+        IdentityTransformer compiled = this.compiled;
+        
+        if(compiled == null)
+        {
+            compiled = new ExpressionCompiler().compileTransformer(expressions, projection);
+            this.compiled = compiled;
+        }
+        
+        return compiled.transform(record);
+    }
+}
@@ -0,0 +1,732 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.expression;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the class files for compiled expressions. Only the small part of the
+ * class file format used by {@link ExpressionCompiler} is supported: constants,
+ * static fields, and methods made of loads, stores, calls, and forward jumps.
+ * 
+ * Stack map frames are computed from the types tracked while the code is
+ * emitted. This requires that every local is assigned before the first jump
+ * and that jumps only go forward. Reference types that differ between the
+ * paths joining at a label are merged to Object.
+ *
+ * @author jbanes
+ */
+class ClassBuilder
+{
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    
+    private static final int ACC_SUPER = 0x0020;
+    
+    // Java 21 class files
+    private static final int VERSION = 65;
+    
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream(pool);
+    private final Map<String,Integer> indexes = new HashMap<>();
+    private int count = 1;
+    
+    private final String name;
+    private final int type;
+    private final int parent;
+    private final int[] interfaces;
+    
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<Code> methods = new ArrayList<>();
+    
+    /**
+     * Starts a new public final class
+     * 
+     * @param name internal name of the class (e.g. <code>java/lang/Object</code>)
+     * @param parent internal name of the super class
+     * @param interfaces internal names of the implemented interfaces
+     */
+    public ClassBuilder(String name, String parent, String... interfaces)
+    {
+        this.name = name;
+        this.type = getClass(name);
+        this.parent = getClass(parent);
+        this.interfaces = new int[interfaces.length];
+        
+        for(int i=0; i<interfaces.length; i++) this.interfaces[i] = getClass(interfaces[i]);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+    
+    private int add(String key, int size, int tag, Object... values)
+    {
+        Integer index = indexes.get(key);
+        
+        if(index != null) return index;
+        
+        if(count + size > 0xFFFF) throw new ConvirganceException("Expression is too large to compile");
+        
+        try
+        {
+            constants.writeByte(tag);
+            
+            for(Object value : values)
+            {
+                if(value instanceof String) constants.writeUTF((String)value);
+                else if(value instanceof Long) constants.writeLong((Long)value);
+                else if(value instanceof Double) constants.writeDouble((Double)value);
+                else if(tag == CONSTANT_INTEGER) constants.writeInt((Integer)value);
+                else constants.writeShort((Integer)value);
+            }
+        }
+        catch(IOException e)
+        {
+            // Strings over 64K bytes can't be stored in a class file
+            throw new ConvirganceException("Expression is too large to compile", e);
+        }
+        
+        index = count;
+        count += size;
+        
+        indexes.put(key, index);
+        
+        return index;
+    }
+    
+    private int getUTF8(String value)
+    {
+        return add("U" + value, 1, CONSTANT_UTF8, value);
+    }
+    
+    int getClass(String name)
+    {
+        return add("C" + name, 1, CONSTANT_CLASS, getUTF8(name));
+    }
+    
+    int getString(String value)
+    {
+        return add("S" + value, 1, CONSTANT_STRING, getUTF8(value));
+    }
+    
+    int getInteger(int value)
+    {
+        return add("I" + value, 1, CONSTANT_INTEGER, value);
+    }
+    
+    int getLong(long value)
+    {
+        return add("J" + value, 2, CONSTANT_LONG, value);
+    }
+    
+    int getDouble(double value)
+    {
+        return add("D" + Double.doubleToRawLongBits(value), 2, CONSTANT_DOUBLE, value);
+    }
+    
+    private int getNameAndType(String name, String descriptor)
+    {
+        return add("N" + name + ":" + descriptor, 1, CONSTANT_NAME_AND_TYPE, getUTF8(name), getUTF8(descriptor));
+    }
+    
+    int getField(String owner, String name, String descriptor)
+    {
+        return add("F" + owner + "." + name + ":" + descriptor, 1, CONSTANT_FIELDREF, getClass(owner), getNameAndType(name, descriptor));
+    }
+    
+    int getMethod(String owner, String name, String descriptor, boolean interfaceMethod)
+    {
+        if(interfaceMethod) return add("T" + owner + "." + name + ":" + descriptor, 1, CONSTANT_INTERFACE_METHODREF, getClass(owner), getNameAndType(name, descriptor));
+        
+        return add("M" + owner + "." + name + ":" + descriptor, 1, CONSTANT_METHODREF, getClass(owner), getNameAndType(name, descriptor));
+    }
+    
+    public void addField(int access, String name, String descriptor)
+    {
+        ByteArrayOutputStream field = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(field);
+        
+        try
+        {
+            out.writeShort(access);
+            out.writeShort(getUTF8(name));
+            out.writeShort(getUTF8(descriptor));
+            out.writeShort(0);
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException(e);
+        }
+        
+        fields.add(field.toByteArray());
+    }
+    
+    /**
+     * Adds a method. The types of the locals are fixed for the whole method.
+     * Instance methods must include the type of <code>this</code> as the first
+     * local.
+     * 
+     * @param access the access flags of the method
+     * @param name the method name
+     * @param descriptor the method descriptor
+     * @param locals the verification type of each local
+     * @return the code of the method
+     */
+    public Code addMethod(int access, String name, String descriptor, String... locals)
+    {
+        Code code = new Code(this, access, name, descriptor, locals);
+        
+        methods.add(code);
+        
+        return code;
+    }
+    
+    public byte[] toByteArray()
+    {
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(members);
+        
+        try
+        {
+            // Members are written first since they add to the constant pool
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(type);
+            out.writeShort(parent);
+            out.writeShort(interfaces.length);
+            
+            for(int index : interfaces) out.writeShort(index);
+            
+            out.writeShort(fields.size());
+            
+            for(byte[] field : fields) out.write(field);
+            
+            out.writeShort(methods.size());
+            
+            for(Code method : methods) method.write(out);
+            
+            out.writeShort(0);
+            
+            out = new DataOutputStream(data);
+            
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(count);
+            
+            pool.writeTo(out);
+            members.writeTo(out);
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException(e);
+        }
+        
+        return data.toByteArray();
+    }
+    
+    /**
+     * A position in the code that can be jumped to
+     */
+    static class Label
+    {
+        private final List<Integer> sources = new ArrayList<>();
+        private String[] stack;
+        private int position = -1;
+    }
+    
+    /**
+     * Emits the bytecode of a method while tracking the types on the operand
+     * stack.
+     */
+    static class Code
+    {
+        static final int IFEQ = 0x99;
+        static final int IFNE = 0x9A;
+        static final int GOTO = 0xA7;
+        static final int IFNULL = 0xC6;
+        static final int IFNONNULL = 0xC7;
+        
+        private static final String OBJECT = "java/lang/Object";
+        
+        private final ClassBuilder owner;
+        private final int access;
+        private final int name;
+        private final int descriptor;
+        private final String[] locals;
+        
+        private final List<String> stack = new ArrayList<>();
+        private final Map<Integer,String[]> frames = new TreeMap<>();
+        private byte[] code = new byte[64];
+        private int length;
+        private int size;
+        private int maxStack;
+        private boolean reachable = true;
+
+        private Code(ClassBuilder owner, int access, String name, String descriptor, String[] locals)
+        {
+            this.owner = owner;
+            this.access = access;
+            this.name = owner.getUTF8(name);
+            this.descriptor = owner.getUTF8(descriptor);
+            this.locals = locals;
+        }
+        
+        private static int getWidth(String type)
+        {
+            return (type.equals("J") || type.equals("D")) ? 2 : 1;
+        }
+        
+        private static boolean isReference(String type)
+        {
+            return (type.length() > 1);
+        }
+        
+        // Converts a field descriptor to the type tracked on the stack
+        private static String getType(String descriptor)
+        {
+            switch(descriptor.charAt(0))
+            {
+                case 'Z':
+                case 'B':
+                case 'C':
+                case 'S':
+                case 'I':
+                    return "I";
+                    
+                case 'L':
+                    return descriptor.substring(1, descriptor.length() - 1);
+                    
+                default:
+                    return descriptor;
+            }
+        }
+        
+        private static List<String> getParameters(String descriptor)
+        {
+            List<String> parameters = new ArrayList<>();
+            int index = 1;
+            int start;
+            
+            while(descriptor.charAt(index) != ')')
+            {
+                start = index;
+                
+                while(descriptor.charAt(index) == '[') index++;
+                
+                if(descriptor.charAt(index) == 'L') index = descriptor.indexOf(';', index);
+                
+                parameters.add(getType(descriptor.substring(start, ++index)));
+            }
+            
+            return parameters;
+        }
+        
+        private void emit(int value)
+        {
+            if(length == code.length) code = Arrays.copyOf(code, length * 2);
+            
+            code[length++] = (byte)value;
+        }
+        
+        private void emitShort(int value)
+        {
+            emit(value >> 8);
+            emit(value);
+        }
+        
+        private void push(String type)
+        {
+            if(!reachable) throw new IllegalStateException("Unreachable code");
+            
+            stack.add(type);
+            
+            size += getWidth(type);
+            maxStack = Math.max(maxStack, size);
+        }
+        
+        private String pop()
+        {
+            String type = stack.remove(stack.size() - 1);
+            
+            size -= getWidth(type);
+            
+            return type;
+        }
+        
+        private void setStack(String[] types)
+        {
+            stack.clear();
+            size = 0;
+            
+            for(String type : types) push(type);
+        }
+        
+        private String[] merge(String[] left, String[] right)
+        {
+            String[] merged = new String[left.length];
+            
+            if(left.length != right.length) throw new IllegalStateException("Stack depth differs at label");
+            
+            for(int i=0; i<left.length; i++)
+            {
+                if(left[i].equals(right[i])) merged[i] = left[i];
+                else if(isReference(left[i]) && isReference(right[i])) merged[i] = OBJECT;
+                else throw new IllegalStateException("Stack types differ at label");
+            }
+            
+            return merged;
+        }
+        
+        private void emitLocal(int opcode, int shortcut, int index)
+        {
+            if(index < 4)
+            {
+                emit(shortcut + index);
+            }
+            else if(index < 256)
+            {
+                emit(opcode);
+                emit(index);
+            }
+            else
+            {
+                emit(0xC4); // wide
+                emit(opcode);
+                emitShort(index);
+            }
+        }
+        
+        public void load(int index)
+        {
+            push(locals[index]);
+            emitLocal(0x19, 0x2A, index);
+        }
+        
+        public void store(int index)
+        {
+            pop();
+            emitLocal(0x3A, 0x4B, index);
+        }
+        
+        public void pushNull()
+        {
+            push(OBJECT);
+            emit(0x01);
+        }
+        
+        public void pushInt(int value)
+        {
+            push("I");
+            
+            if(value >= -1 && value <= 5)
+            {
+                emit(0x03 + value);
+            }
+            else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            {
+                emit(0x10);
+                emit(value);
+            }
+            else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            {
+                emit(0x11);
+                emitShort(value);
+            }
+            else
+            {
+                emitConstant(owner.getInteger(value));
+            }
+        }
+        
+        public void pushLong(long value)
+        {
+            push("J");
+            emit(0x14);
+            emitShort(owner.getLong(value));
+        }
+        
+        public void pushDouble(double value)
+        {
+            push("D");
+            emit(0x14);
+            emitShort(owner.getDouble(value));
+        }
+        
+        public void pushString(String value)
+        {
+            push("java/lang/String");
+            emitConstant(owner.getString(value));
+        }
+        
+        private void emitConstant(int index)
+        {
+            if(index < 256)
+            {
+                emit(0x12);
+                emit(index);
+            }
+            else
+            {
+                emit(0x13);
+                emitShort(index);
+            }
+        }
+        
+        public void dup()
+        {
+            String type = pop();
+            
+            push(type);
+            push(type);
+            emit(0x59);
+        }
+        
+        public void discard()
+        {
+            pop();
+            emit(0x57);
+        }
+        
+        public void xor()
+        {
+            pop();
+            pop();
+            push("I");
+            emit(0x82);
+        }
+        
+        public void newInstance(String type)
+        {
+            push(type);
+            emit(0xBB);
+            emitShort(owner.getClass(type));
+        }
+        
+        public void getStatic(String owner, String name, String descriptor)
+        {
+            push(getType(descriptor));
+            emit(0xB2);
+            emitShort(this.owner.getField(owner, name, descriptor));
+        }
+        
+        public void putStatic(String owner, String name, String descriptor)
+        {
+            pop();
+            emit(0xB3);
+            emitShort(this.owner.getField(owner, name, descriptor));
+        }
+        
+        private void invoke(int opcode, String owner, String name, String descriptor, boolean instance, boolean interfaceMethod)
+        {
+            String result = descriptor.substring(descriptor.indexOf(')') + 1);
+            
+            for(String parameter : getParameters(descriptor)) pop();
+            
+            if(instance) pop();
+            if(!result.equals("V")) push(getType(result));
+            
+            emit(opcode);
+            emitShort(this.owner.getMethod(owner, name, descriptor, interfaceMethod));
+        }
+        
+        public void invokeStatic(String owner, String name, String descriptor)
+        {
+            invoke(0xB8, owner, name, descriptor, false, false);
+        }
+        
+        public void invokeVirtual(String owner, String name, String descriptor)
+        {
+            invoke(0xB6, owner, name, descriptor, true, false);
+        }
+        
+        public void invokeSpecial(String owner, String name, String descriptor)
+        {
+            invoke(0xB7, owner, name, descriptor, true, false);
+        }
+        
+        public void returnValue()
+        {
+            String type = pop();
+            
+            if(type.equals("I")) emit(0xAC);
+            else emit(0xB0);
+            
+            reachable = false;
+        }
+        
+        public void returnVoid()
+        {
+            emit(0xB1);
+            
+            reachable = false;
+        }
+        
+        public Label newLabel()
+        {
+            return new Label();
+        }
+        
+        public void jump(int opcode, Label label)
+        {
+            String[] types;
+            
+            if(label.position >= 0) throw new IllegalStateException("Only forward jumps are supported");
+            
+            if(opcode != GOTO) pop();
+            
+            types = stack.toArray(String[]::new);
+            label.stack = (label.stack == null) ? types : merge(label.stack, types);
+            label.sources.add(length);
+            
+            emit(opcode);
+            emitShort(0);
+            
+            if(opcode == GOTO) reachable = false;
+        }
+        
+        public void place(Label label)
+        {
+            String[] types;
+            int offset;
+            
+            if(label.stack == null) throw new IllegalStateException("Label is never jumped to");
+            
+            types = reachable ? merge(label.stack, stack.toArray(String[]::new)) : label.stack;
+            label.position = length;
+            reachable = true;
+            
+            setStack(types);
+            
+            for(int source : label.sources)
+            {
+                offset = length - source;
+                
+                if(offset > Short.MAX_VALUE) throw new ConvirganceException("Expression is too large to compile");
+                
+                code[source + 1] = (byte)(offset >> 8);
+                code[source + 2] = (byte)offset;
+            }
+            
+            // Labels placed at the same position merge into one frame
+            frames.put(length, stack.toArray(String[]::new));
+        }
+        
+        private void writeType(String type, DataOutputStream out) throws IOException
+        {
+            switch(type)
+            {
+                case "I": out.writeByte(1); break;
+                case "F": out.writeByte(2); break;
+                case "D": out.writeByte(3); break;
+                case "J": out.writeByte(4); break;
+                
+                default:
+                    out.writeByte(7);
+                    out.writeShort(owner.getClass(type));
+            }
+        }
+        
+        private byte[] getFrames() throws IOException
+        {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(data);
+            int previous = -1;
+            
+            out.writeShort(frames.size());
+            
+            for(Map.Entry<Integer,String[]> frame : frames.entrySet())
+            {
+                out.writeByte(255); // full_frame
+                out.writeShort(frame.getKey() - previous - 1);
+                out.writeShort(locals.length);
+                
+                for(String type : locals) writeType(type, out);
+                
+                out.writeShort(frame.getValue().length);
+                
+                for(String type : frame.getValue()) writeType(type, out);
+                
+                previous = frame.getKey();
+            }
+            
+            return data.toByteArray();
+        }
+        
+        private void write(DataOutputStream out) throws IOException
+        {
+            byte[] frames = this.frames.isEmpty() ? null : getFrames();
+            int attribute = 12 + length + ((frames != null) ? 6 + frames.length : 0);
+            
+            if(reachable) throw new IllegalStateException("Method does not return");
+            if(length > 0xFFFF) throw new ConvirganceException("Expression is too large to compile");
+            
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            
+            out.writeShort(owner.getUTF8("Code"));
+            out.writeInt(attribute);
+            out.writeShort(maxStack);
+            out.writeShort(locals.length);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(0);
+            
+            if(frames == null)
+            {
+                out.writeShort(0);
+                return;
+            }
+            
+            out.writeShort(1);
+            out.writeShort(owner.getUTF8("StackMapTable"));
+            out.writeInt(frames.length);
+            out.write(frames);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.expression;
+
+import com.invirgance.convirgance.json.JSONObject;
+
+/**
+ * A compiled expression that computes a value from a record. Expressions are
+ * produced by {@link ExpressionCompiler} as generated classes whose evaluate()
+ * method contains the whole expression, so the JIT can inline everything 
+ * evaluated for a record.
+ * 
+ * Expressions hold no per-record state and may be shared between threads.
+ *
+ * @author jbanes
+ */
+public abstract class Expression
+{
+    /**
+     * Computes the value of the expression for the record
+     * 
+     * @param record the record to read fields from
+     * @return the computed value. May be null.
+     */
+    public abstract Object evaluate(JSONObject record);
+    
+    /**
+     * Constant expressions do not depend on the record and can be evaluated
+     * once at compile time.
+     * 
+     * @return true if the result never changes
+     */
+    public abstract boolean isConstant();
+    
+    /**
+     * Only Boolean.TRUE is considered true. Null and all other values are 
+     * false.
+     * 
+     * @param value the value to test
+     * @return true if the value is Boolean.TRUE
+     */
+    public static boolean isTrue(Object value)
+    {
+        return (value == Boolean.TRUE || (value instanceof Boolean && (Boolean)value));
+    }
+    
+    static boolean isIntegral(Object value)
+    {
+        return (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte);
+    }
+    
+    /**
+     * Compares two values. Numbers of different types are compared by value.
+     * Other values must be of the same class and Comparable.
+     * 
+     * @param left the first value
+     * @param right the second value
+     * @return negative, zero, or positive as left is less than, equal to, or
+     *         greater than right. Null if the values can't be compared.
+     */
+    public static Integer compare(Object left, Object right)
+    {
+        if(left == null || right == null) return null;
+        
+        if(left instanceof Number && right instanceof Number)
+        {
+            if(isIntegral(left) && isIntegral(right)) return Long.compare(((Number)left).longValue(), ((Number)right).longValue());
+            
+            return Double.compare(((Number)left).doubleValue(), ((Number)right).doubleValue());
+        }
+        
+        if(left.getClass() != right.getClass() || !(left instanceof Comparable)) return null;
+        
+        return compareTo(left, right);
+    }
+    
+    // Callers guarantee both values share a Comparable class
+    @SuppressWarnings("unchecked")
+    private static int compareTo(Object left, Object right)
+    {
+        return ((Comparable<Object>)left).compareTo(right);
+    }
+    
+    /**
+     * Tests two values for equality. Numbers of different types are equal if
+     * they have the same value.
+     * 
+     * @param left the first value
+     * @param right the second value
+     * @return true if the values are equal
+     */
+    public static boolean equals(Object left, Object right)
+    {
+        if(left == null || right == null) return (left == right);
+        
+        if(left instanceof Number && right instanceof Number) return (compare(left, right) == 0);
+        
+        return left.equals(right);
+    }
+}
@@ -0,0 +1,1164 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.expression;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.transform.IdentityTransformer;
+import com.invirgance.convirgance.transform.expression.ClassBuilder.Code;
+import com.invirgance.convirgance.transform.expression.ClassBuilder.Label;
+import com.invirgance.convirgance.transform.filter.Filter;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a small expression language into JVM bytecode.
+ * 
+ * <ul>
+ *   <li>Literals: <code>42</code>, <code>10000000000</code>, <code>1.5</code>,
+ *       <code>'text'</code>, <code>"text"</code>, <code>true</code>, 
+ *       <code>false</code>, <code>null</code></li>
+ *   <li>Fields: <code>price</code>, or <code>`unit price`</code> for keys 
+ *       that are not plain identifiers</li>
+ *   <li>Arithmetic: <code>+ - * / %</code>. Adding a String concatenates.
+ *       Integer math is used when both sides are integers.</li>
+ *   <li>Comparison: <code>== != &lt; &lt;= &gt; &gt;=</code></li>
+ *   <li>Logic: <code>and or not</code> (or <code>&amp;&amp; || !</code>)</li>
+ *   <li>Conditionals: <code>test ? value : otherwise</code></li>
+ *   <li>Casts: <code>string(x) integer(x) long(x) double(x) boolean(x)</code></li>
+ *   <li>Functions: <code>upper(s) lower(s) trim(s) length(s) abs(n) round(n)
+ *       concat(a, b, ...) coalesce(a, b, ...) substring(s, start[, end])</code></li>
+ * </ul>
+ * 
+ * Sub-expressions that do not reference a field are evaluated once at compile
+ * time. Null operands produce null results for arithmetic and functions, and
+ * false for comparisons other than equality. Integer division or remainder 
+ * by zero also produces null.
+ * 
+ * Each expression, filter, or transformer is generated as a hidden class with
+ * the whole per-record path in a single method. Fields are read directly from
+ * the record, constants are static final fields, logic and conditionals are
+ * plain branches, and operators are static calls the JIT can inline. Hidden
+ * classes are unloaded once the compiled object is no longer referenced.
+ *
+ * @author jbanes
+ */
+public class ExpressionCompiler
+{
+    private static final String PACKAGE = "com/invirgance/convirgance/transform/expression/";
+    private static final String EXPRESSION = PACKAGE + "Expression";
+    private static final String OPERATIONS = PACKAGE + "Operations";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String JSON_OBJECT = "com/invirgance/convirgance/json/JSONObject";
+    private static final String FILTER = "com/invirgance/convirgance/transform/filter/Filter";
+    private static final String IDENTITY_TRANSFORMER = "com/invirgance/convirgance/transform/IdentityTransformer";
+    private static final String STRING_BUILDER = "java/lang/StringBuilder";
+    
+    private String source;
+    private int position;
+    
+    /**
+     * Compiles the expression. The compiler may be reused but is not thread
+     * safe. The resulting expressions are thread safe.
+     * 
+     * @param source the expression text
+     * @return the compiled expression
+     * @throws ConvirganceException if the expression is invalid
+     */
+    public Expression compile(String source) throws ConvirganceException
+    {
+        Node expression = parse(source);
+        Generator generator = new Generator("CompiledExpression", EXPRESSION);
+        Code code;
+        
+        code = generator.addMethod("evaluate", "(L" + JSON_OBJECT + ";)Ljava/lang/Object;", JSON_OBJECT);
+        expression.generate(generator);
+        code.returnValue();
+        
+        code = generator.addMethod("isConstant", "()Z");
+        code.pushInt(expression.isConstant() ? 1 : 0);
+        code.returnValue();
+        
+        return generator.define(Expression.class);
+    }
+    
+    /**
+     * Checks that the expression is valid without generating any code
+     * 
+     * @param source the expression text
+     * @throws ConvirganceException if the expression is invalid
+     */
+    public void validate(String source) throws ConvirganceException
+    {
+        parse(source);
+    }
+    
+    /**
+     * Compiles the expression into a filter that matches records where the
+     * expression is true.
+     * 
+     * @param source the expression text
+     * @return the compiled filter
+     * @throws ConvirganceException if the expression is invalid
+     */
+    public Filter compileFilter(String source) throws ConvirganceException
+    {
+        Node expression = parse(source);
+        Generator generator = new Generator("CompiledFilter", OBJECT, FILTER);
+        Code code;
+        
+        code = generator.addMethod("filter", "(L" + JSON_OBJECT + ";)Z", JSON_OBJECT);
+        expression.test(generator);
+        code.returnValue();
+        
+        return generator.define(Filter.class);
+    }
+    
+    /**
+     * Compiles a set of expressions into a transformer that stores the result
+     * of each expression under its key. All expressions are evaluated against
+     * the record before any key is stored.
+     * 
+     * @param expressions the expression text for each key, in key order
+     * @param projection true to store the results in a new record rather than
+     *        the record being transformed
+     * @return the compiled transformer
+     * @throws ConvirganceException if an expression is invalid
+     */
+    public IdentityTransformer compileTransformer(Map<String,String> expressions, boolean projection) throws ConvirganceException
+    {
+        String[] keys = expressions.keySet().toArray(String[]::new);
+        Node[] nodes = new Node[keys.length];
+        String[] locals = new String[keys.length + 1];
+        Generator generator = new Generator("CompiledTransformer", OBJECT, IDENTITY_TRANSFORMER);
+        Code code;
+        
+        for(int i=0; i<keys.length; i++) nodes[i] = parse(expressions.get(keys[i]));
+        
+        // The record followed by one local for each computed value
+        locals[0] = JSON_OBJECT;
+        
+        Arrays.fill(locals, 1, locals.length, OBJECT);
+        
+        code = generator.addMethod("transform", "(L" + JSON_OBJECT + ";)L" + JSON_OBJECT + ";", locals);
+        
+        // Stack map frames require every local to be assigned before a branch
+        for(int i=0; i<keys.length; i++)
+        {
+            code.pushNull();
+            code.store(i + 2);
+        }
+        
+        for(int i=0; i<keys.length; i++)
+        {
+            nodes[i].generate(generator);
+            code.store(i + 2);
+        }
+        
+        if(projection)
+        {
+            code.newInstance(JSON_OBJECT);
+            code.dup();
+            code.pushInt(1);
+            code.invokeSpecial(JSON_OBJECT, "<init>", "(Z)V");
+        }
+        else
+        {
+            code.load(1);
+        }
+        
+        for(int i=0; i<keys.length; i++)
+        {
+            code.dup();
+            code.pushString(keys[i]);
+            code.load(i + 2);
+            code.invokeVirtual(JSON_OBJECT, "put", "(Ljava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;");
+            code.discard();
+        }
+        
+        code.returnValue();
+        
+        return generator.define(IdentityTransformer.class);
+    }
+    
+    private Node parse(String source)
+    {
+        Node expression;
+        
+        this.source = source;
+        this.position = 0;
+        
+        expression = parseConditional();
+        
+        skipWhitespace();
+        
+        if(position < source.length()) throw error("Unexpected '" + source.charAt(position) + "'");
+        
+        return expression;
+    }
+    private ConvirganceException error(String message)
+    {
+        return new ConvirganceException(message + " at position " + position + " in expression: " + source);
+    }
+    
+    private ConvirganceException error(String message, Throwable cause)
+    {
+        return new ConvirganceException(message + " at position " + position + " in expression: " + source, cause);
+    }
+    
+    private void skipWhitespace()
+    {
+        while(position < source.length() && Character.isWhitespace(source.charAt(position))) position++;
+    }
+    
+    private static boolean isIdentifierStart(char c)
+    {
+        return (Character.isLetter(c) || c == '_');
+    }
+    
+    private static boolean isIdentifierPart(char c)
+    {
+        return (Character.isLetterOrDigit(c) || c == '_');
+    }
+    
+    private boolean accept(String symbol)
+    {
+        skipWhitespace();
+        
+        if(!source.startsWith(symbol, position)) return false;
+        
+        // Words must not run into the following identifier
+        if(isIdentifierStart(symbol.charAt(0)) && position + symbol.length() < source.length() && isIdentifierPart(source.charAt(position + symbol.length()))) return false;
+        
+        position += symbol.length();
+        
+        return true;
+    }
+    
+    private void expect(String symbol)
+    {
+        if(!accept(symbol)) throw error("Expected '" + symbol + "'");
+    }
+    
+    private Node fold(Node expression)
+    {
+        if(expression instanceof Constant || !expression.isConstant()) return expression;
+        
+        try
+        {
+            return new Constant(expression.evaluate(null));
+        }
+        catch(RuntimeException e)
+        {
+            // Report constant errors from compile() with their position
+            throw error(e.getMessage(), e);
+        }
+    }
+    
+    private Node parseConditional()
+    {
+        Node test = parseOr();
+        Node value;
+        Node otherwise;
+        
+        if(!accept("?")) return test;
+        
+        value = parseConditional();
+        
+        expect(":");
+        
+        otherwise = parseConditional();
+        
+        return fold(new Conditional(test, value, otherwise));
+    }
+    
+    private Node parseOr()
+    {
+        Node expression = parseAnd();
+        
+        while(accept("||") || accept("or"))
+        {
+            expression = fold(new Or(expression, parseAnd()));
+        }
+        
+        return expression;
+    }
+    
+    private Node parseAnd()
+    {
+        Node expression = parseNot();
+        
+        while(accept("&&") || accept("and"))
+        {
+            expression = fold(new And(expression, parseNot()));
+        }
+        
+        return expression;
+    }
+    
+    private Node parseNot()
+    {
+        skipWhitespace();
+        
+        if(accept("not") || (!source.startsWith("!=", position) && accept("!")))
+        {
+            return fold(new Not(parseNot()));
+        }
+        
+        return parseComparison();
+    }
+    
+    private Node parseComparison()
+    {
+        Node expression = parseAdditive();
+        
+        if(accept("==")) return fold(new Call("equal", expression, parseAdditive()));
+        if(accept("!=")) return fold(new Call("notEqual", expression, parseAdditive()));
+        if(accept("<=")) return fold(new Call("lessEqual", expression, parseAdditive()));
+        if(accept(">=")) return fold(new Call("greaterEqual", expression, parseAdditive()));
+        if(accept("<")) return fold(new Call("less", expression, parseAdditive()));
+        if(accept(">")) return fold(new Call("greater", expression, parseAdditive()));
+        
+        return expression;
+    }
+    
+    private Node parseAdditive()
+    {
+        Node expression = parseMultiplicative();
+        
+        while(true)
+        {
+            if(accept("+")) expression = fold(new Call("add", expression, parseMultiplicative()));
+            else if(accept("-")) expression = fold(new Call("subtract", expression, parseMultiplicative()));
+            else return expression;
+        }
+    }
+    
+    private Node parseMultiplicative()
+    {
+        Node expression = parseUnary();
+        
+        while(true)
+        {
+            if(accept("*")) expression = fold(new Call("multiply", expression, parseUnary()));
+            else if(accept("/")) expression = fold(new Call("divide", expression, parseUnary()));
+            else if(accept("%")) expression = fold(new Call("remainder", expression, parseUnary()));
+            else return expression;
+        }
+    }
+    
+    private Node parseUnary()
+    {
+        if(accept("-")) return fold(new Call("subtract", new Constant(0), parseUnary()));
+        
+        return parsePrimary();
+    }
+    
+    private Node parsePrimary()
+    {
+        Node expression;
+        String name;
+        int start;
+        char c;
+        
+        skipWhitespace();
+        
+        if(position >= source.length()) throw error("Unexpected end of expression");
+        
+        c = source.charAt(position);
+        
+        if(accept("("))
+        {
+            expression = parseConditional();
+            
+            expect(")");
+            
+            return expression;
+        }
+        
+        if(c == '\'' || c == '"') return new Constant(parseString(c));
+        if(Character.isDigit(c) || c == '.') return new Constant(parseNumber());
+        
+        if(c == '`')
+        {
+            start = ++position;
+            
+            while(position < source.length() && source.charAt(position) != '`') position++;
+            
+            if(position >= source.length()) throw error("Unterminated field name");
+            
+            return new Field(source.substring(start, position++));
+        }
+        
+        if(!isIdentifierStart(c)) throw error("Unexpected '" + c + "'");
+        
+        start = position;
+        
+        while(position < source.length() && isIdentifierPart(source.charAt(position))) position++;
+        
+        name = source.substring(start, position);
+        
+        if(name.equals("true")) return new Constant(true);
+        if(name.equals("false")) return new Constant(false);
+        if(name.equals("null")) return new Constant(null);
+        
+        if(accept("(")) return fold(parseFunction(name));
+        
+        return new Field(name);
+    }
+    
+    private String parseString(char quote)
+    {
+        StringBuilder buffer = new StringBuilder();
+        char c;
+        
+        position++;
+        
+        while(position < source.length())
+        {
+            c = source.charAt(position++);
+            
+            if(c == quote) return buffer.toString();
+            
+            if(c == '\\' && position < source.length())
+            {
+                c = source.charAt(position++);
+                
+                switch(c)
+                {
+                    case 'n': c = '\n'; break;
+                    case 't': c = '\t'; break;
+                    case 'r': c = '\r'; break;
+                }
+            }
+            
+            buffer.append(c);
+        }
+        
+        throw error("Unterminated string");
+    }
+    
+    private Object parseNumber()
+    {
+        int start = position;
+        boolean decimal = false;
+        String text;
+        char c;
+        long value;
+        
+        while(position < source.length())
+        {
+            c = source.charAt(position);
+            
+            if(c == '.' || c == 'e' || c == 'E') decimal = true;
+            else if((c == '-' || c == '+') && (source.charAt(position-1) == 'e' || source.charAt(position-1) == 'E')) decimal = true;
+            else if(!Character.isDigit(c)) break;
+            
+            position++;
+        }
+        
+        text = source.substring(start, position);
+        
+        try
+        {
+            if(decimal) return Double.valueOf(text);
+            
+            value = Long.parseLong(text);
+            
+            if(value == (int)value) return (int)value;
+            
+            return value;
+        }
+        catch(NumberFormatException e)
+        {
+            throw error("Invalid number '" + text + "'");
+        }
+    }
+    
+    private Node parseFunction(String name)
+    {
+        List<Node> list = new ArrayList<>();
+        Node[] arguments;
+        
+        if(!accept(")"))
+        {
+            do
+            {
+                list.add(parseConditional());
+            }
+            while(accept(","));
+            
+            expect(")");
+        }
+        
+        arguments = list.toArray(Node[]::new);
+        
+        switch(name)
+        {
+            case "concat":
+                return new Concat(arguments);
+                
+            case "coalesce":
+                return new Coalesce(arguments);
+                
+            case "substring":
+                if(arguments.length < 2 || arguments.length > 3) throw error("substring() takes 2 or 3 arguments");
+                
+                return new Call("substring", arguments[0], arguments[1], (arguments.length > 2) ? arguments[2] : new Constant(null));
+        }
+        
+        if(arguments.length != 1) throw error(name + "() takes 1 argument");
+        
+        switch(name)
+        {
+            case "upper":
+            case "lower":
+            case "trim":
+            case "length":
+            case "abs":
+            case "round":
+                return new Call(name, arguments[0]);
+                
+            case "string":
+                return new Call("toString", arguments[0]);
+                
+            case "integer":
+                return new Call("toInteger", arguments[0]);
+                
+            case "long":
+                return new Call("toLong", arguments[0]);
+                
+            case "double":
+                return new Call("toDouble", arguments[0]);
+                
+            case "boolean":
+                return new Call("toBoolean", arguments[0]);
+        }
+        
+        throw error("Unknown function " + name + "()");
+    }
+    
+    private static String getType(Object value)
+    {
+        return (value == null) ? "null" : value.getClass().getSimpleName();
+    }
+    
+    /**
+     * Builds one hidden class. Every generated method takes the record as its
+     * first parameter, so the record is always local 1.
+     */
+    private static final class Generator
+    {
+        private final ClassBuilder builder;
+        private final List<Object> constants = new ArrayList<>();
+        private Code code;
+
+        public Generator(String name, String parent, String... interfaces)
+        {
+            this.builder = new ClassBuilder(PACKAGE + name, parent, interfaces);
+            
+            code = builder.addMethod(ClassBuilder.ACC_PUBLIC, "<init>", "()V", builder.getName());
+            code.load(0);
+            code.invokeSpecial(parent, "<init>", "()V");
+            code.returnVoid();
+        }
+        
+        public Code addMethod(String name, String descriptor, String... parameters)
+        {
+            String[] locals = new String[parameters.length + 1];
+            
+            locals[0] = builder.getName();
+            
+            System.arraycopy(parameters, 0, locals, 1, parameters.length);
+            
+            this.code = builder.addMethod(ClassBuilder.ACC_PUBLIC, name, descriptor, locals);
+            
+            return code;
+        }
+        
+        public void record()
+        {
+            code.load(1);
+        }
+        
+        public void constant(Object value)
+        {
+            int index;
+            
+            if(value == null)
+            {
+                code.pushNull();
+            }
+            else if(value instanceof String)
+            {
+                code.pushString((String)value);
+            }
+            else if(value instanceof Boolean)
+            {
+                code.getStatic("java/lang/Boolean", ((Boolean)value) ? "TRUE" : "FALSE", "Ljava/lang/Boolean;");
+            }
+            else if(value instanceof Integer || value instanceof Long || value instanceof Double)
+            {
+                // Boxed once when the class is initialized
+                index = constants.indexOf(value);
+                
+                if(index < 0)
+                {
+                    index = constants.size();
+                    constants.add(value);
+                }
+                
+                code.getStatic(builder.getName(), "constant" + index, "Ljava/lang/Object;");
+            }
+            else
+            {
+                throw new ConvirganceException("Cannot compile a constant of type " + getType(value));
+            }
+        }
+        
+        private void initialize()
+        {
+            Object value;
+            
+            if(constants.isEmpty()) return;
+            
+            code = builder.addMethod(ClassBuilder.ACC_STATIC, "<clinit>", "()V");
+            
+            for(int i=0; i<constants.size(); i++)
+            {
+                value = constants.get(i);
+                
+                builder.addField(ClassBuilder.ACC_PRIVATE | ClassBuilder.ACC_STATIC | ClassBuilder.ACC_FINAL, "constant" + i, "Ljava/lang/Object;");
+                
+                if(value instanceof Integer)
+                {
+                    code.pushInt((Integer)value);
+                    code.invokeStatic("java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;");
+                }
+                else if(value instanceof Long)
+                {
+                    code.pushLong((Long)value);
+                    code.invokeStatic("java/lang/Long", "valueOf", "(J)Ljava/lang/Long;");
+                }
+                else
+                {
+                    code.pushDouble((Double)value);
+                    code.invokeStatic("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;");
+                }
+                
+                code.putStatic(builder.getName(), "constant" + i, "Ljava/lang/Object;");
+            }
+            
+            code.returnVoid();
+        }
+        
+        public <T> T define(Class<T> type)
+        {
+            Class<?> compiled;
+            
+            initialize();
+            
+            try
+            {
+                compiled = MethodHandles.lookup().defineHiddenClass(builder.toByteArray(), true).lookupClass();
+                
+                return type.cast(compiled.getDeclaredConstructor().newInstance());
+            }
+            catch(ReflectiveOperationException | LinkageError e)
+            {
+                throw new ConvirganceException("Failed to compile expression", e);
+            }
+        }
+    }
+    
+    /**
+     * A node of the parsed expression. Nodes are evaluated directly only to
+     * fold constants at compile time. Otherwise they emit the bytecode of the
+     * generated class.
+     */
+    private static abstract class Node extends Expression
+    {
+        // Leaves the value of the expression on the stack
+        abstract void generate(Generator generator);
+        
+        // Leaves 1 on the stack if the value is true, otherwise 0
+        void test(Generator generator)
+        {
+            generate(generator);
+            generator.code.invokeStatic(EXPRESSION, "isTrue", "(Ljava/lang/Object;)Z");
+        }
+    }
+    
+    // Boolean results are kept as ints and only boxed when used as a value
+    private static abstract class Condition extends Node
+    {
+        @Override
+        void generate(Generator generator)
+        {
+            test(generator);
+            generator.code.invokeStatic("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+        }
+    }
+    
+    private static final class Constant extends Node
+    {
+        private final Object value;
+
+        public Constant(Object value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            return value;
+        }
+
+        @Override
+        public boolean isConstant()
+        {
+            return true;
+        }
+
+        @Override
+        void generate(Generator generator)
+        {
+            generator.constant(value);
+        }
+
+        @Override
+        void test(Generator generator)
+        {
+            generator.code.pushInt(isTrue(value) ? 1 : 0);
+        }
+    }
+    
+    private static final class Field extends Node
+    {
+        private final String key;
+
+        public Field(String key)
+        {
+            this.key = key;
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            return record.get(key);
+        }
+
+        @Override
+        public boolean isConstant()
+        {
+            return false;
+        }
+
+        @Override
+        void generate(Generator generator)
+        {
+            generator.record();
+            generator.code.pushString(key);
+            generator.code.invokeVirtual(JSON_OBJECT, "get", "(Ljava/lang/Object;)Ljava/lang/Object;");
+        }
+    }
+    
+    private static final class Conditional extends Node
+    {
+        private final Node test;
+        private final Node value;
+        private final Node otherwise;
+
+        public Conditional(Node test, Node value, Node otherwise)
+        {
+            this.test = test;
+            this.value = value;
+            this.otherwise = otherwise;
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            return isTrue(test.evaluate(record)) ? value.evaluate(record) : otherwise.evaluate(record);
+        }
+
+        @Override
+        public boolean isConstant()
+        {
+            return (test.isConstant() && value.isConstant() && otherwise.isConstant());
+        }
+        
+        private void generate(Generator generator, boolean test)
+        {
+            Code code = generator.code;
+            Label otherwise = code.newLabel();
+            Label end = code.newLabel();
+            
+            this.test.test(generator);
+            code.jump(Code.IFEQ, otherwise);
+            
+            if(test) value.test(generator);
+            else value.generate(generator);
+            
+            code.jump(Code.GOTO, end);
+            code.place(otherwise);
+            
+            if(test) this.otherwise.test(generator);
+            else this.otherwise.generate(generator);
+            
+            code.place(end);
+        }
+
+        @Override
+        void generate(Generator generator)
+        {
+            generate(generator, false);
+        }
+
+        @Override
+        void test(Generator generator)
+        {
+            generate(generator, true);
+        }
+    }
+    
+    private static final class And extends Condition
+    {
+        private final Node left;
+        private final Node right;
+
+        public And(Node left, Node right)
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            return (isTrue(left.evaluate(record)) && isTrue(right.evaluate(record)));
+        }
+
+        @Override
+        public boolean isConstant()
+        {
+            return (left.isConstant() && right.isConstant());
+        }
+
+        @Override
+        void test(Generator generator)
+        {
+            Code code = generator.code;
+            Label fail = code.newLabel();
+            Label end = code.newLabel();
+            
+            left.test(generator);
+            code.jump(Code.IFEQ, fail);
+            right.test(generator);
+            code.jump(Code.GOTO, end);
+            code.place(fail);
+            code.pushInt(0);
+            code.place(end);
+        }
+    }
+    
+    private static final class Or extends Condition
+    {
+        private final Node left;
+        private final Node right;
+
+        public Or(Node left, Node right)
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            return (isTrue(left.evaluate(record)) || isTrue(right.evaluate(record)));
+        }
+
+        @Override
+        public boolean isConstant()
+        {
+            return (left.isConstant() && right.isConstant());
+        }
+
+        @Override
+        void test(Generator generator)
+        {
+            Code code = generator.code;
+            Label pass = code.newLabel();
+            Label end = code.newLabel();
+            
+            left.test(generator);
+            code.jump(Code.IFNE, pass);
+            right.test(generator);
+            code.jump(Code.GOTO, end);
+            code.place(pass);
+            code.pushInt(1);
+            code.place(end);
+        }
+    }
+    
+    private static final class Not extends Condition
+    {
+        private final Node operand;
+
+        public Not(Node operand)
+        {
+            this.operand = operand;
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            return !isTrue(operand.evaluate(record));
+        }
+
+        @Override
+        public boolean isConstant()
+        {
+            return operand.isConstant();
+        }
+
+        @Override
+        void test(Generator generator)
+        {
+            operand.test(generator);
+            generator.code.pushInt(1);
+            generator.code.xor();
+        }
+    }
+    
+    /**
+     * Calls one of the static methods of {@link Operations}. Methods that
+     * return a boolean are tests.
+     */
+    private static final class Call extends Node
+    {
+        private final Method method;
+        private final Node[] arguments;
+        private final String descriptor;
+
+        public Call(String name, Node... arguments)
+        {
+            Class<?>[] types = new Class<?>[arguments.length];
+            
+            Arrays.fill(types, Object.class);
+            
+            try
+            {
+                this.method = Operations.class.getDeclaredMethod(name, types);
+            }
+            catch(NoSuchMethodException e)
+            {
+                throw new ConvirganceException(e);
+            }
+            
+            this.arguments = arguments;
+            this.descriptor = "(" + "Ljava/lang/Object;".repeat(arguments.length) + ")" + (isTest() ? "Z" : "Ljava/lang/Object;");
+        }
+        
+        private boolean isTest()
+        {
+            return (method.getReturnType() == boolean.class);
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            Object[] values = new Object[arguments.length];
+            
+            for(int i=0; i<values.length; i++) values[i] = arguments[i].evaluate(record);
+            
+            try
+            {
+                return method.invoke(null, values);
+            }
+            catch(InvocationTargetException e)
+            {
+                if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+                
+                throw new ConvirganceException(e.getCause());
+            }
+            catch(IllegalAccessException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+
+        @Override
+        public boolean isConstant()
+        {
+            for(Node argument : arguments)
+            {
+                if(!argument.isConstant()) return false;
+            }
+            
+            return true;
+        }
+        
+        private void invoke(Generator generator)
+        {
+            for(Node argument : arguments) argument.generate(generator);
+            
+            generator.code.invokeStatic(OPERATIONS, method.getName(), descriptor);
+        }
+
+        @Override
+        void generate(Generator generator)
+        {
+            invoke(generator);
+            
+            if(isTest()) generator.code.invokeStatic("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+        }
+
+        @Override
+        void test(Generator generator)
+        {
+            if(!isTest())
+            {
+                super.test(generator);
+                return;
+            }
+            
+            invoke(generator);
+        }
+    }
+    
+    private static abstract class Variadic extends Node
+    {
+        final Node[] arguments;
+
+        public Variadic(Node[] arguments)
+        {
+            this.arguments = arguments;
+        }
+
+        @Override
+        public boolean isConstant()
+        {
+            for(Node argument : arguments)
+            {
+                if(!argument.isConstant()) return false;
+            }
+            
+            return true;
+        }
+    }
+    
+    private static final class Concat extends Variadic
+    {
+        public Concat(Node[] arguments)
+        {
+            super(arguments);
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            StringBuilder buffer = new StringBuilder();
+            
+            for(Node argument : arguments)
+            {
+                Operations.append(buffer, argument.evaluate(record));
+            }
+            
+            return buffer.toString();
+        }
+
+        @Override
+        void generate(Generator generator)
+        {
+            Code code = generator.code;
+            
+            code.newInstance(STRING_BUILDER);
+            code.dup();
+            code.invokeSpecial(STRING_BUILDER, "<init>", "()V");
+            
+            for(Node argument : arguments)
+            {
+                argument.generate(generator);
+                code.invokeStatic(OPERATIONS, "append", "(Ljava/lang/StringBuilder;Ljava/lang/Object;)Ljava/lang/StringBuilder;");
+            }
+            
+            code.invokeVirtual(STRING_BUILDER, "toString", "()Ljava/lang/String;");
+        }
+    }
+    
+    private static final class Coalesce extends Variadic
+    {
+        public Coalesce(Node[] arguments)
+        {
+            super(arguments);
+        }
+
+        @Override
+        public Object evaluate(JSONObject record)
+        {
+            Object value;
+            
+            for(Node argument : arguments)
+            {
+                value = argument.evaluate(record);
+                
+                if(value != null) return value;
+            }
+            
+            return null;
+        }
+
+        @Override
+        void generate(Generator generator)
+        {
+            Code code = generator.code;
+            Label end = code.newLabel();
+            
+            if(arguments.length == 0)
+            {
+                generator.constant(null);
+                return;
+            }
+            
+            // Each value stays on the stack if it is not null
+            for(int i=0; i<arguments.length-1; i++)
+            {
+                arguments[i].generate(generator);
+                code.dup();
+                code.jump(Code.IFNONNULL, end);
+                code.discard();
+            }
+            
+            arguments[arguments.length-1].generate(generator);
+            
+            if(arguments.length > 1) code.place(end);
+        }
+    }
+}
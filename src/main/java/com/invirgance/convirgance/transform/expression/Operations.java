@@ -0,0 +1,297 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.expression;
+
+import com.invirgance.convirgance.ConvirganceException;
+
+/**
+ * Implements the operators and functions of the expression language. Compiled
+ * expressions call these methods directly, and constant folding uses them at
+ * compile time, so both always produce the same results. Every method is
+ * static so that each call is statically bound and can be inlined by the JIT.
+ *
+ * @author jbanes
+ */
+class Operations
+{
+    static Object add(Object left, Object right)
+    {
+        if(left == null || right == null) return null;
+        if(left instanceof String || right instanceof String) return left.toString() + right.toString();
+        
+        return arithmetic('+', left, right);
+    }
+    
+    static Object subtract(Object left, Object right)
+    {
+        return arithmetic('-', left, right);
+    }
+    
+    static Object multiply(Object left, Object right)
+    {
+        return arithmetic('*', left, right);
+    }
+    
+    static Object divide(Object left, Object right)
+    {
+        return arithmetic('/', left, right);
+    }
+    
+    static Object remainder(Object left, Object right)
+    {
+        return arithmetic('%', left, right);
+    }
+    
+    static boolean equal(Object left, Object right)
+    {
+        return Expression.equals(left, right);
+    }
+    
+    static boolean notEqual(Object left, Object right)
+    {
+        return !Expression.equals(left, right);
+    }
+    
+    static boolean less(Object left, Object right)
+    {
+        Integer result = Expression.compare(left, right);
+        
+        return (result != null && result < 0);
+    }
+    
+    static boolean lessEqual(Object left, Object right)
+    {
+        Integer result = Expression.compare(left, right);
+        
+        return (result != null && result <= 0);
+    }
+    
+    static boolean greater(Object left, Object right)
+    {
+        Integer result = Expression.compare(left, right);
+        
+        return (result != null && result > 0);
+    }
+    
+    static boolean greaterEqual(Object left, Object right)
+    {
+        Integer result = Expression.compare(left, right);
+        
+        return (result != null && result >= 0);
+    }
+    
+    static Object upper(Object value)
+    {
+        if(value == null) return null;
+        
+        return value.toString().toUpperCase();
+    }
+    
+    static Object lower(Object value)
+    {
+        if(value == null) return null;
+        
+        return value.toString().toLowerCase();
+    }
+    
+    static Object trim(Object value)
+    {
+        if(value == null) return null;
+        
+        return value.toString().trim();
+    }
+    
+    static Object length(Object value)
+    {
+        if(value == null) return null;
+        
+        return value.toString().length();
+    }
+    
+    static Object abs(Object value)
+    {
+        if(value == null) return null;
+        if(value instanceof Integer) return Math.abs((Integer)value);
+        if(Expression.isIntegral(value)) return Math.abs(((Number)value).longValue());
+        
+        return Math.abs(toNumber(value).doubleValue());
+    }
+    
+    static Object round(Object value)
+    {
+        long result;
+        
+        if(value == null) return null;
+        if(Expression.isIntegral(value)) return value;
+        
+        result = Math.round(toNumber(value).doubleValue());
+        
+        if(result == (int)result) return (int)result;
+        
+        return result;
+    }
+    
+    static Object toString(Object value)
+    {
+        if(value == null) return null;
+        
+        return value.toString();
+    }
+    
+    static Object toInteger(Object value)
+    {
+        if(value == null) return null;
+        if(value instanceof Integer) return value;
+        if(value instanceof Boolean) return ((Boolean)value) ? 1 : 0;
+        
+        return toNumber(value).intValue();
+    }
+    
+    static Object toLong(Object value)
+    {
+        if(value == null) return null;
+        if(value instanceof Long) return value;
+        if(value instanceof Boolean) return ((Boolean)value) ? 1L : 0L;
+        
+        return toNumber(value).longValue();
+    }
+    
+    static Object toDouble(Object value)
+    {
+        if(value == null) return null;
+        if(value instanceof Double) return value;
+        if(value instanceof Boolean) return ((Boolean)value) ? 1.0 : 0.0;
+        
+        return toNumber(value).doubleValue();
+    }
+    
+    static Object toBoolean(Object value)
+    {
+        if(value == null) return null;
+        if(value instanceof Boolean) return value;
+        if(value instanceof Number) return (((Number)value).doubleValue() != 0);
+        if(value.toString().trim().equalsIgnoreCase("true")) return true;
+        if(value.toString().trim().equalsIgnoreCase("false")) return false;
+        
+        throw new ConvirganceException("Cannot convert '" + value + "' to boolean");
+    }
+    
+    static Object substring(Object value, Object start, Object end)
+    {
+        String text;
+        int from;
+        int to;
+        
+        if(value == null || start == null) return null;
+        
+        text = value.toString();
+        from = Math.max(0, Math.min(text.length(), toNumber(start).intValue()));
+        to = (end == null) ? text.length() : Math.max(from, Math.min(text.length(), toNumber(end).intValue()));
+        
+        return text.substring(from, to);
+    }
+    
+    static StringBuilder append(StringBuilder buffer, Object value)
+    {
+        if(value != null) buffer.append(value);
+        
+        return buffer;
+    }
+    
+    private static Number toNumber(Object value)
+    {
+        String text;
+        
+        if(value instanceof Number) return (Number)value;
+        
+        text = value.toString().trim();
+        
+        try
+        {
+            if(text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) return Long.valueOf(text);
+            
+            return Double.valueOf(text);
+        }
+        catch(NumberFormatException e)
+        {
+            throw new ConvirganceException("Cannot convert '" + value + "' to a number");
+        }
+    }
+    
+    private static String getType(Object value)
+    {
+        return (value == null) ? "null" : value.getClass().getSimpleName();
+    }
+    
+    // The operator is a constant at every call site once inlined
+    private static Object arithmetic(char operator, Object left, Object right)
+    {
+        if(left == null || right == null) return null;
+        
+        if(!(left instanceof Number) || !(right instanceof Number))
+        {
+            throw new ConvirganceException("Cannot apply '" + operator + "' to " + getType(left) + " and " + getType(right));
+        }
+        
+        if(Expression.isIntegral(left) && Expression.isIntegral(right)) return integral(operator, left, right);
+        
+        return decimal(operator, left, right);
+    }
+    
+    private static Object integral(char operator, Object left, Object right)
+    {
+        long a = ((Number)left).longValue();
+        long b = ((Number)right).longValue();
+        long result;
+        
+        if(b == 0 && (operator == '/' || operator == '%')) return null;
+        
+        switch(operator)
+        {
+            case '+': result = a + b; break;
+            case '-': result = a - b; break;
+            case '*': result = a * b; break;
+            case '/': result = a / b; break;
+            default: result = a % b;
+        }
+        
+        // Integers stay integers unless the result no longer fits
+        if(left instanceof Long || right instanceof Long || result != (int)result) return result;
+        
+        return (int)result;
+    }
+    
+    private static Object decimal(char operator, Object left, Object right)
+    {
+        double a = ((Number)left).doubleValue();
+        double b = ((Number)right).doubleValue();
+        
+        switch(operator)
+        {
+            case '+': return a + b;
+            case '-': return a - b;
+            case '*': return a * b;
+            case '/': return a / b;
+            default: return a % b;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+import com.invirgance.convirgance.batch.RecordBatch;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.List;
+
+/**
+ * Matches records that pass every one of the child filters. Filters are
+ * tested in order and testing stops at the first filter that fails. Use 
+ * {@link FilterCompiler} to order the filters so the most selective, cheapest
+ * tests run first.
+ *
+ * @author jbanes
+ */
+public class AndFilter implements Filter
+{
+    private Filter[] filters;
+
+    public AndFilter()
+    {
+        this(new Filter[0]);
+    }
+
+    public AndFilter(Filter... filters)
+    {
+        this.filters = filters;
+    }
+
+    public Filter[] getFilters()
+    {
+        return filters;
+    }
+
+    public void setFilters(Filter[] filters)
+    {
+        this.filters = filters;
+    }
+    
+    @Override
+    public boolean filter(JSONObject record)
+    {
+        for(Filter filter : filters)
+        {
+            if(!filter.filter(record)) return false;
+        }
+        
+        return true;
+    }
+
+    @Override
+    public RecordBatch filter(RecordBatch batch)
+    {
+        for(Filter filter : filters)
+        {
+            if(batch.size() < 1) break;
+            
+            filter.filter(batch);
+        }
+        
+        return batch;
+    }
+    
+    @Override
+    public FieldPredicate compile(List<String> keys)
+    {
+        final FieldPredicate[] predicates = new FieldPredicate[filters.length];
+        
+        for(int i=0; i<filters.length; i++)
+        {
+            predicates[i] = filters[i].compile(keys);
+            
+            if(predicates[i] == null) return null;
+        }
+        
+        return new FieldPredicate() {
+            @Override
+            public boolean test(Object[] values)
+            {
+                for(FieldPredicate predicate : predicates)
+                {
+                    if(!predicate.test(values)) return false;
+                }
+                
+                return true;
+            }
+        };
+    }
+}
@@ -21,7 +21,10 @@ SOFTWARE.
  */
 package com.invirgance.convirgance.transform.filter;
 
+import com.invirgance.convirgance.batch.Column;
+import com.invirgance.convirgance.batch.RecordBatch;
 import com.invirgance.convirgance.json.JSONObject;
+import java.util.List;
 
 /**
  *
@@ -71,4 +74,43 @@ public class EqualsFilter implements Filter
         
         return this.value.equals(value);
     }
+    
+    @Override
+    public RecordBatch filter(RecordBatch batch)
+    {
+        Column column = batch.getColumn(key);
+        int[] rows = batch.getSelection();
+        
+        // Key does not exist in this batch, so every value is null
+        if(column == null) batch.setSelection(rows, (value == null) ? rows.length : 0);
+        else batch.setSelection(rows, column.select(value, rows, rows.length, rows));
+        
+        return batch;
+    }
+    
+    @Override
+    public FieldPredicate compile(List<String> keys)
+    {
+        final int index = Filter.indexOf(keys, key);
+        final Object value = this.value;
+        
+        if(value == null)
+        {
+            return new FieldPredicate() {
+                @Override
+                public boolean test(Object[] values)
+                {
+                    return (values[index] == null);
+                }
+            };
+        }
+        
+        return new FieldPredicate() {
+            @Override
+            public boolean test(Object[] values)
+            {
+                return value.equals(values[index]);
+            }
+        };
+    }
 }
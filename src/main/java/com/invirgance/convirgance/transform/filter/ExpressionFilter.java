@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.transform.expression.ExpressionCompiler;
+
+/**
+ * Matches records where the expression evaluates to true. The expression is
+ * compiled into a generated filter class once when it is set, using the 
+ * language described in {@link ExpressionCompiler}. For example: 
+ * <code>state == 'TX' and price * quantity &gt; 100</code>
+ *
+ * @author jbanes
+ */
+public class ExpressionFilter implements Filter
+{
+    private String source;
+    private Filter compiled;
+
+    public ExpressionFilter()
+    {
+    }
+
+    public ExpressionFilter(String expression) throws ConvirganceException
+    {
+        setExpression(expression);
+    }
+
+    public String getExpression()
+    {
+        return source;
+    }
+
+    public void setExpression(String expression) throws ConvirganceException
+    {
+        this.compiled = new ExpressionCompiler().compileFilter(expression);
+        this.source = expression;
+    }
+    
+    @Override
+    public boolean filter(JSONObject record)
+    {
+        return compiled.filter(record);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+/**
+ * A {@link Filter} compiled down to a test over raw field values. Inputs that
+ * accept a filter compile it with {@link Filter#compile(java.util.List)},
+ * extract only the fields named in the key list, and call test() before any
+ * record is built. Rejected rows never allocate a JSONObject.
+ *
+ * @author jbanes
+ */
+public interface FieldPredicate
+{
+    /**
+     * Tests the extracted field values. Values are supplied in the same order
+     * as the key list the predicate was compiled against. Fields missing from
+     * the row are supplied as null.
+     * 
+     * @param values field values indexed by key position
+     * @return true if the row should be kept
+     */
+    public boolean test(Object[] values);
+}
@@ -21,9 +21,13 @@ SOFTWARE.
  */
 package com.invirgance.convirgance.transform.filter;
 
+import com.invirgance.convirgance.batch.RecordBatch;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.metrics.Counter;
+import com.invirgance.convirgance.metrics.Metrics;
 import com.invirgance.convirgance.transform.Transformer;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  *
@@ -34,6 +38,12 @@ public interface Filter extends Transformer
     @Override
     public default Iterator<JSONObject> transform(Iterator<JSONObject> iterator)
     {
+        String name = getClass().getSimpleName().isEmpty() ? "Filter" : getClass().getSimpleName();
+        
+        // Records in and out give the selectivity of the filter
+        final Counter in = Metrics.isEnabled() ? Metrics.counter("filter." + name + ".in") : null;
+        final Counter out = Metrics.isEnabled() ? Metrics.counter("filter." + name + ".out") : null;
+        
         return new Iterator<JSONObject>() {
             
             private JSONObject next;
@@ -49,7 +59,12 @@ public interface Filter extends Transformer
                 {
                     next = iterator.next();
                     
-                    if(filter(next)) this.next = next;
+                    if(in != null) in.increment();
+                    if(!filter(next)) continue;
+                    
+                    this.next = next;
+                    
+                    if(out != null) out.increment();
                 }
                 
                 return (this.next != null);
@@ -74,4 +89,59 @@ public interface Filter extends Transformer
     }
     
     public boolean filter(JSONObject record);
+    
+    /**
+     * Compiles this filter into a predicate that can be evaluated against raw
+     * field values. Every key the predicate needs is appended to the keys list
+     * if not already present. The predicate reads the value for a key from the
+     * same position in its values array.
+     * 
+     * @param keys list of keys to extract for the compiled predicate
+     * @return the compiled predicate or null if this filter cannot be compiled
+     */
+    public default FieldPredicate compile(List<String> keys)
+    {
+        return null;
+    }
+    
+    /**
+     * Returns the position of the key in the list, adding it if needed
+     * 
+     * @param keys list of keys to extract
+     * @param key key to look up
+     * @return the position of the key in the list
+     */
+    public static int indexOf(List<String> keys, String key)
+    {
+        int index = keys.indexOf(key);
+        
+        if(index >= 0) return index;
+        
+        keys.add(key);
+        
+        return keys.size() - 1;
+    }
+    
+    /**
+     * Narrows the selection of a batch to the rows matching this filter. The
+     * default implementation reconstructs each selected record. Filters that
+     * can operate directly on column data should override this method.
+     * 
+     * @param batch the batch to filter
+     * @return the same batch with an updated selection
+     */
+    public default RecordBatch filter(RecordBatch batch)
+    {
+        int[] rows = batch.getSelection();
+        int selected = 0;
+        
+        for(int i=0; i<rows.length; i++)
+        {
+            if(filter(batch.getRecord(rows[i]))) rows[selected++] = rows[i];
+        }
+        
+        batch.setSelection(rows, selected);
+        
+        return batch;
+    }
 }
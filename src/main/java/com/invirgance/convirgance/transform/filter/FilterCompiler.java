@@ -0,0 +1,264 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites a tree of filters into an equivalent tree that is cheaper to
+ * evaluate. Nested {@link AndFilter} and {@link OrFilter} instances are 
+ * flattened, double negations are removed, and {@link EqualsFilter} tests on 
+ * the same key inside an OR are merged into a single (hashed) {@link InFilter}.
+ * 
+ * The children of each AND and OR are then ordered so that the tests most
+ * likely to end evaluation early, for the least cost, run first. Selectivity
+ * is measured against a sample of records if one is provided. Otherwise a
+ * fixed estimate is used for each filter type.
+ *
+ * @author jbanes
+ */
+public class FilterCompiler
+{
+    private List<JSONObject> sample;
+
+    public FilterCompiler()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates a compiler that measures the selectivity of each filter against
+     * the records provided.
+     * 
+     * @param sample representative records, or null to use estimates
+     */
+    public FilterCompiler(Iterable<JSONObject> sample)
+    {
+        if(sample == null) return;
+        
+        this.sample = new ArrayList<>();
+        
+        for(JSONObject record : sample) this.sample.add(record);
+    }
+    
+    /**
+     * Fraction of records expected to pass the filter
+     */
+    private double getSelectivity(Filter filter)
+    {
+        int matched = 0;
+        double selectivity;
+        
+        if(sample != null && !sample.isEmpty())
+        {
+            for(JSONObject record : sample)
+            {
+                if(filter.filter(record)) matched++;
+            }
+            
+            return (double)matched / sample.size();
+        }
+        
+        if(filter instanceof EqualsFilter) return 0.1;
+        if(filter instanceof InFilter) return Math.min(0.9, 0.1 * ((InFilter)filter).getValues().length);
+        if(filter instanceof StartsWithFilter) return 0.2;
+        if(filter instanceof RegexFilter) return 0.25;
+        if(filter instanceof RangeFilter) return 0.33;
+        if(filter instanceof NotFilter) return 1.0 - getSelectivity(((NotFilter)filter).getFilter());
+        
+        if(filter instanceof AndFilter)
+        {
+            selectivity = 1.0;
+            
+            for(Filter child : ((AndFilter)filter).getFilters()) selectivity *= getSelectivity(child);
+            
+            return selectivity;
+        }
+        
+        if(filter instanceof OrFilter)
+        {
+            selectivity = 1.0;
+            
+            for(Filter child : ((OrFilter)filter).getFilters()) selectivity *= (1.0 - getSelectivity(child));
+            
+            return 1.0 - selectivity;
+        }
+        
+        return 0.5;
+    }
+    
+    /**
+     * Relative cost of testing a single record
+     */
+    private double getCost(Filter filter)
+    {
+        double cost = 0;
+        
+        if(filter instanceof EqualsFilter) return 1;
+        if(filter instanceof InFilter) return ((InFilter)filter).isHashed() ? 2 : ((InFilter)filter).getValues().length;
+        if(filter instanceof StartsWithFilter) return 2;
+        if(filter instanceof RangeFilter) return 3;
+        if(filter instanceof RegexFilter) return 20;
+        if(filter instanceof NotFilter) return getCost(((NotFilter)filter).getFilter());
+        
+        if(filter instanceof AndFilter)
+        {
+            for(Filter child : ((AndFilter)filter).getFilters()) cost += getCost(child);
+            
+            return cost;
+        }
+        
+        if(filter instanceof OrFilter)
+        {
+            for(Filter child : ((OrFilter)filter).getFilters()) cost += getCost(child);
+            
+            return cost;
+        }
+        
+        return 10;
+    }
+    
+    // Lower ranks run first. Each rank is the cost paid per record settled.
+    private void order(List<Filter> filters, boolean and)
+    {
+        final Map<Filter,Double> ranks = new LinkedHashMap<>();
+        double settled;
+        
+        for(Filter filter : filters)
+        {
+            settled = and ? (1.0 - getSelectivity(filter)) : getSelectivity(filter);
+            
+            ranks.put(filter, (settled <= 0) ? Double.MAX_VALUE : getCost(filter) / settled);
+        }
+        
+        filters.sort(new Comparator<Filter>() {
+            @Override
+            public int compare(Filter left, Filter right)
+            {
+                return Double.compare(ranks.get(left), ranks.get(right));
+            }
+        });
+    }
+    
+    private void flatten(Filter[] children, boolean and, List<Filter> filters)
+    {
+        Filter child;
+        
+        for(Filter filter : children)
+        {
+            child = compile(filter);
+            
+            if(child instanceof AndFilter && and) filters.addAll(Arrays.asList(((AndFilter)child).getFilters()));
+            else if(child instanceof OrFilter && !and) filters.addAll(Arrays.asList(((OrFilter)child).getFilters()));
+            else filters.add(child);
+        }
+    }
+    
+    // Collapse equality tests on the same key into one IN test
+    private void merge(List<Filter> filters)
+    {
+        Map<String,List<Object>> values = new LinkedHashMap<>();
+        Map<String,Integer> counts = new LinkedHashMap<>();
+        List<Filter> merged = new ArrayList<>();
+        String key;
+        
+        for(Filter filter : filters)
+        {
+            if(filter instanceof EqualsFilter) key = ((EqualsFilter)filter).getKey();
+            else if(filter instanceof InFilter) key = ((InFilter)filter).getKey();
+            else continue;
+            
+            if(!values.containsKey(key)) values.put(key, new ArrayList<>());
+            
+            counts.put(key, counts.getOrDefault(key, 0) + 1);
+            
+            if(filter instanceof EqualsFilter) values.get(key).add(((EqualsFilter)filter).getValue());
+            else values.get(key).addAll(Arrays.asList(((InFilter)filter).getValues()));
+        }
+        
+        for(Filter filter : filters)
+        {
+            if(filter instanceof EqualsFilter) key = ((EqualsFilter)filter).getKey();
+            else if(filter instanceof InFilter) key = ((InFilter)filter).getKey();
+            else key = null;
+            
+            if(key == null || counts.get(key) < 2)
+            {
+                merged.add(filter);
+                continue;
+            }
+            
+            // First filter on the key is replaced, the rest are dropped
+            if(values.containsKey(key)) merged.add(new InFilter(key, values.remove(key).toArray()));
+        }
+        
+        filters.clear();
+        filters.addAll(merged);
+    }
+    
+    /**
+     * Produces an optimized filter that matches the same records as the 
+     * filter provided. The original filter is not modified.
+     * 
+     * @param filter the filter to optimize
+     * @return an equivalent filter
+     */
+    public Filter compile(Filter filter)
+    {
+        List<Filter> filters = new ArrayList<>();
+        Filter child;
+        
+        if(filter instanceof NotFilter)
+        {
+            child = ((NotFilter)filter).getFilter();
+            
+            if(child instanceof NotFilter) return compile(((NotFilter)child).getFilter());
+            
+            return new NotFilter(compile(child));
+        }
+        
+        if(filter instanceof AndFilter)
+        {
+            flatten(((AndFilter)filter).getFilters(), true, filters);
+            order(filters, true);
+            
+            return (filters.size() == 1) ? filters.get(0) : new AndFilter(filters.toArray(Filter[]::new));
+        }
+        
+        if(filter instanceof OrFilter)
+        {
+            flatten(((OrFilter)filter).getFilters(), false, filters);
+            merge(filters);
+            order(filters, false);
+            
+            return (filters.size() == 1) ? filters.get(0) : new OrFilter(filters.toArray(Filter[]::new));
+        }
+        
+        return filter;
+    }
+}
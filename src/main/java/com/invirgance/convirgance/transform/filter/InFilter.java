@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Matches records where the value of the key equals any of the listed values.
+ * Short lists are scanned directly. Lists longer than the hash threshold are
+ * loaded into a hash set so that each test is a single lookup.
+ *
+ * @author jbanes
+ */
+public class InFilter implements Filter
+{
+    public static final int HASH_THRESHOLD = 8;
+    
+    private String key;
+    private Object[] values;
+    private HashSet<Object> lookup;
+
+    public InFilter()
+    {
+        this(null, new Object[0]);
+    }
+
+    public InFilter(String key, Object... values)
+    {
+        this.key = key;
+        
+        setValues(values);
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public void setKey(String key)
+    {
+        this.key = key;
+    }
+
+    public Object[] getValues()
+    {
+        return values;
+    }
+
+    public void setValues(Object[] values)
+    {
+        this.values = values;
+        this.lookup = null;
+        
+        if(values.length <= HASH_THRESHOLD) return;
+        
+        this.lookup = new HashSet<>();
+        
+        for(Object value : values) lookup.add(value);
+    }
+    
+    public boolean isHashed()
+    {
+        return (lookup != null);
+    }
+    
+    private boolean test(Object value)
+    {
+        if(lookup != null) return lookup.contains(value);
+        
+        for(Object item : values)
+        {
+            if(item == null ? value == null : item.equals(value)) return true;
+        }
+        
+        return false;
+    }
+    
+    @Override
+    public boolean filter(JSONObject record)
+    {
+        return test(record.get(key));
+    }
+    
+    @Override
+    public FieldPredicate compile(List<String> keys)
+    {
+        final int index = Filter.indexOf(keys, key);
+        
+        return new FieldPredicate() {
+            @Override
+            public boolean test(Object[] values)
+            {
+                return InFilter.this.test(values[index]);
+            }
+        };
+    }
+}
@@ -21,7 +21,9 @@ SOFTWARE.
  */
 package com.invirgance.convirgance.transform.filter;
 
+import com.invirgance.convirgance.batch.RecordBatch;
 import com.invirgance.convirgance.json.JSONObject;
+import java.util.List;
 
 /**
  *
@@ -56,4 +58,39 @@ public class NotFilter implements Filter
         return !this.filter.filter(record);
     }
     
+    @Override
+    public RecordBatch filter(RecordBatch batch)
+    {
+        int[] rows = batch.getSelection();
+        int[] matched = this.filter.filter(batch).getSelection();
+        int selected = 0;
+        int index = 0;
+        
+        // Both selections are sorted, so keep the rows the inner filter dropped
+        for(int i=0; i<rows.length; i++)
+        {
+            if(index < matched.length && matched[index] == rows[i]) index++;
+            else rows[selected++] = rows[i];
+        }
+        
+        batch.setSelection(rows, selected);
+        
+        return batch;
+    }
+    
+    @Override
+    public FieldPredicate compile(List<String> keys)
+    {
+        final FieldPredicate predicate = this.filter.compile(keys);
+        
+        if(predicate == null) return null;
+        
+        return new FieldPredicate() {
+            @Override
+            public boolean test(Object[] values)
+            {
+                return !predicate.test(values);
+            }
+        };
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.transform.expression.Expression;
+import java.util.List;
+
+/**
+ * Matches records where the value of the key falls between the minimum and
+ * maximum, inclusive. Either bound may be null to leave that side open. 
+ * Numbers of different types are compared by value. Values that can't be 
+ * compared with the bounds, including null, never match.
+ *
+ * @author jbanes
+ */
+public class RangeFilter implements Filter
+{
+    private String key;
+    private Object min;
+    private Object max;
+
+    public RangeFilter()
+    {
+    }
+
+    public RangeFilter(String key, Object min, Object max)
+    {
+        this.key = key;
+        this.min = min;
+        this.max = max;
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public void setKey(String key)
+    {
+        this.key = key;
+    }
+
+    public Object getMin()
+    {
+        return min;
+    }
+
+    public void setMin(Object min)
+    {
+        this.min = min;
+    }
+
+    public Object getMax()
+    {
+        return max;
+    }
+
+    public void setMax(Object max)
+    {
+        this.max = max;
+    }
+    
+    private boolean test(Object value)
+    {
+        Integer result;
+        
+        if(value == null) return false;
+        
+        if(min != null)
+        {
+            result = Expression.compare(value, min);
+            
+            if(result == null || result < 0) return false;
+        }
+        
+        if(max != null)
+        {
+            result = Expression.compare(value, max);
+            
+            if(result == null || result > 0) return false;
+        }
+        
+        return true;
+    }
+    
+    @Override
+    public boolean filter(JSONObject record)
+    {
+        return test(record.get(key));
+    }
+    
+    @Override
+    public FieldPredicate compile(List<String> keys)
+    {
+        final int index = Filter.indexOf(keys, key);
+        
+        return new FieldPredicate() {
+            @Override
+            public boolean test(Object[] values)
+            {
+                return RangeFilter.this.test(values[index]);
+            }
+        };
+    }
+}
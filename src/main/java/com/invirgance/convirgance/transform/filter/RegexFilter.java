@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches records where the value of the key is a String that matches the
+ * regular expression. The entire value must match the expression. The
+ * pattern is compiled once when it is set.
+ *
+ * @author jbanes
+ */
+public class RegexFilter implements Filter
+{
+    private String key;
+    private Pattern pattern;
+
+    public RegexFilter()
+    {
+    }
+
+    public RegexFilter(String key, String pattern)
+    {
+        this.key = key;
+        
+        setPattern(pattern);
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public void setKey(String key)
+    {
+        this.key = key;
+    }
+
+    public String getPattern()
+    {
+        return (pattern == null) ? null : pattern.pattern();
+    }
+
+    public void setPattern(String pattern)
+    {
+        this.pattern = Pattern.compile(pattern);
+    }
+    
+    @Override
+    public boolean filter(JSONObject record)
+    {
+        Object value = record.get(key);
+        
+        return (value instanceof String && pattern.matcher((String)value).matches());
+    }
+    
+    @Override
+    public FieldPredicate compile(List<String> keys)
+    {
+        final int index = Filter.indexOf(keys, key);
+        
+        return new FieldPredicate() {
+            
+            // Predicates are used by a single cursor, so the matcher is reused
+            private final Matcher matcher = pattern.matcher("");
+            
+            @Override
+            public boolean test(Object[] values)
+            {
+                Object value = values[index];
+                
+                return (value instanceof String && matcher.reset((String)value).matches());
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.List;
+
+/**
+ * Matches records where the value of the key is a String starting with the
+ * prefix.
+ *
+ * @author jbanes
+ */
+public class StartsWithFilter implements Filter
+{
+    private String key;
+    private String prefix;
+
+    public StartsWithFilter()
+    {
+    }
+
+    public StartsWithFilter(String key, String prefix)
+    {
+        this.key = key;
+        this.prefix = prefix;
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public void setKey(String key)
+    {
+        this.key = key;
+    }
+
+    public String getPrefix()
+    {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix)
+    {
+        this.prefix = prefix;
+    }
+    
+    private boolean test(Object value)
+    {
+        return (value instanceof String && ((String)value).startsWith(prefix));
+    }
+    
+    @Override
+    public boolean filter(JSONObject record)
+    {
+        return test(record.get(key));
+    }
+    
+    @Override
+    public FieldPredicate compile(List<String> keys)
+    {
+        final int index = Filter.indexOf(keys, key);
+        
+        return new FieldPredicate() {
+            @Override
+            public boolean test(Object[] values)
+            {
+                return StartsWithFilter.this.test(values[index]);
+            }
+        };
+    }
+}
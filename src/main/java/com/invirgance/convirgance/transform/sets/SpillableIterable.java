@@ -0,0 +1,374 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.sets;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.bson.BinaryDecoder;
+import com.invirgance.convirgance.bson.BinaryEncoder;
+import com.invirgance.convirgance.bson.KeyStreamEncoder;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Materializes another Iterable on its first pass so that later passes can
+ * replay the records without touching the original source. This allows 
+ * multi-pass algorithms over single use sources such as an InputStreamSource
+ * or an expensive DBMS query.
+ * 
+ * Records are stored in the compact binary encoding. The first records are
+ * kept in memory up to the memory budget and the rest spill to a temporary
+ * file. Replayed records are fresh copies, so changes made to them do not 
+ * affect later passes. Records must only contain values supported by the 
+ * binary encoding. If a record cannot be encoded, the buffer is no longer
+ * usable and every later pass throws the same error.
+ * 
+ * The source is only read once and only as far as needed. If a pass stops
+ * early, the next pass continues reading the source where it left off. Call
+ * close() to delete the temporary file.
+ *
+ * @author jbanes
+ */
+public class SpillableIterable implements Iterable<JSONObject>, AutoCloseable
+{
+    private final Iterable<JSONObject> iterable;
+    private final long memoryBudget;
+    
+    private final MemoryBuffer memory = new MemoryBuffer();
+    private final BinaryEncoder encoder = new BinaryEncoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2);
+    
+    private Iterator<JSONObject> source;
+    private DataOutputStream out;
+    private File file;
+    private DataOutputStream spill;
+    private boolean flushed = true;
+    private boolean complete;
+    private ConvirganceException failure;
+    
+    private long count;
+    private long memoryCount;
+
+    public SpillableIterable(Iterable<JSONObject> iterable)
+    {
+        this(iterable, 64 * 1024 * 1024);
+    }
+    
+    /**
+     * Creates a buffer for the iterable
+     * 
+     * @param iterable the records to materialize
+     * @param memoryBudget number of bytes of encoded records to keep in memory
+     */
+    public SpillableIterable(Iterable<JSONObject> iterable, long memoryBudget)
+    {
+        this.iterable = iterable;
+        this.memoryBudget = memoryBudget;
+        this.out = new DataOutputStream(memory);
+    }
+
+    public long getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+
+    /**
+     * The number of records read from the source so far
+     * 
+     * @return number of materialized records
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * True once the source has been read to the end
+     * 
+     * @return true if every record has been materialized
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * True if records overflowed the memory budget to a temporary file
+     * 
+     * @return true if the buffer has spilled to disk
+     */
+    public boolean isSpilled()
+    {
+        return (file != null);
+    }
+    
+    // Checks for more records in the source without reading them
+    private boolean more()
+    {
+        if(complete) return false;
+        if(source == null) source = iterable.iterator();
+        if(source.hasNext()) return true;
+        
+        complete = true;
+        
+        close(source);
+        
+        return false;
+    }
+    
+    // Reads the next record from the source and appends it to the buffer
+    private JSONObject pull()
+    {
+        JSONObject record = source.next();
+        
+        if(failure != null) throw failure;
+        
+        try
+        {
+            encoder.write(record, out);
+            
+            count++;
+            flushed = false;
+            
+            if(file == null) memoryCount++;
+            if(file == null && memory.size() >= memoryBudget) spill();
+        }
+        catch(IOException | RuntimeException e)
+        {
+            // Partially written bytes and encoder state cannot be rolled back
+            failure = new ConvirganceException("Record " + count + " could not be buffered", e);
+            
+            try
+            {
+                close();
+            }
+            catch(RuntimeException ex) { failure.addSuppressed(ex); }
+            
+            throw failure;
+        }
+        
+        return record;
+    }
+    
+    private void spill() throws IOException
+    {
+        file = File.createTempFile("convirgance", ".spill");
+        file.deleteOnExit();
+        
+        spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        out = spill;
+    }
+    
+    // Makes sure records written to the file are visible to readers
+    private void flush() throws IOException
+    {
+        if(flushed) return;
+        if(spill != null) spill.flush();
+        
+        flushed = true;
+    }
+    
+    private static void close(Object object)
+    {
+        if(!(object instanceof AutoCloseable)) return;
+        
+        try
+        {
+            ((AutoCloseable)object).close();
+        }
+        catch(RuntimeException e) { throw e; }
+        catch(Exception e) { throw new ConvirganceException(e); }
+    }
+
+    @Override
+    public CloseableIterator<JSONObject> iterator()
+    {
+        if(failure != null) throw failure;
+        
+        return new SpillableIterator();
+    }
+
+    /**
+     * Closes the source if it was not read to the end and deletes the 
+     * temporary file
+     */
+    @Override
+    public void close()
+    {
+        if(!complete && source != null) close(source);
+        
+        complete = true;
+        
+        try
+        {
+            if(spill != null) spill.close();
+        }
+        catch(IOException e) { throw new ConvirganceException(e); }
+        finally
+        {
+            if(file != null) file.delete();
+        }
+    }
+    
+    private static class MemoryBuffer extends ByteArrayOutputStream
+    {
+        public int read(int position)
+        {
+            return (position < count) ? buf[position] & 0xFF : -1;
+        }
+        
+        public int read(int position, byte[] data, int offset, int length)
+        {
+            length = Math.min(length, count - position);
+            
+            if(length <= 0) return -1;
+            
+            System.arraycopy(buf, position, data, offset, length);
+            
+            return length;
+        }
+    }
+    
+    private class SpillableIterator implements CloseableIterator<JSONObject>
+    {
+        private BinaryDecoder decoder;
+        private DataInputStream memoryIn;
+        private DataInputStream fileIn;
+        private long position;
+        private boolean closed;
+        
+        private DataInputStream getInput(long index) throws IOException
+        {
+            if(index < memoryCount) return memoryIn;
+            
+            flush();
+            
+            if(fileIn == null) fileIn = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+            
+            return fileIn;
+        }
+        
+        // Decodes from the start of the buffer up to the current position
+        private void open() throws IOException
+        {
+            memoryIn = new DataInputStream(new InputStream() {
+                
+                private int position;
+                
+                @Override
+                public int read()
+                {
+                    int c = memory.read(position);
+                    
+                    if(c >= 0) position++;
+                    
+                    return c;
+                }
+
+                @Override
+                public int read(byte[] data, int offset, int length)
+                {
+                    int count = memory.read(position, data, offset, length);
+                    
+                    if(count > 0) position += count;
+                    
+                    return count;
+                }
+            });
+            
+            decoder = new BinaryDecoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2);
+            
+            for(long i=0; i<position; i++) decoder.skip(getInput(i));
+        }
+        
+        // Drops the decoder once it falls out of step with the position
+        private void release() throws IOException
+        {
+            if(fileIn != null) fileIn.close();
+            
+            decoder = null;
+            memoryIn = null;
+            fileIn = null;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if(closed) return false;
+            
+            return (position < count || more());
+        }
+
+        @Override
+        public JSONObject next()
+        {
+            JSONObject record;
+            
+            if(failure != null) throw failure;
+            if(!hasNext()) throw new NoSuchElementException();
+            
+            try
+            {
+                // Records read straight from the source are returned as-is
+                if(position == count)
+                {
+                    if(decoder != null) release();
+                    
+                    record = pull();
+                    position++;
+                    
+                    return record;
+                }
+                
+                if(decoder == null) open();
+                
+                return (JSONObject)decoder.read(getInput(position++));
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+            
+            try
+            {
+                release();
+            }
+            catch(IOException e) { throw new ConvirganceException(e); }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.batch;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.transform.CoerceStringsTransformer;
+import com.invirgance.convirgance.transform.filter.EqualsFilter;
+import com.invirgance.convirgance.transform.filter.NotFilter;
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class RecordBatchTest
+{
+    private JSONArray<JSONObject> getRecords()
+    {
+        JSONArray<JSONObject> records = new JSONArray<>();
+        
+        records.add(new JSONObject("{\"id\":1,\"name\":\"Bob\",\"score\":1.5,\"active\":true,\"big\":1}"));
+        records.add(new JSONObject("{\"id\":2,\"name\":\"Alice\",\"score\":2.5,\"active\":false,\"big\":9999999999}"));
+        records.add(new JSONObject("{\"id\":3,\"name\":\"Bob\",\"score\":null,\"active\":true}"));
+        records.add(new JSONObject("{\"id\":4,\"name\":null,\"score\":4.5,\"active\":null,\"extra\":{\"x\":1}}"));
+        
+        return records;
+    }
+    
+    @Test
+    public void testRoundTrip()
+    {
+        JSONArray<JSONObject> records = getRecords();
+        RecordBatch batch = new RecordBatch(10);
+        int index = 0;
+        
+        for(JSONObject record : records) batch.add(record);
+        
+        assertEquals(4, batch.size());
+        assertTrue(batch.getColumn("id") instanceof LongColumn);
+        assertTrue(batch.getColumn("name") instanceof StringColumn);
+        assertTrue(batch.getColumn("score") instanceof DoubleColumn);
+        assertTrue(batch.getColumn("active") instanceof BooleanColumn);
+        assertTrue(((LongColumn)batch.getColumn("big")).isWidened()); // Mixed Integer and Long
+        assertTrue(batch.getColumn("extra") instanceof ObjectColumn);
+        assertEquals(2, ((StringColumn)batch.getColumn("name")).getEntryCount());
+        
+        for(JSONObject record : batch)
+        {
+            assertEquals(records.get(index++), record);
+        }
+        
+        assertEquals(4, index);
+    }
+    
+    @Test
+    public void testBatching()
+    {
+        JSONArray<JSONObject> records = new JSONArray<>();
+        Iterator<JSONObject> expected;
+        int batches = 0;
+        
+        for(int i=0; i<1000; i++) records.add(new JSONObject("{\"id\":" + i + "}"));
+        
+        for(RecordBatch batch : new BatchedIterable(records, 64)) batches++;
+        
+        assertEquals(16, batches);
+        
+        expected = records.iterator();
+        
+        for(JSONObject record : new UnbatchedIterable(new BatchedIterable(records, 64)))
+        {
+            assertEquals(expected.next(), record);
+        }
+        
+        assertFalse(expected.hasNext());
+    }
+    
+    @Test
+    public void testFilter()
+    {
+        RecordBatch batch = new RecordBatch(10);
+        Iterator<JSONObject> iterator;
+        
+        for(JSONObject record : getRecords()) batch.add(record);
+        
+        new EqualsFilter("name", "Bob").filter(batch);
+        
+        assertEquals(2, batch.size());
+        assertArrayEquals(new int[]{ 0, 2 }, batch.getSelection());
+        
+        new NotFilter(new EqualsFilter("id", 1)).filter(batch);
+        
+        iterator = batch.iterator();
+        
+        assertEquals(3, iterator.next().getInt("id"));
+        assertFalse(iterator.hasNext());
+        
+        batch.clearSelection();
+        
+        assertEquals(1, new EqualsFilter("score", null).filter(batch).size());
+        batch.clearSelection();
+        assertEquals(1, new EqualsFilter("active", false).filter(batch).size());
+        batch.clearSelection();
+        assertEquals(0, new EqualsFilter("missing", "x").filter(batch).size());
+        batch.clearSelection();
+        assertEquals(1, new EqualsFilter("extra", new JSONObject("{\"x\":1}")).filter(batch).size());
+    }
+    
+    @Test
+    public void testPromotion()
+    {
+        RecordBatch batch = new RecordBatch(10);
+        int[] rows = new int[4];
+        
+        batch.add(new JSONObject("{\"a\":null,\"b\":1}"));
+        batch.add(new JSONObject("{\"a\":null,\"b\":9999999999}"));
+        batch.add(new JSONObject("{\"a\":\"x\",\"b\":1}"));
+        batch.add(new JSONObject("{\"b\":null}"));
+        
+        // All-null columns take the type of the first value
+        assertTrue(batch.getColumn("a") instanceof StringColumn);
+        assertTrue(batch.getColumn("b") instanceof LongColumn);
+        
+        assertEquals(1, batch.getRecord(0).get("b"));
+        assertEquals(9999999999L, batch.getRecord(1).get("b"));
+        assertEquals("x", batch.getRecord(2).get("a"));
+        assertNull(batch.getRecord(0).get("a"));
+        
+        // Widened columns still distinguish Integer from Long values
+        assertEquals(2, batch.getColumn("b").select(1, new int[]{ 0, 1, 2, 3 }, 4, rows));
+        assertEquals(0, batch.getColumn("b").select(1L, new int[]{ 0, 1, 2, 3 }, 4, rows));
+        assertEquals(1, batch.getColumn("b").select(9999999999L, new int[]{ 0, 1, 2, 3 }, 4, rows));
+    }
+    
+    @Test
+    public void testCoerce()
+    {
+        RecordBatch batch = new RecordBatch(10);
+        CoerceStringsTransformer transformer = new CoerceStringsTransformer();
+        Iterator<JSONObject> iterator;
+        
+        batch.add(new JSONObject("{\"a\":\"1\",\"b\":\"1.5\",\"c\":\"true\",\"d\":\"x\"}"));
+        batch.add(new JSONObject("{\"a\":\"2\",\"b\":\"2.5\",\"c\":\"false\",\"d\":\"1\"}"));
+        batch.add(new JSONObject("{\"a\":null,\"b\":\"2.5\"}"));
+        
+        transformer.transform(batch);
+        
+        assertTrue(batch.getColumn("a") instanceof LongColumn);
+        assertTrue(batch.getColumn("b") instanceof DoubleColumn);
+        assertTrue(batch.getColumn("c") instanceof BooleanColumn);
+        assertTrue(batch.getColumn("d") instanceof ObjectColumn);
+        
+        iterator = batch.iterator();
+        
+        assertEquals(new JSONObject("{\"a\":1,\"b\":1.5,\"c\":true,\"d\":\"x\"}"), iterator.next());
+        assertEquals(new JSONObject("{\"a\":2,\"b\":2.5,\"c\":false,\"d\":1}"), iterator.next());
+        assertEquals(new JSONObject("{\"a\":null,\"b\":2.5}"), iterator.next());
+    }
+}
@@ -216,5 +216,131 @@ public class BinaryDecoderTest
         assertEquals(9, out.size());
         assertEquals(new Date(expected), decoder.read(in));
     }
+    
+    private byte[] encode(BinaryEncoder encoder, JSONObject[] records) throws Exception
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        
+        for(JSONObject record : records) encoder.write(record, out);
+        
+        out.flush();
+        
+        return buffer.toByteArray();
+    }
+    
+    @Test
+    public void testVersion2() throws Exception
+    {
+        JSONObject[] records = new JSONObject[100];
+        JSONArray array;
+        BinaryDecoder decoder;
+        DataInputStream in;
+        byte[] version1;
+        byte[] version2;
+        
+        for(int i=0; i<records.length; i++)
+        {
+            records[i] = new JSONObject(true);
+            array = new JSONArray();
+            
+            array.add(-i);
+            array.add(new Date(1709633730250L - i * 1000L));
+            
+            records[i].put("id", i);
+            records[i].put("negative", -i * 1000);
+            records[i].put("long", (long)i * 1000000000L);
+            records[i].put("created", new Date(1709633730250L + i * 60000L));
+            records[i].put("array", array);
+            records[i].put("name", "Name " + (i % 10));
+        }
+        
+        records[0].put("negative", Integer.MIN_VALUE);
+        records[1].put("id", Integer.MAX_VALUE);
+        records[2].put("long", Long.MIN_VALUE);
+        records[3].put("long", Long.MAX_VALUE);
+        records[4].put("created", new Date(-1L));
+        
+        version1 = encode(new BinaryEncoder(), records);
+        version2 = encode(new BinaryEncoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2), records);
+        
+        assertTrue(version2.length < version1.length);
+        
+        decoder = new BinaryDecoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2);
+        in = new DataInputStream(new ByteArrayInputStream(version2));
+        
+        for(JSONObject record : records) assertEquals(record, decoder.read(in));
+        
+        // Skipped dates must still advance the delta
+        decoder = new BinaryDecoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2);
+        in = new DataInputStream(new ByteArrayInputStream(version2));
+        
+        for(int i=0; i<records.length; i++)
+        {
+            if(i % 2 == 0)
+            {
+                decoder.skip(in);
+                continue;
+            }
+            
+            assertEquals(records[i], decoder.read(in));
+        }
+        
+        assertThrows(IllegalArgumentException.class, () -> new BinaryDecoder(new KeyStreamEncoder(), 3));
+    }
+    
+    @Test
+    public void testDictionaries() throws Exception
+    {
+        JSONObject[] records = new JSONObject[2000];
+        JSONArray tags;
+        BinaryDecoder decoder;
+        DataInputStream in;
+        JSONObject expected;
+        byte[] version1;
+        byte[] version2;
+        
+        for(int i=0; i<records.length; i++)
+        {
+            records[i] = new JSONObject(true);
+            tags = new JSONArray();
+            
+            tags.add("tag" + (i % 7));
+            tags.add("tag" + (i % 5));
+            
+            records[i].put("sku", "SKU-" + (i % 1000));
+            records[i].put("status", (i % 3 == 0) ? "open" : "closed");
+            records[i].put("tags", tags);
+        }
+        
+        version1 = encode(new BinaryEncoder(), records);
+        version2 = encode(new BinaryEncoder(new KeyStreamEncoder(), new StringEncoder(1024), BinaryEncoder.VERSION_2), records);
+        
+        assertTrue(version2.length < version1.length * 3 / 4);
+        
+        decoder = new BinaryDecoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2);
+        in = new DataInputStream(new ByteArrayInputStream(version2));
+        
+        for(JSONObject record : records) assertEquals(record, decoder.read(in));
+        
+        // Registrations in skipped values must land in the right dictionary
+        decoder = new BinaryDecoder(new KeyStreamEncoder(), BinaryEncoder.VERSION_2);
+        in = new DataInputStream(new ByteArrayInputStream(version2));
+        
+        for(int i=0; i<records.length; i++)
+        {
+            if(i % 3 == 1)
+            {
+                decoder.skip(in);
+                continue;
+            }
+            
+            expected = new JSONObject(true);
+            expected.put("status", records[i].get("status"));
+            
+            assertEquals(expected, decoder.read(in, java.util.Set.of("status")));
+        }
+        
+        assertThrows(IllegalArgumentException.class, () -> new BinaryEncoder(new KeyStreamEncoder(), new StringEncoder(), BinaryEncoder.VERSION_2));
+    }
 }
-
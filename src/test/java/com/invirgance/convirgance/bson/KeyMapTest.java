@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.bson;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class KeyMapTest
+{
+    @Test
+    public void testMap()
+    {
+        KeyMap map = new KeyMap();
+        
+        assertEquals(-1, map.get("missing"));
+        
+        for(int i=0; i<10000; i++) map.put("key" + i, i);
+        
+        assertEquals(10000, map.size());
+        
+        for(int i=0; i<10000; i++) assertEquals(i, map.get("key" + i));
+        
+        assertEquals(-1, map.get("key10000"));
+        
+        // Colliding hash codes still resolve to the right entries
+        map.put("Aa", 1);
+        map.put("BB", 2);
+        map.put("Aa", 3);
+        
+        assertEquals(3, map.get("Aa"));
+        assertEquals(2, map.get("BB"));
+        assertEquals(10002, map.size());
+        
+        map.clear();
+        
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get("key1"));
+        
+        map.put("key1", 7);
+        
+        assertEquals(7, map.get("key1"));
+    }
+}
@@ -93,4 +93,47 @@ public class KeyStreamEncoderTest
         assertEquals(10, out.size());
         assertEquals(new JSONObject("{\"x\":true}"), decoder.read(new DataInputStream(new ByteArrayInputStream(result))));
     }
+    
+    @Test
+    public void testWraparound() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        KeyStreamEncoder keys = new KeyStreamEncoder(5);
+        BinaryEncoder encoder = new BinaryEncoder(keys);
+        BinaryDecoder decoder;
+        DataInputStream in;
+        JSONObject[] records = new JSONObject[50];
+        JSONObject child;
+        
+        for(int i=0; i<records.length; i++)
+        {
+            records[i] = new JSONObject(true);
+            child = new JSONObject(true);
+            
+            child.put("child" + i, i);
+            
+            records[i].put("id", i);
+            records[i].put("key" + i, "value" + i);
+            records[i].put("nested", child);
+            records[i].put("after" + (i % 4), true);
+            
+            encoder.write(records[i], data);
+        }
+        
+        assertTrue(keys.getGeneration() > 10);
+        assertTrue(keys.size() <= 5);
+        
+        decoder = new BinaryDecoder();
+        in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        
+        for(JSONObject record : records) assertEquals(record, decoder.read(in));
+        
+        // Objects with more keys than the table can never be encoded
+        final JSONObject wide = new JSONObject(true);
+        
+        for(int i=0; i<6; i++) wide.put("wide" + i, i);
+        
+        assertThrows(IllegalStateException.class, () -> encoder.write(wide, data));
+    }
 }
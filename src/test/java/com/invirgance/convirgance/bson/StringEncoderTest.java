@@ -69,4 +69,57 @@ public class StringEncoderTest
         }
     }
     
+    @Test
+    public void testLeastRecentlyUsed() throws Exception
+    {
+        StringEncoder encoder = new StringEncoder(4);
+        StringEncoder decoder = new StringEncoder(4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream dataout = new DataOutputStream(out);
+        DataInputStream datain;
+        int[] ids = new int[64];
+        int c;
+        
+        assertTrue(encoder.isAdaptive());
+        assertFalse(new StringEncoder().isAdaptive());
+        
+        // "hot" is used between every new value, so it is never evicted
+        for(int i=0; i<ids.length; i++)
+        {
+            ids[i] = encoder.write("name", (i % 2 == 0) ? "hot" : "cold" + i, dataout);
+            
+            assertTrue(ids[i] < 4);
+        }
+        
+        assertEquals(ids[0], encoder.get("name", "hot"));
+        assertNull(encoder.get("name", "cold1"));
+        assertEquals(ids[63], encoder.get("name", "cold63"));
+        
+        // Dictionaries are kept per key
+        assertNull(encoder.get("city", "hot"));
+        assertEquals(0, encoder.write("city", "Austin", dataout));
+        assertEquals(ids[0], encoder.get("name", "hot"));
+        
+        datain = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        
+        for(int i=0; i<ids.length; i++)
+        {
+            if(i % 2 == 0 && i > 0) continue;
+            
+            c = datain.read();
+            
+            assertEquals(StringEncoder.STRING_REGISTER_OPERATION, c);
+            
+            decoder.read("name", datain);
+            
+            assertEquals((i % 2 == 0) ? "hot" : "cold" + i, decoder.get("name", ids[i]));
+        }
+        
+        assertEquals(StringEncoder.STRING_REGISTER_OPERATION, datain.read());
+        decoder.read("city", datain);
+        
+        assertEquals("Austin", decoder.get("city", 0));
+        assertEquals("hot", decoder.get("name", ids[0]));
+        assertEquals(-1, datain.read());
+    }
 }
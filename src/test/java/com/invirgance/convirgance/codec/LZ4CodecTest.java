@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.codec;
+
+import com.invirgance.convirgance.input.JSONLinesInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.JSONLinesOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.source.ByteArraySource;
+import com.invirgance.convirgance.source.CompressedSource;
+import com.invirgance.convirgance.target.ByteArrayTarget;
+import com.invirgance.convirgance.target.CompressedTarget;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class LZ4CodecTest
+{
+    private byte[] compress(Codec codec, byte[] data) throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        
+        try(OutputStream out = codec.compress(buffer))
+        {
+            // Mix single byte and bulk writes
+            if(data.length > 0) out.write(data[0]);
+            if(data.length > 1) out.write(data, 1, data.length - 1);
+        }
+        
+        return buffer.toByteArray();
+    }
+    
+    private byte[] decompress(Codec codec, byte[] data) throws IOException
+    {
+        try(InputStream in = codec.decompress(new ByteArrayInputStream(data)))
+        {
+            return in.readAllBytes();
+        }
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        byte[] noise = new byte[200000];
+        byte[] runs = new byte[100000];
+        byte[] data;
+        byte[] compressed;
+        
+        random.nextBytes(noise);
+        
+        for(int i=0; i<runs.length; i++) runs[i] = (byte)(i / 1000);
+        for(int i=0; i<20000; i++) text.append("{\"id\":").append(i).append(",\"name\":\"Customer ").append(i % 100).append("\",\"active\":true}\n");
+        
+        for(byte[] value : new byte[][]{ new byte[0], "a".getBytes(), "abcdabcdabcdabcdabcd".getBytes(), noise, runs })
+        {
+            assertArrayEquals(value, decompress(Codecs.LZ4, compress(Codecs.LZ4, value)));
+        }
+        
+        data = text.toString().getBytes(StandardCharsets.UTF_8);
+        compressed = compress(Codecs.LZ4, data);
+        
+        assertTrue(data.length > 10 * 64 * 1024);
+        assertTrue(compressed.length < data.length / 4);
+        assertArrayEquals(data, decompress(Codecs.LZ4, compressed));
+        
+        // Incompressible blocks are stored rather than expanded
+        assertTrue(compress(Codecs.LZ4, noise).length < noise.length + 64);
+        
+        assertArrayEquals(data, decompress(Codecs.GZIP, compress(Codecs.GZIP, data)));
+    }
+    
+    @Test
+    public void testCorrupt() throws Exception
+    {
+        byte[] data = "The quick brown fox jumps over the lazy dog. The quick brown fox jumps again.".getBytes();
+        byte[] compressed = compress(Codecs.LZ4, data);
+        
+        // Damage the uncompressed length in the block header
+        compressed[11] ^= 0x10;
+        
+        assertThrows(IOException.class, () -> decompress(Codecs.LZ4, compressed));
+        assertThrows(IOException.class, () -> decompress(Codecs.LZ4, data));
+    }
+    
+    @Test
+    public void testRegistry()
+    {
+        assertSame(Codecs.GZIP, Codecs.get(GZIPCodec.ID));
+        assertSame(Codecs.LZ4, Codecs.get(LZ4Codec.ID));
+        assertSame(Codecs.LZ4, Codecs.get("LZ4"));
+        assertNull(Codecs.get(15));
+        
+        assertThrows(IllegalArgumentException.class, () -> Codecs.register(new GZIPCodec() {
+            @Override
+            public int getId()
+            {
+                return LZ4Codec.ID;
+            }
+        }));
+    }
+    
+    @Test
+    public void testDecorators() throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        JSONObject record;
+        int count = 0;
+        
+        try(OutputCursor cursor = new JSONLinesOutput().write(new CompressedTarget(target, Codecs.LZ4)))
+        {
+            for(int i=0; i<1000; i++)
+            {
+                record = new JSONObject(true);
+                
+                record.put("id", i);
+                record.put("name", "Name " + i);
+                
+                cursor.write(record);
+            }
+        }
+        
+        assertEquals('C', target.getBytes()[0]);
+        
+        for(JSONObject result : new JSONLinesInput().read(new CompressedSource(new ByteArraySource(target.getBytes()), Codecs.LZ4)))
+        {
+            assertEquals(count, result.get("id"));
+            assertEquals("Name " + count, result.get("name"));
+            
+            count++;
+        }
+        
+        assertEquals(1000, count);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.dbms;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class CachingDBMSTest
+{
+    private static DBMS dbms;
+    
+    @BeforeAll
+    public static void setup()
+    {
+        JDBCDataSource source = new JDBCDataSource();
+        List<JSONObject> records = new ArrayList<>();
+        
+        source.setURL("jdbc:hsqldb:mem:caching");
+        source.setUser("SA");
+        source.setPassword("");
+        
+        dbms = new DBMS(source);
+        
+        for(int i=0; i<100; i++)
+        {
+            JSONObject record = new JSONObject(true);
+            
+            record.put("id", i);
+            record.put("name", "Name " + i);
+            
+            records.add(record);
+        }
+        
+        dbms.update(new QueryOperation(new Query("create table PRODUCT (ID INTEGER, NAME VARCHAR(30), PRICE DECIMAL(10,2), CREATED TIMESTAMP)")));
+        dbms.update(new BatchOperation(new Query("insert into PRODUCT (ID, NAME) values (:id, :name)"), records));
+    }
+    
+    @AfterAll
+    public static void cleanup()
+    {
+        dbms.update(new QueryOperation(new Query("drop table PRODUCT")));
+    }
+    
+    private List<JSONObject> read(Iterable<JSONObject> iterable)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        
+        for(JSONObject record : iterable) records.add(record);
+        
+        return records;
+    }
+    
+    @Test
+    public void testCache()
+    {
+        CachingDBMS cache = new CachingDBMS(dbms);
+        Query query = new Query("select ID, NAME from PRODUCT where ID < :id order by ID");
+        List<JSONObject> expected;
+        List<JSONObject> cached;
+        
+        query.setBinding("id", 50);
+        
+        expected = read(cache.query(query, null, new String[]{ "PRODUCT" }));
+        cached = read(cache.query(query, null, new String[]{ "PRODUCT" }));
+        
+        assertEquals(50, expected.size());
+        assertEquals(expected.toString(), cached.toString());
+        assertNotSame(expected.get(0), cached.get(0));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+        assertTrue(cache.getBytes() > 0);
+        
+        // Cached records are fresh copies
+        cached.get(0).put("ID", -1);
+        
+        assertEquals(0, read(cache.query(query)).get(0).getInt("ID"));
+        
+        // Different bindings are different entries
+        query.setBinding("id", 10);
+        
+        assertEquals(10, read(cache.query(query)).size());
+        assertEquals(2, cache.size());
+        
+        // Updates are not seen until the tag is invalidated
+        dbms.update(new QueryOperation(new Query("update PRODUCT set NAME = 'Changed' where ID = 0")));
+        
+        query.setBinding("id", 50);
+        
+        assertEquals("Name 0", read(cache.query(query, null, new String[]{ "PRODUCT" })).get(0).getString("NAME"));
+        
+        cache.invalidate("PRODUCT");
+        
+        assertEquals(1, cache.size());
+        assertEquals("Changed", read(cache.query(query, null, new String[]{ "PRODUCT" })).get(0).getString("NAME"));
+        
+        dbms.update(new QueryOperation(new Query("update PRODUCT set NAME = 'Name 0' where ID = 0")));
+        cache.invalidateAll();
+        
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+    
+    @Test
+    public void testInvalidateWhileReading()
+    {
+        CachingDBMS cache = new CachingDBMS(dbms);
+        Query query = new Query("select ID from PRODUCT order by ID");
+        String[] projection = new String[]{ "ID" };
+        Iterator<JSONObject> iterator = cache.query(query, projection, new String[]{ "PRODUCT" }).iterator();
+        
+        // Changing the caller's array must not change the cache key
+        projection[0] = "NAME";
+        
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        
+        cache.invalidate("PRODUCT");
+        
+        while(iterator.hasNext()) iterator.next();
+        
+        // Result was read across an invalidation, so it is not stored
+        assertEquals(0, cache.size());
+        
+        read(cache.query(query, new String[]{ "ID" }, new String[]{ "PRODUCT" }));
+        
+        assertEquals(1, cache.size());
+        assertEquals(100, read(cache.query(query, new String[]{ "ID" }, null)).size());
+        assertEquals(1, cache.getHits());
+    }
+    
+    @Test
+    public void testEviction() throws Exception
+    {
+        CachingDBMS cache = new CachingDBMS(dbms);
+        Query query = new Query("select ID, NAME from PRODUCT where ID = :id");
+        Iterator<JSONObject> iterator;
+        long size;
+        
+        query.setBinding("id", 1);
+        read(cache.query(query));
+        
+        size = cache.getBytes();
+        
+        // Room for two entries
+        cache.setMaxBytes(size * 2);
+        
+        query.setBinding("id", 2);
+        read(cache.query(query));
+        query.setBinding("id", 1);
+        read(cache.query(query));
+        query.setBinding("id", 3);
+        read(cache.query(query));
+        
+        // Entry 2 was least recently used
+        assertEquals(2, cache.size());
+        
+        query.setBinding("id", 1);
+        read(cache.query(query));
+        
+        assertEquals(2, cache.getHits());
+        
+        // Results larger than the budget are never cached
+        cache.invalidateAll();
+        cache.setMaxBytes(size);
+        
+        assertEquals(100, read(cache.query(new Query("select ID, NAME from PRODUCT"))).size());
+        assertEquals(0, cache.size());
+        
+        // Partially read results are not cached
+        cache.setMaxBytes(1024 * 1024);
+        
+        iterator = cache.query(new Query("select ID, NAME from PRODUCT")).iterator();
+        iterator.next();
+        ((AutoCloseable)iterator).close();
+        
+        assertEquals(0, cache.size());
+        
+        // Expired entries are not returned
+        cache.setTimeToLive(0);
+        
+        read(cache.query(query));
+        Thread.sleep(1);
+        read(cache.query(query));
+        
+        assertEquals(2, cache.getHits());
+    }
+    
+    @Test
+    public void testUnsupported()
+    {
+        CachingDBMS cache = new CachingDBMS(dbms);
+        Query query = new Query("select ID, CAST(PRICE AS DECIMAL(10,2)) AS PRICE from PRODUCT where ID < 5");
+        
+        // DECIMAL columns are returned as BigDecimal, which the encoding does not support
+        dbms.update(new QueryOperation(new Query("update PRODUCT set PRICE = 1.50 where ID < 5")));
+        
+        assertEquals(5, read(cache.query(query)).size());
+        assertEquals(5, read(cache.query(query)).size());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+    }
+}
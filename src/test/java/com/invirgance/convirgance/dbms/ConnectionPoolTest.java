@@ -0,0 +1,272 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.dbms;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ConnectionPoolTest
+{
+    private JDBCDataSource getSource()
+    {
+        JDBCDataSource source = new JDBCDataSource();
+        
+        source.setURL("jdbc:hsqldb:mem:pool");
+        source.setUser("SA");
+        source.setPassword("");
+        
+        return source;
+    }
+    
+    @Test
+    public void testReuse() throws SQLException
+    {
+        ConnectionPool pool = new ConnectionPool(getSource(), 2);
+        Connection first = pool.getConnection();
+        Connection second;
+        Connection physical = first.unwrap(Connection.class);
+        
+        assertEquals(1, pool.getActiveCount());
+        assertEquals(0, pool.getIdleCount());
+        
+        first.setAutoCommit(false);
+        first.close();
+        first.close();
+        
+        assertTrue(first.isClosed());
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        
+        try
+        {
+            first.createStatement();
+            fail("Returned connection should not be usable");
+        }
+        catch(SQLException e) {}
+        
+        second = pool.getConnection();
+        
+        assertNotSame(first, second);
+        assertSame(physical, second.unwrap(Connection.class));
+        assertTrue(second.getAutoCommit());
+        assertFalse(second.isClosed());
+        
+        second.close();
+        pool.close();
+        
+        assertEquals(0, pool.getIdleCount());
+        assertTrue(physical.isClosed());
+        
+        try
+        {
+            pool.getConnection();
+            fail("Closed pool should not hand out connections");
+        }
+        catch(SQLException e) {}
+    }
+    
+    @Test
+    public void testExhaustion() throws SQLException
+    {
+        ConnectionPool pool = new ConnectionPool(getSource(), 2);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        
+        pool.setTimeout(50);
+        
+        try
+        {
+            pool.getConnection();
+            fail("Pool should be exhausted");
+        }
+        catch(SQLTimeoutException e) {}
+        
+        first.close();
+        
+        pool.getConnection().close();
+        second.close();
+        
+        assertEquals(2, pool.getIdleCount());
+        
+        pool.close();
+    }
+    
+    @Test
+    public void testValidation() throws SQLException
+    {
+        ConnectionPool pool = new ConnectionPool(getSource(), 2);
+        Connection connection = pool.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        
+        connection.close();
+        physical.close(); // Simulate the database dropping the connection
+        
+        pool.setValidationInterval(0);
+        
+        connection = pool.getConnection();
+        
+        assertNotSame(physical, connection.unwrap(Connection.class));
+        assertFalse(connection.unwrap(Connection.class).isClosed());
+        
+        connection.close();
+        pool.close();
+    }
+    
+    @Test
+    public void testMaxLifetime() throws Exception
+    {
+        ConnectionPool pool = new ConnectionPool(getSource(), 2);
+        Connection connection = pool.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        
+        pool.setMaxLifetime(1);
+        Thread.sleep(5);
+        connection.close();
+        
+        assertTrue(physical.isClosed());
+        assertEquals(0, pool.getIdleCount());
+        
+        pool.close();
+    }
+    
+    @Test
+    public void testLeakDetection() throws Exception
+    {
+        ConnectionPool pool = new ConnectionPool(getSource(), 2);
+        Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+        List<LogRecord> logged = new ArrayList<>();
+        Connection leaked;
+        
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record)
+            {
+                logged.add(record);
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        
+        pool.setLeakThreshold(1);
+        
+        leaked = pool.getConnection();
+        Thread.sleep(5);
+        
+        logger.addHandler(handler);
+        logger.setUseParentHandlers(false);
+        
+        try
+        {
+            pool.getConnection().close();
+            pool.getConnection().close();
+        }
+        finally
+        {
+            logger.removeHandler(handler);
+            logger.setUseParentHandlers(true);
+        }
+        
+        assertEquals(1, pool.getLeakCount());
+        assertEquals(1, logged.size());
+        assertEquals("testLeakDetection", logged.get(0).getThrown().getStackTrace()[1].getMethodName());
+        
+        leaked.close();
+        pool.close();
+    }
+    
+    @Test
+    public void testDBMS()
+    {
+        ConnectionPool pool = new ConnectionPool(getSource(), 2);
+        DBMS dbms = new DBMS(pool);
+        List<JSONObject> records = new ArrayList<>();
+        int count = 0;
+        
+        for(int i=0; i<10; i++) records.add(new JSONObject("{\"id\":" + i + "}"));
+        
+        dbms.update(new QueryOperation(new Query("create table POOLED (ID INTEGER)")));
+        dbms.update(new BatchOperation(new Query("insert into POOLED (ID) values (:id)"), records));
+        
+        for(int i=0; i<5; i++)
+        {
+            count = 0;
+            
+            for(JSONObject record : dbms.query(new Query("select * from POOLED"))) count++;
+            
+            assertEquals(10, count);
+        }
+        
+        dbms.update(new QueryOperation(new Query("drop table POOLED")));
+        
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        
+        pool.close();
+    }
+    
+    @Test
+    public void testEmptyResults()
+    {
+        ConnectionPool pool = new ConnectionPool(getSource(), 2);
+        DBMS dbms = new DBMS(pool);
+        
+        pool.setTimeout(1000);
+        
+        dbms.update(new QueryOperation(new Query("create table EMPTY (ID INTEGER)")));
+        
+        // Iterators that are never consumed must not hold their connections
+        for(int i=0; i<5; i++)
+        {
+            assertFalse(dbms.query(new Query("select * from EMPTY")).iterator().hasNext());
+            assertEquals(0, pool.getActiveCount());
+        }
+        
+        dbms.update(new QueryOperation(new Query("drop table EMPTY")));
+        
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        
+        pool.close();
+    }
+}
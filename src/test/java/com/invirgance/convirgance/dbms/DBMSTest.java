@@ -177,4 +177,22 @@ public class DBMSTest
         assertFalse(iterator.hasNext());
         assertEquals(13, count);
     }
+    
+    @Test
+    public void testProjection()
+    {
+        DBMS dbms = new DBMS(source);
+        int count = 0;
+        
+        for(JSONObject record : dbms.query(new Query("select * from CUSTOMER"), new String[]{ "NAME", "CUSTOMER_ID" }))
+        {
+            assertEquals(2, record.size());
+            assertEquals("CUSTOMER_ID", record.keySet().iterator().next());
+            assertTrue(record.containsKey("NAME"));
+            
+            count++;
+        }
+        
+        assertEquals(13, count);
+    }
 }
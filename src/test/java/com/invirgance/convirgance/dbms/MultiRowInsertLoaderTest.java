@@ -0,0 +1,164 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.dbms;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.List;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class MultiRowInsertLoaderTest
+{
+    private static DBMS dbms;
+    
+    @BeforeAll
+    public static void setup()
+    {
+        JDBCDataSource source = new JDBCDataSource();
+        
+        source.setURL("jdbc:hsqldb:mem:bulk");
+        source.setUser("SA");
+        source.setPassword("");
+        
+        dbms = new DBMS(source);
+        
+        dbms.update(new QueryOperation(new Query("create table BULK (ID INTEGER, NAME VARCHAR(30), ORIGIN VARCHAR(30))")));
+    }
+    
+    @AfterAll
+    public static void cleanup()
+    {
+        dbms.update(new QueryOperation(new Query("drop table BULK")));
+    }
+    
+    private List<JSONObject> createRecords(int count)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        
+        for(int i=0; i<count; i++)
+        {
+            JSONObject record = new JSONObject(true);
+            
+            record.put("id", i);
+            record.put("name", (i % 10 == 0) ? null : "Name " + i);
+            
+            records.add(record);
+        }
+        
+        return records;
+    }
+    
+    private void verify(int count, String origin)
+    {
+        int index = 0;
+        
+        for(JSONObject record : dbms.query(new Query("select * from BULK order by ID")))
+        {
+            assertEquals(index, record.getInt("ID"));
+            assertEquals((index % 10 == 0) ? null : "Name " + index, record.get("NAME"));
+            assertEquals(origin, record.get("ORIGIN"));
+            
+            index++;
+        }
+        
+        assertEquals(count, index);
+        
+        dbms.update(new QueryOperation(new Query("delete from BULK")));
+    }
+    
+    @Test
+    public void testLoad()
+    {
+        BatchOperation operation;
+        
+        for(int count : new int[]{ 0, 1, 7, 100, 1003 })
+        {
+            operation = new BatchOperation(new Query("insert into BULK (ID, NAME, ORIGIN) values (:id, :name, 'values (x)')"), createRecords(count));
+            
+            operation.setLoader(new MultiRowInsertLoader(7));
+            dbms.update(operation);
+            
+            verify(count, "values (x)");
+        }
+    }
+    
+    @Test
+    public void testBatching()
+    {
+        MultiRowInsertLoader loader = new MultiRowInsertLoader();
+        BatchOperation operation = new BatchOperation(new Query("INSERT INTO BULK (ID, NAME) VALUES(:id, :name)"), createRecords(2500));
+        
+        loader.setBatchSize(500);
+        operation.setLoader(loader);
+        dbms.update(operation);
+        
+        verify(2500, null);
+    }
+    
+    @Test
+    public void testDefaultLoader()
+    {
+        BatchOperation operation = new BatchOperation(new Query("insert into BULK (ID, NAME) values (:id, :name)"), createRecords(250));
+        
+        operation.setAutoCommit(100);
+        dbms.update(operation);
+        
+        verify(250, null);
+        
+        operation.setLoader(new BatchLoader(7));
+        dbms.update(operation);
+        
+        verify(250, null);
+    }
+    
+    @Test
+    public void testInvalid()
+    {
+        BatchOperation operation = new BatchOperation(new Query("update BULK set NAME = :name where ID = :id"), createRecords(10));
+        
+        operation.setLoader(new MultiRowInsertLoader());
+        
+        assertThrows(ConvirganceException.class, () -> dbms.update(operation));
+        
+        operation.setQuery(new Query("insert into BULK (ID, NAME) select :id, :name from BULK"));
+        
+        assertThrows(ConvirganceException.class, () -> dbms.update(operation));
+        
+        operation.setQuery(new Query("insert into BULK (ID, NAME) values (:id, :name)"));
+        operation.setLoader(new MultiRowInsertLoader(0));
+        
+        assertThrows(ConvirganceException.class, () -> dbms.update(operation));
+        
+        operation.setLoader(new MultiRowInsertLoader(-1));
+        
+        assertThrows(ConvirganceException.class, () -> dbms.update(operation));
+    }
+}
@@ -21,13 +21,29 @@ SOFTWARE.
  */
 package com.invirgance.convirgance.input;
 
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.bson.BSONIndex;
+import com.invirgance.convirgance.bson.BinaryEncoder;
+import com.invirgance.convirgance.codec.Codec;
+import com.invirgance.convirgance.codec.Codecs;
 import com.invirgance.convirgance.json.JSONObject;
 import com.invirgance.convirgance.output.BSONOutput;
 import com.invirgance.convirgance.output.OutputCursor;
 import com.invirgance.convirgance.source.ByteArraySource;
+import com.invirgance.convirgance.source.FileSource;
+import com.invirgance.convirgance.source.InputStreamSource;
+import com.invirgance.convirgance.source.Source;
 import com.invirgance.convirgance.target.ByteArrayTarget;
+import com.invirgance.convirgance.transform.filter.EqualsFilter;
+import com.invirgance.convirgance.transform.filter.NotFilter;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.File;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -79,4 +95,322 @@ public class BSONInputTest
             index++;
         }
     }
+    
+    @Test
+    public void testProjection() throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        BSONInput input = new BSONInput();
+        BSONOutput output = new BSONOutput();
+        JSONObject record;
+        int index = 0;
+        
+        try(OutputCursor cursor = output.write(target))
+        {
+            for(int i=0; i<500; i++)
+            {
+                record = new JSONObject(true);
+                
+                record.put("a", i);
+                record.put("b", "value" + i);
+                record.put("c", new JSONObject("{\"n\":1.5,\"x\":null}"));
+                record.put("d", i * 100000L);
+                record.put("e", "s" + (i % 300));
+                
+                cursor.write(record);
+            }
+        }
+        
+        input.setProjection(new String[]{ "e", "a" });
+        
+        for(JSONObject projected : input.read(new ByteArraySource(target.getBytes())))
+        {
+            assertEquals(2, projected.size());
+            assertEquals(index, projected.getInt("a"));
+            assertEquals("s" + (index % 300), projected.getString("e"));
+            
+            index++;
+        }
+        
+        assertEquals(500, index);
+    }
+    
+    @Test
+    public void testFilter() throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        BSONInput input = new BSONInput();
+        BSONOutput output = new BSONOutput();
+        JSONObject record;
+        int count = 0;
+        
+        try(OutputCursor cursor = output.write(target))
+        {
+            for(int i=0; i<1000; i++)
+            {
+                record = new JSONObject(true);
+                
+                record.put("id", i);
+                record.put("nested", new JSONObject("{\"n\":" + i + "}"));
+                record.put("group", "group" + (i % 10));
+                
+                if(i % 2 == 0) record.put("even", true);
+                
+                cursor.write(record);
+            }
+        }
+        
+        input.setFilter(new EqualsFilter("group", "group3"));
+        
+        for(JSONObject filtered : input.read(new ByteArraySource(target.getBytes())))
+        {
+            assertEquals(3, filtered.getInt("id") % 10);
+            assertEquals(filtered.getInt("id"), filtered.getJSONObject("nested").getInt("n"));
+            
+            count++;
+        }
+        
+        assertEquals(100, count);
+        
+        count = 0;
+        
+        input.setFilter(new NotFilter(new EqualsFilter("even", null)));
+        input.setProjection(new String[]{ "id" });
+        
+        for(JSONObject filtered : input.read(new ByteArraySource(target.getBytes())))
+        {
+            assertEquals(1, filtered.size());
+            assertEquals(count * 2, filtered.getInt("id"));
+            
+            count++;
+        }
+        
+        assertEquals(500, count);
+    }
+    
+    @Test
+    public void testVersion2() throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        BSONInput input = new BSONInput();
+        BSONOutput output = new BSONOutput();
+        JSONObject record;
+        int count = 0;
+        
+        output.setVersion(BinaryEncoder.VERSION_2);
+        
+        try(OutputCursor cursor = output.write(target))
+        {
+            for(int i=0; i<1000; i++)
+            {
+                record = new JSONObject(true);
+                
+                record.put("id", i);
+                record.put("created", new Date(1709633730250L + i * 1000L));
+                record.put("group", i % 3);
+                
+                cursor.write(record);
+            }
+        }
+        
+        assertEquals(BinaryEncoder.VERSION_2, target.getBytes()[6]);
+        
+        input.setProjection(new String[]{ "created" });
+        input.setFilter(new EqualsFilter("group", 1));
+        
+        for(JSONObject result : input.read(new ByteArraySource(target.getBytes())))
+        {
+            assertEquals(1, result.size());
+            assertEquals(new Date(1709633730250L + (count * 3 + 1) * 1000L), result.get("created"));
+            
+            count++;
+        }
+        
+        assertEquals(333, count);
+    }
+    
+    private List<JSONObject> read(BSONInput input, Source source)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        
+        for(JSONObject record : input.read(source)) records.add(record);
+        
+        return records;
+    }
+    
+    @Test
+    public void testIndex() throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        BSONOutput output = new BSONOutput();
+        BSONInput input = new BSONInput();
+        BSONIndex index;
+        List<JSONObject> records;
+        JSONObject record;
+        File file;
+        byte[] data;
+        
+        output.setVersion(BinaryEncoder.VERSION_2);
+        output.setIndexInterval(100);
+        
+        try(OutputCursor cursor = output.write(target))
+        {
+            for(int i=0; i<10000; i++)
+            {
+                record = new JSONObject(true);
+                
+                record.put("id", i);
+                record.put("name", "Name " + (i % 50));
+                record.put("created", new Date(1709633730250L + i * 1000L));
+                
+                if(i % 1000 == 0) record.put("rare" + i, true);
+                
+                cursor.write(record);
+            }
+        }
+        
+        data = target.getBytes();
+        
+        assertEquals(0x02, data[7]);
+        
+        try(SeekableByteChannel channel = new ByteArraySource(data).getChannel())
+        {
+            index = BSONIndex.read(channel);
+        }
+        
+        assertEquals(10000, index.getRecordCount());
+        assertEquals(100, index.getCheckpointCount());
+        assertEquals(8, index.getOffset(0));
+        assertEquals(55, index.find(5555));
+        assertEquals(5500, index.getRecord(55));
+        
+        // Sequential reads ignore the index
+        assertEquals(10000, read(input, new ByteArraySource(data)).size());
+        
+        input.setStart(5555);
+        input.setLimit(3);
+        records = read(input, new ByteArraySource(data));
+        
+        assertEquals(3, records.size());
+        assertEquals(5555, records.get(0).get("id"));
+        assertEquals("Name 6", records.get(1).get("name"));
+        assertEquals(new Date(1709633730250L + 5557 * 1000L), records.get(2).get("created"));
+        
+        // Sources that cannot seek decode forward to the start
+        assertEquals(records, read(input, new InputStreamSource(new ByteArrayInputStream(data))));
+        
+        input.setStart(6000);
+        input.setLimit(1);
+        
+        assertTrue(read(input, new ByteArraySource(data)).get(0).getBoolean("rare6000"));
+        
+        input.setStart(9998);
+        input.setLimit(-1);
+        input.setFilter(new EqualsFilter("id", 9999));
+        
+        assertEquals(1, read(input, new ByteArraySource(data)).size());
+        
+        input.setFilter(null);
+        input.setStart(20000);
+        
+        assertEquals(0, read(input, new ByteArraySource(data)).size());
+        
+        file = File.createTempFile("index", ".bson");
+        file.deleteOnExit();
+        
+        Files.write(file.toPath(), data);
+        
+        input.setStart(123);
+        input.setLimit(2);
+        records = read(input, new FileSource(file));
+        
+        assertEquals(123, records.get(0).get("id"));
+        assertEquals(124, records.get(1).get("id"));
+        
+        output.setCompressed(true);
+        
+        assertThrows(ConvirganceException.class, () -> output.write(new ByteArrayTarget()));
+        
+        // Older releases cannot read checkpoints, so indexes force version 2
+        target = new ByteArrayTarget();
+        
+        output.setCompressed(false);
+        output.setVersion(BinaryEncoder.VERSION_1);
+        
+        try(OutputCursor cursor = output.write(target))
+        {
+            for(int i=0; i<250; i++) cursor.write(new JSONObject("{\"id\":" + i + "}"));
+        }
+        
+        assertEquals(BinaryEncoder.VERSION_2, target.getBytes()[6]);
+        
+        input.setStart(200);
+        input.setLimit(1);
+        
+        assertEquals(200, read(input, new ByteArraySource(target.getBytes())).get(0).get("id"));
+    }
+    
+    @Test
+    public void testInvalidSeekable()
+    {
+        final List<SeekableByteChannel> channels = new ArrayList<>();
+        BSONInput input = new BSONInput();
+        
+        ByteArraySource source = new ByteArraySource("Not a BSON file".getBytes()) {
+            @Override
+            public SeekableByteChannel getChannel()
+            {
+                SeekableByteChannel channel = super.getChannel();
+                
+                channels.add(channel);
+                
+                return channel;
+            }
+        };
+        
+        input.setStart(1);
+        
+        assertThrows(ConvirganceException.class, () -> input.read(source).iterator());
+        assertEquals(1, channels.size());
+        assertFalse(channels.get(0).isOpen());
+    }
+    
+    @Test
+    public void testCodecs() throws Exception
+    {
+        BSONOutput output = new BSONOutput();
+        BSONInput input = new BSONInput();
+        ByteArrayTarget target;
+        JSONObject record;
+        
+        for(Codec codec : new Codec[]{ Codecs.GZIP, Codecs.LZ4 })
+        {
+            target = new ByteArrayTarget();
+            
+            output.setCodec(codec);
+            
+            try(OutputCursor cursor = output.write(target))
+            {
+                for(int i=0; i<5000; i++)
+                {
+                    record = new JSONObject(true);
+                    
+                    record.put("id", i);
+                    record.put("name", "Name " + (i % 10));
+                    
+                    cursor.write(record);
+                }
+            }
+            
+            assertEquals((codec == Codecs.GZIP) ? 0x01 : 0x20, target.getBytes()[7]);
+            
+            // Older releases only understand GZIP, so other codecs force version 2
+            assertEquals((codec == Codecs.GZIP) ? BinaryEncoder.VERSION_1 : BinaryEncoder.VERSION_2, target.getBytes()[6]);
+            
+            input.setStart(4990);
+            
+            assertEquals(10, read(input, new ByteArraySource(target.getBytes())).size());
+            assertEquals("Name 5", read(input, new ByteArraySource(target.getBytes())).get(5).get("name"));
+        }
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.input;
+
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.ColumnarOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.source.ByteArraySource;
+import com.invirgance.convirgance.target.ByteArrayTarget;
+import com.invirgance.convirgance.transform.filter.EqualsFilter;
+import com.invirgance.convirgance.transform.filter.NotFilter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ColumnarInputTest
+{
+    private List<JSONObject> generate(int count)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        JSONObject record;
+        
+        for(int i=0; i<count; i++)
+        {
+            record = new JSONObject(true);
+            
+            record.put("id", i);
+            record.put("big", 10000000000L + i * 3);
+            record.put("price", i * 1.5);
+            record.put("active", (i % 3 == 0));
+            record.put("group", "group" + (i / 100));
+            record.put("created", new Date(1700000000000L + i * 1000L));
+            
+            if(i % 7 == 0) record.put("note", null);
+            else if(i % 5 != 0) record.put("note", "Note " + (i % 4));
+            
+            if(i % 11 == 0) record.put("tags", new JSONArray("[\"a\",\"b\"]"));
+            
+            records.add(record);
+        }
+        
+        return records;
+    }
+    
+    private byte[] write(List<JSONObject> records, int rowGroupSize) throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        
+        try(OutputCursor cursor = new ColumnarOutput(rowGroupSize).write(target))
+        {
+            for(JSONObject record : records) cursor.write(record);
+        }
+        
+        return target.getBytes();
+    }
+    
+    private List<JSONObject> read(ColumnarInput input, byte[] data)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        
+        for(JSONObject record : input.read(new ByteArraySource(data))) records.add(record);
+        
+        return records;
+    }
+    
+    @Test
+    public void testEmpty() throws Exception
+    {
+        assertEquals(0, read(new ColumnarInput(), write(new ArrayList<>(), 10)).size());
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        List<JSONObject> records = generate(1000);
+        
+        assertEquals(records, read(new ColumnarInput(), write(records, 128)));
+        assertEquals(records, read(new ColumnarInput(), write(records, 5000)));
+    }
+    
+    @Test
+    public void testMixedTypes() throws Exception
+    {
+        List<JSONObject> records = new ArrayList<>();
+        
+        records.add(new JSONObject("{\"value\":1}"));
+        records.add(new JSONObject("{\"value\":\"one\"}"));
+        records.add(new JSONObject("{\"value\":{\"nested\":true}}"));
+        records.add(new JSONObject("{\"value\":null}"));
+        records.add(new JSONObject("{\"other\":-5}"));
+        
+        assertEquals(records, read(new ColumnarInput(), write(records, 2)));
+        assertEquals(records, read(new ColumnarInput(), write(records, 10)));
+    }
+    
+    @Test
+    public void testProjection() throws Exception
+    {
+        List<JSONObject> records = generate(500);
+        List<JSONObject> results = read(new ColumnarInput(new String[]{ "note", "id" }), write(records, 64));
+        
+        assertEquals(records.size(), results.size());
+        
+        for(int i=0; i<records.size(); i++)
+        {
+            assertEquals(records.get(i).get("id"), results.get(i).get("id"));
+            assertEquals(records.get(i).containsKey("note"), results.get(i).containsKey("note"));
+            assertEquals(records.get(i).get("note"), results.get(i).get("note"));
+            assertFalse(results.get(i).containsKey("group"));
+        }
+    }
+    
+    @Test
+    public void testFilter() throws Exception
+    {
+        List<JSONObject> records = generate(1000);
+        byte[] data = write(records, 50);
+        List<JSONObject> results;
+        
+        results = read(new ColumnarInput(null, new EqualsFilter("group", "group3")), data);
+        
+        assertEquals(100, results.size());
+        assertEquals(records.subList(300, 400), results);
+        
+        results = read(new ColumnarInput(new String[]{ "id" }, new EqualsFilter("id", 742)), data);
+        
+        assertEquals(1, results.size());
+        assertEquals(new JSONObject("{\"id\":742}"), results.get(0));
+        
+        results = read(new ColumnarInput(new String[]{ "id" }, new NotFilter(new EqualsFilter("group", "group3"))), data);
+        
+        assertEquals(900, results.size());
+        assertEquals(299, results.get(299).get("id"));
+        assertEquals(400, results.get(300).get("id"));
+        
+        results = read(new ColumnarInput(null, new EqualsFilter("missing", "x")), data);
+        
+        assertEquals(0, results.size());
+        
+        results = read(new ColumnarInput(null, new EqualsFilter("note", null)), data);
+        
+        for(JSONObject record : results) assertNull(record.get("note"));
+        
+        assertEquals(records.stream().filter(record -> record.get("note") == null).count(), results.size());
+    }
+}
@@ -21,8 +21,22 @@ SOFTWARE.
  */
 package com.invirgance.convirgance.input;
 
+import com.invirgance.convirgance.ConvirganceException;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.ByteArraySource;
 import com.invirgance.convirgance.source.InputStreamSource;
+import com.invirgance.convirgance.transform.filter.EqualsFilter;
+import com.invirgance.convirgance.transform.filter.Filter;
+import com.invirgance.convirgance.transform.filter.NotFilter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -82,15 +96,29 @@ public class DelimitedInputTest
         assertEquals(5, total);
     }
     
+    private String[] parseLine(String line) throws IOException
+    {
+        DelimitedParser parser = new DelimitedParser(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, '|', true, ZoneOffset.UTC);
+        String[] fields;
+        
+        if(!parser.next()) return new String[0];
+        
+        fields = new String[parser.getFieldCount()];
+        
+        for(int i=0; i<fields.length; i++) fields[i] = parser.getString(i);
+        
+        return fields;
+    }
+    
     @Test
-    public void testParseLine()
+    public void testParseLine() throws IOException
     {
-        String[] none = DelimitedInput.parseLine("", '|');
-        String[] one = DelimitedInput.parseLine("Column 1", '|');
-        String[] two = DelimitedInput.parseLine("Column 1|Column 2", '|');
-        String[] three = DelimitedInput.parseLine("Column 1|Column 2|Column 3", '|');
-        String[] trailing = DelimitedInput.parseLine("Column 1|Column 2|Column 3|", '|');
-        String[] empty = DelimitedInput.parseLine("|||", '|');
+        String[] none = parseLine("");
+        String[] one = parseLine("Column 1");
+        String[] two = parseLine("Column 1|Column 2");
+        String[] three = parseLine("Column 1|Column 2|Column 3");
+        String[] trailing = parseLine("Column 1|Column 2|Column 3|");
+        String[] empty = parseLine("|||");
        
         assertEquals(0, none.length);
         assertEquals(1, one.length);
@@ -114,4 +142,218 @@ public class DelimitedInputTest
         assertEquals("", empty[2]);
     }
     
+    @Test
+    public void testProjection()
+    {
+        DelimitedInput input = new DelimitedInput();
+        int[] sizes = new int[]{ 2, 2, 1, 1, 1 };
+        int total = 0;
+        
+        input.setProjection(new String[]{ "Column 1", "Column 3" });
+        
+        for(JSONObject record : input.read(new InputStreamSource(getClass().getResourceAsStream("/input/delimited/example1.txt"))))
+        {
+            assertFalse(record.containsKey("Column 2"));
+            assertEquals("Value 1", record.get("Column 1"));
+            assertEquals(sizes[total], record.size());
+            
+            total++;
+        }
+        
+        assertEquals(5, total);
+    }
+    
+    private List<JSONObject> read(DelimitedInput input, String data)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        
+        for(JSONObject record : input.read(new ByteArraySource(data.getBytes(java.nio.charset.StandardCharsets.UTF_8)))) records.add(record);
+        
+        return records;
+    }
+    
+    @Test
+    public void testFilter()
+    {
+        String data = "id|name|city\n1|Bob|Austin\n2|Alice|Dallas\n3|Carol|Austin\n4|Dave\n";
+        DelimitedInput input = new DelimitedInput();
+        List<JSONObject> records;
+        
+        input.setFilter(new EqualsFilter("city", "Austin"));
+        records = read(input, data);
+        
+        assertEquals(2, records.size());
+        assertEquals(new JSONObject("{\"id\":\"1\",\"name\":\"Bob\",\"city\":\"Austin\"}"), records.get(0));
+        assertEquals("3", records.get(1).get("id"));
+        
+        input.setFilter(new NotFilter(new EqualsFilter("city", "Austin")));
+        input.setProjection(new String[]{ "name" });
+        records = read(input, data);
+        
+        assertEquals(2, records.size());
+        assertEquals(new JSONObject("{\"name\":\"Alice\"}"), records.get(0));
+        assertEquals(new JSONObject("{\"name\":\"Dave\"}"), records.get(1));
+        
+        input.setFilter(new EqualsFilter("city", null));
+        input.setProjection(null);
+        records = read(input, data);
+        
+        assertEquals(1, records.size());
+        assertEquals("4", records.get(0).get("id"));
+        
+        // Filters that can't be compiled are applied to the full record
+        input.setFilter(new Filter() {
+            @Override
+            public boolean filter(JSONObject record)
+            {
+                return record.getString("name").startsWith("C");
+            }
+        });
+        input.setProjection(new String[]{ "id" });
+        records = read(input, data);
+        
+        assertEquals(1, records.size());
+        assertEquals(new JSONObject("{\"id\":\"3\"}"), records.get(0));
+    }
+    
+    @Test
+    public void testQuoting()
+    {
+        String data = "id,name,notes\r\n1,\"Smith, Bob\",\"said \"\"hi\"\"\"\r\n2,Alice,\"line one\nline two\"\r\n3,\"\",plain \"quote\"\r\n\r\n4,\"\u00e9t\u00e9\",\"\"";
+        List<JSONObject> records = read(new DelimitedInput(','), data);
+        
+        assertEquals(5, records.size());
+        assertEquals("1", records.get(0).get("id"));
+        assertEquals("Smith, Bob", records.get(0).get("name"));
+        assertEquals("said \"hi\"", records.get(0).get("notes"));
+        assertEquals("line one\nline two", records.get(1).get("notes"));
+        assertEquals("", records.get(2).get("name"));
+        assertEquals("plain \"quote\"", records.get(2).get("notes"));
+        assertEquals(0, records.get(3).size());
+        assertEquals("\u00e9t\u00e9", records.get(4).get("name"));
+        assertEquals("", records.get(4).get("notes"));
+        
+        DelimitedInput unquoted = new DelimitedInput(',');
+        
+        unquoted.setQuoted(false);
+        records = read(unquoted, "a,b\n\"x,y\"\n");
+        
+        assertEquals("\"x", records.get(0).get("a"));
+        assertEquals("y\"", records.get(0).get("b"));
+    }
+    
+    @Test
+    public void testTypes()
+    {
+        String data = "id|big|price|active|created|name\n"
+                    + "1|10000000000|2.5|true|2024-03-05|Bob\n"
+                    + "-2|-7|-0.125|FALSE|2024-03-05T10:15:30.250Z|007\n"
+                    + "3|0|1e3|false|2024-03-05 10:15+02:00|\n"
+                    + "|||||\n";
+        DelimitedInput input = new DelimitedInput();
+        List<JSONObject> records;
+        
+        input.setTypes(new Class<?>[]{ Integer.class, Long.class, Double.class, Boolean.class, Date.class });
+        records = read(input, data);
+        
+        assertEquals(4, records.size());
+        
+        assertEquals(1, records.get(0).get("id"));
+        assertEquals(10000000000L, records.get(0).get("big"));
+        assertEquals(2.5, records.get(0).get("price"));
+        assertEquals(true, records.get(0).get("active"));
+        assertEquals(new Date(1709596800000L), records.get(0).get("created"));
+        assertEquals("Bob", records.get(0).get("name"));
+        
+        assertEquals(-2, records.get(1).get("id"));
+        assertEquals(-7L, records.get(1).get("big"));
+        assertEquals(-0.125, records.get(1).get("price"));
+        assertEquals(false, records.get(1).get("active"));
+        assertEquals(new Date(1709633730250L), records.get(1).get("created"));
+        assertEquals("007", records.get(1).get("name"));
+        
+        assertEquals(1000.0, records.get(2).get("price"));
+        assertEquals(new Date(1709626500000L), records.get(2).get("created"));
+        assertEquals("", records.get(2).get("name"));
+        
+        assertNull(records.get(3).get("id"));
+        assertTrue(records.get(3).containsKey("created"));
+        assertNull(records.get(3).get("created"));
+        
+        // Typed values are used for pushed down filters
+        input.setFilter(new EqualsFilter("id", 3));
+        records = read(input, data);
+        
+        assertEquals(1, records.size());
+        assertEquals(0L, records.get(0).get("big"));
+        
+        input.setFilter(null);
+        input.setTimeZone(TimeZone.getTimeZone("America/Chicago"));
+        
+        assertEquals(new Date(1709618400000L), read(input, data).get(0).get("created"));
+        
+        input.setTypes(new Class<?>[]{ Integer.class });
+        
+        assertThrows(ConvirganceException.class, () -> read(input, "id\n12x\n"));
+        assertThrows(ConvirganceException.class, () -> read(input, "id\n3000000000\n"));
+    }
+    
+    @Test
+    public void testDoubles()
+    {
+        DelimitedInput input = new DelimitedInput();
+        String[] values = new String[]{ "0", "-0.0", "0.1", "123456789.123456789", "3.141592653589793", "1.7976931348623157E308", "4.9E-324", "0.000000000000000000000000001", ".5", "5.", "+1.25", "NaN" };
+        StringBuilder data = new StringBuilder("value\n");
+        List<JSONObject> records;
+        
+        for(String value : values) data.append(value).append("\n");
+        
+        input.setTypes(new Class<?>[]{ Double.class });
+        records = read(input, data.toString());
+        
+        for(int i=0; i<values.length; i++)
+        {
+            assertEquals(Double.valueOf(values[i]), records.get(i).get("value"));
+        }
+    }
+    
+    @Test
+    public void testEncoding()
+    {
+        DelimitedInput input = new DelimitedInput("UTF-16", ',');
+        List<JSONObject> records = new ArrayList<>();
+        byte[] data = "name,city\n\"M\u00fcller, J\",\ud83d\ude00\n".getBytes(java.nio.charset.StandardCharsets.UTF_16);
+        
+        for(JSONObject record : input.read(new ByteArraySource(data))) records.add(record);
+        
+        assertEquals(1, records.size());
+        assertEquals("M\u00fcller, J", records.get(0).get("name"));
+        assertEquals("\ud83d\ude00", records.get(0).get("city"));
+        
+        // Second byte of \u30dd in Shift_JIS is the same as '|'
+        input = new DelimitedInput("Shift_JIS", '|');
+        data = "name|city\n\u30dd\u30dd|\u6771\u4eac\n".getBytes(Charset.forName("Shift_JIS"));
+        records.clear();
+        
+        for(JSONObject record : input.read(new ByteArraySource(data))) records.add(record);
+        
+        assertEquals(1, records.size());
+        assertEquals("\u30dd\u30dd", records.get(0).get("name"));
+        assertEquals("\u6771\u4eac", records.get(0).get("city"));
+        
+        input = new DelimitedInput("ISO-8859-1", '|');
+        data = "name|city\nM\u00fcller|K\u00f6ln\n".getBytes(StandardCharsets.ISO_8859_1);
+        records.clear();
+        
+        for(JSONObject record : input.read(new ByteArraySource(data))) records.add(record);
+        
+        assertEquals("M\u00fcller", records.get(0).get("name"));
+        assertEquals("K\u00f6ln", records.get(0).get("city"));
+        
+        assertTrue(DelimitedParser.isByteCompatible(StandardCharsets.UTF_8));
+        assertTrue(DelimitedParser.isByteCompatible(StandardCharsets.ISO_8859_1));
+        assertFalse(DelimitedParser.isByteCompatible(Charset.forName("Shift_JIS")));
+        assertFalse(DelimitedParser.isByteCompatible(StandardCharsets.UTF_16));
+    }
+    
 }
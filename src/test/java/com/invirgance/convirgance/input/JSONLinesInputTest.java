@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.input;
+
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.ByteArraySource;
+import com.invirgance.convirgance.source.FileSource;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class JSONLinesInputTest
+{
+    @Test
+    public void testEmpty() throws Exception
+    {
+        assertFalse(new JSONLinesInput().read(new ByteArraySource("".getBytes("UTF-8"))).iterator().hasNext());
+        assertFalse(new JSONLinesInput().read(new ByteArraySource("\n\n  \n".getBytes("UTF-8"))).iterator().hasNext());
+        assertThrows(NoSuchElementException.class, () -> new JSONLinesInput().read(new ByteArraySource("".getBytes("UTF-8"))).iterator().next());
+    }
+    
+    @Test
+    public void testLines() throws Exception
+    {
+        String data = "{\"id\":1,\"name\":\"one\"}\n{\"id\":2,\"name\":\"two\"}\r\n\n{\"id\":3,\"name\":\"three\"}";
+        String[] names = new String[]{ "one", "two", "three" };
+        int count = 0;
+        
+        for(JSONObject record : new JSONLinesInput().read(new ByteArraySource(data.getBytes("UTF-8"))))
+        {
+            assertEquals(count+1, record.getInt("id"));
+            assertEquals(names[count], record.getString("name"));
+            
+            count++;
+        }
+        
+        assertEquals(3, count);
+    }
+    
+    @Test
+    public void testParallel() throws Exception
+    {
+        File file = new File("target/unit-test-work/input/jsonlines/parallel.jsonl");
+        JSONLinesInput input = new JSONLinesInput(4, 1024);
+        int count = 0;
+        
+        file.getParentFile().mkdirs();
+        
+        try(PrintWriter writer = new PrintWriter(new FileOutputStream(file), false, java.nio.charset.StandardCharsets.UTF_8))
+        {
+            for(int i=0; i<10000; i++)
+            {
+                writer.print("{\"id\":" + i + ",\"text\":\"Value é " + i + "\"}\n");
+            }
+        }
+        
+        for(JSONObject record : input.read(new FileSource(file)))
+        {
+            assertEquals(count, record.getInt("id"));
+            assertEquals("Value é " + count, record.getString("text"));
+            
+            count++;
+        }
+        
+        assertEquals(10000, count);
+        
+        file = new File("target/unit-test-work/input/jsonlines/empty.jsonl");
+        
+        try(FileOutputStream out = new FileOutputStream(file)) { }
+        
+        assertThrows(NoSuchElementException.class, input.read(new FileSource(file)).iterator()::next);
+    }
+}
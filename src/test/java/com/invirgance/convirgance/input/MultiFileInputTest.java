@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.input;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.MultiFileSource;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class MultiFileInputTest
+{
+    private void write(File file, String text) throws IOException
+    {
+        file.getParentFile().mkdirs();
+        
+        try(FileWriter writer = new FileWriter(file))
+        {
+            writer.write(text);
+        }
+        
+        file.deleteOnExit();
+    }
+    
+    private File createParts(int parts, int rows) throws IOException
+    {
+        File directory = Files.createTempDirectory("parts").toFile();
+        StringBuilder text = new StringBuilder();
+        
+        directory.deleteOnExit();
+        
+        for(int i=0; i<parts; i++)
+        {
+            text.setLength(0);
+            text.append("id|name\n");
+            
+            for(int j=0; j<rows; j++) text.append(i * rows + j).append("|Name ").append(i * rows + j).append("\n");
+            
+            write(new File(directory, String.format("part-%03d.csv", i)), text.toString());
+        }
+        
+        write(new File(directory, "_SUCCESS"), "");
+        
+        return directory;
+    }
+    
+    @Test
+    public void testFiles() throws Exception
+    {
+        File directory = createParts(3, 1);
+        File[] files;
+        
+        write(new File(directory, "nested/part-100.csv"), "id|name\n");
+        
+        assertEquals(4, new MultiFileSource(directory).getFiles().length);
+        
+        files = new MultiFileSource(directory, "part-*.csv").getFiles();
+        
+        assertEquals(3, files.length);
+        assertEquals("part-000.csv", files[0].getName());
+        assertEquals("part-002.csv", files[2].getName());
+        
+        assertEquals(1, new MultiFileSource(directory, "*/part-*.csv").getFiles().length);
+        assertEquals(4, new MultiFileSource(directory, "**/part-*.csv").getFiles().length);
+        assertThrows(ConvirganceException.class, () -> new MultiFileSource(new File(directory, "_SUCCESS")).getFiles());
+    }
+    
+    @Test
+    public void testSequential() throws Exception
+    {
+        MultiFileSource source = new MultiFileSource(createParts(10, 50), "*.csv");
+        int count = 0;
+        
+        // Each file has its own header line
+        for(JSONObject record : new MultiFileInput<>(new DelimitedInput()).read(source))
+        {
+            assertEquals(String.valueOf(count), record.getString("id"));
+            assertEquals("Name " + count, record.getString("name"));
+            
+            count++;
+        }
+        
+        assertEquals(500, count);
+    }
+    
+    @Test
+    public void testParallel() throws Exception
+    {
+        MultiFileSource source = new MultiFileSource(createParts(20, 1000), "*.csv");
+        MultiFileInput<JSONObject> input = new MultiFileInput<>(new DelimitedInput(), 4);
+        HashSet<String> ids = new HashSet<>();
+        int count = 0;
+        
+        input.setBatchSize(100);
+        
+        for(JSONObject record : input.read(source))
+        {
+            assertEquals("Name " + record.getString("id"), record.getString("name"));
+            assertTrue(ids.add(record.getString("id")));
+            
+            count++;
+        }
+        
+        assertEquals(20000, count);
+        
+        // Closing early stops the workers
+        try(CloseableIterator<JSONObject> iterator = input.read(source).iterator())
+        {
+            assertTrue(iterator.hasNext());
+            assertNotNull(iterator.next());
+            
+            iterator.close();
+            
+            assertFalse(iterator.hasNext());
+        }
+    }
+    
+    @Test
+    public void testConcatenated() throws Exception
+    {
+        File directory = Files.createTempDirectory("lines").toFile();
+        int count = 0;
+        
+        directory.deleteOnExit();
+        
+        write(new File(directory, "a.json"), "{\"x\":0}\n{\"x\":1}\n");
+        write(new File(directory, "b.json"), "{\"x\":2}\n{\"x\":3}");
+        write(new File(directory, "c.json"), "");
+        write(new File(directory, "d.json"), "{\"x\":4}");
+        
+        // Files without a trailing newline are still split into records
+        for(JSONObject record : new JSONLinesInput().read(new MultiFileSource(directory, "*.json")))
+        {
+            assertEquals(count++, record.getInt("x"));
+        }
+        
+        assertEquals(5, count);
+        assertEquals("{\"x\":2}\n{\"x\":3}\n{\"x\":4}\n", new String(new MultiFileSource(directory, "[bcd].json").getInputStream().readAllBytes(), "UTF-8"));
+    }
+    
+    @Test
+    public void testErrors() throws Exception
+    {
+        File directory = createParts(6, 10);
+        MultiFileInput<JSONObject> input = new MultiFileInput<>(new JSONInput(), 3);
+        
+        // Delimited files are not valid JSON
+        assertThrows(ConvirganceException.class, () -> {
+            for(JSONObject record : input.read(new MultiFileSource(directory, "*.csv"))) { }
+        });
+        
+        assertThrows(IllegalArgumentException.class, () -> input.setParallelism(0));
+    }
+}
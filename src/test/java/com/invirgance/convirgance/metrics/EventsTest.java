@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import com.invirgance.convirgance.bson.KeyStreamEncoder;
+import com.invirgance.convirgance.dbms.BatchOperation;
+import com.invirgance.convirgance.dbms.DBMS;
+import com.invirgance.convirgance.dbms.Query;
+import com.invirgance.convirgance.dbms.QueryOperation;
+import com.invirgance.convirgance.input.BSONInput;
+import com.invirgance.convirgance.input.JSONLinesInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.BSONOutput;
+import com.invirgance.convirgance.output.JSONLinesOutput;
+import com.invirgance.convirgance.source.ByteArraySource;
+import com.invirgance.convirgance.source.FileSource;
+import com.invirgance.convirgance.target.ByteArrayTarget;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class EventsTest
+{
+    private List<JSONObject> createRecords(int count)
+    {
+        ArrayList<JSONObject> records = new ArrayList<>();
+        
+        for(int i=0; i<count; i++)
+        {
+            JSONObject record = new JSONObject(true);
+            JSONObject nested = new JSONObject(true);
+            
+            nested.put("value", i);
+            
+            record.put("id", i);
+            record.put("nested", nested);
+            
+            records.add(record);
+        }
+        
+        return records;
+    }
+    
+    private void run() throws Exception
+    {
+        Path lines = Files.createTempFile("events", ".jsonl");
+        JSONLinesInput parallel = new JSONLinesInput();
+        ByteArrayTarget json = new ByteArrayTarget();
+        ByteArrayTarget bson = new ByteArrayTarget();
+        KeyStreamEncoder keys = new KeyStreamEncoder(4);
+        DataOutputStream out = new DataOutputStream(new ByteArrayOutputStream());
+        JDBCDataSource source = new JDBCDataSource();
+        DBMS dbms = new DBMS(source);
+        
+        new JSONLinesOutput().write(json, createRecords(2500));
+        new BSONOutput().write(bson, createRecords(2500));
+        
+        for(JSONObject record : new JSONLinesInput().read(new ByteArraySource(json.getBytes()))) assertNotNull(record);
+        for(JSONObject record : new BSONInput().read(new ByteArraySource(bson.getBytes()))) assertNotNull(record);
+        
+        // Parsed on pool threads that never close the cursor
+        Files.write(lines, json.getBytes());
+        parallel.setThreads(2);
+        parallel.setChunkSize(4096);
+        
+        for(JSONObject record : parallel.read(new FileSource(lines.toFile()))) assertNotNull(record);
+        
+        Files.delete(lines);
+        
+        for(int i=0; i<10; i++) keys.write("key" + i, out);
+        
+        source.setURL("jdbc:hsqldb:mem:events");
+        source.setUser("SA");
+        source.setPassword("");
+        
+        dbms.update(new QueryOperation(new Query("create table RECORDS (ID INTEGER)")));
+        dbms.update(new BatchOperation(new Query("insert into RECORDS values (:id)"), createRecords(100)));
+        
+        for(JSONObject record : dbms.query(new Query("select * from RECORDS"))) assertNotNull(record);
+        
+        assertFalse(dbms.query(new Query("select * from RECORDS where ID < 0")).iterator().hasNext());
+        
+        dbms.update(new QueryOperation(new Query("drop table RECORDS")));
+    }
+    
+    @Test
+    public void testEvents() throws Exception
+    {
+        Path file = Files.createTempFile("events", ".jfr");
+        HashMap<String,List<RecordedEvent>> events = new HashMap<>();
+        List<RecordedEvent> list;
+        String name;
+        long count = 0;
+        
+        try(Recording recording = new Recording())
+        {
+            for(String event : new String[]{ "JSONParse", "BinaryEncode", "BinaryDecode", "Query", "BatchExecute", "KeyReset" })
+            {
+                recording.enable("com.invirgance.convirgance." + event).withThreshold(java.time.Duration.ZERO);
+            }
+            
+            recording.start();
+            run();
+            recording.stop();
+            recording.dump(file);
+        }
+        
+        for(RecordedEvent event : RecordingFile.readAllEvents(file))
+        {
+            name = event.getEventType().getName();
+            
+            events.computeIfAbsent(name.substring(name.lastIndexOf('.') + 1), k -> new ArrayList<>()).add(event);
+        }
+        
+        Files.delete(file);
+        
+        // Only top level objects are counted, in batches of 1000
+        list = events.get("JSONParse");
+        
+        for(RecordedEvent event : list) count += event.getLong("count");
+        
+        assertEquals(5000, count);
+        assertTrue(list.size() > 3);
+        assertTrue(list.get(0).getLong("time") > 0);
+        
+        assertEquals(3, events.get("BinaryEncode").size());
+        assertEquals(3, events.get("BinaryDecode").size());
+        
+        // Limit of 4 keys wraps twice for 10 keys
+        assertEquals(2, events.get("KeyReset").size());
+        assertEquals(4, events.get("KeyReset").get(0).getInt("keys"));
+        
+        assertEquals(1, events.get("BatchExecute").size());
+        assertEquals(100, events.get("BatchExecute").get(0).getLong("records"));
+        
+        assertEquals(2, events.get("Query").size());
+        assertEquals(100, events.get("Query").get(0).getLong("rows"));
+        assertEquals("select * from RECORDS", events.get("Query").get(0).getString("sql"));
+        assertEquals(0, events.get("Query").get(1).getLong("rows"));
+    }
+    
+    @Test
+    public void testDisabled() throws Exception
+    {
+        // Without a recording, the samplers must do nothing
+        long start = ParseEvent.SAMPLER.start();
+        
+        ParseEvent.SAMPLER.stop(start);
+        ParseEvent.SAMPLER.flush();
+        
+        run();
+    }
+}
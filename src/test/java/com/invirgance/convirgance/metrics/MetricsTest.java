@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.metrics;
+
+import com.invirgance.convirgance.dbms.BatchOperation;
+import com.invirgance.convirgance.dbms.DBMS;
+import com.invirgance.convirgance.dbms.Query;
+import com.invirgance.convirgance.dbms.QueryOperation;
+import com.invirgance.convirgance.input.JSONLinesInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.JSONLinesOutput;
+import com.invirgance.convirgance.source.ByteArraySource;
+import com.invirgance.convirgance.source.MeteredSource;
+import com.invirgance.convirgance.target.ByteArrayTarget;
+import com.invirgance.convirgance.target.MeteredTarget;
+import com.invirgance.convirgance.transform.filter.EqualsFilter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class MetricsTest
+{
+    @BeforeEach
+    public void enable()
+    {
+        Metrics.reset();
+        Metrics.setEnabled(true);
+    }
+    
+    @AfterEach
+    public void disable()
+    {
+        Metrics.setEnabled(false);
+    }
+    
+    private List<JSONObject> createRecords(int count)
+    {
+        ArrayList<JSONObject> records = new ArrayList<>();
+        
+        for(int i=0; i<count; i++)
+        {
+            JSONObject record = new JSONObject(true);
+            
+            record.put("id", i);
+            record.put("even", (i % 2 == 0));
+            
+            records.add(record);
+        }
+        
+        return records;
+    }
+    
+    @Test
+    public void testHistogram()
+    {
+        Histogram histogram = new Histogram("test");
+        
+        for(int i=1; i<=100; i++) histogram.record(i);
+        
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(50, histogram.getMean());
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(127, histogram.getPercentile(99));
+        assertEquals(0, new Histogram("empty").getPercentile(99));
+        
+        histogram.record(0);
+        histogram.record(Long.MAX_VALUE);
+        
+        assertEquals(0, histogram.getPercentile(0));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+        
+        histogram.reset();
+        
+        assertEquals(0, histogram.getCount());
+        assertSame(Metrics.histogram("shared"), Metrics.histogram("shared"));
+    }
+    
+    @Test
+    public void testPipeline() throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        int count = 0;
+        
+        new JSONLinesOutput().write(new MeteredTarget(target, "out"), createRecords(1000));
+        
+        assertEquals(target.getBytes().length, Metrics.counter("out.bytes").get());
+        
+        Iterable<JSONObject> records = new JSONLinesInput().read(new MeteredSource(new ByteArraySource(target.getBytes()), "in"));
+        
+        records = new MeteredIterable(records, "parse");
+        records = new EqualsFilter("even", true).transform(records);
+        
+        for(JSONObject record : records) count++;
+        
+        assertEquals(500, count);
+        assertEquals(target.getBytes().length, Metrics.counter("in.bytes").get());
+        assertEquals(1000, Metrics.counter("parse.records").get());
+        assertTrue(Metrics.counter("parse.time").get() > 0);
+        assertEquals(1000, Metrics.counter("filter.EqualsFilter.in").get());
+        assertEquals(500, Metrics.counter("filter.EqualsFilter.out").get());
+        
+        // Nothing is counted once disabled
+        Metrics.setEnabled(false);
+        
+        for(JSONObject record : new EqualsFilter("even", true).transform(new MeteredIterable(createRecords(10), "parse"))) count++;
+        
+        assertEquals(1000, Metrics.counter("parse.records").get());
+        assertEquals(1000, Metrics.counter("filter.EqualsFilter.in").get());
+    }
+    
+    @Test
+    public void testDBMS() throws Exception
+    {
+        JDBCDataSource source = new JDBCDataSource();
+        DBMS dbms = new DBMS(source);
+        int count = 0;
+        
+        source.setURL("jdbc:hsqldb:mem:metrics");
+        source.setUser("SA");
+        source.setPassword("");
+        
+        dbms.update(new QueryOperation(new Query("create table RECORDS (ID INTEGER, EVEN BOOLEAN)")));
+        dbms.update(new BatchOperation(new Query("insert into RECORDS values (:id, :even)"), createRecords(100)));
+        
+        for(JSONObject record : dbms.query(new Query("select * from RECORDS"))) count++;
+        
+        assertEquals(100, count);
+        assertEquals(100, Metrics.counter("dbms.batch.records").get());
+        assertEquals(1, Metrics.histogram("dbms.executeBatch").getCount());
+        assertEquals(1, Metrics.histogram("dbms.execute").getCount());
+        assertEquals(101, Metrics.histogram("dbms.fetch").getCount());
+        
+        dbms.update(new QueryOperation(new Query("drop table RECORDS")));
+    }
+    
+    @Test
+    public void testJMX() throws Exception
+    {
+        Metrics.counter("jmx.test").add(42);
+        Metrics.histogram("jmx.latency").record(10);
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+        
+        try
+        {
+            assertEquals(42L, ManagementFactory.getPlatformMBeanServer().getAttribute(MetricsMBean.NAME, "jmx.test"));
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(MetricsMBean.NAME, "jmx.latency.count"));
+            
+            ManagementFactory.getPlatformMBeanServer().invoke(MetricsMBean.NAME, "reset", null, null);
+            
+            assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(MetricsMBean.NAME, "jmx.test"));
+        }
+        finally
+        {
+            Metrics.unregisterMBean();
+        }
+        
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(MetricsMBean.NAME));
+    }
+    
+    @Test
+    public void testEvents() throws Exception
+    {
+        Path file = Files.createTempFile("metrics", ".jfr");
+        boolean found = false;
+        
+        Metrics.counter("jfr.test").add(7);
+        Metrics.registerEvents();
+        
+        try(Recording recording = new Recording())
+        {
+            recording.enable(MetricEvent.class).with("period", "everyChunk");
+            recording.start();
+            recording.stop();
+            recording.dump(file);
+        }
+        
+        for(RecordedEvent event : RecordingFile.readAllEvents(file))
+        {
+            if(!event.getEventType().getName().equals("com.invirgance.convirgance.Metric")) continue;
+            if(!event.getString("name").equals("jfr.test")) continue;
+            
+            assertEquals(7, event.getLong("value"));
+            found = true;
+        }
+        
+        Files.delete(file);
+        
+        assertTrue(found);
+    }
+}
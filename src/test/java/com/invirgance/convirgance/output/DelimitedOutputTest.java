@@ -21,8 +21,15 @@ SOFTWARE.
  */
 package com.invirgance.convirgance.output;
 
+import com.invirgance.convirgance.input.DelimitedInput;
 import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.ByteArraySource;
 import com.invirgance.convirgance.target.ByteArrayTarget;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -96,4 +103,157 @@ public class DelimitedOutputTest
         
         assertEquals(expected, new String(target.getBytes(), "UTF-8"));
     }
+    
+    private String write(DelimitedOutput output, List<JSONObject> records) throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        
+        try(var cursor = output.write(target))
+        {
+            for(JSONObject record : records) cursor.write(record);
+        }
+        
+        return new String(target.getBytes(), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testQuoting() throws Exception
+    {
+        String eol = System.lineSeparator();
+        String expected = "name,\"a,b\"" + eol +
+                          "\"Smith, Bob\",\"said \"\"hi\"\"\"" + eol +
+                          "\"line one\nline two\",\u00e9t\u00e9 \ud83d\ude00" + eol +
+                          "plain|pipe,\"\r\"" + eol;
+        
+        List<JSONObject> records = new ArrayList<>();
+        JSONObject record;
+        
+        record = new JSONObject(true);
+        record.put("name", "Smith, Bob");
+        record.put("a,b", "said \"hi\"");
+        records.add(record);
+        
+        record = new JSONObject(true);
+        record.put("name", "line one\nline two");
+        record.put("a,b", "\u00e9t\u00e9 \ud83d\ude00");
+        records.add(record);
+        
+        record = new JSONObject(true);
+        record.put("name", "plain|pipe");
+        record.put("a,b", "\r");
+        records.add(record);
+        
+        assertEquals(expected, write(new DelimitedOutput(','), records));
+    }
+    
+    @Test
+    public void testValues() throws Exception
+    {
+        String eol = System.lineSeparator();
+        DelimitedOutput output = new DelimitedOutput(new String[]{ "int", "long", "double", "boolean", "date" });
+        List<JSONObject> records = new ArrayList<>();
+        Object[][] values = new Object[][] {
+            { 0, 0L, 0.0, true, new Date(0) },
+            { -42, Long.MIN_VALUE, -0.0, false, new Date(1709633730250L) },
+            { Integer.MAX_VALUE, Long.MAX_VALUE, 2.5, null, new Date(-1L) },
+            { Integer.MIN_VALUE, 1234567L, 1e7, true, new Date(951782400000L) },
+            { 7, -9L, 1234567.0, false, new Date(-62135596800000L) }
+        };
+        String[] lines = new String[] {
+            "int|long|double|boolean|date",
+            "0|0|0.0|true|1970-01-01T00:00:00.000Z",
+            "-42|-9223372036854775808|-0.0|false|2024-03-05T10:15:30.250Z",
+            "2147483647|9223372036854775807|2.5||1969-12-31T23:59:59.999Z",
+            "-2147483648|1234567|1.0E7|true|2000-02-29T00:00:00.000Z",
+            "7|-9|1234567.0|false|0001-01-01T00:00:00.000Z"
+        };
+        JSONObject record;
+        
+        for(Object[] row : values)
+        {
+            record = new JSONObject(true);
+            
+            for(int i=0; i<row.length; i++) record.put(output.getColumns()[i], row[i]);
+            
+            records.add(record);
+        }
+        
+        assertEquals(String.join(eol, lines) + eol, write(output, records));
+        
+        output.setTimeZone(TimeZone.getTimeZone("America/Chicago"));
+        
+        assertTrue(write(output, records).contains("|2024-03-05T04:15:30.250-06:00" + eol));
+    }
+    
+    @Test
+    public void testSQLDates() throws Exception
+    {
+        String eol = System.lineSeparator();
+        DelimitedOutput output = new DelimitedOutput(new String[]{ "date", "time", "timestamp" });
+        List<JSONObject> records = new ArrayList<>();
+        JSONObject record = new JSONObject(true);
+        
+        record.put("date", java.sql.Date.valueOf("2024-01-01"));
+        record.put("time", java.sql.Time.valueOf("10:15:30"));
+        record.put("timestamp", java.sql.Timestamp.valueOf("2024-01-01 10:15:30.25"));
+        records.add(record);
+        
+        // JDBC values keep their local calendar representation in any zone
+        output.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+        
+        assertEquals("date|time|timestamp" + eol + "2024-01-01|10:15:30|2024-01-01 10:15:30.25" + eol, write(output, records));
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        DelimitedOutput output = new DelimitedOutput(',');
+        DelimitedInput input = new DelimitedInput(',');
+        List<JSONObject> records = new ArrayList<>();
+        List<JSONObject> results = new ArrayList<>();
+        ByteArrayTarget target = new ByteArrayTarget();
+        JSONObject record;
+        
+        for(int i=0; i<20000; i++)
+        {
+            record = new JSONObject(true);
+            
+            record.put("id", i);
+            record.put("name", "Name, \"" + i + "\"\r\n\u00fc");
+            record.put("price", i / 4.0);
+            record.put("created", new Date(1709633730250L + i * 3600000L));
+            
+            records.add(record);
+        }
+        
+        try(var cursor = output.write(target))
+        {
+            for(JSONObject value : records) cursor.write(value);
+        }
+        
+        input.setTypes(new Class[]{ Integer.class, String.class, Double.class, Date.class });
+        
+        for(JSONObject value : input.read(new ByteArraySource(target.getBytes()))) results.add(value);
+        
+        assertEquals(records, results);
+    }
+    
+    @Test
+    public void testEncoding() throws Exception
+    {
+        DelimitedOutput output = new DelimitedOutput(new String[]{ "name" });
+        ByteArrayTarget target = new ByteArrayTarget();
+        JSONObject record = new JSONObject();
+        
+        output.setEncoding("UTF-16");
+        record.put("name", "M\u00fcller|J");
+        
+        try(var cursor = output.write(target))
+        {
+            cursor.write(record);
+            cursor.write(record);
+        }
+        
+        assertEquals("name" + System.lineSeparator() + "\"M\u00fcller|J\"" + System.lineSeparator() + "\"M\u00fcller|J\"" + System.lineSeparator(), new String(target.getBytes(), StandardCharsets.UTF_16));
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.output;
+
+import com.invirgance.convirgance.input.JSONLinesInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.ByteArraySource;
+import com.invirgance.convirgance.target.ByteArrayTarget;
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class JSONLinesOutputTest
+{
+    @Test
+    public void testEmpty() throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        
+        try(OutputCursor cursor = new JSONLinesOutput().write(target))
+        {
+            // Nothing to write
+        }
+        
+        assertEquals(0, target.getBytes().length);
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        ByteArrayTarget target = new ByteArrayTarget();
+        Iterator<JSONObject> iterator;
+        
+        try(OutputCursor cursor = new JSONLinesOutput().write(target))
+        {
+            cursor.write(new JSONObject("{\"x\":1}"));
+            cursor.write(new JSONObject("{\"y\":\"two\\nlines\"}"));
+        }
+        
+        assertEquals("{\"x\":1}\n{\"y\":\"two\\nlines\"}\n", new String(target.getBytes(), "UTF-8"));
+        
+        iterator = new JSONLinesInput().read(new ByteArraySource(target.getBytes())).iterator();
+        
+        assertEquals(new JSONObject("{\"x\":1}"), iterator.next());
+        assertEquals(new JSONObject("{\"y\":\"two\\nlines\"}"), iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.output;
+
+import com.invirgance.convirgance.input.BSONInput;
+import com.invirgance.convirgance.input.DelimitedInput;
+import com.invirgance.convirgance.input.JSONLinesInput;
+import com.invirgance.convirgance.input.MultiFileInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.FileSource;
+import com.invirgance.convirgance.source.MultiFileSource;
+import com.invirgance.convirgance.target.ByteArrayTarget;
+import com.invirgance.convirgance.target.MultiFileTarget;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class MultiFileOutputTest
+{
+    private File createDirectory() throws Exception
+    {
+        File directory = Files.createTempDirectory("shards").toFile();
+        
+        directory.deleteOnExit();
+        
+        return directory;
+    }
+    
+    private void write(OutputCursor cursor, int count) throws Exception
+    {
+        try(cursor)
+        {
+            for(int i=0; i<count; i++)
+            {
+                JSONObject record = new JSONObject(true);
+
+                record.put("id", i);
+                record.put("group", "Group " + (i % 37));
+                record.put("name", "Name " + i);
+
+                cursor.write(record);
+            }
+        }
+    }
+    
+    @Test
+    public void testRecords() throws Exception
+    {
+        File directory = createDirectory();
+        MultiFileOutput output = new MultiFileOutput(new JSONLinesOutput());
+        int count = 0;
+        
+        output.setMaxRecords(100);
+        
+        write(output.write(new MultiFileTarget(directory, "part-%03d.json")), 1000);
+        
+        assertEquals(10, new MultiFileSource(directory).getFiles().length);
+        
+        for(JSONObject record : new JSONLinesInput().read(new FileSource(new File(directory, "part-009.json"))))
+        {
+            assertEquals(900 + count++, record.getInt("id"));
+        }
+        
+        assertEquals(100, count);
+        
+        // Headerless files can be read back concatenated
+        count = 0;
+        
+        for(JSONObject record : new JSONLinesInput().read(new MultiFileSource(directory)))
+        {
+            assertEquals(count++, record.getInt("id"));
+        }
+        
+        assertEquals(1000, count);
+    }
+    
+    @Test
+    public void testBytes() throws Exception
+    {
+        File directory = createDirectory();
+        MultiFileOutput output = new MultiFileOutput(new DelimitedOutput());
+        File[] files;
+        int count = 0;
+        
+        output.setMaxBytes(100000);
+        
+        write(output.write(new MultiFileTarget(directory, "part-%03d.csv")), 20000);
+        
+        // Sizes are measured as the output flushes its 64KB buffer
+        files = new MultiFileSource(directory).getFiles();
+        
+        assertTrue(files.length > 1);
+        
+        for(int i=0; i<files.length-1; i++)
+        {
+            assertTrue(files[i].length() >= 100000);
+            assertTrue(files[i].length() < 100000 + 65536);
+        }
+        
+        // Each file has its own header line
+        for(JSONObject record : new MultiFileInput<>(new DelimitedInput()).read(new MultiFileSource(directory)))
+        {
+            assertEquals("Name " + count++, record.getString("name"));
+        }
+        
+        assertEquals(20000, count);
+    }
+    
+    @Test
+    public void testPartitions() throws Exception
+    {
+        File directory = createDirectory();
+        MultiFileOutput output = new MultiFileOutput(new BSONOutput());
+        HashMap<String,String> groups = new HashMap<>();
+        HashSet<Integer> ids = new HashSet<>();
+        String previous;
+        
+        output.setPartitions("group", 4);
+        output.setMaxRecords(1000);
+        output.setBatchSize(50);
+        
+        write(output.write(new MultiFileTarget(directory, "part-%03d.bson")), 10000);
+        
+        for(File file : new MultiFileSource(directory).getFiles())
+        {
+            for(JSONObject record : new BSONInput().read(new FileSource(file)))
+            {
+                // Partition p writes parts p, p + 4, p + 8, ...
+                String partition = String.valueOf(Integer.parseInt(file.getName().substring(5, 8)) % 4);
+                
+                previous = groups.put(record.getString("group"), partition);
+                
+                assertTrue(previous == null || previous.equals(partition));
+                assertTrue(ids.add(record.getInt("id")));
+            }
+        }
+        
+        assertEquals(37, groups.size());
+        assertEquals(10000, ids.size());
+        assertTrue(new HashSet<>(groups.values()).size() > 1);
+    }
+    
+    @Test
+    public void testPassthrough() throws Exception
+    {
+        File directory = createDirectory();
+        ByteArrayTarget target = new ByteArrayTarget();
+        MultiFileOutput output = new MultiFileOutput(new JSONLinesOutput());
+        
+        output.setPartitions("group", 3);
+        
+        write(output.write(target), 10);
+        
+        assertEquals(10, new String(target.getBytes(), "UTF-8").split("\n").length);
+        
+        // Every partition gets a file even when no records are written
+        write(output.write(new MultiFileTarget(directory)), 0);
+        
+        assertEquals(3, new MultiFileSource(directory).getFiles().length);
+        assertThrows(IllegalArgumentException.class, () -> output.setPartitions("group", 0));
+    }
+}
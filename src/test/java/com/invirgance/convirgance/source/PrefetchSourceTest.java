@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.source;
+
+import com.invirgance.convirgance.input.BSONInput;
+import com.invirgance.convirgance.input.DelimitedInput;
+import com.invirgance.convirgance.input.Input;
+import com.invirgance.convirgance.input.JSONInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.BSONOutput;
+import com.invirgance.convirgance.output.DelimitedOutput;
+import com.invirgance.convirgance.output.JSONOutput;
+import com.invirgance.convirgance.output.Output;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.target.ByteArrayTarget;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class PrefetchSourceTest
+{
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        Random random = new Random(11);
+        byte[] data = new byte[100000];
+        byte[] result = new byte[data.length];
+        PrefetchSource source = new PrefetchSource(new ByteArraySource(data), 1000, 2);
+        int position = 0;
+        int count;
+        
+        random.nextBytes(data);
+        
+        try(InputStream in = source.getInputStream())
+        {
+            result[position++] = (byte)in.read();
+            
+            while((count = in.read(result, position, Math.min(3000, result.length - position))) > 0)
+            {
+                position += count;
+            }
+            
+            assertEquals(-1, in.read());
+        }
+        
+        assertEquals(data.length, position);
+        assertArrayEquals(data, result);
+        assertEquals(data.length, source.getBytesRead());
+        
+        // Source remains reusable
+        try(InputStream in = source.getInputStream())
+        {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+    
+    @Test
+    public void testInputs() throws Exception
+    {
+        Output[] outputs = new Output[]{ new JSONOutput(), new DelimitedOutput(), new BSONOutput() };
+        Input[] inputs = new Input[]{ new JSONInput(), new DelimitedInput(), new BSONInput() };
+        ByteArrayTarget target;
+        int count;
+        
+        for(int i=0; i<outputs.length; i++)
+        {
+            target = new ByteArrayTarget();
+            count = 0;
+            
+            try(OutputCursor cursor = outputs[i].write(target))
+            {
+                for(int j=0; j<5000; j++)
+                {
+                    JSONObject record = new JSONObject(true);
+                    
+                    record.put("id", j);
+                    record.put("name", "Name " + j);
+                    
+                    cursor.write(record);
+                }
+            }
+            
+            for(Object record : inputs[i].read(new PrefetchSource(new ByteArraySource(target.getBytes()), 512, 3)))
+            {
+                assertEquals("Name " + count, ((JSONObject)record).getString("name"));
+                
+                count++;
+            }
+            
+            assertEquals(5000, count, outputs[i].getClass().getSimpleName());
+        }
+    }
+    
+    @Test
+    public void testStalls() throws Exception
+    {
+        InputStream slow = new ByteArrayInputStream(new byte[4096]) {
+            @Override
+            public synchronized int read(byte[] data, int offset, int length)
+            {
+                try { Thread.sleep(5); } catch(InterruptedException e) { }
+                
+                return super.read(data, offset, Math.min(length, 1024));
+            }
+        };
+        
+        PrefetchSource source = new PrefetchSource(new InputStreamSource(slow), 1024, 2);
+        
+        try(InputStream in = source.getInputStream())
+        {
+            assertEquals(4096, in.readAllBytes().length);
+        }
+        
+        assertTrue(source.getStallCount() > 0);
+        assertTrue(source.getStallTime() > 0);
+        
+        source.resetMetrics();
+        
+        assertEquals(0, source.getStallCount());
+        assertEquals(0, source.getBytesRead());
+        assertFalse(source.isReusable());
+    }
+    
+    @Test
+    public void testErrors() throws Exception
+    {
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException
+            {
+                throw new IOException("Broken");
+            }
+        };
+        
+        InputStream in = new PrefetchSource(new InputStreamSource(broken)).getInputStream();
+        IOException exception = assertThrows(IOException.class, () -> in.read());
+        
+        assertEquals("Broken", exception.getCause().getMessage());
+        
+        // Closing early stops the background reader
+        try(InputStream early = new PrefetchSource(new ByteArraySource(new byte[100000]), 100, 1).getInputStream())
+        {
+            assertTrue(early.read() >= 0);
+        }
+        
+        assertThrows(IllegalArgumentException.class, () -> new PrefetchSource(new ByteArraySource(new byte[0]), 100, 0));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.target;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.input.JSONLinesInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.JSONLinesOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.source.FileSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class AsyncFileTargetTest
+{
+    private File createTemp() throws IOException
+    {
+        File file = File.createTempFile("async", ".tmp");
+        
+        file.deleteOnExit();
+        
+        return file;
+    }
+    
+    @Test
+    public void testWrite() throws Exception
+    {
+        Random random = new Random(7);
+        File file = createTemp();
+        byte[] data = new byte[100000];
+        AsyncFileTarget target;
+        
+        random.nextBytes(data);
+        
+        for(AsyncFileTarget.SyncPolicy policy : AsyncFileTarget.SyncPolicy.values())
+        {
+            target = new AsyncFileTarget(file, 4096, 2);
+            target.setSyncPolicy(policy);
+            
+            try(OutputStream out = target.getOutputStream())
+            {
+                // Mix single bytes, small writes, and writes spanning several buffers
+                out.write(data[0]);
+                out.write(data, 1, 99);
+                out.flush();
+                out.write(data, 100, 20000);
+                out.write(data, 20100, data.length - 20100);
+            }
+            
+            assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        }
+    }
+    
+    @Test
+    public void testRecords() throws Exception
+    {
+        File file = createTemp();
+        AsyncFileTarget target = new AsyncFileTarget(file, 1024, 3);
+        int count = 0;
+        
+        try(OutputCursor cursor = new JSONLinesOutput().write(target))
+        {
+            for(int i=0; i<10000; i++)
+            {
+                JSONObject record = new JSONObject(true);
+                
+                record.put("id", i);
+                record.put("name", "Name " + i);
+                
+                cursor.write(record);
+            }
+        }
+        
+        for(JSONObject record : new JSONLinesInput().read(new FileSource(file)))
+        {
+            assertEquals(count, record.getInt("id"));
+            assertEquals("Name " + count, record.getString("name"));
+            
+            count++;
+        }
+        
+        assertEquals(10000, count);
+    }
+    
+    @Test
+    public void testErrors() throws Exception
+    {
+        File directory = Files.createTempDirectory("async").toFile();
+        OutputStream out;
+        
+        directory.deleteOnExit();
+        
+        assertThrows(ConvirganceException.class, () -> new AsyncFileTarget(directory).getOutputStream());
+        assertThrows(IllegalArgumentException.class, () -> new AsyncFileTarget(directory, 1024, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AsyncFileTarget(directory, 0, 2));
+        
+        out = new AsyncFileTarget(createTemp(), 16, 2).getOutputStream();
+        
+        out.write(new byte[100]);
+        out.close();
+        out.close();
+        
+        assertThrows(IOException.class, () -> out.write(1));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class CoerceStringsTransformerTest
+{
+    @Test
+    public void testCoerce()
+    {
+        CoerceStringsTransformer transformer = new CoerceStringsTransformer();
+        
+        assertEquals(true, transformer.coerce("TRUE"));
+        assertEquals(false, transformer.coerce("false"));
+        assertEquals("truth", transformer.coerce("truth"));
+        assertEquals(12, transformer.coerce("12"));
+        assertEquals(-10000000000L, transformer.coerce("-10000000000"));
+        assertEquals(1.5, transformer.coerce("1.5"));
+        assertEquals("1.2.3", transformer.coerce("1.2.3"));
+        assertEquals("", transformer.coerce(""));
+        assertEquals("abc", transformer.coerce("abc"));
+    }
+    
+    @Test
+    public void testIncludedExcluded()
+    {
+        CoerceStringsTransformer included = new CoerceStringsTransformer(true, true, true, new String[]{ "a" }, null);
+        CoerceStringsTransformer excluded = new CoerceStringsTransformer(true, true, true, null, new String[]{ "a" });
+        
+        assertArrayEquals(new String[]{ "a" }, included.getIncluded());
+        assertNull(included.getExcluded());
+        
+        assertEquals(new JSONObject("{\"a\":1,\"b\":\"2\"}"), included.transform(new JSONObject("{\"a\":\"1\",\"b\":\"2\"}")));
+        assertEquals(new JSONObject("{\"a\":\"1\",\"b\":2}"), excluded.transform(new JSONObject("{\"a\":\"1\",\"b\":\"2\"}")));
+    }
+    
+    @Test
+    public void testSampling()
+    {
+        CoerceStringsTransformer transformer = new CoerceStringsTransformer();
+        List<JSONObject> records = new ArrayList<>();
+        Iterator<JSONObject> iterator;
+        JSONObject record;
+        
+        records.add(new JSONObject("{\"id\":\"1\",\"price\":\"1.5\",\"big\":\"10000000000\",\"flag\":\"true\",\"name\":\"Bob\",\"zip\":\"75001\",\"empty\":\"\"}"));
+        records.add(new JSONObject("{\"id\":\"2\",\"price\":\"2\",\"big\":\"5\",\"flag\":\"FALSE\",\"name\":\"123\",\"zip\":\"75001-1234\",\"empty\":null}"));
+        records.add(new JSONObject("{\"id\":\"3\",\"price\":\"3.25\",\"big\":\"7\",\"flag\":\"true\",\"name\":\"Carol\",\"zip\":\"75002\"}"));
+        
+        // Past the sample: values that break the inferred type use the slow path
+        records.add(new JSONObject("{\"id\":\"3000000000\",\"price\":\"n/a\",\"big\":\"8\",\"flag\":\"yes\",\"name\":\"456\",\"zip\":\"75003\",\"extra\":\"9\"}"));
+        records.add(new JSONObject("{\"id\":\"4\",\"price\":\"1e3\",\"big\":\"9.5\",\"flag\":\"false\",\"name\":\"Dave\",\"zip\":\"75004\",\"extra\":\"true\"}"));
+        
+        transformer.setSampleSize(3);
+        
+        iterator = transformer.transform(records.iterator());
+        
+        record = iterator.next();
+        
+        assertEquals(1, record.get("id"));
+        assertEquals(1.5, record.get("price"));
+        assertEquals(10000000000L, record.get("big"));
+        assertEquals(true, record.get("flag"));
+        assertEquals("Bob", record.get("name"));
+        assertEquals(75001, record.get("zip"));
+        assertEquals("", record.get("empty"));
+        
+        record = iterator.next();
+        
+        assertEquals(2.0, record.get("price"));
+        assertEquals(5L, record.get("big"));
+        assertEquals(false, record.get("flag"));
+        assertEquals("123", record.get("name"));
+        assertNull(record.get("empty"));
+        
+        iterator.next();
+        record = iterator.next();
+        
+        assertEquals(3000000000L, record.get("id"));
+        assertEquals("n/a", record.get("price"));
+        assertEquals("yes", record.get("flag"));
+        assertEquals("456", record.get("name"));
+        assertEquals(75003, record.get("zip"));
+        assertEquals(9, record.get("extra"));
+        
+        record = iterator.next();
+        
+        assertEquals("1e3", record.get("price"));
+        assertEquals(9.5, record.get("big"));
+        assertEquals(true, record.get("extra"));
+        
+        assertFalse(iterator.hasNext());
+        
+        // A single unparseable value in the sample does not stop coercion
+        records.clear();
+        records.add(new JSONObject("{\"price\":\"1.5\",\"count\":\"N/A\"}"));
+        records.add(new JSONObject("{\"price\":\"N/A\",\"count\":\"2\"}"));
+        records.add(new JSONObject("{\"price\":\"3.5\",\"count\":\"3\"}"));
+        records.add(new JSONObject("{\"price\":\"4\",\"count\":\"N/A\"}"));
+        
+        iterator = transformer.transform(records.iterator());
+        
+        assertEquals(1.5, iterator.next().get("price"));
+        assertEquals("N/A", iterator.next().get("price"));
+        assertEquals(3, iterator.next().get("count"));
+        
+        record = iterator.next();
+        
+        assertEquals(4.0, record.get("price"));
+        assertEquals("N/A", record.get("count"));
+        
+        // Fewer records than the sample size
+        iterator = transformer.transform(records.subList(0, 0).iterator());
+        
+        assertFalse(iterator.hasNext());
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.expression;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.transform.ExpressionTransformer;
+import com.invirgance.convirgance.transform.filter.ExpressionFilter;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class ExpressionCompilerTest
+{
+    private Object evaluate(String expression, JSONObject record)
+    {
+        return new ExpressionCompiler().compile(expression).evaluate(record);
+    }
+    
+    @Test
+    public void testLiterals()
+    {
+        assertEquals(42, evaluate("42", null));
+        assertEquals(10000000000L, evaluate("10000000000", null));
+        assertEquals(1.5, evaluate("1.5", null));
+        assertEquals(-3, evaluate("-3", null));
+        assertEquals("it's", evaluate("'it\\'s'", null));
+        assertEquals("text", evaluate("\"text\"", null));
+        assertEquals(true, evaluate("true", null));
+        assertNull(evaluate("null", null));
+    }
+    
+    @Test
+    public void testConstantFolding()
+    {
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        
+        assertTrue(compiler.compile("1 + 2 * 3").isConstant());
+        assertEquals(7, compiler.compile("1 + 2 * 3").evaluate(null));
+        assertTrue(compiler.compile("upper('a') + concat('b', 1)").isConstant());
+        assertEquals("Ab1", compiler.compile("upper('a') + concat('b', 1)").evaluate(null));
+        assertFalse(compiler.compile("x + 1").isConstant());
+    }
+    
+    @Test
+    public void testArithmetic()
+    {
+        JSONObject record = new JSONObject("{\"price\":2.5,\"quantity\":4,\"big\":10000000000,\"name\":\"Bob\",\"unit price\":3}");
+        
+        assertEquals(10.0, evaluate("price * quantity", record));
+        assertEquals(1, evaluate("quantity / 3", record));
+        assertEquals(1, evaluate("quantity % 3", record));
+        assertEquals(10000000004L, evaluate("big + quantity", record));
+        assertEquals(4294967296L, evaluate("65536 * 65536", record));
+        assertEquals(12, evaluate("`unit price` * quantity", record));
+        assertEquals(-4, evaluate("-quantity", record));
+        assertEquals(14, evaluate("(1 + 2) * quantity + 2", record));
+        assertEquals("Bob4", evaluate("name + quantity", record));
+        assertNull(evaluate("missing + 1", record));
+        assertNull(evaluate("quantity / 0", record));
+        assertNull(evaluate("quantity % (quantity - 4)", record));
+        assertNull(evaluate("1 / 0", record));
+        assertEquals(Double.POSITIVE_INFINITY, evaluate("price / 0", record));
+        
+        assertThrows(ConvirganceException.class, () -> evaluate("name * 2", record));
+    }
+    
+    @Test
+    public void testLogic()
+    {
+        JSONObject record = new JSONObject("{\"state\":\"TX\",\"age\":30,\"score\":30.0,\"active\":true}");
+        
+        assertEquals(true, evaluate("state == 'TX' and age >= 21", record));
+        assertEquals(false, evaluate("state != 'TX' || age < 21", record));
+        assertEquals(true, evaluate("age == score", record));
+        assertEquals(true, evaluate("not (age > 30)", record));
+        assertEquals(true, evaluate("!missing", record));
+        assertEquals(true, evaluate("missing == null", record));
+        assertEquals(false, evaluate("missing < 5", record));
+        assertEquals(true, evaluate("active && state > 'AZ'", record));
+        assertEquals("adult", evaluate("age >= 21 ? 'adult' : 'minor'", record));
+        assertEquals("minor", evaluate("age >= 31 ? 'adult' : age >= 18 ? 'minor' : 'child'", record));
+    }
+    
+    @Test
+    public void testFunctions()
+    {
+        JSONObject record = new JSONObject("{\"name\":\"  Bob Smith \",\"amount\":\"12.75\",\"count\":\"7\",\"flag\":\"TRUE\"}");
+        
+        assertEquals("bob smith", evaluate("lower(trim(name))", record));
+        assertEquals("  BOB SMITH ", evaluate("upper(name)", record));
+        assertEquals(12, evaluate("length(name)", record));
+        assertEquals("Bob", evaluate("substring(trim(name), 0, 3)", record));
+        assertEquals("Smith", evaluate("substring(trim(name), 4)", record));
+        assertEquals("", evaluate("substring(name, 50)", record));
+        assertEquals(12.75, evaluate("double(amount)", record));
+        assertEquals(12, evaluate("integer(amount)", record));
+        assertEquals(7L, evaluate("long(count)", record));
+        assertEquals(7, evaluate("integer(count)", record));
+        assertEquals(13, evaluate("round(double(amount))", record));
+        assertEquals(5, evaluate("abs(-5)", record));
+        assertEquals(true, evaluate("boolean(flag)", record));
+        assertEquals("7", evaluate("string(integer(count))", record));
+        assertEquals("none", evaluate("coalesce(missing, null, 'none')", record));
+        assertEquals("7-x", evaluate("concat(count, '-', missing, 'x')", record));
+        assertNull(evaluate("upper(missing)", record));
+    }
+    
+    @Test
+    public void testErrors()
+    {
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        
+        assertThrows(ConvirganceException.class, () -> compiler.compile("1 +"));
+        assertThrows(ConvirganceException.class, () -> compiler.compile("(1 + 2"));
+        assertThrows(ConvirganceException.class, () -> compiler.compile("'open"));
+        assertThrows(ConvirganceException.class, () -> compiler.compile("unknown(1)"));
+        assertThrows(ConvirganceException.class, () -> compiler.compile("upper(1, 2)"));
+        assertThrows(ConvirganceException.class, () -> compiler.compile("a b"));
+        
+        // Constant sub-expressions fail at compile time with their position
+        assertTrue(assertThrows(ConvirganceException.class, () -> compiler.compile("1 + ('a' * 2)")).getMessage().contains("at position 12"));
+    }
+    
+    @Test
+    public void testGenerated()
+    {
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        JSONObject record = new JSONObject("{\"a\":true,\"b\":\"x\",\"c\":false,\"n\":5}");
+        StringBuilder expression = new StringBuilder("concat(n");
+        StringBuilder sum = new StringBuilder("n");
+        
+        assertTrue(compiler.compile("n + 1").getClass().isHidden());
+        assertTrue(compiler.compileFilter("n > 1").getClass().isHidden());
+        
+        // Branches that join with values of different types on the stack
+        assertEquals("x5true", evaluate("concat(coalesce(missing, b), a ? n : 'none', not c and (a or missing))", record));
+        assertEquals(15, evaluate("n + (a ? 10 : 'ten')", record));
+        assertEquals("n/a", evaluate("(c ? n : null) == null ? 'n/a' : 'set'", record));
+        assertEquals(true, evaluate("a and not c ? n > 1 or missing : false", record));
+        assertEquals(6, evaluate("coalesce(missing, missing, n + 1)", record));
+        
+        // Enough constants to need wide constant pool indexes
+        for(int i=0; i<300; i++)
+        {
+            expression.append(", 's").append(i).append("'");
+            sum.append(" + ").append(1000 + i);
+        }
+        
+        assertTrue(((String)evaluate(expression + ")", record)).endsWith("s298s299"));
+        assertEquals(344855, evaluate(sum.toString(), record));
+        
+        assertTrue(compiler.compileFilter("b == 'x' and n >= 5").filter(record));
+        assertFalse(compiler.compileFilter("b == 'x' and c").filter(record));
+        assertFalse(compiler.compileFilter("null").filter(record));
+        assertTrue(compiler.compileFilter("true").filter(record));
+    }
+    
+    @Test
+    public void testLargeTransformer()
+    {
+        ExpressionTransformer transformer = new ExpressionTransformer(true);
+        JSONObject result;
+        
+        // More locals than fit in a single byte index
+        for(int i=0; i<300; i++) transformer.put("key" + i, "n > " + i + " ? n : coalesce(missing, " + i + ")");
+        
+        result = transformer.transform(new JSONObject("{\"n\":150}"));
+        
+        assertEquals(300, result.size());
+        assertEquals(150, result.get("key0"));
+        assertEquals(150, result.get("key149"));
+        assertEquals(150, result.get("key150"));
+        assertEquals(299, result.get("key299"));
+        
+        // Invalid expressions leave the transformer unchanged
+        assertThrows(ConvirganceException.class, () -> transformer.put("bad", "1 +"));
+        assertEquals(300, transformer.getKeys().length);
+    }
+    
+    @Test
+    public void testTransformer()
+    {
+        ExpressionTransformer transformer = new ExpressionTransformer();
+        JSONObject record = new JSONObject("{\"first\":\"Bob\",\"last\":\"Smith\",\"price\":2,\"quantity\":3}");
+        
+        transformer.put("name", "first + ' ' + last");
+        transformer.put("total", "price * quantity");
+        transformer.put("price", "price * 2");
+        
+        // All expressions see the original record
+        assertEquals(new JSONObject("{\"first\":\"Bob\",\"last\":\"Smith\",\"price\":4,\"quantity\":3,\"name\":\"Bob Smith\",\"total\":6}"), transformer.transform(record));
+        
+        transformer = new ExpressionTransformer(true);
+        
+        transformer.put("customer", "first");
+        transformer.put("large", "quantity > 2");
+        
+        assertEquals(new JSONObject("{\"customer\":\"Bob\",\"large\":true}"), transformer.transform(new JSONObject("{\"first\":\"Bob\",\"quantity\":3}")));
+        assertEquals("first", transformer.getExpression("customer"));
+    }
+    
+    @Test
+    public void testFilter()
+    {
+        ExpressionFilter filter = new ExpressionFilter("state == 'TX' and price * quantity > 100");
+        
+        assertTrue(filter.filter(new JSONObject("{\"state\":\"TX\",\"price\":50,\"quantity\":3}")));
+        assertFalse(filter.filter(new JSONObject("{\"state\":\"TX\",\"price\":50,\"quantity\":2}")));
+        assertFalse(filter.filter(new JSONObject("{\"state\":\"CA\",\"price\":50,\"quantity\":3}")));
+        assertFalse(filter.filter(new JSONObject("{}")));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.filter;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class FilterCompilerTest
+{
+    private List<JSONObject> generate(int count)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        JSONObject record;
+        
+        for(int i=0; i<count; i++)
+        {
+            record = new JSONObject(true);
+            
+            record.put("id", i);
+            record.put("state", (i % 4 == 0) ? "TX" : (i % 4 == 1) ? "CA" : (i % 4 == 2) ? "NY" : "FL");
+            record.put("name", "Customer " + i);
+            record.put("price", i * 0.5);
+            record.put("created", new Date(i * 1000L));
+            
+            if(i % 3 == 0) record.put("flag", true);
+            
+            records.add(record);
+        }
+        
+        return records;
+    }
+    
+    private void assertSame(Filter expected, Filter actual, List<JSONObject> records)
+    {
+        List<String> keys = new ArrayList<>();
+        FieldPredicate predicate = actual.compile(keys);
+        Object[] values;
+        
+        for(JSONObject record : records)
+        {
+            assertEquals(expected.filter(record), actual.filter(record));
+            
+            if(predicate == null) continue;
+            
+            values = new Object[keys.size()];
+            
+            for(int i=0; i<values.length; i++) values[i] = record.get(keys.get(i));
+            
+            assertEquals(expected.filter(record), predicate.test(values));
+        }
+    }
+    
+    @Test
+    public void testFilters()
+    {
+        JSONObject record = new JSONObject("{\"id\":5,\"big\":10000000000,\"price\":2.5,\"name\":\"Customer 5\"}");
+        
+        assertTrue(new InFilter("id", 1, 5, 9).filter(record));
+        assertFalse(new InFilter("id", 1L, 5L, 9L).filter(record));
+        assertTrue(new InFilter("id", 1, 2, 3, 4, 5, 6, 7, 8, 9, 10).filter(record));
+        assertTrue(new InFilter("id", 1, 2, 3, 4, 5, 6, 7, 8, 9, 10).isHashed());
+        assertTrue(new InFilter("missing", "a", null).filter(record));
+        
+        assertTrue(new RangeFilter("id", 5, 10).filter(record));
+        assertTrue(new RangeFilter("id", 4.5, null).filter(record));
+        assertFalse(new RangeFilter("id", null, 4L).filter(record));
+        assertTrue(new RangeFilter("big", 5, null).filter(record));
+        assertTrue(new RangeFilter("price", 2, 3).filter(record));
+        assertTrue(new RangeFilter("name", "C", "D").filter(record));
+        assertFalse(new RangeFilter("name", 1, 10).filter(record));
+        assertFalse(new RangeFilter("missing", 1, 10).filter(record));
+        
+        assertTrue(new StartsWithFilter("name", "Cust").filter(record));
+        assertFalse(new StartsWithFilter("id", "5").filter(record));
+        
+        assertTrue(new RegexFilter("name", "Customer [0-9]+").filter(record));
+        assertFalse(new RegexFilter("name", "Customer").filter(record));
+        
+        assertTrue(new AndFilter(new EqualsFilter("id", 5), new StartsWithFilter("name", "C")).filter(record));
+        assertFalse(new AndFilter(new EqualsFilter("id", 5), new StartsWithFilter("name", "X")).filter(record));
+        assertTrue(new OrFilter(new EqualsFilter("id", 6), new StartsWithFilter("name", "C")).filter(record));
+        assertFalse(new OrFilter().filter(record));
+        assertTrue(new AndFilter().filter(record));
+    }
+    
+    @Test
+    public void testFlatten()
+    {
+        FilterCompiler compiler = new FilterCompiler();
+        Filter filter = new AndFilter(
+            new AndFilter(new EqualsFilter("state", "TX"), new RegexFilter("name", ".*1")),
+            new NotFilter(new NotFilter(new RangeFilter("id", 10, 500)))
+        );
+        Filter compiled = compiler.compile(filter);
+        Filter[] children;
+        
+        assertTrue(compiled instanceof AndFilter);
+        
+        children = ((AndFilter)compiled).getFilters();
+        
+        assertEquals(3, children.length);
+        assertTrue(children[0] instanceof EqualsFilter);
+        assertTrue(children[1] instanceof RangeFilter);
+        assertTrue(children[2] instanceof RegexFilter);
+        
+        assertSame(filter, compiled, generate(1000));
+    }
+    
+    @Test
+    public void testMergeIn()
+    {
+        FilterCompiler compiler = new FilterCompiler();
+        List<Filter> list = new ArrayList<>();
+        Filter filter;
+        Filter compiled;
+        
+        for(int i=0; i<20; i++) list.add(new EqualsFilter("id", i * 7));
+        
+        list.add(new OrFilter(new EqualsFilter("state", "TX"), new InFilter("id", 3, 5)));
+        
+        filter = new OrFilter(list.toArray(Filter[]::new));
+        compiled = compiler.compile(filter);
+        
+        assertTrue(compiled instanceof OrFilter);
+        assertEquals(2, ((OrFilter)compiled).getFilters().length);
+        
+        for(Filter child : ((OrFilter)compiled).getFilters())
+        {
+            if(child instanceof InFilter)
+            {
+                assertEquals(22, ((InFilter)child).getValues().length);
+                assertTrue(((InFilter)child).isHashed());
+            }
+            else
+            {
+                assertTrue(child instanceof EqualsFilter);
+            }
+        }
+        
+        assertSame(filter, compiled, generate(1000));
+    }
+    
+    @Test
+    public void testMeasured()
+    {
+        List<JSONObject> records = generate(1000);
+        Filter filter = new AndFilter(new StartsWithFilter("name", "Customer"), new EqualsFilter("flag", null), new EqualsFilter("id", 500));
+        Filter compiled = new FilterCompiler(records).compile(filter);
+        Filter[] children = ((AndFilter)compiled).getFilters();
+        
+        // The id test rejects nearly everything, the prefix rejects nothing
+        assertEquals("id", ((EqualsFilter)children[0]).getKey());
+        assertEquals("flag", ((EqualsFilter)children[1]).getKey());
+        assertTrue(children[2] instanceof StartsWithFilter);
+        
+        assertSame(filter, compiled, records);
+        
+        filter = new NotFilter(new OrFilter(new RegexFilter("state", "T."), new InFilter("state", "CA")));
+        
+        assertSame(filter, new FilterCompiler(records).compile(filter), records);
+    }
+}
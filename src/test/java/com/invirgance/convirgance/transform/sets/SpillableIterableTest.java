@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.convirgance.transform.sets;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.input.JSONLinesInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.InputStreamSource;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author jbanes
+ */
+public class SpillableIterableTest
+{
+    private static class CountingIterable implements Iterable<JSONObject>
+    {
+        private final int size;
+        private int iterations;
+
+        public CountingIterable(int size)
+        {
+            this.size = size;
+        }
+
+        @Override
+        public Iterator<JSONObject> iterator()
+        {
+            iterations++;
+            
+            return new Iterator<JSONObject>() {
+                
+                private int index;
+                
+                @Override
+                public boolean hasNext()
+                {
+                    return (index < size);
+                }
+
+                @Override
+                public JSONObject next()
+                {
+                    JSONObject record = new JSONObject(true);
+                    
+                    record.put("id", index);
+                    record.put("name", "Name " + (index++ % 50));
+                    
+                    return record;
+                }
+            };
+        }
+    }
+    
+    private int verify(Iterable<JSONObject> iterable)
+    {
+        int count = 0;
+        
+        for(JSONObject record : iterable)
+        {
+            assertEquals(count, record.getInt("id"));
+            assertEquals("Name " + (count % 50), record.getString("name"));
+            
+            count++;
+        }
+        
+        return count;
+    }
+    
+    @Test
+    public void testMemory()
+    {
+        CountingIterable source = new CountingIterable(1000);
+        
+        try(SpillableIterable iterable = new SpillableIterable(source))
+        {
+            assertEquals(1000, verify(iterable));
+            assertEquals(1000, verify(iterable));
+            assertEquals(1000, verify(iterable));
+
+            assertEquals(1, source.iterations);
+            assertTrue(iterable.isComplete());
+            assertFalse(iterable.isSpilled());
+        }
+    }
+    
+    @Test
+    public void testSpill()
+    {
+        CountingIterable source = new CountingIterable(20000);
+        
+        try(SpillableIterable iterable = new SpillableIterable(source, 4096))
+        {
+            assertEquals(20000, verify(iterable));
+            assertTrue(iterable.isSpilled());
+            
+            assertEquals(20000, verify(iterable));
+            assertEquals(20000, verify(iterable));
+            assertEquals(1, source.iterations);
+        }
+    }
+    
+    @Test
+    public void testPartial() throws Exception
+    {
+        CountingIterable source = new CountingIterable(5000);
+        SpillableIterable iterable = new SpillableIterable(source, 1024);
+        CloseableIterator<JSONObject> first = iterable.iterator();
+        CloseableIterator<JSONObject> second;
+        
+        // Stop the first pass early
+        for(int i=0; i<100; i++) assertEquals(i, first.next().getInt("id"));
+        
+        assertEquals(100, iterable.getCount());
+        
+        // The second pass replays and then continues reading the source
+        second = iterable.iterator();
+        
+        for(int i=0; i<3000; i++) assertEquals(i, second.next().getInt("id"));
+        
+        // The first pass catches up from the buffer and then reads ahead
+        for(int i=100; i<4000; i++) assertEquals(i, first.next().getInt("id"));
+        for(int i=3000; i<5000; i++) assertEquals(i, second.next().getInt("id"));
+        
+        assertFalse(second.hasNext());
+        
+        first.close();
+        
+        assertFalse(first.hasNext());
+        assertEquals(5000, verify(iterable));
+        assertEquals(1, source.iterations);
+        
+        iterable.close();
+    }
+    
+    @Test
+    public void testSingleUseSource()
+    {
+        StringBuilder lines = new StringBuilder();
+        
+        for(int i=0; i<100; i++) lines.append("{\"id\":").append(i).append(",\"name\":\"Name ").append(i % 50).append("\"}\n");
+        
+        try(SpillableIterable iterable = new SpillableIterable(new JSONLinesInput().read(new InputStreamSource(new ByteArrayInputStream(lines.toString().getBytes()))), 256))
+        {
+            assertEquals(100, verify(iterable));
+            assertEquals(100, verify(iterable));
+        }
+    }
+    
+    @Test
+    public void testCopies()
+    {
+        List<JSONObject> records = new ArrayList<>();
+        JSONObject record = new JSONObject();
+        
+        record.put("id", 0);
+        records.add(record);
+        
+        try(SpillableIterable iterable = new SpillableIterable(records))
+        {
+            iterable.iterator().next();
+            
+            // Replayed records are fresh copies
+            iterable.iterator().next().put("id", 1);
+            
+            assertEquals(0, iterable.iterator().next().getInt("id"));
+        }
+    }
+    
+    @Test
+    public void testUnsupported()
+    {
+        List<JSONObject> records = new ArrayList<>();
+        JSONObject record = new JSONObject(true);
+        Iterator<JSONObject> first;
+        
+        for(int i=0; i<3; i++) records.add(new JSONObject("{\"id\":" + i + ",\"name\":\"Name " + i + "\"}"));
+        
+        record.put("id", new BigDecimal("1.5"));
+        records.add(record);
+        
+        try(SpillableIterable iterable = new SpillableIterable(records))
+        {
+            first = iterable.iterator();
+            
+            for(int i=0; i<3; i++) assertEquals(i, first.next().getInt("id"));
+            
+            assertThrows(ConvirganceException.class, () -> first.next());
+            
+            // The buffer cannot be replayed once a record failed to encode
+            assertThrows(ConvirganceException.class, () -> first.next());
+            assertThrows(ConvirganceException.class, () -> iterable.iterator());
+        }
+    }
+}